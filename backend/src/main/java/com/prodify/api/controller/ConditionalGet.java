@@ -0,0 +1,43 @@
+package com.prodify.api.controller;
+
+import com.prodify.api.dto.common.ResourceVersion;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * GET conditionnels (If-None-Match / If-Modified-Since) pour les lectures publiques.
+ * La version est comparée avant de construire le corps : un 304 ne coûte qu'une requête d'agrégat.
+ */
+final class ConditionalGet {
+
+    // Navigateurs et CDN peuvent stocker la réponse, mais doivent la revalider à chaque usage
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePublic();
+
+    private ConditionalGet() {
+    }
+
+    static <T> ResponseEntity<T> respond(WebRequest request, ResourceVersion version, Supplier<T> body) {
+        // checkNotModified pose aussi les en-têtes ETag et Last-Modified sur la réponse
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(body.get());
+    }
+
+    // Version absente (ressource inconnue) : pas de validation, la lecture normale renvoie l'erreur
+    static <T> ResponseEntity<T> respond(WebRequest request, Optional<ResourceVersion> version, Supplier<T> body) {
+        return version.map(v -> respond(request, v, body))
+                .orElseGet(() -> ResponseEntity.ok(body.get()));
+    }
+
+    // Corps déjà chargé (lu depuis le cache) : sa version en est tirée, sans requête de version séparée
+    static <T> ResponseEntity<T> respondLoaded(WebRequest request, T body, Function<T, ResourceVersion> version) {
+        return respond(request, version.apply(body), () -> body);
+    }
+}
@@ -1,17 +1,25 @@
 package com.prodify.api.controller;
 
-import com.prodify.api.model.Track;
+import com.prodify.api.dto.common.CursorPageResponse;
+import com.prodify.api.dto.track.DownloadResponse;
+import com.prodify.api.dto.track.TrackView;
 import com.prodify.api.model.User;
 import com.prodify.api.service.LibraryService;
+import com.prodify.api.service.TrackService;
+import com.prodify.api.service.ownership.OwnershipService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 @Slf4j
 @RestController
@@ -20,15 +28,20 @@ import java.util.List;
 public class LibraryController {
 
     private final LibraryService libraryService;
+    private final OwnershipService ownershipService;
 
     /**
-     * Récupère la liste des tracks achetées par l'utilisateur connecté.
+     * Récupère une page des tracks achetées par l'utilisateur connecté.
+     * URL : /api/library?limit=24 puis /api/library?cursor=<nextCursor>
      * 
      * @param authentication Infos de l'utilisateur connecté (injecté automatiquement par Spring)
-     * @return Liste des Track achetées
+     * @return Page de tracks achetées, les plus récemment achetées d'abord
      */
     @GetMapping
-    public ResponseEntity<List<Track>> getPurchasedTracks(Authentication authentication) {
+    public ResponseEntity<CursorPageResponse<TrackView>> getPurchasedTracks(
+            Authentication authentication,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         // 1. Vérifier que l'utilisateur est connecté
         if (authentication == null || !authentication.isAuthenticated()) {
             log.warn("Tentative d'accès à la bibliothèque sans authentification");
@@ -39,11 +52,46 @@ public class LibraryController {
         // Le Principal contient l'objet User stocké lors de l'authentification
         User user = (User) authentication.getPrincipal();
 
-        // 3. Récupérer les tracks achetées
+        // 3. Récupérer la page demandée
         log.info("Récupération de la bibliothèque pour l'utilisateur : {}", user.getId());
-        List<Track> purchasedTracks = libraryService.getPurchasedTracks(user);
+        try {
+            return ResponseEntity.ok(libraryService.getPurchasedTracks(user, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            // Curseur altéré côté client
+            return ResponseEntity.badRequest().build();
+        }
+    }
 
-        // 4. Retourner la liste
-        return ResponseEntity.ok(purchasedTracks);
+    /**
+     * Indique, pour un lot de tracks (une page du catalogue), lesquelles l'utilisateur a achetées.
+     * URL : /api/library/owned?trackIds=<id>,<id>,...
+     *
+     * @return {trackId: true|false} pour chaque track demandée (au plus {@link TrackService#MAX_PAGE_SIZE})
+     */
+    @GetMapping("/owned")
+    public ResponseEntity<Map<UUID, Boolean>> getOwnedTracks(
+            Authentication authentication,
+            @RequestParam List<UUID> trackIds) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return ResponseEntity.status(401).build();
+        }
+        if (trackIds.size() > TrackService.MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        User user = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(ownershipService.owns(user.getId(), trackIds));
+    }
+
+    /**
+     * Lien de téléchargement d'une track achetée, refusé (403) si elle n'est pas (ou plus) dans la bibliothèque.
+     * URL : /api/library/{trackId}/download
+     */
+    @GetMapping("/{trackId}/download")
+    public ResponseEntity<DownloadResponse> getDownloadUrl(Authentication authentication, @PathVariable UUID trackId) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return ResponseEntity.status(401).build();
+        }
+        User user = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(new DownloadResponse(libraryService.getDownloadUrl(user, trackId)));
     }
 }
@@ -1,36 +1,75 @@
 package com.prodify.api.controller;
 
+import com.prodify.api.dto.common.CursorPageResponse;
 import com.prodify.api.dto.order.CreateOrderRequest;
 import com.prodify.api.dto.order.OrderResponse;
+import com.prodify.api.model.OrderStatus;
 import com.prodify.api.model.User;
+import com.prodify.api.service.IdempotencyService;
 import com.prodify.api.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.UUID;
+
 @RestController
 @RequestMapping("/api/orders")
 @RequiredArgsConstructor
 public class OrderController {
 
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
 
     @PostMapping
     public ResponseEntity<OrderResponse> createOrder(
             @RequestBody CreateOrderRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             Authentication authentication
     ) {
         // Récupérer l'utilisateur connecté
         User user = (User) authentication.getPrincipal();
 
-        // Créer la commande
-        OrderResponse orderResponse = orderService.createOrder(user, request.getTrackIds());
+        // Créer la commande (une seule fois par Idempotency-Key : un client qui réessaie reçoit la même commande)
+        OrderResponse orderResponse = idempotencyKey == null
+                ? orderService.createOrder(user, request.getTrackIds())
+                : idempotencyService.execute(user.getId(), "orders.create", idempotencyKey,
+                        String.valueOf(request.getTrackIds()), OrderResponse.class,
+                        () -> orderService.createOrder(user, request.getTrackIds()));
 
         return ResponseEntity.ok(orderResponse);
     }
-}
 
+    // Historique paginé de l'utilisateur connecté (filtre optionnel : ?status=COMPLETED)
+    @GetMapping
+    public ResponseEntity<CursorPageResponse<OrderResponse>> getMyOrders(
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            Authentication authentication
+    ) {
+        User user = (User) authentication.getPrincipal();
+        try {
+            return ResponseEntity.ok(orderService.getOrderHistory(user, status, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            // Curseur altéré côté client
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Annuler une commande en attente (libère les tracks exclusives réservées)
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<Void> cancelOrder(@PathVariable UUID id, Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        orderService.cancelOrder(user, id);
+        return ResponseEntity.noContent().build();
+    }
+}
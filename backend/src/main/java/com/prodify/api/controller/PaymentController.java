@@ -5,16 +5,22 @@ import com.prodify.api.model.Order;
 import com.prodify.api.model.OrderStatus;
 import com.prodify.api.model.User;
 import com.prodify.api.repository.OrderRepository;
+import com.prodify.api.service.IdempotencyService;
 import com.prodify.api.service.PaymentService;
-import com.stripe.exception.StripeException;
-import com.stripe.model.checkout.Session;
+import com.prodify.api.service.payment.CheckoutSession;
+import com.prodify.api.service.payment.PaymentGatewayException;
+import com.prodify.api.service.payment.PaymentUnavailableException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.UUID;
 
+@Slf4j
 @RestController
 @RequestMapping("/api/payment")
 @RequiredArgsConstructor
@@ -22,15 +28,26 @@ public class PaymentController {
 
     private final PaymentService paymentService;
     private final OrderRepository orderRepository;
+    private final IdempotencyService idempotencyService;
 
     @PostMapping("/checkout/{orderId}")
     public ResponseEntity<PaymentResponse> createCheckoutSession(
             @PathVariable UUID orderId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             Authentication authentication
     ) {
         // 1. Récupérer l'utilisateur connecté
         User user = (User) authentication.getPrincipal();
 
+        // Avec une Idempotency-Key, un rejeu renvoie la même session au lieu d'en créer une nouvelle chez Stripe
+        PaymentResponse response = idempotencyKey == null
+                ? startCheckout(orderId, user)
+                : idempotencyService.execute(user.getId(), "payment.checkout", idempotencyKey,
+                        orderId.toString(), PaymentResponse.class, () -> startCheckout(orderId, user));
+        return ResponseEntity.ok(response);
+    }
+
+    private PaymentResponse startCheckout(UUID orderId, User user) {
         // 2. Récupérer l'Order
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Commande introuvable"));
@@ -45,35 +62,26 @@ public class PaymentController {
             throw new RuntimeException("Cette commande ne peut plus être payée. Statut actuel: " + order.getStatus());
         }
 
-        // 5. Créer la session Stripe
+        // 5. Créer la session de paiement
         try {
             // Passer l'ID de l'order au lieu de l'objet pour forcer le re-fetch dans la transaction
-            Session session = paymentService.createCheckoutSession(order.getId());
+            CheckoutSession session = paymentService.createCheckoutSession(order.getId());
             
-            PaymentResponse response = PaymentResponse.builder()
-                    .url(session.getUrl())
+            return PaymentResponse.builder()
+                    .url(session.url())
                     .build();
-
-            return ResponseEntity.ok(response);
-        } catch (StripeException e) {
-            // Logger l'erreur pour le debugging
-            e.printStackTrace();
-            System.err.println("Erreur Stripe lors de la création de la session de paiement:");
-            System.err.println("Message: " + e.getMessage());
-            if (e.getCode() != null) {
-                System.err.println("Code: " + e.getCode());
-            }
-            if (e.getStatusCode() != null) {
-                System.err.println("Status Code: " + e.getStatusCode());
-            }
-            
-            // Retourner une erreur 400 avec le message détaillé
+        } catch (PaymentUnavailableException e) {
+            // Prestataire lent ou en panne : réponse immédiate, le client réessaiera
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), e);
+        } catch (ResponseStatusException e) {
+            // Réservation d'exclusive expirée (409)
+            throw e;
+        } catch (PaymentGatewayException e) {
+            // Détail (code, statut Stripe) déjà journalisé par la passerelle
             throw new RuntimeException("Erreur lors de la création de la session de paiement Stripe: " + e.getMessage(), e);
         } catch (Exception e) {
             // Logger les autres erreurs
-            e.printStackTrace();
-            System.err.println("Erreur inattendue lors de la création de la session de paiement: " + e.getMessage());
-            
+            log.error("Erreur inattendue lors de la création de la session de paiement de la commande {}", orderId, e);
             throw new RuntimeException("Erreur inattendue lors de la création de la session de paiement: " + e.getMessage(), e);
         }
     }
@@ -1,18 +1,22 @@
 package com.prodify.api.controller;
 
 import com.prodify.api.dto.producer.ProducerRequest;
+import com.prodify.api.dto.producer.ProducerStatsResponse;
 import com.prodify.api.model.Producer;
 import com.prodify.api.model.User;
 import com.prodify.api.service.ProducerService;
+import com.prodify.api.service.ProducerStatsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.context.request.WebRequest;
 import java.util.List;
     import java.util.UUID;
 
@@ -22,6 +26,7 @@ import java.util.List;
 public class ProducerController {
 
     private final ProducerService producerService;
+    private final ProducerStatsService producerStatsService;
 
     @PostMapping
     public ResponseEntity<Producer> createProducer(
@@ -40,13 +45,24 @@ public class ProducerController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Producer>> getAllProducers() {
-        return ResponseEntity.ok(producerService.getAllProducers());
+    public ResponseEntity<List<Producer>> getAllProducers(WebRequest webRequest) {
+        // Un 304 ne coûte qu'un COUNT/MAX : la liste n'est chargée que si elle a changé
+        return ConditionalGet.respond(webRequest, producerService.getProducersVersion(),
+                producerService::getAllProducers);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Producer> getProducerById(@PathVariable UUID id) {
-        return ResponseEntity.ok(producerService.getProducerById(id));
+    public ResponseEntity<Producer> getProducerById(@PathVariable UUID id, WebRequest webRequest) {
+        return ConditionalGet.respond(webRequest, producerService.getProducerVersion(id),
+                () -> producerService.getProducerById(id));
+    }
+
+    // Statistiques (catalogue, ventes, CA) : lecture d'une ligne pré-calculée.
+    // Route publique : le CA n'est renvoyé qu'au producteur lui-même ou à un administrateur
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<ProducerStatsResponse> getProducerStats(@PathVariable UUID id, Authentication authentication) {
+        User viewer = authentication != null && authentication.getPrincipal() instanceof User user ? user : null;
+        return ResponseEntity.ok(producerStatsService.getStats(id, viewer));
     }
 
     // Récupérer le producteur de l'utilisateur connecté
@@ -56,10 +72,18 @@ public class ProducerController {
         return ResponseEntity.ok(producerService.getProducerByUser(user));
     }
 
+    // Modifier le profil du producteur connecté (nom d'artiste, bio)
+    @PutMapping("/me")
+    public ResponseEntity<Producer> updateMyProducer(@RequestBody ProducerRequest request, Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(producerService.updateProducerProfile(user, request));
+    }
+
     // Récupérer un producteur via son Slug (URL lisible)
     // URL : /api/producers/slug/mon-beatmaker-cool
     @GetMapping("/slug/{slug}")
-    public ResponseEntity<Producer> getProducerBySlug(@PathVariable String slug) {
-        return ResponseEntity.ok(producerService.getProducerBySlug(slug));
+    public ResponseEntity<Producer> getProducerBySlug(@PathVariable String slug, WebRequest webRequest) {
+        return ConditionalGet.respond(webRequest, producerService.getProducerVersionBySlug(slug),
+                () -> producerService.getProducerBySlug(slug));
     }
 }
\ No newline at end of file
@@ -1,14 +1,27 @@
 package com.prodify.api.controller;
 
+import com.prodify.api.dto.common.CursorPageResponse;
+import com.prodify.api.dto.track.TrackImportReport;
 import com.prodify.api.dto.track.TrackRequest;
+import com.prodify.api.dto.track.TrackSearchResponse;
+import com.prodify.api.dto.track.TrackView;
 import com.prodify.api.model.Track;
 import com.prodify.api.model.User;
+import com.prodify.api.service.CatalogQuery;
 import com.prodify.api.service.TrackService;
+import com.prodify.api.service.importer.TrackImportService;
+import com.prodify.api.service.importer.TrackRowReader;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.UUID;
 
@@ -18,41 +31,125 @@ import java.util.UUID;
 public class TrackController {
 
     private final TrackService trackService;
+    private final TrackImportService trackImportService;
 
     // 1. Créer une Track (Sécurisé)
     @PostMapping
     public ResponseEntity<Track> createTrack(
-            @RequestBody TrackRequest request,
+            @Valid @RequestBody TrackRequest request,
             Authentication authentication
     ) {
         User user = (User) authentication.getPrincipal();
         return ResponseEntity.ok(trackService.createTrack(user, request));
     }
 
-    // 2. Lister toutes les Tracks (Public)
+    // 1b. Importer un catalogue entier (Sécurisé)
+    // Corps lu en flux : une TrackRequest JSON par ligne (application/x-ndjson) ou un CSV avec en-tête (text/csv)
+    @PostMapping(value = "/import", consumes = {TrackRowReader.NDJSON, TrackRowReader.CSV})
+    public ResponseEntity<TrackImportReport> importTracks(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body,
+            Authentication authentication
+    ) throws IOException {
+        User user = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(trackImportService.importTracks(user, contentType, body));
+    }
+
+    // 2. Lister les Tracks page par page (Public)
+    // URL : /api/tracks?limit=24 puis /api/tracks?cursor=<nextCursor>
     @GetMapping
-    public ResponseEntity<List<Track>> getAllTracks() {
-        return ResponseEntity.ok(trackService.getAllTracks());
+    public ResponseEntity<CursorPageResponse<TrackView>> getAllTracks(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest webRequest
+    ) {
+        try {
+            // Le corps ne dépend que de l'URL et de l'état du catalogue : une seule version pour toutes les pages
+            return ConditionalGet.respond(webRequest, trackService.getCatalogVersion(),
+                    () -> trackService.getCatalogPage(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            // Curseur altéré ou expiré côté client
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // 2b. Rechercher dans le catalogue : texte libre et/ou facettes (Public)
+    // URL : /api/tracks/search?q=dark drill 140&genre=Drill&bpmMin=130&bpmMax=150&priceMax=50
+    @GetMapping("/search")
+    public ResponseEntity<TrackSearchResponse> searchTracks(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String genre,
+            @RequestParam(required = false) String mood,
+            @RequestParam(required = false) Integer bpmMin,
+            @RequestParam(required = false) Integer bpmMax,
+            @RequestParam(required = false) BigDecimal priceMin,
+            @RequestParam(required = false) BigDecimal priceMax,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) Integer limit,
+            WebRequest webRequest
+    ) {
+        CatalogQuery query = new CatalogQuery(q, genre, mood, bpmMin, bpmMax, priceMin, priceMax,
+                Math.max(offset, 0), TrackService.clampPageSize(limit));
+        return ConditionalGet.respond(webRequest, trackService.getCatalogVersion(),
+                () -> trackService.searchCatalog(query));
+    }
+
+    // 2c. Classements (Public), tous genres ou un genre précis
+    // URL : /api/tracks/trending?genre=Drill&limit=20
+    @GetMapping("/trending")
+    public ResponseEntity<List<TrackView>> getTrendingTracks(
+            @RequestParam(required = false) String genre,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return ResponseEntity.ok(trackService.getTrendingTracks(genre, limit));
+    }
+
+    // URL : /api/tracks/best-sellers?genre=Trap
+    @GetMapping("/best-sellers")
+    public ResponseEntity<List<TrackView>> getBestSellers(
+            @RequestParam(required = false) String genre,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return ResponseEntity.ok(trackService.getBestSellers(genre, limit));
     }
 
     // 3. Voir une Track spécifique (Public)
     @GetMapping("/{id}")
-    public ResponseEntity<Track> getTrackById(@PathVariable UUID id) {
-        return ResponseEntity.ok(trackService.getTrackById(id));
+    public ResponseEntity<TrackView> getTrackById(@PathVariable UUID id, WebRequest webRequest) {
+        return ConditionalGet.respondLoaded(webRequest, trackService.getTrackById(id), TrackView::version);
+    }
+
+    // 3b. Voir une Track via son Slug (Public)
+    // URL : /api/tracks/slug/mon-titre-incroyable
+    @GetMapping("/slug/{slug}")
+    public ResponseEntity<TrackView> getTrackBySlug(@PathVariable String slug, WebRequest webRequest) {
+        return ConditionalGet.respondLoaded(webRequest, trackService.getTrackBySlug(slug), TrackView::version);
+    }
+
+    // 3c. "Sons similaires" pour la page d'une Track (Public)
+    // URL : /api/tracks/{id}/similar?limit=12
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<TrackView>> getSimilarTracks(
+            @PathVariable UUID id,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return ResponseEntity.ok(trackService.getSimilarTracks(id, limit));
     }
 
     // 4. Voir les Tracks d'un producteur spécifique (Public) - par ID
     // URL : /api/tracks/producer/{producerId}
     @GetMapping("/producer/{producerId}")
-    public ResponseEntity<List<Track>> getTracksByProducer(@PathVariable UUID producerId) {
-        return ResponseEntity.ok(trackService.getTracksByProducer(producerId));
+    public ResponseEntity<List<TrackView>> getTracksByProducer(@PathVariable UUID producerId, WebRequest webRequest) {
+        return ConditionalGet.respond(webRequest, trackService.getProducerTracksVersion(producerId),
+                () -> trackService.getTracksByProducer(producerId));
     }
 
     // 4b. Voir les Tracks d'un producteur spécifique (Public) - par Slug
     // URL : /api/tracks/producer-slug/mon-beatmaker-cool
     @GetMapping("/producer-slug/{slug}")
-    public ResponseEntity<List<Track>> getTracksByProducerSlug(@PathVariable String slug) {
-        return ResponseEntity.ok(trackService.getTracksByProducerSlug(slug));
+    public ResponseEntity<List<TrackView>> getTracksByProducerSlug(@PathVariable String slug, WebRequest webRequest) {
+        return ConditionalGet.respond(webRequest, trackService.getProducerTracksVersionBySlug(slug),
+                () -> trackService.getTracksByProducerSlug(slug));
     }
 
     // 5. Modifier une Track (Sécurisé - uniquement le propriétaire)
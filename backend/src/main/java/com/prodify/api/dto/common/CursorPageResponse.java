@@ -0,0 +1,21 @@
+package com.prodify.api.dto.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageResponse<T> {
+    private List<T> items;
+
+    // Jeton opaque à renvoyer tel quel pour obtenir la page suivante (null si dernière page)
+    private String nextCursor;
+
+    private boolean hasMore;
+}
@@ -0,0 +1,41 @@
+package com.prodify.api.dto.common;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Version d'une ressource (ou d'une collection) exposée en GET : de quoi construire
+ * l'ETag et le Last-Modified sans charger ni sérialiser le corps de la réponse.
+ *
+ * @param revision     nombre de lignes couvertes (ou compteur de modifications pour le catalogue)
+ * @param lastModified date de la dernière écriture connue, null si la collection est vide
+ */
+public record ResourceVersion(long revision, Instant lastModified) {
+
+    // Utilisé par les requêtes JPQL "select new ... (count(..), max(..), max(..))"
+    public ResourceVersion(Long count, OffsetDateTime updatedAt, OffsetDateTime relatedUpdatedAt) {
+        this(count == null ? 0 : count, latest(updatedAt, relatedUpdatedAt));
+    }
+
+    // ETag fort : change dès qu'une ligne est ajoutée, supprimée ou modifiée
+    public String etag() {
+        long micros = lastModified == null ? 0 : ChronoUnit.MICROS.between(Instant.EPOCH, lastModified);
+        return "\"" + Long.toHexString(revision) + "-" + Long.toHexString(micros) + "\"";
+    }
+
+    // -1 : pas de Last-Modified (seul l'ETag sera comparé)
+    public long lastModifiedMillis() {
+        return lastModified == null ? -1 : lastModified.toEpochMilli();
+    }
+
+    private static Instant latest(OffsetDateTime a, OffsetDateTime b) {
+        if (a == null) {
+            return b == null ? null : b.toInstant();
+        }
+        if (b == null) {
+            return a.toInstant();
+        }
+        return a.isAfter(b) ? a.toInstant() : b.toInstant();
+    }
+}
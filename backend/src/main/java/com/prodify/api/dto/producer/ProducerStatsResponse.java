@@ -0,0 +1,25 @@
+package com.prodify.api.dto.producer;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProducerStatsResponse {
+    private UUID producerId;
+    private long trackCount;
+    private long unitsSold;
+    // Absent de la réponse sauf pour le producteur lui-même ou un administrateur
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private BigDecimal revenue;
+    private OffsetDateTime updatedAt;
+}
@@ -0,0 +1,10 @@
+package com.prodify.api.dto.track;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class DownloadResponse {
+    private String url;
+}
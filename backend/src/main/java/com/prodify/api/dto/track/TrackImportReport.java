@@ -0,0 +1,31 @@
+package com.prodify.api.dto.track;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TrackImportReport {
+    private int imported;
+    private int failed;
+
+    // Détail des lignes rejetées, plafonné : "failed" reste le total exact
+    @Builder.Default
+    private List<RowError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+        private long line; // Numéro de ligne dans le fichier envoyé (1 = première ligne)
+        private String message;
+    }
+}
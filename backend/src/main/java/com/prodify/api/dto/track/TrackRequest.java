@@ -1,5 +1,11 @@
 package com.prodify.api.dto.track;
 
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,17 +19,41 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 public class TrackRequest {
 
+    // Règles vérifiées à la création (POST /api/tracks) et pour chaque ligne d'un import
+    @NotBlank
+    @Size(max = 255)
     private String title;
+
     private String description;
     
     // BigDecimal est obligatoire pour l'argent (précision)
+    @NotNull
+    @DecimalMin("0.00")
     private BigDecimal price; 
     
+    @Positive
+    @Max(999)
     private Integer bpm;
+
+    @Size(max = 255)
     private String genre;
+
+    @Size(max = 255)
     private String mood;
     
     // Pour l'instant on envoie des URLs texte (ex: liens Google Drive ou S3)
+    @NotBlank
+    @Size(max = 255)
     private String coverImageUrl;
+
+    @NotBlank
+    @Size(max = 255)
     private String audioUrl;
+
+    // Extrait taggé pour l'écoute publique (facultatif)
+    @Size(max = 255)
+    private String previewUrl;
+
+    // Licence exclusive (null à la mise à jour = inchangé)
+    private Boolean exclusive;
 }
\ No newline at end of file
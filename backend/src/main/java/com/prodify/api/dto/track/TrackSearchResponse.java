@@ -0,0 +1,22 @@
+package com.prodify.api.dto.track;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TrackSearchResponse {
+    private int total;
+    private List<TrackView> items;
+
+    // ex: { "Trap": 120, "Drill": 45 } - pour afficher les compteurs à côté des filtres
+    private Map<String, Integer> genres;
+    private Map<String, Integer> moods;
+}
@@ -0,0 +1,59 @@
+package com.prodify.api.dto.track;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.prodify.api.dto.common.ResourceVersion;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Modèle de lecture d'une Track pour les endpoints publics.
+ *
+ * Construit directement par une expression JPQL "select new" : une seule requête,
+ * jointure sur producers uniquement, sans charger ni l'entité Producer ni son User.
+ * Le JSON garde la même forme que l'entité Track pour le frontend, sans le fichier vendu (audioUrl) :
+ * seul l'extrait d'écoute est public, le fichier passe par le téléchargement de la bibliothèque.
+ */
+public record TrackView(
+        UUID id,
+        String title,
+        String slug,
+        String description,
+        Integer bpm,
+        String genre,
+        String mood,
+        String coverImageUrl,
+        String previewUrl,
+        BigDecimal price,
+        boolean sold,
+        boolean exclusive,
+        OffsetDateTime createdAt,
+        OffsetDateTime updatedAt,
+        ProducerSummary producer
+) {
+
+    // updatedAt ne sert qu'à la version de la vue (ETag), il n'est pas exposé
+    public record ProducerSummary(UUID id, String displayName, String slug, String avatarUrl,
+                                  @JsonIgnore OffsetDateTime updatedAt) {
+    }
+
+    // Constructeur "à plat" utilisé par les requêtes JPQL
+    public TrackView(UUID id, String title, String slug, String description, Integer bpm, String genre,
+                     String mood, String coverImageUrl, String previewUrl, BigDecimal price, boolean sold,
+                     boolean exclusive, OffsetDateTime createdAt, OffsetDateTime updatedAt,
+                     UUID producerId, String producerDisplayName, String producerSlug, String producerAvatarUrl,
+                     OffsetDateTime producerUpdatedAt) {
+        this(id, title, slug, description, bpm, genre, mood, coverImageUrl, previewUrl, price, sold, exclusive, createdAt, updatedAt,
+                new ProducerSummary(producerId, producerDisplayName, producerSlug, producerAvatarUrl, producerUpdatedAt));
+    }
+
+    /**
+     * Version de la vue pour les GET conditionnels, tirée de la vue elle-même (souvent déjà en cache) :
+     * la dernière écriture sur la track ou sur son producteur, dont le nom est recopié ici.
+     */
+    @JsonIgnore
+    public ResourceVersion version() {
+        return new ResourceVersion(1L, updatedAt, producer.updatedAt());
+    }
+}
@@ -0,0 +1,10 @@
+package com.prodify.api.event;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Publié quand des tracks remboursées sont retirées de la bibliothèque d'un utilisateur.
+ */
+public record EntitlementsRevokedEvent(UUID orderId, UUID userId, List<UUID> trackIds) {
+}
@@ -0,0 +1,12 @@
+package com.prodify.api.event;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Publié quand une commande passe à COMPLETED (paiement confirmé).
+ * Ne transporte que des identifiants : les abonnés n'ont pas à recharger la commande.
+ */
+public record OrderCompletedEvent(UUID orderId, UUID userId, List<UUID> trackIds, OffsetDateTime completedAt) {
+}
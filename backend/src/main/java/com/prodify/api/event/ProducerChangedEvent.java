@@ -0,0 +1,10 @@
+package com.prodify.api.event;
+
+import java.util.UUID;
+
+/**
+ * Publié après la modification d'un profil producteur (nom d'artiste, bio).
+ * Les tracks affichent le nom du producteur : les index et caches qui le recopient s'y abonnent.
+ */
+public record ProducerChangedEvent(UUID producerId) {
+}
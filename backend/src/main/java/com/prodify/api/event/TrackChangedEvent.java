@@ -0,0 +1,16 @@
+package com.prodify.api.event;
+
+import com.prodify.api.model.Track;
+
+/**
+ * Publié après chaque écriture sur une Track (création, modification, suppression).
+ * Les index en mémoire du catalogue s'y abonnent pour rester à jour sans relire la BDD.
+ */
+public record TrackChangedEvent(Track track, Type type) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -0,0 +1,33 @@
+package com.prodify.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Version persistée du catalogue public : une seule ligne (id = 1), incrémentée à chaque écriture
+ * sur une Track ou un profil producteur (voir CatalogStateRepository).
+ * Toutes les instances lisent la même ligne : les ETags du catalogue sont les mêmes d'un nœud à l'autre
+ * et survivent aux redémarrages.
+ */
+@Entity
+@Table(name = "catalog_state")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CatalogState {
+
+    public static final short SINGLETON_ID = 1;
+
+    @Id
+    private short id;
+
+    @Column(nullable = false)
+    private long revision;
+
+    @Column(nullable = false)
+    private OffsetDateTime updatedAt;
+}
@@ -0,0 +1,28 @@
+package com.prodify.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Reprise de données déjà appliquée (une ligne par reprise, identifiée par son nom).
+ * Les reprises lancées au démarrage consultent cette table pour ne parcourir les données qu'une seule fois
+ * (voir DataMigrationRepository.markApplied).
+ */
+@Entity
+@Table(name = "data_migrations")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DataMigration {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(nullable = false)
+    private OffsetDateTime appliedAt;
+}
@@ -0,0 +1,48 @@
+package com.prodify.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Droit d'un utilisateur sur une track achetée : une ligne par (utilisateur, track), quel que soit
+ * le nombre de commandes qui la contiennent. Dénormalisé depuis orders / order_items au paiement
+ * (OrderService.validateOrder) pour servir la bibliothèque en une requête indexée.
+ */
+@Entity
+@Table(name = "entitlements", indexes = {
+        // Bibliothèque paginée d'un utilisateur, achats les plus récents d'abord
+        @Index(name = "idx_entitlements_user_acquired_at", columnList = "user_id, acquired_at DESC, track_id DESC")
+})
+@IdClass(Entitlement.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Entitlement {
+
+    @Id
+    private UUID userId;
+
+    @Id
+    private UUID trackId;
+
+    // Première commande payée qui a donné ce droit
+    @Column(nullable = false)
+    private UUID orderId;
+
+    @Column(nullable = false)
+    private OffsetDateTime acquiredAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private UUID userId;
+        private UUID trackId;
+    }
+}
@@ -0,0 +1,71 @@
+package com.prodify.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Une clé Idempotency-Key reçue d'un client, et la réponse renvoyée la première fois.
+ * La clé primaire (utilisateur, opération, clé) fait office de verrou : seule la requête
+ * qui insère la ligne exécute l'opération (voir IdempotencyRecordRepository).
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        // Purge des clés expirées
+        @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at")
+})
+@IdClass(IdempotencyRecord.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord {
+
+    @Id
+    private UUID userId;
+
+    // ex: "orders.create", "payment.checkout"
+    @Id
+    @Column(length = 64)
+    private String operation;
+
+    @Id
+    @Column(name = "idem_key")
+    private String idempotencyKey;
+
+    // Empreinte de la requête : une même clé ne peut pas servir pour une autre requête
+    @Column(nullable = false)
+    private String fingerprint;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    // Réponse sérialisée en JSON (null tant que la requête est en cours)
+    @Column(columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(nullable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(nullable = false)
+    private OffsetDateTime expiresAt;
+
+    public enum Status {
+        IN_PROGRESS,
+        COMPLETED
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private UUID userId;
+        private String operation;
+        private String idempotencyKey;
+    }
+}
@@ -0,0 +1,68 @@
+package com.prodify.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.UuidGenerator;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Mouvement d'argent sur une ligne de commande (journal des paiements, en ajout seul) :
+ * jamais modifié ni supprimé, une correction est un nouveau mouvement.
+ * La somme des mouvements d'une ligne est ce que l'acheteur a réellement payé pour cette track.
+ */
+@Entity
+@Table(name = "payment_ledger", indexes = {
+        // Mouvements d'une commande (remboursements, litiges, rapprochement)
+        @Index(name = "idx_payment_ledger_order_id", columnList = "order_id"),
+        // Relevé d'un producteur
+        @Index(name = "idx_payment_ledger_producer_recorded_at", columnList = "producer_id, recorded_at")
+})
+@Immutable
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerEntry {
+
+    // Généré côté application : les mouvements d'un événement partent en un seul INSERT groupé
+    @Id
+    @UuidGenerator
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID orderId;
+
+    @Column(nullable = false)
+    private UUID orderItemId;
+
+    @Column(nullable = false)
+    private UUID producerId;
+
+    @Column(nullable = false)
+    private UUID trackId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private LedgerEntryType type;
+
+    // Signé : positif = encaissé, négatif = rendu à l'acheteur ou retiré par la banque
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(nullable = false, length = 3)
+    private String currency;
+
+    // Objet Stripe à l'origine du mouvement (session, charge, litige)
+    private String reference;
+
+    // Date du mouvement chez Stripe
+    @Column(nullable = false)
+    private OffsetDateTime occurredAt;
+
+    @Column(nullable = false)
+    private OffsetDateTime recordedAt;
+}
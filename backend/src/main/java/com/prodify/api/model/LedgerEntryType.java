@@ -0,0 +1,11 @@
+package com.prodify.api.model;
+
+/**
+ * Nature d'un mouvement du journal des paiements ({@link LedgerEntry}).
+ */
+public enum LedgerEntryType {
+    CAPTURE,            // Paiement encaissé (montant positif)
+    REFUND,             // Remboursement à l'acheteur (négatif)
+    DISPUTE,            // Litige ouvert : fonds retirés par la banque (négatif)
+    DISPUTE_REVERSAL    // Litige gagné : fonds restitués (positif)
+}
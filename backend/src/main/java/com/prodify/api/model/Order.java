@@ -11,7 +11,16 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Rechargement des ventes récentes (classements "tendances")
+        @Index(name = "idx_orders_completed_at", columnList = "completed_at"),
+        // Historique paginé d'un acheteur
+        @Index(name = "idx_orders_user_created_at", columnList = "user_id, created_at DESC, id DESC"),
+        // Commandes PENDING les plus anciennes (expiration des paniers abandonnés)
+        @Index(name = "idx_orders_status_created_at", columnList = "status, created_at"),
+        // Remboursements et litiges Stripe : retrouver la commande depuis le PaymentIntent
+        @Index(name = "idx_orders_payment_intent_id", columnList = "payment_intent_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -49,6 +58,23 @@ public class Order {
 
     private OffsetDateTime updatedAt;
 
+    // Date du paiement confirmé (passage à COMPLETED)
+    private OffsetDateTime completedAt;
+
+    // Dernière session de paiement ouverte : renvoyée aux clics suivants tant qu'elle n'a pas expiré
+    private String checkoutSessionId;
+
+    @Column(length = 2048)
+    private String checkoutUrl;
+
+    private OffsetDateTime checkoutExpiresAt;
+
+    // Session remplacée par checkoutSessionId, fermée chez le prestataire avant le remplacement
+    private String previousCheckoutSessionId;
+
+    // PaymentIntent Stripe du paiement confirmé (les remboursements et litiges n'y font référence que par lui)
+    private String paymentIntentId;
+
     @PrePersist
     public void onCreate() {
         this.createdAt = OffsetDateTime.now();
@@ -5,10 +5,14 @@ import lombok.*;
 import org.hibernate.annotations.UuidGenerator;
 
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "order_items")
+@Table(name = "order_items", indexes = {
+        // Lignes d'une page de commandes (historique), suppression en cascade
+        @Index(name = "idx_order_items_order_id", columnList = "order_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -33,5 +37,11 @@ public class OrderItem {
     // Prix au moment de l'achat (snapshot pour historique)
     @Column(nullable = false, precision = 19, scale = 2)
     private BigDecimal price;
+
+    // Ligne intégralement remboursée : la track n'est plus dans la bibliothèque de l'acheteur
+    private OffsetDateTime refundedAt;
+
+    // Exclusive déjà vendue à un autre acheteur quand ce paiement est arrivé : ligne à rembourser
+    private OffsetDateTime doubleSoldAt;
 }
 
@@ -0,0 +1,34 @@
+package com.prodify.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Événement Stripe déjà appliqué. La clé primaire sur l'identifiant Stripe garantit qu'un événement
+ * livré plusieurs fois (Stripe livre "au moins une fois") n'est appliqué qu'une seule fois :
+ * la ligne est insérée dans la transaction qui applique l'événement (voir WebhookDeduplicator).
+ */
+@Entity
+@Table(name = "processed_webhook_events", indexes = {
+        // Purge des identifiants trop anciens pour être encore relivrés
+        @Index(name = "idx_processed_webhook_events_processed_at", columnList = "processed_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProcessedWebhookEvent {
+
+    // Identifiant Stripe (evt_...)
+    @Id
+    private String eventId;
+
+    @Column(nullable = false)
+    private String type;
+
+    @Column(nullable = false)
+    private OffsetDateTime processedAt;
+}
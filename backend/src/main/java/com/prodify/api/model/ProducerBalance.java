@@ -0,0 +1,44 @@
+package com.prodify.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Solde courant d'un producteur, une ligne par producteur : somme de ses mouvements du journal des paiements,
+ * tenue à jour par incréments à chaque ajout (voir ProducerBalanceRepository), jamais recalculée depuis l'historique.
+ * Montants signés, comme dans {@link LedgerEntry}.
+ */
+@Entity
+@Table(name = "producer_balances")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProducerBalance {
+
+    // Même identifiant que le Producer (pas de génération)
+    @Id
+    private UUID producerId;
+
+    // captured + refunded + disputed
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal captured;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal refunded;
+
+    // Litiges ouverts moins litiges gagnés
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal disputed;
+
+    @Column(nullable = false)
+    private OffsetDateTime updatedAt;
+}
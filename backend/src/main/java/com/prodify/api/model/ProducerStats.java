@@ -0,0 +1,41 @@
+package com.prodify.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Statistiques d'un producteur (taille du catalogue, ventes, chiffre d'affaires), une ligne par producteur.
+ * Tenues à jour par incréments atomiques (voir ProducerStatsRepository) et recalculées
+ * périodiquement depuis les tracks et les commandes : la lecture n'agrège jamais rien.
+ */
+@Entity
+@Table(name = "producer_stats")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProducerStats {
+
+    // Même identifiant que le Producer (pas de génération)
+    @Id
+    private UUID producerId;
+
+    @Column(nullable = false)
+    private long trackCount;
+
+    // Nombre de tracks vendues (commandes payées)
+    @Column(nullable = false)
+    private long unitsSold;
+
+    // Somme des prix payés (snapshot OrderItem.price), moins les remboursements du journal des paiements
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(nullable = false)
+    private OffsetDateTime updatedAt;
+}
@@ -0,0 +1,42 @@
+package com.prodify.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+
+/**
+ * Un slug réservé dans un espace de noms (tracks ou producteurs).
+ * La clé primaire (scope, slug) fait office de verrou : la première insertion gagne,
+ * les suivantes sont ignorées par "ON CONFLICT DO NOTHING" (voir SlugReservationRepository).
+ */
+@Entity
+@Table(name = "slug_registry")
+@IdClass(SlugReservation.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SlugReservation {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private SlugScope scope;
+
+    @Id
+    private String slug;
+
+    @Column(nullable = false)
+    private OffsetDateTime createdAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private SlugScope scope;
+        private String slug;
+    }
+}
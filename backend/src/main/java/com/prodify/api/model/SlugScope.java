@@ -0,0 +1,6 @@
+package com.prodify.api.model;
+
+public enum SlugScope {
+    TRACK,     // prodify.com/track/<slug>
+    PRODUCER   // prodify.com/p/<slug>
+}
@@ -3,6 +3,7 @@ package com.prodify.api.model;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.UuidGenerator;
 
 import java.math.BigDecimal;
@@ -10,7 +11,12 @@ import java.time.OffsetDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "tracks")
+@Table(name = "tracks", indexes = {
+        // Sert le catalogue paginé (keyset) sans tri en mémoire
+        @Index(name = "idx_tracks_created_at_id", columnList = "created_at DESC, id DESC"),
+        // Listing et version des tracks d'un producteur
+        @Index(name = "idx_tracks_producer_id", columnList = "producer_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -18,8 +24,9 @@ import java.util.UUID;
 @Builder
 public class Track {
 
+    // UUID basés sur l'horloge : croissants sur une même instance, les imports en masse écrivent en fin d'index
     @Id
-    @UuidGenerator
+    @UuidGenerator(style = UuidGenerator.Style.TIME)
     private UUID id;
 
     // --- RELATION ---
@@ -55,14 +62,20 @@ public class Track {
     private String coverImageUrl;
 
     @Column(nullable = false)
-    private String audioUrl; // Le MP3 taggé pour l'écoute gratuite
+    private String audioUrl; // Le fichier vendu : jamais exposé, servi aux seuls propriétaires (LibraryService)
+
+    private String previewUrl; // Le MP3 taggé pour l'écoute gratuite (null : pas d'écoute)
 
     // --- PRIX ---
     @Column(nullable = false)
     private BigDecimal price; // Utiliser BigDecimal pour l'argent !
 
     // --- STATUT ---
-    private boolean isSold = false; // Si vendu en exclusivité
+    private boolean isSold; // Si vendu en exclusivité
+
+    // Licence exclusive : une seule vente possible, la track est réservée pendant le paiement (voir TrackHoldService)
+    @ColumnDefault("false")
+    private boolean isExclusive;
 
     @Column(nullable = false)
     private OffsetDateTime createdAt;
@@ -0,0 +1,36 @@
+package com.prodify.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Réservation temporaire d'une track exclusive par une commande en attente de paiement.
+ * Une seule ligne par track : la prise de réservation est un INSERT ... ON CONFLICT qui ne remplace
+ * qu'une réservation expirée (voir TrackHoldRepository). Une réservation expirée ne bloque plus rien,
+ * même si la ligne n'a pas encore été purgée.
+ */
+@Entity
+@Table(name = "track_holds", indexes = {
+        @Index(name = "idx_track_holds_order_id", columnList = "order_id"),
+        @Index(name = "idx_track_holds_expires_at", columnList = "expires_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TrackHold {
+
+    // Pas de génération : c'est l'id de la track réservée
+    @Id
+    private UUID trackId;
+
+    @Column(nullable = false)
+    private UUID orderId;
+
+    @Column(nullable = false)
+    private OffsetDateTime expiresAt;
+}
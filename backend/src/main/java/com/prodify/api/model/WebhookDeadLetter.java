@@ -0,0 +1,46 @@
+package com.prodify.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Événement Stripe abandonné après {@code prodify.webhooks.max-attempts} échecs.
+ * Conservé tel que reçu pour analyse et rejeu manuel.
+ */
+@Entity
+@Table(name = "webhook_dead_letters")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WebhookDeadLetter {
+
+    // Même id que la ligne de webhook_inbox
+    @Id
+    private UUID id;
+
+    @Column(nullable = false)
+    private String eventId;
+
+    @Column(nullable = false)
+    private String type;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(nullable = false)
+    private OffsetDateTime receivedAt;
+
+    @Column(nullable = false)
+    private OffsetDateTime failedAt;
+}
@@ -0,0 +1,54 @@
+package com.prodify.api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UuidGenerator;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Événement Stripe reçu (signature vérifiée) et pas encore traité.
+ *
+ * La ligne est supprimée dans la transaction qui applique l'événement. {@code nextAttemptAt} sert à la fois
+ * de date de nouvelle tentative et de bail : un worker qui prend l'événement la repousse, si bien qu'un
+ * événement pris par une instance arrêtée redevient disponible à la fin du bail.
+ */
+@Entity
+@Table(name = "webhook_inbox", indexes = {
+        @Index(name = "idx_webhook_inbox_next_attempt_at", columnList = "next_attempt_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WebhookInboxEvent {
+
+    @Id
+    @UuidGenerator
+    private UUID id;
+
+    // Identifiant Stripe (evt_...)
+    @Column(nullable = false)
+    private String eventId;
+
+    @Column(nullable = false)
+    private String type;
+
+    // JSON brut tel que reçu
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private OffsetDateTime nextAttemptAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(nullable = false)
+    private OffsetDateTime receivedAt;
+}
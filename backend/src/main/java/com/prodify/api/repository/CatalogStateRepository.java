@@ -0,0 +1,25 @@
+package com.prodify.api.repository;
+
+import com.prodify.api.model.CatalogState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface CatalogStateRepository extends JpaRepository<CatalogState, Short> {
+
+    // Incrément atomique (crée la ligne au premier appel). updated_at ne recule jamais,
+    // même si une transaction commencée plus tôt valide après une autre.
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into catalog_state (id, revision, updated_at)
+            values (1, 1, now())
+            on conflict (id) do update
+            set revision = catalog_state.revision + 1,
+                updated_at = greatest(now(), catalog_state.updated_at + interval '1 microsecond')
+            """, nativeQuery = true)
+    int bump();
+}
@@ -0,0 +1,27 @@
+package com.prodify.api.repository;
+
+import com.prodify.api.model.DataMigration;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface DataMigrationRepository extends JpaRepository<DataMigration, String> {
+
+    /**
+     * 1 si la reprise est à faire (marquée à l'instant), 0 si elle a déjà été appliquée.
+     * À appeler dans la transaction de la reprise : si elle échoue, la marque disparaît avec elle,
+     * et une autre instance qui démarre en même temps attend le commit puis reçoit 0.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into data_migrations (name, applied_at)
+            values (:name, now())
+            on conflict do nothing
+            """, nativeQuery = true)
+    int markApplied(@Param("name") String name);
+}
@@ -0,0 +1,88 @@
+package com.prodify.api.repository;
+
+import com.prodify.api.model.Entitlement;
+import com.prodify.api.service.LibraryEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface EntitlementRepository extends JpaRepository<Entitlement, Entitlement.Key> {
+
+    // Droits d'une commande payée, hors exclusives vendues deux fois ; une track déjà possédée garde sa date d'achat d'origine
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into entitlements (user_id, track_id, order_id, acquired_at)
+            select distinct o.user_id, i.track_id, o.id, coalesce(o.completed_at, now())
+            from orders o join order_items i on i.order_id = o.id
+            where o.id = :orderId and o.status = 'COMPLETED' and i.refunded_at is null and i.double_sold_at is null
+            on conflict (user_id, track_id) do nothing
+            """, nativeQuery = true)
+    int grantOrder(@Param("orderId") UUID orderId);
+
+    // Rattrapage depuis toutes les commandes payées : la plus ancienne commande de chaque (utilisateur, track) l'emporte
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into entitlements (user_id, track_id, order_id, acquired_at)
+            select distinct on (o.user_id, i.track_id) o.user_id, i.track_id, o.id, coalesce(o.completed_at, o.created_at)
+            from orders o join order_items i on i.order_id = o.id
+            where o.status = 'COMPLETED' and i.refunded_at is null and i.double_sold_at is null
+            order by o.user_id, i.track_id, coalesce(o.completed_at, o.created_at), o.id
+            on conflict (user_id, track_id) do nothing
+            """, nativeQuery = true)
+    int backfill();
+
+    // Tracks remboursées : retirées, sauf si l'utilisateur les a aussi achetées dans une autre commande non remboursée
+    @Modifying
+    @Transactional
+    @Query(value = """
+            delete from entitlements e
+            where e.user_id = :userId and e.track_id in (:trackIds)
+              and not exists (
+                  select 1 from orders o join order_items i on i.order_id = o.id
+                  where o.user_id = e.user_id and i.track_id = e.track_id
+                    and o.status = 'COMPLETED' and o.id <> :orderId
+                    and i.refunded_at is null and i.double_sold_at is null)
+            """, nativeQuery = true)
+    int revoke(@Param("userId") UUID userId, @Param("orderId") UUID orderId, @Param("trackIds") Collection<UUID> trackIds);
+
+    // --- POSSESSION (OwnershipService) ---
+
+    @Query("select e.trackId from Entitlement e where e.userId = :userId")
+    List<UUID> findTrackIdsByUserId(@Param("userId") UUID userId);
+
+    boolean existsByUserIdAndTrackId(UUID userId, UUID trackId);
+
+    // --- BIBLIOTHÈQUE PAGINÉE (keyset sur acquiredAt DESC, trackId DESC) ---
+    // Projection : ni Entitlement ni Track hydratés. Une track supprimée disparaît de la bibliothèque.
+
+    String LIBRARY_SELECT = """
+            select new com.prodify.api.service.LibraryEntry(e.acquiredAt,
+                t.id, t.title, t.slug, t.description, t.bpm, t.genre, t.mood,
+                t.coverImageUrl, t.previewUrl, t.price, t.isSold, t.isExclusive, t.createdAt, t.updatedAt,
+                p.id, p.displayName, p.slug, p.avatarUrl, p.updatedAt)
+            from Entitlement e join Track t on t.id = e.trackId join t.producer p
+            where e.userId = :userId
+            """;
+
+    @Query(LIBRARY_SELECT + " order by e.acquiredAt desc, e.trackId desc")
+    List<LibraryEntry> findLibraryFirstPage(@Param("userId") UUID userId, Limit limit);
+
+    @Query(LIBRARY_SELECT + """
+             and (e.acquiredAt < :acquiredAt or (e.acquiredAt = :acquiredAt and e.trackId < :trackId))
+            order by e.acquiredAt desc, e.trackId desc
+            """)
+    List<LibraryEntry> findLibraryPageAfter(@Param("userId") UUID userId, @Param("acquiredAt") OffsetDateTime acquiredAt,
+                                            @Param("trackId") UUID trackId, Limit limit);
+}
@@ -0,0 +1,74 @@
+package com.prodify.api.repository;
+
+import com.prodify.api.model.IdempotencyRecord;
+import com.prodify.api.service.IdempotentResponse;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, IdempotencyRecord.Key> {
+
+    // 1 si la clé est à nous (la requête doit être exécutée), 0 si elle existe déjà
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into idempotency_keys (user_id, operation, idem_key, fingerprint, status, created_at, expires_at)
+            values (:userId, :operation, :key, :fingerprint, 'IN_PROGRESS', now(), :expiresAt)
+            on conflict do nothing
+            """, nativeQuery = true)
+    int tryClaim(@Param("userId") UUID userId, @Param("operation") String operation, @Param("key") String key,
+                 @Param("fingerprint") String fingerprint, @Param("expiresAt") OffsetDateTime expiresAt);
+
+    // Reprise d'une clé expirée, ou abandonnée en cours (instance arrêtée pendant l'exécution)
+    @Modifying
+    @Transactional
+    @Query(value = """
+            update idempotency_keys
+            set fingerprint = :fingerprint, status = 'IN_PROGRESS', response_body = null,
+                created_at = now(), expires_at = :expiresAt
+            where user_id = :userId and operation = :operation and idem_key = :key
+              and (expires_at < now() or (status = 'IN_PROGRESS' and created_at < :abandonedBefore))
+            """, nativeQuery = true)
+    int tryTakeOver(@Param("userId") UUID userId, @Param("operation") String operation, @Param("key") String key,
+                    @Param("fingerprint") String fingerprint, @Param("expiresAt") OffsetDateTime expiresAt,
+                    @Param("abandonedBefore") OffsetDateTime abandonedBefore);
+
+    @Query("""
+            select new com.prodify.api.service.IdempotentResponse(r.fingerprint, r.status, r.responseBody, r.createdAt, r.expiresAt)
+            from IdempotencyRecord r
+            where r.userId = :userId and r.operation = :operation and r.idempotencyKey = :key
+            """)
+    Optional<IdempotentResponse> findResponse(@Param("userId") UUID userId, @Param("operation") String operation,
+                                              @Param("key") String key);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            update idempotency_keys set status = 'COMPLETED', response_body = :body
+            where user_id = :userId and operation = :operation and idem_key = :key
+            """, nativeQuery = true)
+    int complete(@Param("userId") UUID userId, @Param("operation") String operation, @Param("key") String key,
+                 @Param("body") String body);
+
+    // Échec : la clé est libérée, une nouvelle tentative exécutera à nouveau la requête
+    @Modifying
+    @Transactional
+    @Query(value = """
+            delete from idempotency_keys
+            where user_id = :userId and operation = :operation and idem_key = :key and status = 'IN_PROGRESS'
+            """, nativeQuery = true)
+    int release(@Param("userId") UUID userId, @Param("operation") String operation, @Param("key") String key);
+
+    @Modifying
+    @Transactional
+    @Query(value = "delete from idempotency_keys where expires_at < now()", nativeQuery = true)
+    int deleteExpired();
+}
@@ -0,0 +1,18 @@
+package com.prodify.api.repository;
+
+import com.prodify.api.model.LedgerEntry;
+import com.prodify.api.model.LedgerEntryType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+// Ajout seul : aucune méthode de mise à jour, les suppressions héritées ne sont pas utilisées
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, UUID> {
+
+    List<LedgerEntry> findByOrderId(UUID orderId);
+
+    boolean existsByOrderIdAndTypeAndReference(UUID orderId, LedgerEntryType type, String reference);
+}
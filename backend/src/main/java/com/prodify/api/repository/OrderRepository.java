@@ -2,19 +2,201 @@ package com.prodify.api.repository;
 
 import com.prodify.api.model.Order;
 import com.prodify.api.model.OrderStatus;
+import com.prodify.api.service.OrderLine;
+import com.prodify.api.service.OrderSummary;
+import com.prodify.api.service.ranking.SaleRecord;
+import com.prodify.api.service.ranking.SalesTotal;
+import com.prodify.api.service.reconciliation.OrderPaymentState;
+import com.prodify.api.service.recommendation.PurchaseRecord;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, UUID> {
     
-    // Récupérer toutes les commandes d'un utilisateur
-    List<Order> findByUserIdOrderByCreatedAtDesc(UUID userId);
+    // --- HISTORIQUE DES COMMANDES (keyset sur createdAt DESC, id DESC, index idx_orders_user_created_at) ---
+    // Sans filtre de statut et avec : deux requêtes distinctes pour que chacune garde un plan indexé
 
-    // Récupérer toutes les commandes d'un utilisateur avec un statut spécifique
-    List<Order> findAllByUserIdAndStatus(UUID userId, OrderStatus status);
-}
+    String SUMMARY_SELECT = """
+            select new com.prodify.api.service.OrderSummary(o.id, o.status, o.totalAmount, o.createdAt)
+            from Order o
+            """;
+
+    @Query(SUMMARY_SELECT + " where o.user.id = :userId order by o.createdAt desc, o.id desc")
+    List<OrderSummary> findByUserIdOrderByCreatedAtDesc(@Param("userId") UUID userId, Limit limit);
+
+    @Query(SUMMARY_SELECT + """
+            where o.user.id = :userId
+              and (o.createdAt < :createdAt or (o.createdAt = :createdAt and o.id < :id))
+            order by o.createdAt desc, o.id desc
+            """)
+    List<OrderSummary> findByUserIdOrderByCreatedAtDescAfter(@Param("userId") UUID userId,
+                                                              @Param("createdAt") OffsetDateTime createdAt,
+                                                              @Param("id") UUID id, Limit limit);
+
+    @Query(SUMMARY_SELECT + " where o.user.id = :userId and o.status = :status order by o.createdAt desc, o.id desc")
+    List<OrderSummary> findByUserIdAndStatusOrderByCreatedAtDesc(@Param("userId") UUID userId,
+                                                                 @Param("status") OrderStatus status, Limit limit);
+
+    @Query(SUMMARY_SELECT + """
+            where o.user.id = :userId and o.status = :status
+              and (o.createdAt < :createdAt or (o.createdAt = :createdAt and o.id < :id))
+            order by o.createdAt desc, o.id desc
+            """)
+    List<OrderSummary> findByUserIdAndStatusOrderByCreatedAtDescAfter(@Param("userId") UUID userId,
+                                                                       @Param("status") OrderStatus status,
+                                                                       @Param("createdAt") OffsetDateTime createdAt,
+                                                                       @Param("id") UUID id, Limit limit);
+
+    // Les lignes de toute une page de commandes en une requête
+    @Query("""
+            select new com.prodify.api.service.OrderLine(i.order.id, t.id, t.title, i.price)
+            from OrderItem i join i.track t
+            where i.order.id in :orderIds
+            order by t.title asc, t.id asc
+            """)
+    List<OrderLine> findLinesByOrderIdIn(@Param("orderIds") Collection<UUID> orderIds);
+
+    // --- CHARGEMENT DES SIGNAUX DE CO-ACHAT (keyset sur createdAt, id de ligne) ---
+
+    @Query("""
+            select new com.prodify.api.service.recommendation.PurchaseRecord(o.id, o.user.id, i.track.id, i.id, o.createdAt)
+            from OrderItem i join i.order o
+            where o.status = com.prodify.api.model.OrderStatus.COMPLETED
+            order by o.createdAt asc, o.id asc, i.id asc
+            """)
+    List<PurchaseRecord> findPurchaseRecordsFirstChunk(Limit limit);
+
+    @Query("""
+            select new com.prodify.api.service.recommendation.PurchaseRecord(o.id, o.user.id, i.track.id, i.id, o.createdAt)
+            from OrderItem i join i.order o
+            where o.status = com.prodify.api.model.OrderStatus.COMPLETED
+              and (o.createdAt > :createdAt
+                   or (o.createdAt = :createdAt and o.id > :orderId)
+                   or (o.createdAt = :createdAt and o.id = :orderId and i.id > :itemId))
+            order by o.createdAt asc, o.id asc, i.id asc
+            """)
+    List<PurchaseRecord> findPurchaseRecordsAfter(@Param("createdAt") OffsetDateTime createdAt,
+                                                  @Param("orderId") UUID orderId,
+                                                  @Param("itemId") UUID itemId,
+                                                  Limit limit);
+
+    // --- CHARGEMENT DES CLASSEMENTS (ventes par date de paiement) ---
+
+    @Modifying
+    @Transactional
+    @Query("""
+            update Order o set o.completedAt = o.updatedAt
+            where o.status = com.prodify.api.model.OrderStatus.COMPLETED and o.completedAt is null
+            """)
+    int backfillCompletedAt();
+
+    @Query("""
+            select new com.prodify.api.service.ranking.SalesTotal(t.id, t.genre, count(i))
+            from OrderItem i join i.order o join i.track t
+            where o.status = com.prodify.api.model.OrderStatus.COMPLETED and o.completedAt < :before
+            group by t.id, t.genre
+            """)
+    List<SalesTotal> findSalesTotalsBefore(@Param("before") OffsetDateTime before);
+
+    @Query("""
+            select new com.prodify.api.service.ranking.SaleRecord(t.id, t.genre, i.id, o.completedAt)
+            from OrderItem i join i.order o join i.track t
+            where o.status = com.prodify.api.model.OrderStatus.COMPLETED
+              and o.completedAt >= :from and o.completedAt < :to
+            order by o.completedAt asc, i.id asc
+            """)
+    List<SaleRecord> findSalesFirstChunk(@Param("from") OffsetDateTime from,
+                                         @Param("to") OffsetDateTime to,
+                                         Limit limit);
 
+    @Query("""
+            select new com.prodify.api.service.ranking.SaleRecord(t.id, t.genre, i.id, o.completedAt)
+            from OrderItem i join i.order o join i.track t
+            where o.status = com.prodify.api.model.OrderStatus.COMPLETED
+              and o.completedAt < :to
+              and (o.completedAt > :soldAt or (o.completedAt = :soldAt and i.id > :itemId))
+            order by o.completedAt asc, i.id asc
+            """)
+    List<SaleRecord> findSalesAfter(@Param("soldAt") OffsetDateTime soldAt,
+                                    @Param("itemId") UUID itemId,
+                                    @Param("to") OffsetDateTime to,
+                                    Limit limit);
+
+    // --- RAPPROCHEMENT DES PAIEMENTS (keyset sur id, PaymentReconciliationJob) ---
+
+    String PAYMENT_STATE_SELECT = """
+            select new com.prodify.api.service.reconciliation.OrderPaymentState(
+                o.id, o.status, o.totalAmount, o.checkoutSessionId, o.previousCheckoutSessionId, o.createdAt, o.completedAt,
+                (select coalesce(sum(l.amount), 0) from LedgerEntry l
+                 where l.orderId = o.id and l.type = com.prodify.api.model.LedgerEntryType.CAPTURE))
+            from Order o
+            """;
+
+    @Query(PAYMENT_STATE_SELECT + " order by o.id")
+    List<OrderPaymentState> findPaymentStatesFirstChunk(Limit limit);
+
+    @Query(PAYMENT_STATE_SELECT + " where o.id > :id order by o.id")
+    List<OrderPaymentState> findPaymentStatesAfter(@Param("id") UUID id, Limit limit);
+
+    // --- PAIEMENT (PaymentService, validation, journal) ---
+
+    // Verrou de ligne : une seule création de session de paiement à la fois par commande, toutes instances confondues
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from Order o where o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") UUID id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from Order o where o.paymentIntentId = :paymentIntentId")
+    Optional<Order> findByPaymentIntentIdForUpdate(@Param("paymentIntentId") String paymentIntentId);
+
+    boolean existsByPaymentIntentId(String paymentIntentId);
+
+    // --- EXPIRATION DES COMMANDES ABANDONNÉES (OrderExpirySweeper) ---
+
+    // Verrou applicatif PostgreSQL, relâché au commit : un seul nœud balaie à la fois
+    @Query(value = "select pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryAdvisoryXactLock(@Param("key") long key);
+
+    /**
+     * Passe en CANCELLED un lot de commandes PENDING créées avant {@code cutoff}, les plus anciennes d'abord.
+     * Les commandes verrouillées par ailleurs (paiement en cours de validation) sont sautées, comme celles
+     * dont la session de paiement est encore ouverte (session rouverte sur une commande ancienne).
+     *
+     * @return les commandes expirées
+     */
+    @Query(value = """
+            with stale as (
+                select id from orders
+                where status = 'PENDING' and created_at < :cutoff
+                  and (checkout_expires_at is null or checkout_expires_at < now())
+                order by created_at
+                limit :batchSize
+                for update skip locked
+            )
+            update orders o set status = 'CANCELLED', updated_at = now()
+            from stale where o.id = stale.id
+            returning o.id
+            """, nativeQuery = true)
+    List<UUID> expireStalePending(@Param("cutoff") OffsetDateTime cutoff, @Param("batchSize") int batchSize);
+
+    @Query("""
+            select count(o) from Order o
+            where o.status = com.prodify.api.model.OrderStatus.PENDING and o.createdAt < :cutoff
+              and (o.checkoutExpiresAt is null or o.checkoutExpiresAt < current_timestamp)
+            """)
+    long countStalePending(@Param("cutoff") OffsetDateTime cutoff);
+}
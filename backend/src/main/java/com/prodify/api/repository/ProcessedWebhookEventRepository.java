@@ -0,0 +1,34 @@
+package com.prodify.api.repository;
+
+import com.prodify.api.model.ProcessedWebhookEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+
+@Repository
+public interface ProcessedWebhookEventRepository extends JpaRepository<ProcessedWebhookEvent, String> {
+
+    /**
+     * @return 1 si l'événement est marqué par cet appel, 0 s'il l'était déjà (doublon).
+     * Un doublon concurrent attend le commit ou le rollback de la première transaction sur la clé primaire.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into processed_webhook_events (event_id, type, processed_at)
+            values (:eventId, :type, :processedAt)
+            on conflict (event_id) do nothing
+            """, nativeQuery = true)
+    int markProcessed(@Param("eventId") String eventId, @Param("type") String type,
+                      @Param("processedAt") OffsetDateTime processedAt);
+
+    @Modifying
+    @Transactional
+    @Query("delete from ProcessedWebhookEvent e where e.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") OffsetDateTime before);
+}
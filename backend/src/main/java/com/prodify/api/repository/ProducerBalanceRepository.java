@@ -0,0 +1,39 @@
+package com.prodify.api.repository;
+
+import com.prodify.api.model.ProducerBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+@Repository
+public interface ProducerBalanceRepository extends JpaRepository<ProducerBalance, UUID> {
+
+    /**
+     * Ajoute aux soldes de plusieurs producteurs en une requête (listes parallèles séparées par des virgules).
+     * Lignes verrouillées dans l'ordre des producteurs : deux transactions concurrentes ne s'interbloquent pas.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into producer_balances (producer_id, balance, captured, refunded, disputed, updated_at)
+            select d.producer_id, d.captured + d.refunded + d.disputed, d.captured, d.refunded, d.disputed, now()
+            from unnest(cast(string_to_array(:producerIds, ',') as uuid[]),
+                        cast(string_to_array(:captured, ',') as numeric[]),
+                        cast(string_to_array(:refunded, ',') as numeric[]),
+                        cast(string_to_array(:disputed, ',') as numeric[])) as d(producer_id, captured, refunded, disputed)
+            order by d.producer_id
+            on conflict (producer_id) do update set
+                balance = producer_balances.balance + excluded.balance,
+                captured = producer_balances.captured + excluded.captured,
+                refunded = producer_balances.refunded + excluded.refunded,
+                disputed = producer_balances.disputed + excluded.disputed,
+                updated_at = excluded.updated_at
+            """, nativeQuery = true)
+    int addAll(@Param("producerIds") String producerIds, @Param("captured") String captured,
+               @Param("refunded") String refunded, @Param("disputed") String disputed);
+}
@@ -1,7 +1,10 @@
 package com.prodify.api.repository;
 
+import com.prodify.api.dto.common.ResourceVersion;
 import com.prodify.api.model.Producer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -21,4 +24,24 @@ public interface ProducerRepository extends JpaRepository<Producer, UUID> {
     
     // Savoir si cet utilisateur est déjà producteur
     boolean existsByUserId(UUID userId);
-}
\ No newline at end of file
+
+    // Le profil appartient-il à cet utilisateur ? (données privées du producteur)
+    boolean existsByIdAndUserId(UUID id, UUID userId);
+
+    // --- VERSIONS (GET conditionnels) ---
+    // Le JSON d'un Producer embarque son User : les deux dates de modification comptent.
+
+    String VERSION_SELECT = """
+            select new com.prodify.api.dto.common.ResourceVersion(count(p), max(p.updatedAt), max(u.updatedAt))
+            from Producer p join p.user u
+            """;
+
+    @Query(VERSION_SELECT)
+    ResourceVersion findVersionOfAll();
+
+    @Query(VERSION_SELECT + " where p.id = :id")
+    ResourceVersion findVersionById(@Param("id") UUID id);
+
+    @Query(VERSION_SELECT + " where p.slug = :slug")
+    ResourceVersion findVersionBySlug(@Param("slug") String slug);
+}
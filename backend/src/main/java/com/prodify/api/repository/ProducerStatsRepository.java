@@ -0,0 +1,94 @@
+package com.prodify.api.repository;
+
+import com.prodify.api.model.ProducerStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+@Repository
+public interface ProducerStatsRepository extends JpaRepository<ProducerStats, UUID> {
+
+    // Incrément atomique (crée la ligne si besoin) : pas de lecture préalable, pas de mise à jour perdue
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into producer_stats (producer_id, track_count, units_sold, revenue, updated_at)
+            values (:producerId, :delta, 0, 0, now())
+            on conflict (producer_id) do update
+            set track_count = producer_stats.track_count + excluded.track_count, updated_at = now()
+            """, nativeQuery = true)
+    int addTracks(@Param("producerId") UUID producerId, @Param("delta") long delta);
+
+    // Ventes d'une commande, ventilées par producteur, en une seule requête
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into producer_stats (producer_id, track_count, units_sold, revenue, updated_at)
+            select t.producer_id, 0, count(*), sum(i.price), now()
+            from order_items i join tracks t on t.id = i.track_id
+            where i.order_id = :orderId
+            group by t.producer_id
+            on conflict (producer_id) do update
+            set units_sold = producer_stats.units_sold + excluded.units_sold,
+                revenue = producer_stats.revenue + excluded.revenue,
+                updated_at = now()
+            """, nativeQuery = true)
+    int addSalesOfOrder(@Param("orderId") UUID orderId);
+
+    /**
+     * Ajoute au chiffre d'affaires de plusieurs producteurs en une requête (listes parallèles séparées par des virgules,
+     * montants négatifs pour un remboursement), lignes verrouillées dans l'ordre des producteurs.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into producer_stats (producer_id, track_count, units_sold, revenue, updated_at)
+            select d.producer_id, 0, 0, d.revenue, now()
+            from unnest(cast(string_to_array(:producerIds, ',') as uuid[]),
+                        cast(string_to_array(:amounts, ',') as numeric[])) as d(producer_id, revenue)
+            order by d.producer_id
+            on conflict (producer_id) do update
+            set revenue = producer_stats.revenue + excluded.revenue, updated_at = now()
+            """, nativeQuery = true)
+    int addRevenue(@Param("producerIds") String producerIds, @Param("amounts") String amounts);
+
+    /**
+     * Recalcule toutes les lignes depuis les tracks, les commandes payées et les remboursements du journal.
+     * Seules les lignes manquantes ou divergentes sont écrites : le résultat est le nombre de corrections.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into producer_stats (producer_id, track_count, units_sold, revenue, updated_at)
+            select p.id, coalesce(c.tracks, 0), coalesce(s.units, 0), coalesce(s.revenue, 0) + coalesce(r.refunded, 0), now()
+            from producers p
+            left join (select t.producer_id, count(*) as tracks from tracks t group by t.producer_id) c
+                   on c.producer_id = p.id
+            left join (select t.producer_id, count(*) as units, sum(i.price) as revenue
+                       from order_items i
+                       join orders o on o.id = i.order_id
+                       join tracks t on t.id = i.track_id
+                       where o.status = 'COMPLETED'
+                       group by t.producer_id) s
+                   on s.producer_id = p.id
+            left join (select l.producer_id, sum(l.amount) as refunded
+                       from payment_ledger l
+                       where l.type = 'REFUND'
+                       group by l.producer_id) r
+                   on r.producer_id = p.id
+            on conflict (producer_id) do update
+            set track_count = excluded.track_count,
+                units_sold = excluded.units_sold,
+                revenue = excluded.revenue,
+                updated_at = now()
+            where producer_stats.track_count <> excluded.track_count
+               or producer_stats.units_sold <> excluded.units_sold
+               or producer_stats.revenue <> excluded.revenue
+            """, nativeQuery = true)
+    int reconcileAll();
+}
@@ -0,0 +1,56 @@
+package com.prodify.api.repository;
+
+import com.prodify.api.model.SlugReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface SlugReservationRepository extends JpaRepository<SlugReservation, SlugReservation.Key> {
+
+    // Réservation atomique en un aller-retour : 1 si le slug est à nous, 0 s'il était déjà pris
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into slug_registry (scope, slug, created_at)
+            values (:scope, :slug, now())
+            on conflict do nothing
+            """, nativeQuery = true)
+    int tryReserve(@Param("scope") String scope, @Param("slug") String slug);
+
+    // Variante par lot (import) : renvoie les slugs effectivement réservés.
+    // Les slugs ne contiennent que [a-z0-9-], on peut donc les passer séparés par des virgules.
+    @Transactional
+    @Query(value = """
+            insert into slug_registry (scope, slug, created_at)
+            select :scope, candidate, now() from unnest(string_to_array(:slugs, ',')) as candidate
+            on conflict do nothing
+            returning slug
+            """, nativeQuery = true)
+    List<String> tryReserveAll(@Param("scope") String scope, @Param("slugs") String commaSeparatedSlugs);
+
+    // --- REPRISE DES SLUGS EXISTANTS (idempotent, lancée une seule fois par SlugRegistryBackfill) ---
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into slug_registry (scope, slug, created_at)
+            select 'TRACK', t.slug, now() from tracks t
+            on conflict do nothing
+            """, nativeQuery = true)
+    int backfillTrackSlugs();
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into slug_registry (scope, slug, created_at)
+            select 'PRODUCER', p.slug, now() from producers p
+            on conflict do nothing
+            """, nativeQuery = true)
+    int backfillProducerSlugs();
+}
@@ -0,0 +1,61 @@
+package com.prodify.api.repository;
+
+import com.prodify.api.model.TrackHold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface TrackHoldRepository extends JpaRepository<TrackHold, UUID> {
+
+    /**
+     * Réserve les tracks exclusives encore disponibles (une réservation expirée est remplacée).
+     * Verrou de ligne uniquement sur les tracks demandées : deux paniers sans track commune ne s'attendent jamais.
+     *
+     * @return les tracks effectivement réservées par cette commande
+     */
+    @Transactional
+    @Query(value = """
+            insert into track_holds (track_id, order_id, expires_at)
+            select t.id, :orderId, :expiresAt from tracks t
+            where t.id in (:trackIds) and t.is_exclusive and not t.is_sold
+            on conflict (track_id) do update
+            set order_id = excluded.order_id, expires_at = excluded.expires_at
+            where track_holds.expires_at < now() or track_holds.order_id = excluded.order_id
+            returning track_id
+            """, nativeQuery = true)
+    List<UUID> tryHold(@Param("orderId") UUID orderId, @Param("trackIds") Collection<UUID> trackIds,
+                       @Param("expiresAt") OffsetDateTime expiresAt);
+
+    // Prolonge les réservations encore valides de la commande (passage au paiement)
+    @Modifying
+    @Transactional
+    @Query(value = """
+            update track_holds set expires_at = :expiresAt
+            where order_id = :orderId and expires_at >= now()
+            """, nativeQuery = true)
+    int renew(@Param("orderId") UUID orderId, @Param("expiresAt") OffsetDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("delete from TrackHold h where h.orderId = :orderId")
+    int deleteByOrderId(@Param("orderId") UUID orderId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from TrackHold h where h.orderId in :orderIds")
+    int deleteByOrderIdIn(@Param("orderIds") Collection<UUID> orderIds);
+
+    @Modifying
+    @Transactional
+    @Query("delete from TrackHold h where h.expiresAt < :now")
+    int deleteExpired(@Param("now") OffsetDateTime now);
+}
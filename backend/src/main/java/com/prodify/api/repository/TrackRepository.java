@@ -1,9 +1,18 @@
 package com.prodify.api.repository;
 
+import com.prodify.api.dto.common.ResourceVersion;
+import com.prodify.api.dto.track.TrackView;
 import com.prodify.api.model.Track;
+import com.prodify.api.service.CatalogEntry;
+import com.prodify.api.service.search.SearchDocument;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -15,10 +24,123 @@ public interface TrackRepository extends JpaRepository<Track, UUID> {
     
     boolean existsBySlug(String slug);
     
+    // Panier : toutes les tracks en une requête, producteur et compte chargés dans la même jointure
+    // (sinon les relations EAGER déclenchent une requête par producteur)
+    @Query("select t from Track t join fetch t.producer p join fetch p.user where t.id in :ids")
+    List<Track> findAllWithProducerByIdIn(@Param("ids") Collection<UUID> ids);
+
+    // --- LECTURES PUBLIQUES (projection TrackView) ---
+    // Une seule requête par lecture : jointure sur producers, sans charger les entités Producer/User.
+
+    String VIEW_SELECT = """
+            select new com.prodify.api.dto.track.TrackView(
+                t.id, t.title, t.slug, t.description, t.bpm, t.genre, t.mood,
+                t.coverImageUrl, t.previewUrl, t.price, t.isSold, t.isExclusive, t.createdAt, t.updatedAt,
+                p.id, p.displayName, p.slug, p.avatarUrl, p.updatedAt)
+            from Track t join t.producer p
+            """;
+
+    @Query(VIEW_SELECT + " where t.id = :id")
+    Optional<TrackView> findViewById(@Param("id") UUID id);
+
+    @Query(VIEW_SELECT + " where t.slug = :slug")
+    Optional<TrackView> findViewBySlug(@Param("slug") String slug);
+
+    @Query(VIEW_SELECT + " where t.id in :ids")
+    List<TrackView> findViewsByIdIn(@Param("ids") Collection<UUID> ids);
+
     // Pour afficher le catalogue d'un beatmaker spécifique (par ID)
-    List<Track> findByProducerId(UUID producerId);
+    @Query(VIEW_SELECT + " where p.id = :producerId order by t.createdAt desc")
+    List<TrackView> findViewsByProducerId(@Param("producerId") UUID producerId);
 
     // Pour afficher le catalogue d'un beatmaker spécifique (par Slug - URL lisible)
-    // JPA va faire automatiquement le JOIN sur Producer.slug
-    List<Track> findByProducerSlug(String slug);
-}
\ No newline at end of file
+    @Query(VIEW_SELECT + " where p.slug = :slug order by t.createdAt desc")
+    List<TrackView> findViewsByProducerSlug(@Param("slug") String slug);
+
+    // --- VERSIONS (GET conditionnels) ---
+    // Agrégats sur les tracks d'un producteur et sur ce producteur (affiché dans TrackView) : aucune entité chargée.
+    // Une track seule n'en a pas besoin : sa version est tirée de la vue en cache (TrackView.version()).
+
+    String VERSION_SELECT = """
+            select new com.prodify.api.dto.common.ResourceVersion(count(t), max(t.updatedAt), max(p.updatedAt))
+            from Track t join t.producer p
+            """;
+
+    @Query(VERSION_SELECT + " where p.id = :producerId")
+    ResourceVersion findVersionByProducerId(@Param("producerId") UUID producerId);
+
+    @Query(VERSION_SELECT + " where p.slug = :slug")
+    ResourceVersion findVersionByProducerSlug(@Param("slug") String slug);
+
+    // --- CATALOGUE PAGINÉ (keyset sur createdAt DESC, id DESC) ---
+    // Pas d'OFFSET : on repart de la dernière ligne vue, le coût d'une page profonde reste celui de la première.
+
+    @Query(VIEW_SELECT + " order by t.createdAt desc, t.id desc")
+    List<TrackView> findCatalogFirstPage(Limit limit);
+
+    @Query(VIEW_SELECT + """
+            where t.createdAt < :createdAt
+               or (t.createdAt = :createdAt and t.id < :id)
+            order by t.createdAt desc, t.id desc
+            """)
+    List<TrackView> findCatalogPageAfter(@Param("createdAt") OffsetDateTime createdAt,
+                                         @Param("id") UUID id,
+                                         Limit limit);
+
+    // --- CHARGEMENT DES INDEX EN MÉMOIRE (ordre chronologique, projection légère) ---
+
+    @Query("""
+            select new com.prodify.api.service.CatalogEntry(t.id, t.createdAt, t.bpm, t.genre, t.mood, t.price)
+            from Track t
+            order by t.createdAt asc, t.id asc
+            """)
+    List<CatalogEntry> findCatalogEntriesFirstChunk(Limit limit);
+
+    @Query("""
+            select new com.prodify.api.service.CatalogEntry(t.id, t.createdAt, t.bpm, t.genre, t.mood, t.price)
+            from Track t
+            where t.createdAt > :createdAt
+               or (t.createdAt = :createdAt and t.id > :id)
+            order by t.createdAt asc, t.id asc
+            """)
+    List<CatalogEntry> findCatalogEntriesAfter(@Param("createdAt") OffsetDateTime createdAt,
+                                               @Param("id") UUID id,
+                                               Limit limit);
+
+    @Query("""
+            select new com.prodify.api.service.CatalogEntry(t.id, t.createdAt, t.bpm, t.genre, t.mood, t.price)
+            from Track t
+            where t.id in :ids
+            """)
+    List<CatalogEntry> findCatalogEntriesByIdIn(@Param("ids") Collection<UUID> ids);
+
+    // Exclusives déjà vendues (peu nombreuses) : exclues des recommandations
+    @Query("select t.id from Track t where t.isSold = true")
+    List<UUID> findSoldTrackIds();
+
+    @Query("""
+            select new com.prodify.api.service.search.SearchDocument(
+                t.id, t.title, t.description, p.displayName, t.genre, t.mood, t.bpm)
+            from Track t join t.producer p
+            order by t.id
+            """)
+    List<SearchDocument> findSearchDocumentsFirstChunk(Limit limit);
+
+    @Query("""
+            select new com.prodify.api.service.search.SearchDocument(
+                t.id, t.title, t.description, p.displayName, t.genre, t.mood, t.bpm)
+            from Track t join t.producer p
+            where t.id > :id
+            order by t.id
+            """)
+    List<SearchDocument> findSearchDocumentsAfter(@Param("id") UUID id, Limit limit);
+
+    // Réindexation des tracks d'un producteur renommé
+    @Query("""
+            select new com.prodify.api.service.search.SearchDocument(
+                t.id, t.title, t.description, p.displayName, t.genre, t.mood, t.bpm)
+            from Track t join t.producer p
+            where p.id = :producerId
+            """)
+    List<SearchDocument> findSearchDocumentsByProducerId(@Param("producerId") UUID producerId);
+}
@@ -0,0 +1,11 @@
+package com.prodify.api.repository;
+
+import com.prodify.api.model.WebhookDeadLetter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface WebhookDeadLetterRepository extends JpaRepository<WebhookDeadLetter, UUID> {
+}
@@ -0,0 +1,49 @@
+package com.prodify.api.repository;
+
+import com.prodify.api.model.WebhookInboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface WebhookInboxRepository extends JpaRepository<WebhookInboxEvent, UUID> {
+
+    /**
+     * Prend jusqu'à {@code limit} événements dus : tentative comptée et bail posé jusqu'à {@code leaseUntil}.
+     * SKIP LOCKED : plusieurs instances se partagent la file sans se bloquer.
+     * À appeler dans une transaction.
+     */
+    @Query(value = """
+            update webhook_inbox w
+            set attempts = w.attempts + 1, next_attempt_at = :leaseUntil
+            from (
+                select id from webhook_inbox
+                where next_attempt_at <= :now
+                order by next_attempt_at
+                limit :limit
+                for update skip locked
+            ) due
+            where w.id = due.id
+            returning w.*
+            """, nativeQuery = true)
+    List<WebhookInboxEvent> claimDue(@Param("now") OffsetDateTime now, @Param("leaseUntil") OffsetDateTime leaseUntil,
+                                     @Param("limit") int limit);
+
+    // Sans relecture préalable (deleteById charge l'entité avant de la supprimer)
+    @Modifying
+    @Transactional
+    @Query("delete from WebhookInboxEvent w where w.id = :id")
+    int deleteProcessed(@Param("id") UUID id);
+
+    @Modifying
+    @Transactional
+    @Query("update WebhookInboxEvent w set w.nextAttemptAt = :nextAttemptAt, w.lastError = :error where w.id = :id")
+    int reschedule(@Param("id") UUID id, @Param("nextAttemptAt") OffsetDateTime nextAttemptAt, @Param("error") String error);
+}
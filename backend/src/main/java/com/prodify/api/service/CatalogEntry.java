@@ -0,0 +1,19 @@
+package com.prodify.api.service;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Les seules colonnes d'une Track dont l'index de facettes a besoin.
+ * Chargée par projection JPQL pour reconstruire l'index sans hydrater Producer/User.
+ */
+public record CatalogEntry(
+        UUID id,
+        OffsetDateTime createdAt,
+        Integer bpm,
+        String genre,
+        String mood,
+        BigDecimal price
+) {
+}
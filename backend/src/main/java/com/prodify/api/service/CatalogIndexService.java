@@ -0,0 +1,407 @@
+package com.prodify.api.service;
+
+import com.prodify.api.event.TrackChangedEvent;
+import com.prodify.api.model.Track;
+import com.prodify.api.repository.TrackRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index en mémoire des facettes du catalogue (genre, mood, BPM, prix).
+ *
+ * Chaque track reçoit un ordinal dense ; chaque valeur de facette garde un BitSet des ordinaux
+ * qui la portent. Une recherche combinée se résume à des AND/OR de BitSet, sans passer par Postgres.
+ * Les ordinaux sont attribués dans l'ordre de création : parcourir un BitSet à l'envers
+ * donne donc les résultats du plus récent au plus ancien.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CatalogIndexService {
+
+    // Les plages BPM / prix sont découpées en tranches ; seules les tranches aux bornes
+    // de la requête sont vérifiées track par track.
+    private static final long BPM_BUCKET_WIDTH = 10;
+    private static final long PRICE_BUCKET_CENTS = 500;
+    // Tout ce qui dépasse tombe dans la dernière tranche (toujours vérifiée finement)
+    private static final long MAX_BUCKET = 200;
+    private static final long UNKNOWN = -1;
+
+    private static final int BOOTSTRAP_CHUNK = 1000;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final TrackRepository trackRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    private UUID[] trackIds = new UUID[INITIAL_CAPACITY];
+    private String[] genres = new String[INITIAL_CAPACITY];
+    private String[] moods = new String[INITIAL_CAPACITY];
+    private long[] bpms = new long[INITIAL_CAPACITY];
+    private long[] prices = new long[INITIAL_CAPACITY];
+    private int nextOrdinal = 0;
+
+    private final BitSet live = new BitSet();
+    private final Map<String, BitSet> byGenre = new HashMap<>();
+    private final Map<String, BitSet> byMood = new HashMap<>();
+    private final NavigableMap<Long, BitSet> byBpmBucket = new TreeMap<>();
+    private final NavigableMap<Long, BitSet> byPriceBucket = new TreeMap<>();
+
+    // Libellé d'affichage ("Trap") pour chaque clé normalisée ("trap")
+    private final Map<String, String> labels = new HashMap<>();
+
+    // Suppressions reçues pendant le chargement initial, pour ne pas réindexer une track déjà supprimée
+    private Set<UUID> deletedDuringBootstrap = null;
+
+    // --- CHARGEMENT INITIAL ---
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        withWriteLock(() -> deletedDuringBootstrap = new HashSet<>());
+
+        // Parcours keyset par ordre chronologique : les ordinaux suivent la date de création
+        List<CatalogEntry> chunk = trackRepository.findCatalogEntriesFirstChunk(Limit.of(BOOTSTRAP_CHUNK));
+        int count = 0;
+        while (!chunk.isEmpty()) {
+            List<CatalogEntry> rows = chunk;
+            withWriteLock(() -> rows.stream()
+                    .filter(entry -> !deletedDuringBootstrap.contains(entry.id()))
+                    .forEach(this::upsert));
+            count += rows.size();
+
+            CatalogEntry last = rows.get(rows.size() - 1);
+            chunk = rows.size() < BOOTSTRAP_CHUNK
+                    ? List.of()
+                    : trackRepository.findCatalogEntriesAfter(last.createdAt(), last.id(), Limit.of(BOOTSTRAP_CHUNK));
+        }
+
+        withWriteLock(() -> deletedDuringBootstrap = null);
+        log.info("Index du catalogue chargé : {} tracks en {} ms", count, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // --- MISE À JOUR INCRÉMENTALE ---
+
+    // Après commit : une modification annulée par rollback n'apparaît pas dans l'index
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTrackChanged(TrackChangedEvent event) {
+        Track track = event.track();
+        if (event.type() == TrackChangedEvent.Type.DELETED) {
+            withWriteLock(() -> {
+                if (deletedDuringBootstrap != null) {
+                    deletedDuringBootstrap.add(track.getId());
+                }
+                remove(track.getId());
+            });
+            return;
+        }
+
+        CatalogEntry entry = new CatalogEntry(track.getId(), track.getCreatedAt(), track.getBpm(),
+                track.getGenre(), track.getMood(), track.getPrice());
+        withWriteLock(() -> upsert(entry));
+    }
+
+    // --- RECHERCHE ---
+
+    /**
+     * Tous les résultats correspondant aux filtres, du plus récent au plus ancien.
+     */
+    public CatalogSearchResult search(CatalogQuery query) {
+        lock.readLock().lock();
+        try {
+            Evaluation evaluation = evaluate(query, live);
+            return new CatalogSearchResult(evaluation.result().cardinality(),
+                    page(evaluation.result(), query.offset(), query.limit()),
+                    evaluation.genreCounts(), evaluation.moodCounts());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Applique les filtres à une liste de candidats déjà classée (ex: résultats plein texte)
+     * en conservant son ordre. Les compteurs de facettes ne portent que sur ces candidats.
+     */
+    public CatalogSearchResult refine(List<UUID> rankedTrackIds, CatalogQuery query) {
+        lock.readLock().lock();
+        try {
+            BitSet scope = new BitSet();
+            for (UUID trackId : rankedTrackIds) {
+                Integer ordinal = ordinals.get(trackId);
+                if (ordinal != null) {
+                    scope.set(ordinal);
+                }
+            }
+            Evaluation evaluation = evaluate(query, scope);
+
+            List<UUID> page = rankedTrackIds.stream()
+                    .filter(trackId -> {
+                        Integer ordinal = ordinals.get(trackId);
+                        return ordinal != null && evaluation.result().get(ordinal);
+                    })
+                    .skip(query.offset())
+                    .limit(query.limit())
+                    .toList();
+            return new CatalogSearchResult(evaluation.result().cardinality(), page,
+                    evaluation.genreCounts(), evaluation.moodCounts());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- INTERNE (appelé sous verrou d'écriture) ---
+
+    private void upsert(CatalogEntry entry) {
+        Integer existing = ordinals.get(entry.id());
+        int ordinal;
+        if (existing != null) {
+            ordinal = existing;
+            unindex(ordinal);
+        } else {
+            ordinal = nextOrdinal++;
+            ensureCapacity(ordinal);
+            ordinals.put(entry.id(), ordinal);
+            trackIds[ordinal] = entry.id();
+        }
+
+        genres[ordinal] = normalize(entry.genre());
+        moods[ordinal] = normalize(entry.mood());
+        bpms[ordinal] = entry.bpm() != null ? entry.bpm() : UNKNOWN;
+        prices[ordinal] = entry.price() != null ? toCents(entry.price()) : UNKNOWN;
+
+        live.set(ordinal);
+        addPosting(byGenre, genres[ordinal], ordinal);
+        addPosting(byMood, moods[ordinal], ordinal);
+        if (bpms[ordinal] != UNKNOWN) {
+            byBpmBucket.computeIfAbsent(bucketOf(bpms[ordinal], BPM_BUCKET_WIDTH), k -> new BitSet()).set(ordinal);
+        }
+        if (prices[ordinal] != UNKNOWN) {
+            byPriceBucket.computeIfAbsent(bucketOf(prices[ordinal], PRICE_BUCKET_CENTS), k -> new BitSet()).set(ordinal);
+        }
+        rememberLabel(entry.genre());
+        rememberLabel(entry.mood());
+    }
+
+    private void remove(UUID trackId) {
+        Integer ordinal = ordinals.remove(trackId);
+        if (ordinal == null) {
+            return;
+        }
+        // L'ordinal n'est pas recyclé : il garderait sinon une position chronologique fausse.
+        // Les trous disparaissent au prochain redémarrage.
+        unindex(ordinal);
+        trackIds[ordinal] = null;
+    }
+
+    private void unindex(int ordinal) {
+        live.clear(ordinal);
+        removePosting(byGenre, genres[ordinal], ordinal);
+        removePosting(byMood, moods[ordinal], ordinal);
+        if (bpms[ordinal] != UNKNOWN) {
+            removePosting(byBpmBucket, bucketOf(bpms[ordinal], BPM_BUCKET_WIDTH), ordinal);
+        }
+        if (prices[ordinal] != UNKNOWN) {
+            removePosting(byPriceBucket, bucketOf(prices[ordinal], PRICE_BUCKET_CENTS), ordinal);
+        }
+    }
+
+    private void ensureCapacity(int ordinal) {
+        if (ordinal < trackIds.length) {
+            return;
+        }
+        int capacity = trackIds.length * 2;
+        trackIds = Arrays.copyOf(trackIds, capacity);
+        genres = Arrays.copyOf(genres, capacity);
+        moods = Arrays.copyOf(moods, capacity);
+        bpms = Arrays.copyOf(bpms, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+    }
+
+    private void rememberLabel(String value) {
+        String key = normalize(value);
+        if (key != null) {
+            labels.putIfAbsent(key, value.trim());
+        }
+    }
+
+    private static <K> void addPosting(Map<K, BitSet> postings, K key, int ordinal) {
+        if (key != null) {
+            postings.computeIfAbsent(key, k -> new BitSet()).set(ordinal);
+        }
+    }
+
+    private static <K> void removePosting(Map<K, BitSet> postings, K key, int ordinal) {
+        if (key == null) {
+            return;
+        }
+        BitSet bits = postings.get(key);
+        if (bits != null) {
+            bits.clear(ordinal);
+            if (bits.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    // --- INTERNE (appelé sous verrou de lecture) ---
+
+    private record Evaluation(BitSet result, Map<String, Integer> genreCounts, Map<String, Integer> moodCounts) {
+    }
+
+    private Evaluation evaluate(CatalogQuery query, BitSet scope) {
+        // Filtres communs à toutes les facettes
+        BitSet base = (BitSet) scope.clone();
+        if (query.bpmMin() != null || query.bpmMax() != null) {
+            long min = query.bpmMin() != null ? query.bpmMin() : 0;
+            long max = query.bpmMax() != null ? query.bpmMax() : Long.MAX_VALUE;
+            base.and(rangeFilter(byBpmBucket, BPM_BUCKET_WIDTH, bpms, min, max));
+        }
+        if (query.priceMin() != null || query.priceMax() != null) {
+            long min = query.priceMin() != null ? toCents(query.priceMin()) : 0;
+            long max = query.priceMax() != null ? toCents(query.priceMax()) : Long.MAX_VALUE;
+            base.and(rangeFilter(byPriceBucket, PRICE_BUCKET_CENTS, prices, min, max));
+        }
+
+        BitSet genreFilter = termFilter(byGenre, query.genre());
+        BitSet moodFilter = termFilter(byMood, query.mood());
+
+        // Facettes "disjonctives" : les compteurs de genre ignorent le filtre genre,
+        // pour que l'utilisateur voie combien de résultats donnerait un autre choix.
+        BitSet forGenreCounts = (BitSet) base.clone();
+        if (moodFilter != null) {
+            forGenreCounts.and(moodFilter);
+        }
+        BitSet forMoodCounts = (BitSet) base.clone();
+        if (genreFilter != null) {
+            forMoodCounts.and(genreFilter);
+        }
+
+        BitSet result = (BitSet) forGenreCounts.clone();
+        if (genreFilter != null) {
+            result.and(genreFilter);
+        }
+
+        return new Evaluation(result, facetCounts(byGenre, forGenreCounts), facetCounts(byMood, forMoodCounts));
+    }
+
+    private BitSet termFilter(Map<String, BitSet> postings, String value) {
+        String key = normalize(value);
+        if (key == null) {
+            return null;
+        }
+        BitSet bits = postings.get(key);
+        return bits != null ? bits : new BitSet();
+    }
+
+    /**
+     * OR des tranches couvertes par [min, max], puis vérification fine des seules tranches
+     * partiellement couvertes (les bornes et la tranche "débordement").
+     */
+    private static BitSet rangeFilter(NavigableMap<Long, BitSet> buckets, long width, long[] values, long min, long max) {
+        if (min > max) {
+            return new BitSet();
+        }
+        long firstBucket = bucketOf(min, width);
+        long lastBucket = bucketOf(max, width);
+        BitSet matches = new BitSet();
+        for (Map.Entry<Long, BitSet> bucket : buckets.subMap(firstBucket, true, lastBucket, true).entrySet()) {
+            long key = bucket.getKey();
+            boolean partial = key == firstBucket || key == lastBucket || key == MAX_BUCKET;
+            if (!partial) {
+                matches.or(bucket.getValue());
+                continue;
+            }
+            BitSet bits = bucket.getValue();
+            for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                if (values[i] >= min && values[i] <= max) {
+                    matches.set(i);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private Map<String, Integer> facetCounts(Map<String, BitSet> postings, BitSet scope) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        postings.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), intersectionSize(entry.getValue(), scope)))
+                .filter(entry -> entry.getValue() > 0)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .forEach(entry -> counts.put(labels.getOrDefault(entry.getKey(), entry.getKey()), entry.getValue()));
+        return counts;
+    }
+
+    private static int intersectionSize(BitSet a, BitSet b) {
+        BitSet copy = (BitSet) a.clone();
+        copy.and(b);
+        return copy.cardinality();
+    }
+
+    private List<UUID> page(BitSet result, int offset, int limit) {
+        List<UUID> ids = new ArrayList<>(limit);
+        int skipped = 0;
+        for (int i = result.previousSetBit(result.length() - 1); i >= 0 && ids.size() < limit; i = result.previousSetBit(i - 1)) {
+            if (skipped++ >= offset) {
+                ids.add(trackIds[i]);
+            }
+        }
+        return ids;
+    }
+
+    // --- UTILITAIRES ---
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static long bucketOf(long value, long width) {
+        return Math.min(value / width, MAX_BUCKET);
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).longValue();
+    }
+
+    private static String normalize(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
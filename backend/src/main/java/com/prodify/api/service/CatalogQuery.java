@@ -0,0 +1,21 @@
+package com.prodify.api.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Filtres combinables du catalogue. Un champ null signifie "pas de filtre".
+ * Les bornes BPM et prix sont inclusives. Si {@code text} est renseigné, les résultats
+ * sont classés par pertinence plutôt que par date.
+ */
+public record CatalogQuery(
+        String text,
+        String genre,
+        String mood,
+        Integer bpmMin,
+        Integer bpmMax,
+        BigDecimal priceMin,
+        BigDecimal priceMax,
+        int offset,
+        int limit
+) {
+}
@@ -0,0 +1,19 @@
+package com.prodify.api.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * @param total       nombre total de tracks correspondant aux filtres
+ * @param trackIds    la page demandée, de la plus récente à la plus ancienne
+ * @param genreCounts nombre de résultats par genre (en ignorant le filtre genre lui-même)
+ * @param moodCounts  nombre de résultats par mood (en ignorant le filtre mood lui-même)
+ */
+public record CatalogSearchResult(
+        int total,
+        List<UUID> trackIds,
+        Map<String, Integer> genreCounts,
+        Map<String, Integer> moodCounts
+) {
+}
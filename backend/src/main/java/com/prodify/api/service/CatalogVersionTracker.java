@@ -0,0 +1,44 @@
+package com.prodify.api.service;
+
+import com.prodify.api.dto.common.ResourceVersion;
+import com.prodify.api.event.ProducerChangedEvent;
+import com.prodify.api.event.TrackChangedEvent;
+import com.prodify.api.model.CatalogState;
+import com.prodify.api.repository.CatalogStateRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Version agrégée du catalogue public (listing paginé et recherche).
+ * Un COUNT/MAX sur toute la table à chaque requête coûterait autant qu'une page :
+ * on tient plutôt un compteur persisté (une ligne, voir CatalogState), incrémenté à chaque écriture
+ * sur une Track ou un profil producteur. La lecture est un accès par clé primaire, identique sur tous les nœuds.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogVersionTracker {
+
+    private final CatalogStateRepository catalogStateRepository;
+
+    // Dans la transaction de l'écriture, juste avant son commit : le compteur et les données changent ensemble,
+    // et le verrou sur la ligne n'est tenu que le temps du commit
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onTrackChanged(TrackChangedEvent event) {
+        catalogStateRepository.bump();
+    }
+
+    // Le nom et le slug du producteur sont recopiés dans chaque TrackView du catalogue
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onProducerChanged(ProducerChangedEvent event) {
+        catalogStateRepository.bump();
+    }
+
+    public ResourceVersion current() {
+        // Ligne absente tant que rien n'a été écrit : version vide, stable elle aussi
+        return catalogStateRepository.findById(CatalogState.SINGLETON_ID)
+                .map(state -> new ResourceVersion(state.getRevision(), state.getUpdatedAt().toInstant()))
+                .orElseGet(() -> new ResourceVersion(0, null));
+    }
+}
@@ -0,0 +1,39 @@
+package com.prodify.api.service;
+
+import com.prodify.api.repository.DataMigrationRepository;
+import com.prodify.api.repository.EntitlementRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Reprise, une seule fois, des droits des commandes COMPLETED payées avant la table entitlements.
+ * Depuis, validateOrder écrit le droit dans la transaction du paiement : rien à rattraper aux démarrages suivants.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EntitlementBackfill {
+
+    static final String MIGRATION = "entitlements-backfill";
+
+    private final EntitlementRepository entitlementRepository;
+    private final DataMigrationRepository dataMigrationRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Marqueur et reprise dans la même transaction : un seul nœud la fait, et une reprise échouée sera rejouée
+            if (dataMigrationRepository.markApplied(MIGRATION) == 0) {
+                return;
+            }
+            long start = System.nanoTime();
+            int granted = entitlementRepository.backfill();
+            log.info("Bibliothèques : {} droits repris en {} ms", granted, (System.nanoTime() - start) / 1_000_000);
+        });
+    }
+}
@@ -0,0 +1,214 @@
+package com.prodify.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.prodify.api.model.IdempotencyRecord;
+import com.prodify.api.repository.IdempotencyRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * En-tête Idempotency-Key : une requête rejouée avec la même clé renvoie la réponse de la première
+ * exécution au lieu d'exécuter à nouveau l'opération (commande en double, session Stripe en double).
+ *
+ * Deux niveaux :
+ * - en mémoire (Caffeine) : les doublons concurrents reçus par cette instance attendent la première requête ;
+ * - en base (idempotency_keys) : la clé survit à un redémarrage et est partagée entre instances.
+ *
+ * Les échecs ne sont pas mémorisés : la clé est libérée et une nouvelle tentative ré-exécute l'opération.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    static final int MAX_KEY_LENGTH = 255;
+    // Attente maximale d'un doublon sur la première requête, avant de répondre 409
+    static final Duration MAX_WAIT = Duration.ofSeconds(10);
+    private static final long POLL_MILLIS = 100;
+    // Une clé restée "en cours" plus longtemps appartient à une instance qui s'est arrêtée
+    static final Duration ABANDONED_AFTER = Duration.ofMinutes(2);
+
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Cache<IdempotencyRecord.Key, CompletableFuture<Stored>> inMemory;
+
+    public IdempotencyService(IdempotencyRecordRepository repository, ObjectMapper objectMapper,
+                              @Value("${prodify.idempotency.ttl:24h}") Duration ttl) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.inMemory = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    /**
+     * Exécute {@code action} une seule fois par (utilisateur, opération, clé).
+     *
+     * @param fingerprint identifie la requête : la même clé avec une autre requête est refusée (422)
+     * @param type        type de la réponse, pour la relire lors d'un rejeu
+     * @throws ResponseStatusException 400 si la clé est invalide, 409 si la première requête est toujours
+     *                                 en cours après {@link #MAX_WAIT}, 422 si la clé a servi pour une autre requête
+     */
+    public <T> T execute(UUID userId, String operation, String key, String fingerprint,
+                         Class<T> type, Supplier<T> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key doit contenir entre 1 et " + MAX_KEY_LENGTH + " caractères.");
+        }
+        IdempotencyRecord.Key id = new IdempotencyRecord.Key(userId, operation, key);
+
+        CompletableFuture<Stored> mine = new CompletableFuture<>();
+        CompletableFuture<Stored> first = inMemory.asMap().putIfAbsent(id, mine);
+        if (first != null) {
+            // Doublon sur cette instance : on attend le résultat de la première requête
+            return replay(await(first), fingerprint, type);
+        }
+
+        boolean claimed = false;
+        try {
+            Optional<Stored> stored = claimOrLoad(id, fingerprint);
+            if (stored.isPresent()) {
+                mine.complete(stored.get());
+                return replay(stored.get(), fingerprint, type);
+            }
+            claimed = true;
+            T result = action.get();
+            String body = toJson(result);
+            repository.complete(userId, operation, key, body);
+            mine.complete(new Stored(fingerprint, body));
+            return result;
+        } catch (RuntimeException e) {
+            inMemory.invalidate(id);
+            mine.completeExceptionally(e);
+            if (claimed) {
+                repository.release(userId, operation, key);
+            }
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${prodify.idempotency.purge-interval:1h}")
+    public void purgeExpired() {
+        int deleted = repository.deleteExpired();
+        if (deleted > 0) {
+            log.info("{} clés d'idempotence expirées supprimées", deleted);
+        }
+    }
+
+    // Vide : la clé est à nous, l'opération doit être exécutée. Sinon : la réponse de la première exécution.
+    private Optional<Stored> claimOrLoad(IdempotencyRecord.Key id, String fingerprint) {
+        long deadline = System.nanoTime() + MAX_WAIT.toNanos();
+        while (true) {
+            OffsetDateTime now = OffsetDateTime.now();
+            if (repository.tryClaim(id.getUserId(), id.getOperation(), id.getIdempotencyKey(),
+                    fingerprint, now.plus(ttl)) == 1) {
+                return Optional.empty();
+            }
+            Optional<IdempotentResponse> existing = repository.findResponse(
+                    id.getUserId(), id.getOperation(), id.getIdempotencyKey());
+            if (existing.isEmpty()) {
+                // Libérée entre-temps (échec de la première requête) : nouvel essai d'insertion
+                continue;
+            }
+            IdempotentResponse response = existing.get();
+            boolean expired = response.expiresAt().isBefore(now);
+            boolean abandoned = response.status() == IdempotencyRecord.Status.IN_PROGRESS
+                    && response.createdAt().isBefore(now.minus(ABANDONED_AFTER));
+            if (expired || abandoned) {
+                if (repository.tryTakeOver(id.getUserId(), id.getOperation(), id.getIdempotencyKey(),
+                        fingerprint, now.plus(ttl), now.minus(ABANDONED_AFTER)) == 1) {
+                    return Optional.empty();
+                }
+                continue;
+            }
+            if (!response.fingerprint().equals(fingerprint)) {
+                throw mismatch();
+            }
+            if (response.status() == IdempotencyRecord.Status.COMPLETED) {
+                return Optional.of(new Stored(response.fingerprint(), response.body()));
+            }
+            // En cours sur une autre instance
+            if (System.nanoTime() > deadline) {
+                throw inProgress();
+            }
+            sleep();
+        }
+    }
+
+    private static Stored await(CompletableFuture<Stored> first) {
+        try {
+            return first.get(MAX_WAIT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw inProgress();
+        } catch (ExecutionException e) {
+            // La première requête a échoué : le doublon reçoit la même erreur
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw inProgress();
+        }
+    }
+
+    private <T> T replay(Stored stored, String fingerprint, Class<T> type) {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            throw mismatch();
+        }
+        try {
+            return objectMapper.readValue(stored.body(), type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Réponse mémorisée illisible", e);
+        }
+    }
+
+    private String toJson(Object result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Réponse non sérialisable", e);
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(POLL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw inProgress();
+        }
+    }
+
+    private static ResponseStatusException inProgress() {
+        return new ResponseStatusException(HttpStatus.CONFLICT,
+                "Une requête avec cette Idempotency-Key est déjà en cours.");
+    }
+
+    private static ResponseStatusException mismatch() {
+        return new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                "Cette Idempotency-Key a déjà été utilisée pour une autre requête.");
+    }
+
+    private record Stored(String fingerprint, String body) {
+    }
+}
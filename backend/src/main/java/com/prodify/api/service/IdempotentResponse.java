@@ -0,0 +1,12 @@
+package com.prodify.api.service;
+
+import com.prodify.api.model.IdempotencyRecord;
+
+import java.time.OffsetDateTime;
+
+/**
+ * État d'une clé d'idempotence lu en base (projection : toujours relu, jamais servi par le contexte de persistance).
+ */
+public record IdempotentResponse(String fingerprint, IdempotencyRecord.Status status, String body,
+                                 OffsetDateTime createdAt, OffsetDateTime expiresAt) {
+}
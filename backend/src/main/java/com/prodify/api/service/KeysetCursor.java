@@ -0,0 +1,43 @@
+package com.prodify.api.service;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position dans un listing trié par (createdAt DESC, id DESC).
+ * Encodé en Base64 URL-safe pour que le client le manipule comme un jeton opaque.
+ */
+public record KeysetCursor(OffsetDateTime createdAt, UUID id) {
+
+    private static final int ENCODED_BYTES = Long.BYTES * 3;
+
+    public String encode() {
+        // PostgreSQL stocke les timestamps à la microseconde : on encode la même précision
+        long micros = ChronoUnit.MICROS.between(Instant.EPOCH, createdAt.toInstant());
+        ByteBuffer buffer = ByteBuffer.allocate(ENCODED_BYTES)
+                .putLong(micros)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * @throws IllegalArgumentException si le jeton n'a pas été produit par {@link #encode()}
+     */
+    public static KeysetCursor decode(String token) {
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+        if (bytes.length != ENCODED_BYTES) {
+            throw new IllegalArgumentException("Curseur de pagination invalide");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long micros = buffer.getLong();
+        UUID id = new UUID(buffer.getLong(), buffer.getLong());
+        Instant instant = Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+        return new KeysetCursor(OffsetDateTime.ofInstant(instant, ZoneOffset.UTC), id);
+    }
+}
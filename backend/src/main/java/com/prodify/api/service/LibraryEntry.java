@@ -0,0 +1,24 @@
+package com.prodify.api.service;
+
+import com.prodify.api.dto.track.TrackView;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Une track de la bibliothèque et sa date d'achat (clé de pagination), chargées par projection JPQL.
+ */
+public record LibraryEntry(OffsetDateTime acquiredAt, TrackView track) {
+
+    // Constructeur "à plat" utilisé par les requêtes JPQL
+    public LibraryEntry(OffsetDateTime acquiredAt, UUID id, String title, String slug, String description, Integer bpm,
+                        String genre, String mood, String coverImageUrl, String previewUrl, BigDecimal price, boolean sold,
+                        boolean exclusive, OffsetDateTime createdAt, OffsetDateTime updatedAt,
+                        UUID producerId, String producerDisplayName, String producerSlug, String producerAvatarUrl,
+                        OffsetDateTime producerUpdatedAt) {
+        this(acquiredAt, new TrackView(id, title, slug, description, bpm, genre, mood, coverImageUrl, previewUrl, price,
+                sold, exclusive, createdAt, updatedAt, producerId, producerDisplayName, producerSlug, producerAvatarUrl,
+                producerUpdatedAt));
+    }
+}
@@ -1,48 +1,85 @@
 package com.prodify.api.service;
 
-import com.prodify.api.model.Order;
-import com.prodify.api.model.OrderStatus;
+import com.prodify.api.dto.common.CursorPageResponse;
+import com.prodify.api.dto.track.TrackView;
 import com.prodify.api.model.Track;
 import com.prodify.api.model.User;
-import com.prodify.api.repository.OrderRepository;
+import com.prodify.api.repository.EntitlementRepository;
+import com.prodify.api.repository.TrackRepository;
+import com.prodify.api.service.ownership.OwnershipService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.UUID;
 
+/**
+ * Bibliothèque de l'acheteur, servie depuis la table entitlements (une ligne par track possédée).
+ *
+ * Les droits sont écrits dans la transaction qui passe la commande en COMPLETED ; ceux des commandes
+ * payées avant l'existence de la table sont rattrapés au démarrage ({@link EntitlementBackfill}).
+ */
 @Service
 @RequiredArgsConstructor
 public class LibraryService {
 
-    private final OrderRepository orderRepository;
+    private final EntitlementRepository entitlementRepository;
+    private final TrackRepository trackRepository;
+    private final OwnershipService ownershipService;
 
     /**
-     * Récupère toutes les tracks achetées par l'utilisateur connecté.
-     * 
-     * @param user L'utilisateur connecté
-     * @return Liste unique des Track achetées (doublons supprimés)
+     * Page de tracks achetées par l'utilisateur, de la plus récemment achetée à la plus ancienne.
+     *
+     * @param cursor jeton {@code nextCursor} de la page précédente, ou null pour la première page
+     * @param limit  taille demandée, bornée à {@link TrackService#MAX_PAGE_SIZE}
+     * @throws IllegalArgumentException si le curseur est invalide
      */
-    @Transactional(readOnly = true)
-    public List<Track> getPurchasedTracks(User user) {
-        // 1. Récupérer toutes les commandes COMPLETED de l'utilisateur
-        List<Order> completedOrders = orderRepository.findAllByUserIdAndStatus(
-                user.getId(),
-                OrderStatus.COMPLETED
-        );
-
-        // 2. Extraire tous les OrderItems et les mapper en Track
-        // Utiliser un Set pour éviter les doublons (si l'user a acheté la même track 2 fois)
-        Set<Track> purchasedTracks = completedOrders.stream()
-                .flatMap(order -> order.getItems().stream()) // Récupère tous les OrderItems
-                .map(orderItem -> orderItem.getTrack()) // Extrait la Track
-                .collect(Collectors.toSet()); // Set pour les doublons
-
-        // 3. Convertir en List et retourner (peut être trié par titre ou date)
-        return purchasedTracks.stream()
-                .sorted((t1, t2) -> t2.getCreatedAt().compareTo(t1.getCreatedAt())) // Tri DESC par date de création
-                .collect(Collectors.toList());
+    public CursorPageResponse<TrackView> getPurchasedTracks(User user, String cursor, Integer limit) {
+        int pageSize = TrackService.clampPageSize(limit);
+        Limit fetchLimit = Limit.of(pageSize + 1);
+
+        List<LibraryEntry> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = entitlementRepository.findLibraryFirstPage(user.getId(), fetchLimit);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            rows = entitlementRepository.findLibraryPageAfter(user.getId(), position.createdAt(), position.id(), fetchLimit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<LibraryEntry> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            LibraryEntry last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.acquiredAt(), last.track().id()).encode();
+        }
+        return CursorPageResponse.<TrackView>builder()
+                .items(page.stream().map(LibraryEntry::track).toList())
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Lien de téléchargement d'une track de la bibliothèque.
+     *
+     * @throws ResponseStatusException 403 si l'utilisateur ne la possède pas (jamais achetée, ou remboursée)
+     */
+    public String getDownloadUrl(User user, UUID trackId) {
+        if (!ownershipService.ownsTrack(user.getId(), trackId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Cette track ne fait pas partie de votre bibliothèque.");
+        }
+        return trackRepository.findById(trackId)
+                .map(Track::getAudioUrl)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Track introuvable"));
+    }
+
+    // Appelé dans la transaction du paiement (OrderService.validateOrder)
+    public void grantOrder(UUID orderId) {
+        entitlementRepository.grantOrder(orderId);
     }
 }
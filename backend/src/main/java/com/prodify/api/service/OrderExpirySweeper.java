@@ -0,0 +1,102 @@
+package com.prodify.api.service;
+
+import com.prodify.api.repository.OrderRepository;
+import com.prodify.api.service.inventory.TrackHoldService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Expire les commandes restées PENDING (paiement jamais terminé) : elles passent en CANCELLED
+ * et leurs réservations d'exclusives sont libérées.
+ *
+ * Par lots de {@link #BATCH_SIZE}, une transaction par lot, au plus {@link #MAX_BATCHES_PER_RUN} lots
+ * par passage. Chaque lot prend un verrou consultatif PostgreSQL : si un autre nœud balaie déjà, on s'arrête.
+ *
+ * Métriques (/actuator/metrics) : prodify.orders.pending.stale (commandes à expirer au dernier passage),
+ * prodify.orders.sweep (durée des passages), prodify.orders.expired (commandes expirées).
+ */
+@Slf4j
+@Component
+public class OrderExpirySweeper {
+
+    static final int BATCH_SIZE = 500;
+    static final int MAX_BATCHES_PER_RUN = 20;
+    // Clé du verrou consultatif (arbitraire, propre à ce balayeur)
+    private static final long SWEEP_LOCK_KEY = 0x50524F4449465901L;
+
+    private final OrderRepository orderRepository;
+    private final TrackHoldService trackHoldService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration pendingTtl;
+
+    private final AtomicLong staleBacklog = new AtomicLong();
+    private final Timer sweepTimer;
+    private final Counter expiredCounter;
+
+    public OrderExpirySweeper(OrderRepository orderRepository, TrackHoldService trackHoldService,
+                              TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                              @Value("${prodify.orders.pending-ttl:2h}") Duration pendingTtl) {
+        this.orderRepository = orderRepository;
+        this.trackHoldService = trackHoldService;
+        this.transactionTemplate = transactionTemplate;
+        this.pendingTtl = pendingTtl;
+        Gauge.builder("prodify.orders.pending.stale", staleBacklog, AtomicLong::get)
+                .description("Commandes PENDING plus anciennes que le délai d'expiration, avant le dernier passage")
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("prodify.orders.sweep")
+                .description("Durée d'un passage d'expiration des commandes")
+                .register(meterRegistry);
+        this.expiredCounter = Counter.builder("prodify.orders.expired")
+                .description("Commandes PENDING expirées")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${prodify.orders.sweep-interval:5m}", initialDelayString = "${prodify.orders.sweep-interval:5m}")
+    public void sweep() {
+        sweepTimer.record(this::sweepBatches);
+    }
+
+    // @return le nombre de commandes expirées pendant ce passage
+    int sweepBatches() {
+        OffsetDateTime cutoff = OffsetDateTime.now().minus(pendingTtl);
+        staleBacklog.set(orderRepository.countStalePending(cutoff));
+
+        int expired = 0;
+        for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+            List<UUID> orderIds = transactionTemplate.execute(status -> {
+                if (!orderRepository.tryAdvisoryXactLock(SWEEP_LOCK_KEY)) {
+                    return null;
+                }
+                List<UUID> ids = orderRepository.expireStalePending(cutoff, BATCH_SIZE);
+                trackHoldService.releaseOrders(ids);
+                return ids;
+            });
+            if (orderIds == null) {
+                log.debug("Expiration des commandes : un autre nœud balaie déjà");
+                break;
+            }
+            expired += orderIds.size();
+            expiredCounter.increment(orderIds.size());
+            if (orderIds.size() < BATCH_SIZE) {
+                break;
+            }
+        }
+        if (expired > 0) {
+            log.info("{} commandes PENDING expirées (créées avant {})", expired, cutoff);
+        }
+        return expired;
+    }
+}
@@ -0,0 +1,15 @@
+package com.prodify.api.service;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Ligne d'une commande de l'historique : chargée pour toute une page de commandes en une requête.
+ */
+public record OrderLine(
+        UUID orderId,
+        UUID trackId,
+        String trackTitle,
+        BigDecimal price
+) {
+}
@@ -1,7 +1,10 @@
 package com.prodify.api.service;
 
+import com.prodify.api.dto.common.CursorPageResponse;
 import com.prodify.api.dto.order.OrderItemResponse;
 import com.prodify.api.dto.order.OrderResponse;
+import com.prodify.api.event.OrderCompletedEvent;
+import com.prodify.api.event.TrackChangedEvent;
 import com.prodify.api.model.Order;
 import com.prodify.api.model.OrderItem;
 import com.prodify.api.model.OrderStatus;
@@ -9,37 +12,79 @@ import com.prodify.api.model.Track;
 import com.prodify.api.model.User;
 import com.prodify.api.repository.OrderRepository;
 import com.prodify.api.repository.TrackRepository;
+import com.prodify.api.service.inventory.TrackHoldService;
+import com.prodify.api.service.payment.CheckoutStatus;
+import com.prodify.api.service.payment.PaymentCallGuard;
+import com.prodify.api.service.payment.PaymentGateway;
+import com.prodify.api.service.payment.PaymentGatewayException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class OrderService {
 
     private final OrderRepository orderRepository;
     private final TrackRepository trackRepository;
+    private final ProducerStatsService producerStatsService;
+    private final LibraryService libraryService;
+    private final TrackHoldService trackHoldService;
+    private final PaymentGateway paymentGateway;
+    private final PaymentCallGuard paymentCallGuard;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
-    @Transactional
     public OrderResponse createOrder(User user, List<UUID> trackIds) {
         // 1. Vérifier que la liste n'est pas vide
         if (trackIds == null || trackIds.isEmpty()) {
             throw new RuntimeException("La commande doit contenir au moins une track.");
         }
 
-        // 2. Récupérer les tracks depuis la BDD
-        List<Track> tracks = trackIds.stream()
-                .map(trackId -> trackRepository.findById(trackId)
-                        .orElseThrow(() -> new RuntimeException("Track introuvable avec l'ID: " + trackId)))
-                .collect(Collectors.toList());
+        // Vente flash : une exclusive déjà réservée est refusée avant d'ouvrir une transaction
+        trackHoldService.checkNotHeld(trackIds);
+        return transactionTemplate.execute(status -> placeOrder(user, trackIds));
+    }
 
-        // 3. Vérifier qu'aucune track n'est déjà vendue (si nécessaire)
-        // Pour l'instant, on permet l'achat même si isSold = true (on peut changer ça plus tard)
+    private OrderResponse placeOrder(User user, List<UUID> trackIds) {
+
+        // 2. Récupérer toutes les tracks en une seule requête, puis signaler d'un coup les ids inconnus
+        Map<UUID, Track> tracksById = trackRepository.findAllWithProducerByIdIn(new HashSet<>(trackIds)).stream()
+                .collect(Collectors.toMap(Track::getId, Function.identity()));
+        List<UUID> missing = trackIds.stream()
+                .filter(trackId -> !tracksById.containsKey(trackId))
+                .distinct()
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new RuntimeException("Track(s) introuvable(s) avec l'ID: " + missing.stream()
+                    .map(UUID::toString)
+                    .collect(Collectors.joining(", ")));
+        }
+        List<Track> tracks = trackIds.stream().map(tracksById::get).toList();
+
+        // 3. Une exclusive ne se vend qu'une fois (les licences simples restent achetables)
+        List<UUID> exclusiveTrackIds = exclusiveTrackIds(tracks);
+        if (tracks.stream().anyMatch(track -> track.isExclusive() && track.isSold())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Cette track exclusive a déjà été vendue.");
+        }
 
         // 4. Calculer le total
         BigDecimal totalAmount = tracks.stream()
@@ -65,19 +110,190 @@ public class OrderService {
         // 7. Associer les items à l'order
         order.setItems(orderItems);
 
-        // 8. Sauvegarder l'order (les items seront sauvegardés automatiquement grâce à CascadeType.ALL)
+        // 8. Sauvegarder l'order : les items suivent par cascade, en un seul INSERT groupé
+        // (ids générés côté application + hibernate.jdbc.batch_size, voir application.properties)
         Order savedOrder = orderRepository.save(order);
 
-        // 9. Convertir en OrderResponse
+        // 9. Réserver les exclusives pendant le paiement (refus 409 si un autre acheteur les détient)
+        trackHoldService.hold(savedOrder.getId(), exclusiveTrackIds);
+
+        // 10. Convertir en OrderResponse
         return convertToOrderResponse(savedOrder);
     }
 
+    /**
+     * Historique des commandes de l'utilisateur, de la plus récente à la plus ancienne.
+     * Deux requêtes par page quelle que soit la taille de l'historique : les en-têtes (keyset), puis toutes leurs lignes.
+     *
+     * @param status filtre optionnel (null = tous les statuts)
+     * @param cursor jeton renvoyé par la page précédente (null pour la première page)
+     * @throws IllegalArgumentException si le curseur est invalide
+     */
+    public CursorPageResponse<OrderResponse> getOrderHistory(User user, OrderStatus status, String cursor, Integer limit) {
+        int pageSize = TrackService.clampPageSize(limit);
+        Limit fetchLimit = Limit.of(pageSize + 1);
+
+        List<OrderSummary> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = status == null
+                    ? orderRepository.findByUserIdOrderByCreatedAtDesc(user.getId(), fetchLimit)
+                    : orderRepository.findByUserIdAndStatusOrderByCreatedAtDesc(user.getId(), status, fetchLimit);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            rows = status == null
+                    ? orderRepository.findByUserIdOrderByCreatedAtDescAfter(user.getId(),
+                            position.createdAt(), position.id(), fetchLimit)
+                    : orderRepository.findByUserIdAndStatusOrderByCreatedAtDescAfter(user.getId(), status,
+                            position.createdAt(), position.id(), fetchLimit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<OrderSummary> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        Map<UUID, List<OrderItemResponse>> itemsByOrder = page.isEmpty() ? Map.of() : orderRepository
+                .findLinesByOrderIdIn(page.stream().map(OrderSummary::id).toList()).stream()
+                .collect(Collectors.groupingBy(OrderLine::orderId, Collectors.mapping(line -> OrderItemResponse.builder()
+                        .trackId(line.trackId())
+                        .trackTitle(line.trackTitle())
+                        .price(line.price())
+                        .build(), Collectors.toList())));
+
+        List<OrderResponse> items = page.stream()
+                .map(order -> OrderResponse.builder()
+                        .id(order.id())
+                        .status(order.status())
+                        .totalAmount(order.totalAmount())
+                        .createdAt(order.createdAt())
+                        .items(itemsByOrder.getOrDefault(order.id(), List.of()))
+                        .build())
+                .toList();
+
+        String nextCursor = null;
+        if (hasMore) {
+            OrderSummary last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.createdAt(), last.id()).encode();
+        }
+        return CursorPageResponse.<OrderResponse>builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
     @Transactional
     public void validateOrder(UUID orderId) {
-        Order order = orderRepository.findById(orderId)
+        // Verrou de ligne jusqu'au commit : le balayeur d'expiration saute cette commande (SKIP LOCKED)
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new RuntimeException("Commande introuvable avec l'ID: " + orderId));
+        // Webhook rejoué : la commande est déjà payée, rien à refaire
+        if (order.getStatus() == OrderStatus.COMPLETED) {
+            return;
+        }
+        List<Track> tracks = order.getItems().stream().map(OrderItem::getTrack).toList();
+        // Paiement arrivé après l'annulation (acheteur, session expirée, balayeur) : les exclusives ont été libérées
+        // et doivent être reprises ; celles vendues ou réservées entre-temps par un autre acheteur sont à rembourser
+        Set<UUID> lost = Set.of();
+        if (order.getStatus() == OrderStatus.CANCELLED) {
+            lost = Set.copyOf(trackHoldService.reacquire(order.getId(), exclusiveTrackIds(tracks)));
+            log.warn("Commande {} payée après son annulation, exclusives non reprises (à rembourser) : {}",
+                    order.getId(), lost);
+        }
         order.setStatus(OrderStatus.COMPLETED);
+        order.setCompletedAt(OffsetDateTime.now());
+
+        // La réservation devient une vente définitive. Vérifié avant d'accorder les droits : une exclusive
+        // déjà vendue n'entre pas dans la bibliothèque de ce second acheteur
+        List<UUID> grantedTrackIds = new ArrayList<>();
+        for (OrderItem item : order.getItems()) {
+            Track track = item.getTrack();
+            if (track.isExclusive() && (track.isSold() || lost.contains(track.getId()))) {
+                // Paiement arrivé après l'expiration de la réservation, alors qu'un autre acheteur a payé
+                // ou réservé la track : la ligne est marquée pour être remboursée
+                item.setDoubleSoldAt(order.getCompletedAt());
+                log.error("Track exclusive {} vendue deux fois (commande {}), ligne {} à rembourser",
+                        track.getId(), order.getId(), item.getId());
+                continue;
+            }
+            if (track.isExclusive()) {
+                track.setSold(true);
+                eventPublisher.publishEvent(new TrackChangedEvent(track, TrackChangedEvent.Type.UPDATED));
+            }
+            grantedTrackIds.add(track.getId());
+        }
+        Order saved = orderRepository.save(order);
+        // Même transaction que le passage en COMPLETED : les ventes sont comptées une fois et une seule
+        producerStatsService.recordOrderSales(saved.getId());
+        // Lignes vendues deux fois exclues (double_sold_at écrit au flush qui précède la requête)
+        libraryService.grantOrder(saved.getId());
+        trackHoldService.release(saved.getId(), exclusiveTrackIds(tracks));
+
+        eventPublisher.publishEvent(new OrderCompletedEvent(saved.getId(), saved.getUser().getId(),
+                grantedTrackIds, saved.getCompletedAt()));
+    }
+
+    /**
+     * Annulation par l'acheteur : les exclusives réservées redeviennent disponibles immédiatement.
+     * La session de paiement encore ouverte est ensuite fermée, après le commit et hors transaction.
+     */
+    public void cancelOrder(User user, UUID orderId) {
+        String openSessionId = transactionTemplate.execute(status -> cancelPending(user, orderId));
+        if (openSessionId != null) {
+            closeCheckoutSession(orderId, openSessionId);
+        }
+    }
+
+    // Renvoie la session de paiement encore ouverte de la commande annulée (null s'il n'y en a pas)
+    private String cancelPending(User user, UUID orderId) {
+        // Verrou de ligne, comme validateOrder : un paiement validé en même temps n'est pas écrasé par l'annulation
+        Order order = orderRepository.findByIdForUpdate(orderId)
+                .orElseThrow(() -> new RuntimeException("Commande introuvable avec l'ID: " + orderId));
+        if (!order.getUser().getId().equals(user.getId())) {
+            throw new RuntimeException("Vous n'êtes pas autorisé à accéder à cette commande");
+        }
+        if (order.getStatus() != OrderStatus.PENDING) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Seule une commande en attente peut être annulée. Statut actuel: " + order.getStatus());
+        }
+        cancel(order);
+        boolean sessionOpen = order.getCheckoutSessionId() != null
+                && (order.getCheckoutExpiresAt() == null || order.getCheckoutExpiresAt().isAfter(OffsetDateTime.now()));
+        return sessionOpen ? order.getCheckoutSessionId() : null;
+    }
+
+    // Précaution : si la fermeture échoue, un paiement tardif sur cette session passe par validateOrder (réservations reprises)
+    private void closeCheckoutSession(UUID orderId, String sessionId) {
+        try {
+            CheckoutStatus closed = paymentCallGuard.call(() -> paymentGateway.expireCheckoutSession(sessionId));
+            if (closed.paid()) {
+                log.warn("Commande {} annulée alors que sa session de paiement {} était déjà payée", orderId, sessionId);
+            }
+        } catch (PaymentGatewayException e) {
+            log.warn("Session de paiement {} de la commande annulée {} non fermée : {}", sessionId, orderId, e.getMessage());
+        }
+    }
+
+    /**
+     * Session de paiement expirée (webhook) : même effet, sans vérification d'utilisateur.
+     * Ignorée si ce n'est plus la session de la commande : une session remplacée expire alors que sa remplaçante
+     * est encore payable.
+     */
+    @Transactional
+    public void expireOrder(UUID orderId, String checkoutSessionId) {
+        orderRepository.findByIdForUpdate(orderId)
+                .filter(order -> order.getStatus() == OrderStatus.PENDING)
+                .filter(order -> checkoutSessionId.equals(order.getCheckoutSessionId()))
+                .ifPresent(this::cancel);
+    }
+
+    private void cancel(Order order) {
+        order.setStatus(OrderStatus.CANCELLED);
         orderRepository.save(order);
+        trackHoldService.release(order.getId(),
+                exclusiveTrackIds(order.getItems().stream().map(OrderItem::getTrack).toList()));
+    }
+
+    private static List<UUID> exclusiveTrackIds(List<Track> tracks) {
+        return tracks.stream().filter(Track::isExclusive).map(Track::getId).distinct().toList();
     }
 
     private OrderResponse convertToOrderResponse(Order order) {
@@ -0,0 +1,18 @@
+package com.prodify.api.service;
+
+import com.prodify.api.model.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * En-tête d'une commande pour l'historique, chargé par projection JPQL (ni User ni items hydratés).
+ */
+public record OrderSummary(
+        UUID id,
+        OrderStatus status,
+        BigDecimal totalAmount,
+        OffsetDateTime createdAt
+) {
+}
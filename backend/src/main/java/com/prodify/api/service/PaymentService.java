@@ -2,81 +2,221 @@ package com.prodify.api.service;
 
 import com.prodify.api.model.Order;
 import com.prodify.api.model.OrderItem;
+import com.prodify.api.model.OrderStatus;
+import com.prodify.api.model.Track;
 import com.prodify.api.repository.OrderRepository;
-import com.stripe.exception.StripeException;
-import com.stripe.model.checkout.Session;
-import com.stripe.param.checkout.SessionCreateParams;
+import com.prodify.api.service.inventory.TrackHoldService;
+import com.prodify.api.service.payment.CheckoutRequest;
+import com.prodify.api.service.payment.CheckoutSession;
+import com.prodify.api.service.payment.CheckoutStatus;
+import com.prodify.api.service.payment.PaymentCallGuard;
+import com.prodify.api.service.payment.PaymentGateway;
+import com.prodify.api.service.payment.PaymentGatewayException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class PaymentService {
 
+    // Durée minimale d'une session Checkout imposée par Stripe ; la réservation des exclusives la couvre, plus une marge pour le webhook
+    static final Duration CHECKOUT_SESSION_TTL = Duration.ofMinutes(30);
+    static final Duration CHECKOUT_HOLD_MARGIN = Duration.ofMinutes(5);
+    // Une session qui expire plus tôt n'est pas réutilisée : l'acheteur n'aurait plus le temps de payer
+    static final Duration CHECKOUT_REUSE_MIN_REMAINING = Duration.ofMinutes(10);
+
     private final OrderRepository orderRepository;
+    private final TrackHoldService trackHoldService;
+    private final PaymentGateway paymentGateway;
+    private final PaymentCallGuard paymentCallGuard;
+    private final TransactionTemplate transactionTemplate;
+
+    // Créations en cours par commande : les clics simultanés attendent la même session
+    private final ConcurrentHashMap<UUID, CompletableFuture<CheckoutSession>> inFlight = new ConcurrentHashMap<>();
 
     @Value("${app.frontend.url:http://localhost:5173}")
     private String frontendUrl;
 
-    @Transactional
-    public Session createCheckoutSession(UUID orderId) throws StripeException {
-        // 1. Recharger l'Order depuis la BDD dans la transaction courante
-        // Cela garantit que l'objet est attaché à la session Hibernate
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Commande introuvable avec l'ID: " + orderId));
+    /**
+     * Session de paiement de la commande : la session encore ouverte si elle existe, sinon une nouvelle.
+     *
+     * @throws PaymentGatewayException si le prestataire n'a pas pu créer la session
+     * ({@link com.prodify.api.service.payment.PaymentUnavailableException} s'il n'a pas été appelé ou n'a pas répondu à temps)
+     */
+    public CheckoutSession createCheckoutSession(UUID orderId) {
+        CompletableFuture<CheckoutSession> created = new CompletableFuture<>();
+        CompletableFuture<CheckoutSession> running = inFlight.putIfAbsent(orderId, created);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            CheckoutSession session = openCheckoutSession(orderId);
+            created.complete(session);
+            return session;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(orderId, created);
+        }
+    }
+
+    // Transactions courtes de part et d'autre de l'appel au prestataire : aucune connexion JDBC ni verrou retenus pendant l'attente
+    private CheckoutSession openCheckoutSession(UUID orderId) {
+        PendingCheckout pending = transactionTemplate.execute(status -> prepareCheckout(orderId));
+        if (pending.openSession() != null) {
+            return pending.openSession();
+        }
+        if (pending.supersededSessionId() != null) {
+            closeSupersededSession(pending.supersededSessionId());
+        }
+        // 3. Créer la session chez le prestataire (Stripe, ou simulateur local), sous cloison, délai et disjoncteur
+        CheckoutSession session = paymentCallGuard.call(() -> paymentGateway.createCheckoutSession(pending.request()));
+        CheckoutSession stored = transactionTemplate.execute(status -> storeCheckout(orderId, session, pending.supersededSessionId()));
+        if (!stored.id().equals(session.id())) {
+            // Jamais transmise à l'acheteur : la fermer n'est qu'une précaution, un échec n'empêche pas le paiement
+            try {
+                paymentCallGuard.call(() -> paymentGateway.expireCheckoutSession(session.id()));
+            } catch (PaymentGatewayException e) {
+                log.warn("Session de paiement abandonnée {} non fermée : {}", session.id(), e.getMessage());
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * La session remplacée expire bientôt mais reste payable jusque-là : elle est fermée avant d'en ouvrir une autre,
+     * l'acheteur ne peut jamais payer deux fois. Si elle ne peut pas l'être, aucune nouvelle session n'est créée.
+     */
+    private void closeSupersededSession(String sessionId) {
+        CheckoutStatus closed = paymentCallGuard.call(() -> paymentGateway.expireCheckoutSession(sessionId));
+        if (closed.paid()) {
+            // Le webhook (ou le rapprochement) validera la commande
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Le paiement de cette commande a déjà été effectué, il est en cours de validation.");
+        }
+    }
+
+    private PendingCheckout prepareCheckout(UUID orderId) {
+        // 1. Recharger l'Order depuis la BDD, verrouillé le temps de décider : réutiliser la session, ou en préparer une
+        Order order = lockPendingOrder(orderId);
+        OffsetDateTime now = OffsetDateTime.now();
+        CheckoutSession open = openSessionOf(order, now);
+        if (open != null) {
+            // Les exclusives sont déjà réservées jusqu'à l'expiration de cette session
+            return new PendingCheckout(open, null, null);
+        }
+        // Session trop proche de son expiration pour être réutilisée, mais encore payable
+        String supersededSessionId = order.getCheckoutSessionId() != null && order.getCheckoutExpiresAt().isAfter(now)
+                ? order.getCheckoutSessionId() : null;
 
-        // 2. Convertir les OrderItems en LineItems Stripe
-        List<SessionCreateParams.LineItem> lineItems = order.getItems().stream()
-                .map(this::convertToLineItem)
+        // Les exclusives restent réservées pendant toute la durée de la session (409 si la réservation a expiré)
+        OffsetDateTime sessionExpiresAt = now.plus(CHECKOUT_SESSION_TTL);
+        List<UUID> exclusiveTrackIds = order.getItems().stream()
+                .map(OrderItem::getTrack)
+                .filter(Track::isExclusive)
+                .map(Track::getId)
+                .distinct()
+                .toList();
+        trackHoldService.renew(orderId, exclusiveTrackIds, sessionExpiresAt.plus(CHECKOUT_HOLD_MARGIN));
+
+        // 2. Convertir les OrderItems en lignes de paiement
+        List<CheckoutRequest.Line> lines = order.getItems().stream()
+                .map(this::convertToLine)
                 .collect(Collectors.toList());
 
-        // 2. Créer les paramètres de la session
-        SessionCreateParams params = SessionCreateParams.builder()
-                .setMode(SessionCreateParams.Mode.PAYMENT)
-                .setSuccessUrl(frontendUrl + "/checkout/success?session_id={CHECKOUT_SESSION_ID}")
-                .setCancelUrl(frontendUrl + "/checkout/cancel")
-                .addAllLineItem(lineItems)
-                .setClientReferenceId(orderId.toString()) // Pour récupérer l'Order ID au webhook
-                .putMetadata("order_id", order.getId().toString()) // Pour identifier l'order après le paiement
-                .build();
-
-        // 3. Créer la session Stripe
-        return Session.create(params);
+        return new PendingCheckout(null, new CheckoutRequest(
+                order.getId(),
+                "eur",
+                lines,
+                frontendUrl + "/checkout/success?session_id={CHECKOUT_SESSION_ID}",
+                frontendUrl + "/checkout/cancel",
+                sessionExpiresAt), // Au-delà : "checkout.session.expired", la commande est annulée
+                supersededSessionId);
+    }
+
+    private CheckoutSession storeCheckout(UUID orderId, CheckoutSession session, String supersededSessionId) {
+        // 4. Mémoriser la session pour les clics suivants
+        Order order = lockPendingOrder(orderId);
+        CheckoutSession open = openSessionOf(order, OffsetDateTime.now());
+        if (open != null) {
+            // Une autre instance a ouvert une session entre-temps : tous les clics reçoivent la sienne, la nôtre est fermée
+            log.info("Session de paiement {} déjà ouverte pour la commande {}, {} abandonnée", open.id(), orderId, session.id());
+            return open;
+        }
+        if (supersededSessionId != null) {
+            // Son "checkout.session.expired" n'annulera pas la commande ; le rapprochement la relit encore
+            order.setPreviousCheckoutSessionId(supersededSessionId);
+        }
+        order.setCheckoutSessionId(session.id());
+        order.setCheckoutUrl(session.url());
+        order.setCheckoutExpiresAt(session.expiresAt());
+        log.debug("Session de paiement {} créée pour la commande {}", session.id(), orderId);
+        return session;
+    }
+
+    private Order lockPendingOrder(UUID orderId) {
+        Order order = orderRepository.findByIdForUpdate(orderId)
+                .orElseThrow(() -> new RuntimeException("Commande introuvable avec l'ID: " + orderId));
+        // Relu sous verrou : payée (webhook) ou annulée (expiration) depuis la vérification du contrôleur
+        if (order.getStatus() != OrderStatus.PENDING) {
+            throw new RuntimeException("Cette commande ne peut plus être payée. Statut actuel: " + order.getStatus());
+        }
+        return order;
+    }
+
+    private static CheckoutSession openSessionOf(Order order, OffsetDateTime now) {
+        if (order.getCheckoutSessionId() == null
+                || !order.getCheckoutExpiresAt().isAfter(now.plus(CHECKOUT_REUSE_MIN_REMAINING))) {
+            return null;
+        }
+        return new CheckoutSession(order.getCheckoutSessionId(), order.getCheckoutUrl(), order.getCheckoutExpiresAt());
+    }
+
+    // Session encore ouverte à renvoyer, ou requête de création (et session qu'elle remplace)
+    private record PendingCheckout(CheckoutSession openSession, CheckoutRequest request, String supersededSessionId) {
+    }
+
+    // La création partagée a échoué : chaque clic en attente reçoit la même erreur
+    private static CheckoutSession await(CompletableFuture<CheckoutSession> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
 
     /**
-     * Convertit un OrderItem en LineItem Stripe.
+     * Convertit un OrderItem en ligne de paiement.
      * Important : Stripe attend les prix en centimes (Long), nous avons des BigDecimal en euros.
      * Exemple : 10.00€ -> 1000 centimes
      */
-    private SessionCreateParams.LineItem convertToLineItem(OrderItem orderItem) {
+    private CheckoutRequest.Line convertToLine(OrderItem orderItem) {
         // Convertir BigDecimal (euros) en Long (centimes)
         // Exemple : 10.50€ -> 1050 centimes
         BigDecimal priceInEuros = orderItem.getPrice();
         long priceInCents = priceInEuros.multiply(BigDecimal.valueOf(100)).longValue();
 
-        return SessionCreateParams.LineItem.builder()
-                .setQuantity(1L)
-                .setPriceData(
-                        SessionCreateParams.LineItem.PriceData.builder()
-                                .setCurrency("eur")
-                                .setUnitAmount(priceInCents)
-                                .setProductData(
-                                        SessionCreateParams.LineItem.PriceData.ProductData.builder()
-                                                .setName(orderItem.getTrack().getTitle())
-                                                .setDescription("Instrumentale - " + orderItem.getTrack().getTitle())
-                                                .build()
-                                )
-                                .build()
-                )
-                .build();
+        String title = orderItem.getTrack().getTitle();
+        return new CheckoutRequest.Line(title, "Instrumentale - " + title, priceInCents);
     }
 }
-
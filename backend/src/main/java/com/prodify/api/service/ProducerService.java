@@ -1,15 +1,18 @@
 package com.prodify.api.service;
 
+import com.prodify.api.dto.common.ResourceVersion;
 import com.prodify.api.dto.producer.ProducerRequest;
+import com.prodify.api.event.ProducerChangedEvent;
 import com.prodify.api.model.Producer;
+import com.prodify.api.model.SlugScope;
 import com.prodify.api.model.User;
 import com.prodify.api.repository.ProducerRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.text.Normalizer;
-import java.util.Locale;
-import java.util.regex.Pattern;
+import java.util.Optional;
 import java.util.List;
 import java.util.UUID;
 
@@ -18,7 +21,13 @@ import java.util.UUID;
 public class ProducerService {
 
     private final ProducerRepository producerRepository;
+    private final SlugAllocator slugAllocator;
+    private final ProducerStatsService producerStatsService;
+    private final ApplicationEventPublisher eventPublisher;
 
+    // Slug, profil et statistiques dans la même transaction (comme pour une track) :
+    // un échec ne laisse ni slug réservé ni profil sans statistiques
+    @Transactional
     public Producer createProducerProfile(User user, ProducerRequest request) {
         // 1. Vérifier si l'utilisateur n'est pas déjà producteur
         if (producerRepository.existsByUserId(user.getId())) {
@@ -26,7 +35,7 @@ public class ProducerService {
         }
 
         // 2. Générer un slug unique à partir du nom d'artiste
-        String slug = generateSlug(request.getDisplayName());
+        String slug = slugAllocator.allocate(SlugScope.PRODUCER, request.getDisplayName());
 
         // 3. Créer l'entité
         Producer producer = Producer.builder()
@@ -36,7 +45,9 @@ public class ProducerService {
                 .bio(request.getBio())
                 .build();
 
-        return producerRepository.save(producer);
+        Producer saved = producerRepository.save(producer);
+        producerStatsService.initialize(saved.getId());
+        return saved;
     }
 
     
@@ -57,26 +68,37 @@ public class ProducerService {
                 .orElseThrow(() -> new RuntimeException("Profil producteur non trouvé"));
     }
 
+    // 6 bis. Modifier le profil du producteur connecté
+    // Le slug ne suit pas le nom d'artiste : les liens déjà partagés restent valides
+    @Transactional
+    public Producer updateProducerProfile(User user, ProducerRequest request) {
+        Producer producer = getProducerByUser(user);
+        if (request.getDisplayName() == null || request.getDisplayName().isBlank()) {
+            throw new RuntimeException("Le nom d'artiste est obligatoire.");
+        }
+        producer.setDisplayName(request.getDisplayName());
+        producer.setBio(request.getBio());
+        Producer saved = producerRepository.save(producer);
+        eventPublisher.publishEvent(new ProducerChangedEvent(saved.getId()));
+        return saved;
+    }
+
     // 7. Récupérer un producteur par son Slug (URL lisible)
     public Producer getProducerBySlug(String slug) {
         return producerRepository.findBySlug(slug)
                 .orElseThrow(() -> new RuntimeException("Producteur avec le slug '" + slug + "' non trouvé"));
     }
 
-    // --- Utilitaire pour transformer "DJ Yassine !" en "dj-yassine" ---
-    private String generateSlug(String input) {
-        String slug = toSlug(input);
-        
-        // Si le slug existe déjà (ex: "dj-yassine"), on ajoute un suffixe aléatoire
-        // C'est basique, on pourra améliorer plus tard
-        if (producerRepository.existsBySlug(slug)) {
-            slug = slug + "-" + System.currentTimeMillis() % 1000;
-        }
-        return slug;
+    // 8. Versions pour les GET conditionnels (ETag / Last-Modified)
+    public ResourceVersion getProducersVersion() {
+        return producerRepository.findVersionOfAll();
+    }
+
+    public Optional<ResourceVersion> getProducerVersion(UUID id) {
+        return Optional.of(producerRepository.findVersionById(id)).filter(v -> v.revision() > 0);
     }
 
-    private String toSlug(String input) {
-        String nonLatin = Pattern.compile("[^\\w-]").matcher(Normalizer.normalize(input, Normalizer.Form.NFD)).replaceAll("");
-        return nonLatin.toLowerCase(Locale.ENGLISH).replace(" ", "-");
+    public Optional<ResourceVersion> getProducerVersionBySlug(String slug) {
+        return Optional.of(producerRepository.findVersionBySlug(slug)).filter(v -> v.revision() > 0);
     }
-}
\ No newline at end of file
+}
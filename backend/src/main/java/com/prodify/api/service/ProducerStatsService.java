@@ -0,0 +1,109 @@
+package com.prodify.api.service;
+
+import com.prodify.api.dto.producer.ProducerStatsResponse;
+import com.prodify.api.model.ProducerStats;
+import com.prodify.api.model.Role;
+import com.prodify.api.model.User;
+import com.prodify.api.repository.OrderRepository;
+import com.prodify.api.repository.ProducerRepository;
+import com.prodify.api.repository.ProducerStatsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Statistiques producteurs (catalogue, ventes, CA) servies par lecture d'une seule ligne.
+ *
+ * Les chemins d'écriture (création / suppression de track, import, paiement d'une commande, remboursement)
+ * appliquent leur delta directement. La réconciliation recalcule tout depuis la base au démarrage
+ * puis chaque nuit : elle rattrape un incrément perdu (crash entre deux écritures, incrément
+ * concurrent du recalcul) ou une modification faite hors de l'application. Un seul nœud la lance à la fois.
+ *
+ * Le chiffre d'affaires n'est visible que du producteur lui-même et des administrateurs.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProducerStatsService {
+
+    // Clé du verrou consultatif (arbitraire, propre à cette réconciliation)
+    private static final long RECONCILE_LOCK_KEY = 0x50524F4449465903L;
+
+    private final ProducerStatsRepository producerStatsRepository;
+    private final ProducerRepository producerRepository;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * @param viewer utilisateur connecté, null pour un visiteur anonyme
+     */
+    public ProducerStatsResponse getStats(UUID producerId, User viewer) {
+        ProducerStats stats = producerStatsRepository.findById(producerId)
+                .orElseThrow(() -> new RuntimeException("Producteur non trouvé"));
+        return ProducerStatsResponse.builder()
+                .producerId(stats.getProducerId())
+                .trackCount(stats.getTrackCount())
+                .unitsSold(stats.getUnitsSold())
+                .revenue(canSeeRevenue(producerId, viewer) ? stats.getRevenue() : null)
+                .updatedAt(stats.getUpdatedAt())
+                .build();
+    }
+
+    private boolean canSeeRevenue(UUID producerId, User viewer) {
+        if (viewer == null) {
+            return false;
+        }
+        return viewer.getRole() == Role.ADMIN || producerRepository.existsByIdAndUserId(producerId, viewer.getId());
+    }
+
+    // Nouveau producteur : ligne à zéro, pour qu'un profil vide ait aussi ses statistiques
+    public void initialize(UUID producerId) {
+        producerStatsRepository.addTracks(producerId, 0);
+    }
+
+    // delta négatif pour une suppression
+    public void recordTracks(UUID producerId, long delta) {
+        producerStatsRepository.addTracks(producerId, delta);
+    }
+
+    // À appeler dans la transaction qui passe la commande en COMPLETED (exactement une fois par commande)
+    public void recordOrderSales(UUID orderId) {
+        producerStatsRepository.addSalesOfOrder(orderId);
+    }
+
+    // Remboursements d'un événement, par producteur (montants négatifs) : à appeler dans la transaction du journal
+    public void recordRefunds(Map<UUID, BigDecimal> refundedByProducer) {
+        if (refundedByProducer.isEmpty()) {
+            return;
+        }
+        Map<UUID, BigDecimal> sorted = new TreeMap<>(refundedByProducer);
+        producerStatsRepository.addRevenue(
+                sorted.keySet().stream().map(UUID::toString).collect(Collectors.joining(",")),
+                sorted.values().stream().map(BigDecimal::toPlainString).collect(Collectors.joining(",")));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${prodify.stats.reconcile-cron:0 15 4 * * *}")
+    public void reconcile() {
+        long start = System.nanoTime();
+        Integer corrected = transactionTemplate.execute(status -> orderRepository.tryAdvisoryXactLock(RECONCILE_LOCK_KEY)
+                ? producerStatsRepository.reconcileAll()
+                : null);
+        if (corrected == null) {
+            log.debug("Statistiques producteurs : un autre nœud réconcilie déjà");
+            return;
+        }
+        log.info("Statistiques producteurs réconciliées : {} lignes corrigées en {} ms",
+                corrected, (System.nanoTime() - start) / 1_000_000);
+    }
+}
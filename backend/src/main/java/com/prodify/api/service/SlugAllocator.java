@@ -0,0 +1,130 @@
+package com.prodify.api.service;
+
+import com.prodify.api.model.SlugScope;
+import com.prodify.api.repository.SlugReservationRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Attribution des slugs (URL lisibles) pour les tracks et les producteurs.
+ *
+ * Plus de "existsBySlug puis insert" : chaque candidat est réservé par une insertion
+ * atomique dans slug_registry. En cas de conflit on retente avec un suffixe aléatoire,
+ * un nombre borné de fois ; le cas courant ne coûte qu'un aller-retour.
+ */
+@Component
+@RequiredArgsConstructor
+public class SlugAllocator {
+
+    // Le premier essai est le slug nu, les suivants portent un suffixe base36 (36^6 ≈ 2 milliards)
+    static final int MAX_ATTEMPTS = 8;
+    private static final int SUFFIX_LENGTH = 6;
+    private static final int MAX_BASE_LENGTH = 80;
+    private static final Pattern NON_SLUG_CHARS = Pattern.compile("[^a-z0-9]+");
+
+    private final SlugReservationRepository slugReservationRepository;
+
+    /**
+     * Réserve un slug libre dérivé de {@code input} ("Été Noir" -> "ete-noir", puis "ete-noir-k3x9qa"...).
+     *
+     * @throws RuntimeException si aucun candidat n'a pu être réservé après {@link #MAX_ATTEMPTS} essais
+     */
+    public String allocate(SlugScope scope, String input) {
+        String base = baseSlug(scope, input);
+        String candidate = base;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            if (slugReservationRepository.tryReserve(scope.name(), candidate) == 1) {
+                return candidate;
+            }
+            candidate = base + "-" + randomSuffix();
+        }
+        throw new RuntimeException("Impossible d'attribuer un slug unique pour '" + base + "'");
+    }
+
+    /**
+     * Version par lot de {@link #allocate} : un aller-retour par tentative pour tout le lot,
+     * quelle que soit sa taille. Les slugs sont renvoyés dans l'ordre des entrées.
+     */
+    public List<String> allocateAll(SlugScope scope, List<String> inputs) {
+        String[] bases = new String[inputs.size()];
+        String[] candidates = new String[inputs.size()];
+        String[] allocated = new String[inputs.size()];
+        List<Integer> pending = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            bases[i] = baseSlug(scope, inputs.get(i));
+            candidates[i] = bases[i];
+            pending.add(i);
+        }
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            Set<String> distinct = new HashSet<>();
+            for (int i : pending) {
+                distinct.add(candidates[i]);
+            }
+            Set<String> reserved = new HashSet<>(
+                    slugReservationRepository.tryReserveAll(scope.name(), String.join(",", distinct)));
+
+            List<Integer> stillPending = new ArrayList<>();
+            for (int i : pending) {
+                // remove() : deux titres identiques du lot ne reçoivent pas le même slug
+                if (reserved.remove(candidates[i])) {
+                    allocated[i] = candidates[i];
+                } else {
+                    candidates[i] = bases[i] + "-" + randomSuffix();
+                    stillPending.add(i);
+                }
+            }
+            pending = stillPending;
+        }
+
+        if (!pending.isEmpty()) {
+            throw new RuntimeException("Impossible d'attribuer un slug unique pour '" + bases[pending.get(0)] + "'");
+        }
+        return List.of(allocated);
+    }
+
+    // "DJ Yassine !" -> "dj-yassine"
+    public static String toSlug(String input) {
+        String ascii = TextNormalizer.stripAccents(input).toLowerCase(Locale.ENGLISH);
+        String slug = NON_SLUG_CHARS.matcher(ascii).replaceAll("-");
+        if (slug.length() > MAX_BASE_LENGTH) {
+            slug = slug.substring(0, MAX_BASE_LENGTH);
+        }
+        return trimHyphens(slug);
+    }
+
+    private static String baseSlug(SlugScope scope, String input) {
+        String base = toSlug(input);
+        // Titre sans caractère latin (ex: uniquement des emojis)
+        return base.isEmpty() ? scope.name().toLowerCase(Locale.ENGLISH) : base;
+    }
+
+    private static String trimHyphens(String slug) {
+        int start = 0;
+        int end = slug.length();
+        while (start < end && slug.charAt(start) == '-') {
+            start++;
+        }
+        while (end > start && slug.charAt(end - 1) == '-') {
+            end--;
+        }
+        return slug.substring(start, end);
+    }
+
+    private static String randomSuffix() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] chars = new char[SUFFIX_LENGTH];
+        for (int i = 0; i < SUFFIX_LENGTH; i++) {
+            chars[i] = Character.forDigit(random.nextInt(36), 36);
+        }
+        return new String(chars);
+    }
+}
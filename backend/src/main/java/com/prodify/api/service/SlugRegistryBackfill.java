@@ -0,0 +1,38 @@
+package com.prodify.api.service;
+
+import com.prodify.api.repository.DataMigrationRepository;
+import com.prodify.api.repository.SlugReservationRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Reprise, une seule fois, des slugs créés avant le registre : sinon SlugAllocator pourrait les redistribuer.
+ * Depuis, tout slug passe par le registre, il n'y a plus rien à rattraper aux démarrages suivants.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SlugRegistryBackfill {
+
+    static final String MIGRATION = "slug-registry-backfill";
+
+    private final SlugReservationRepository slugReservationRepository;
+    private final DataMigrationRepository dataMigrationRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Avant que le serveur n'accepte des requêtes : aucun slug n'est attribué avant la reprise
+    @PostConstruct
+    public void backfill() {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (dataMigrationRepository.markApplied(MIGRATION) == 0) {
+                return;
+            }
+            int tracks = slugReservationRepository.backfillTrackSlugs();
+            int producers = slugReservationRepository.backfillProducerSlugs();
+            log.info("Registre des slugs : {} slugs de tracks et {} de producteurs repris", tracks, producers);
+        });
+    }
+}
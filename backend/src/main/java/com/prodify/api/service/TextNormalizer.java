@@ -0,0 +1,28 @@
+package com.prodify.api.service;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalisation de texte partagée entre les slugs et la recherche.
+ * "Beyoncé Ñ" -> "beyonce n" : décomposition NFD puis suppression des accents.
+ */
+public final class TextNormalizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private TextNormalizer() {
+    }
+
+    public static String stripAccents(String input) {
+        if (input == null) {
+            return "";
+        }
+        return COMBINING_MARKS.matcher(Normalizer.normalize(input, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    public static String fold(String input) {
+        return stripAccents(input).toLowerCase(Locale.ROOT);
+    }
+}
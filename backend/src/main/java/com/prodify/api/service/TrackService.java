@@ -1,26 +1,62 @@
 package com.prodify.api.service;
 
+import com.prodify.api.dto.common.CursorPageResponse;
+import com.prodify.api.dto.common.ResourceVersion;
 import com.prodify.api.dto.track.TrackRequest;
+import com.prodify.api.dto.track.TrackSearchResponse;
+import com.prodify.api.dto.track.TrackView;
+import com.prodify.api.event.ProducerChangedEvent;
+import com.prodify.api.event.TrackChangedEvent;
 import com.prodify.api.model.Producer;
+import com.prodify.api.model.SlugScope;
 import com.prodify.api.model.Track;
 import com.prodify.api.model.User;
 import com.prodify.api.repository.ProducerRepository;
 import com.prodify.api.repository.TrackRepository;
+import com.prodify.api.service.ranking.TrackRankingService;
+import com.prodify.api.service.recommendation.SimilarTrackService;
+import com.prodify.api.service.search.SearchHit;
+import com.prodify.api.service.search.TrackSearchService;
+import com.prodify.config.CacheConfig;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.text.Normalizer;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
-import java.util.regex.Pattern;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class TrackService {
 
+    public static final int DEFAULT_PAGE_SIZE = 24;
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final int DEFAULT_SIMILAR_SIZE = 12;
+    private static final int MAX_SIMILAR_SIZE = 50;
+    // Nombre de résultats plein texte examinés avant filtrage par facettes
+    private static final int MAX_TEXT_HITS = 1000;
+
     private final TrackRepository trackRepository;
     private final ProducerRepository producerRepository;
+    private final CatalogIndexService catalogIndexService;
+    private final TrackSearchService trackSearchService;
+    private final SimilarTrackService similarTrackService;
+    private final TrackRankingService trackRankingService;
+    private final CatalogVersionTracker catalogVersionTracker;
+    private final SlugAllocator slugAllocator;
+    private final ProducerStatsService producerStatsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
     // --- CRÉATION ---
     public Track createTrack(User user, TrackRequest request) {
@@ -28,11 +64,20 @@ public class TrackService {
         Producer producer = producerRepository.findByUserId(user.getId())
                 .orElseThrow(() -> new RuntimeException("Vous devez créer un profil producteur avant de publier une track."));
 
-        // 2. Générer le slug (URL) unique
-        String slug = generateSlug(request.getTitle());
+        // 2. Slug, track et compteur du producteur dans la même transaction (comme l'import) :
+        // un échec ne laisse ni slug réservé ni statistique décalée
+        return transactionTemplate.execute(status -> {
+            String slug = slugAllocator.allocate(SlugScope.TRACK, request.getTitle());
+            Track created = trackRepository.save(newTrack(producer, slug, request));
+            producerStatsService.recordTracks(producer.getId(), 1);
+            // 3. Publié dans la transaction : version du catalogue avant le commit, index et caches après
+            eventPublisher.publishEvent(new TrackChangedEvent(created, TrackChangedEvent.Type.CREATED));
+            return created;
+        });
+    }
 
-        // 3. Créer la Track
-        Track track = Track.builder()
+    private static Track newTrack(Producer producer, String slug, TrackRequest request) {
+        return Track.builder()
                 .title(request.getTitle())
                 .slug(slug)
                 .description(request.getDescription())
@@ -42,31 +87,162 @@ public class TrackService {
                 .mood(request.getMood())
                 .coverImageUrl(request.getCoverImageUrl())
                 .audioUrl(request.getAudioUrl())
+                .previewUrl(request.getPreviewUrl())
                 .producer(producer) // On lie la track au producteur
                 .isSold(false)      // Par défaut, pas encore vendue
+                .isExclusive(Boolean.TRUE.equals(request.getExclusive()))
                 .build();
-
-        return trackRepository.save(track);
     }
 
     // --- LECTURE ---
-    public List<Track> getAllTracks() {
-        return trackRepository.findAll();
+
+    /**
+     * Une page du catalogue, de la plus récente à la plus ancienne.
+     *
+     * @param cursor jeton renvoyé par la page précédente (null pour la première page)
+     * @param limit  taille demandée, bornée à {@link #MAX_PAGE_SIZE}
+     * @throws IllegalArgumentException si le curseur est invalide
+     */
+    public CursorPageResponse<TrackView> getCatalogPage(String cursor, Integer limit) {
+        int pageSize = clampPageSize(limit);
+        // On demande une ligne de plus pour savoir s'il existe une page suivante sans COUNT(*)
+        Limit fetchLimit = Limit.of(pageSize + 1);
+
+        List<TrackView> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = trackRepository.findCatalogFirstPage(fetchLimit);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            rows = trackRepository.findCatalogPageAfter(position.createdAt(), position.id(), fetchLimit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<TrackView> items = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            TrackView last = items.get(items.size() - 1);
+            nextCursor = new KeysetCursor(last.createdAt(), last.id()).encode();
+        }
+
+        return CursorPageResponse.<TrackView>builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
     }
 
-    public Track getTrackById(UUID id) {
-        return trackRepository.findById(id)
+    /**
+     * Recherche par facettes et/ou plein texte : tout est évalué par les index en mémoire,
+     * seule la page affichée est chargée depuis la BDD (une seule requête IN pour toute la page).
+     */
+    public TrackSearchResponse searchCatalog(CatalogQuery query) {
+        CatalogSearchResult result;
+        if (query.text() == null || query.text().isBlank()) {
+            result = catalogIndexService.search(query);
+        } else {
+            List<UUID> ranked = trackSearchService.search(query.text(), MAX_TEXT_HITS).stream()
+                    .map(SearchHit::trackId)
+                    .toList();
+            result = catalogIndexService.refine(ranked, query);
+        }
+
+        return TrackSearchResponse.builder()
+                .total(result.total())
+                // On conserve l'ordre de l'index (plus récent d'abord)
+                .items(findViewsInOrder(result.trackIds()))
+                .genres(result.genreCounts())
+                .moods(result.moodCounts())
+                .build();
+    }
+
+    /**
+     * "Sons similaires" : voisins calculés en mémoire, seules les tracks affichées sont chargées.
+     */
+    public List<TrackView> getSimilarTracks(UUID id, Integer limit) {
+        int size = limit == null || limit <= 0 ? DEFAULT_SIMILAR_SIZE : Math.min(limit, MAX_SIMILAR_SIZE);
+        if (!trackRepository.existsById(id)) {
+            throw new RuntimeException("Track introuvable");
+        }
+        return findViewsInOrder(similarTrackService.similarTo(id, size));
+    }
+
+    // Classements calculés en mémoire (voir TrackRankingService) : seule la page affichée est chargée
+    public List<TrackView> getTrendingTracks(String genre, Integer limit) {
+        return findViewsInOrder(trackRankingService.trending(genre, clampPageSize(limit)));
+    }
+
+    public List<TrackView> getBestSellers(String genre, Integer limit) {
+        return findViewsInOrder(trackRankingService.bestSellers(genre, clampPageSize(limit)));
+    }
+
+    // Une seule requête IN, résultats remis dans l'ordre des identifiants
+    private List<TrackView> findViewsInOrder(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, TrackView> byId = trackRepository.findViewsByIdIn(ids).stream()
+                .collect(Collectors.toMap(TrackView::id, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    // sync = true : des requêtes simultanées sur la même track ne déclenchent qu'un seul SELECT
+    @Cacheable(cacheNames = CacheConfig.TRACKS_BY_ID, sync = true)
+    public TrackView getTrackById(UUID id) {
+        return trackRepository.findViewById(id)
                 .orElseThrow(() -> new RuntimeException("Track introuvable"));
     }
 
+    @Cacheable(cacheNames = CacheConfig.TRACKS_BY_SLUG, sync = true)
+    public TrackView getTrackBySlug(String slug) {
+        return trackRepository.findViewBySlug(slug)
+                .orElseThrow(() -> new RuntimeException("Track avec le slug '" + slug + "' introuvable"));
+    }
+
+    // Invalide les entrées en cache dès qu'une track est modifiée ou supprimée, après le commit :
+    // une lecture concurrente ne peut plus y remettre la ligne d'avant
+    @TransactionalEventListener(condition = "#event.type().name() != 'CREATED'", fallbackExecution = true)
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.TRACKS_BY_ID, key = "#event.track().id"),
+            @CacheEvict(cacheNames = CacheConfig.TRACKS_BY_SLUG, key = "#event.track().slug")
+    })
+    public void evictCachedTrack(TrackChangedEvent event) {
+        // Tout est fait par les annotations
+    }
+
+    // Chaque TrackView recopie le nom et le slug de son producteur. Un profil modifié (rare) vide
+    // les deux caches, après le commit pour qu'aucune lecture concurrente n'y remette l'ancien nom
+    @TransactionalEventListener(fallbackExecution = true)
+    @CacheEvict(cacheNames = {CacheConfig.TRACKS_BY_ID, CacheConfig.TRACKS_BY_SLUG}, allEntries = true)
+    public void evictCachedTracksOfProducer(ProducerChangedEvent event) {
+        // Tout est fait par les annotations
+    }
+
+    // --- VERSIONS (ETag / Last-Modified) ---
+    // Lues avant le corps de la réponse : si le client est à jour, on ne charge rien d'autre.
+
+    public ResourceVersion getCatalogVersion() {
+        return catalogVersionTracker.current();
+    }
+
+    public ResourceVersion getProducerTracksVersion(UUID producerId) {
+        return trackRepository.findVersionByProducerId(producerId);
+    }
+
+    public ResourceVersion getProducerTracksVersionBySlug(String slug) {
+        return trackRepository.findVersionByProducerSlug(slug);
+    }
+
     // Récupérer les sons d'un producteur spécifique (utile pour la page profil)
-    public List<Track> getTracksByProducer(UUID producerId) {
-        return trackRepository.findByProducerId(producerId);
+    public List<TrackView> getTracksByProducer(UUID producerId) {
+        return trackRepository.findViewsByProducerId(producerId);
     }
 
     // Récupérer les sons d'un producteur via son Slug (URL lisible)
-    public List<Track> getTracksByProducerSlug(String slug) {
-        return trackRepository.findByProducerSlug(slug);
+    public List<TrackView> getTracksByProducerSlug(String slug) {
+        return trackRepository.findViewsByProducerSlug(slug);
     }
 
     // --- SUPPRESSION ---
@@ -84,8 +260,12 @@ public class TrackService {
             throw new RuntimeException("Vous n'êtes pas autorisé à supprimer cette track.");
         }
 
-        // 4. Supprimer la track
-        trackRepository.delete(track);
+        // 4. Supprimer la track et décompter, ensemble, avec la version du catalogue
+        transactionTemplate.executeWithoutResult(status -> {
+            trackRepository.delete(track);
+            producerStatsService.recordTracks(producer.getId(), -1);
+            eventPublisher.publishEvent(new TrackChangedEvent(track, TrackChangedEvent.Type.DELETED));
+        });
     }
 
     // --- MISE À JOUR ---
@@ -107,28 +287,24 @@ public class TrackService {
         track.setBpm(request.getBpm());
         track.setGenre(request.getGenre());
         track.setMood(request.getMood());
-        // Les fichiers (audioUrl, coverImageUrl) ne sont PAS modifiés pour cette version
+        // Une exclusive déjà vendue le reste
+        if (request.getExclusive() != null && !track.isSold()) {
+            track.setExclusive(request.getExclusive());
+        }
+        // Les fichiers (audioUrl, previewUrl, coverImageUrl) ne sont PAS modifiés pour cette version
 
-        // 4. Sauvegarder et retourner
-        return trackRepository.save(track);
+        // 4. Sauvegarder et retourner (version du catalogue dans la même transaction)
+        return transactionTemplate.execute(status -> {
+            Track saved = trackRepository.save(track);
+            eventPublisher.publishEvent(new TrackChangedEvent(saved, TrackChangedEvent.Type.UPDATED));
+            return saved;
+        });
     }
 
-    // --- UTILITAIRE SLUG (Même logique que ProducerService) ---
-    // Note : Idéalement, on mettrait ça dans une classe utilitaire commune "SlugUtils" plus tard
-    private String generateSlug(String title) {
-        String baseSlug = toSlug(title);
-        String finalSlug = baseSlug;
-            
-        // Si "mon-beat" existe déjà, on tente "mon-beat-123"
-        if (trackRepository.existsBySlug(finalSlug)) {
-            finalSlug = baseSlug + "-" + System.currentTimeMillis() % 10000;
+    public static int clampPageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_PAGE_SIZE;
         }
-        return finalSlug;
-    }
-
-    private String toSlug(String input) {
-        if (input == null) return "";
-        String nonLatin = Pattern.compile("[^\\w-]").matcher(Normalizer.normalize(input, Normalizer.Form.NFD)).replaceAll("");
-        return nonLatin.toLowerCase(Locale.ENGLISH).replace(" ", "-");
+        return Math.min(limit, MAX_PAGE_SIZE);
     }
-}
\ No newline at end of file
+}
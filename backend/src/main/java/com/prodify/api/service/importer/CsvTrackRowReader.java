@@ -0,0 +1,182 @@
+package com.prodify.api.service.importer;
+
+import com.prodify.api.dto.track.TrackRequest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CSV (RFC 4180) avec ligne d'en-tête : title,description,price,bpm,genre,mood,coverImageUrl,audioUrl[,previewUrl,exclusive].
+ * L'ordre des colonnes est libre, "cover_image_url" ou "Cover Image URL" sont acceptés,
+ * les colonnes inconnues sont ignorées. Les champs entre guillemets peuvent contenir virgules et retours à la ligne.
+ */
+class CsvTrackRowReader implements TrackRowReader {
+
+    private final BufferedReader reader;
+    private Map<String, Integer> columns;
+    private long lineNumber = 1;
+
+    CsvTrackRowReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public ImportRow next() throws IOException {
+        if (columns == null) {
+            readHeader();
+        }
+        while (true) {
+            long recordLine = lineNumber;
+            List<String> fields = readRecord();
+            if (fields == null) {
+                return null;
+            }
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            try {
+                return ImportRow.parsed(recordLine, toRequest(fields));
+            } catch (IllegalArgumentException e) {
+                return ImportRow.unreadable(recordLine, e.getMessage());
+            }
+        }
+    }
+
+    private void readHeader() throws IOException {
+        columns = new HashMap<>();
+        List<String> header = readRecord();
+        if (header == null) {
+            return;
+        }
+        for (int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(normalizeColumn(header.get(i)), i);
+        }
+    }
+
+    private TrackRequest toRequest(List<String> fields) {
+        return TrackRequest.builder()
+                .title(field(fields, "title"))
+                .description(field(fields, "description"))
+                .price(decimal(field(fields, "price")))
+                .bpm(integer(field(fields, "bpm")))
+                .genre(field(fields, "genre"))
+                .mood(field(fields, "mood"))
+                .coverImageUrl(field(fields, "coverimageurl"))
+                .audioUrl(field(fields, "audiourl"))
+                .previewUrl(field(fields, "previewurl"))
+                .exclusive(bool(field(fields, "exclusive")))
+                .build();
+    }
+
+    private String field(List<String> fields, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static BigDecimal decimal(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("price : nombre invalide '" + value + "'");
+        }
+    }
+
+    private static Integer integer(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bpm : entier invalide '" + value + "'");
+        }
+    }
+
+    private static Boolean bool(String value) {
+        if (value == null) {
+            return null;
+        }
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "1", "yes", "oui" -> true;
+            case "false", "0", "no", "non" -> false;
+            default -> throw new IllegalArgumentException("exclusive : booléen invalide '" + value + "'");
+        };
+    }
+
+    // "Cover Image URL" -> "coverimageurl", BOM UTF-8 éventuel en tête de fichier retiré
+    private static String normalizeColumn(String name) {
+        return name.replace("\uFEFF", "").replaceAll("[\\s_-]", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Lit un enregistrement complet (qui peut s'étendre sur plusieurs lignes si un champ est entre guillemets).
+     *
+     * @return les champs, ou null en fin de fichier
+     */
+    private List<String> readRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean readAnything = false;
+
+        int c;
+        while ((c = reader.read()) != -1) {
+            readAnything = true;
+            if (quoted) {
+                if (c == '"') {
+                    // "" dans un champ entre guillemets = un guillemet littéral
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                lineNumber++;
+                fields.add(field.toString());
+                return fields;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+
+        if (!readAnything) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
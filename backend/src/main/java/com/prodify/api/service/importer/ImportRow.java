@@ -0,0 +1,17 @@
+package com.prodify.api.service.importer;
+
+import com.prodify.api.dto.track.TrackRequest;
+
+/**
+ * Une ligne lue dans le fichier d'import : soit une requête à valider, soit une erreur de lecture.
+ */
+public record ImportRow(long line, TrackRequest request, String error) {
+
+    static ImportRow parsed(long line, TrackRequest request) {
+        return new ImportRow(line, request, null);
+    }
+
+    static ImportRow unreadable(long line, String error) {
+        return new ImportRow(line, null, error);
+    }
+}
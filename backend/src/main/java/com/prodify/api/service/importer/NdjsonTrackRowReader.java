@@ -0,0 +1,40 @@
+package com.prodify.api.service.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prodify.api.dto.track.TrackRequest;
+import lombok.RequiredArgsConstructor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+// Un objet JSON TrackRequest par ligne, les lignes vides sont ignorées
+@RequiredArgsConstructor
+class NdjsonTrackRowReader implements TrackRowReader {
+
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+    private long lineNumber = 0;
+
+    @Override
+    public ImportRow next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                return ImportRow.parsed(lineNumber, objectMapper.readValue(line, TrackRequest.class));
+            } catch (JsonProcessingException e) {
+                return ImportRow.unreadable(lineNumber, "JSON invalide : " + e.getOriginalMessage());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
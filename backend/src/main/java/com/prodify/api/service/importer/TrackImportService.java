@@ -0,0 +1,156 @@
+package com.prodify.api.service.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prodify.api.dto.track.TrackImportReport;
+import com.prodify.api.dto.track.TrackRequest;
+import com.prodify.api.event.TrackChangedEvent;
+import com.prodify.api.model.Producer;
+import com.prodify.api.model.SlugScope;
+import com.prodify.api.model.Track;
+import com.prodify.api.model.User;
+import com.prodify.api.repository.ProducerRepository;
+import com.prodify.api.repository.TrackRepository;
+import com.prodify.api.service.ProducerStatsService;
+import com.prodify.api.service.SlugAllocator;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Import en masse du catalogue d'un producteur (NDJSON ou CSV).
+ *
+ * Le fichier est lu en flux et écrit par lots de {@link #CHUNK_SIZE} : un lot = une transaction,
+ * des INSERT groupés par JDBC (hibernate.jdbc.batch_size) et une seule réservation de slugs.
+ * Une ligne invalide est rapportée et ignorée, elle n'interrompt pas l'import.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TrackImportService {
+
+    static final int CHUNK_SIZE = 500;
+    static final int MAX_REPORTED_ERRORS = 100;
+
+    private final TrackRepository trackRepository;
+    private final ProducerRepository producerRepository;
+    private final SlugAllocator slugAllocator;
+    private final ProducerStatsService producerStatsService;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public TrackImportReport importTracks(User user, String contentType, InputStream body) throws IOException {
+        Producer producer = producerRepository.findByUserId(user.getId())
+                .orElseThrow(() -> new RuntimeException("Vous devez créer un profil producteur avant de publier une track."));
+
+        long start = System.nanoTime();
+        TrackImportReport report = new TrackImportReport();
+        List<ImportRow> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        try (TrackRowReader reader = TrackRowReader.open(contentType, body, objectMapper)) {
+            ImportRow row;
+            while ((row = reader.next()) != null) {
+                String error = row.error() != null ? row.error() : validate(row.request());
+                if (error != null) {
+                    reject(report, row.line(), error);
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() == CHUNK_SIZE) {
+                    writeChunk(producer, chunk, report);
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(producer, chunk, report);
+        }
+
+        log.info("Import de {} : {} tracks créées, {} lignes rejetées en {} ms", producer.getSlug(),
+                report.getImported(), report.getFailed(), (System.nanoTime() - start) / 1_000_000);
+        return report;
+    }
+
+    private void writeChunk(Producer producer, List<ImportRow> chunk, TrackImportReport report) {
+        List<Track> saved;
+        try {
+            // Slugs et tracks dans la même transaction : un lot en échec ne laisse aucun slug réservé
+            saved = transactionTemplate.execute(status -> {
+                List<String> slugs = slugAllocator.allocateAll(SlugScope.TRACK,
+                        chunk.stream().map(row -> row.request().getTitle()).toList());
+                List<Track> tracks = new ArrayList<>(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    tracks.add(toTrack(producer, chunk.get(i).request(), slugs.get(i)));
+                }
+                List<Track> written = trackRepository.saveAll(tracks);
+                // Un seul incrément par lot, annulé avec lui
+                producerStatsService.recordTracks(producer.getId(), written.size());
+                // Version du catalogue dans la transaction du lot ; les index du catalogue ne voient,
+                // après le commit, que des tracks réellement enregistrées
+                written.forEach(track -> eventPublisher.publishEvent(new TrackChangedEvent(track, TrackChangedEvent.Type.CREATED)));
+                return written;
+            });
+        } catch (RuntimeException e) {
+            // Tout le lot a été annulé : chaque ligne est rapportée, l'import continue avec le lot suivant
+            log.warn("Lot d'import rejeté (lignes {} à {})", chunk.get(0).line(), chunk.get(chunk.size() - 1).line(), e);
+            String cause = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            chunk.forEach(row -> reject(report, row.line(), "Lot non enregistré : " + cause));
+            return;
+        }
+
+        report.setImported(report.getImported() + saved.size());
+    }
+
+    private static Track toTrack(Producer producer, TrackRequest request, String slug) {
+        return Track.builder()
+                .title(request.getTitle())
+                .slug(slug)
+                .description(request.getDescription())
+                .price(request.getPrice())
+                .bpm(request.getBpm())
+                .genre(request.getGenre())
+                .mood(request.getMood())
+                .coverImageUrl(request.getCoverImageUrl())
+                .audioUrl(request.getAudioUrl())
+                .previewUrl(request.getPreviewUrl())
+                .producer(producer)
+                .isSold(false)
+                .isExclusive(Boolean.TRUE.equals(request.getExclusive()))
+                .build();
+    }
+
+    // Mêmes règles que POST /api/tracks (annotations de TrackRequest)
+    private String validate(TrackRequest request) {
+        Set<ConstraintViolation<TrackRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .sorted(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+                .map(violation -> violation.getPropertyPath() + " : " + violation.getMessage())
+                .collect(Collectors.joining(", "));
+    }
+
+    private static void reject(TrackImportReport report, long line, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new TrackImportReport.RowError(line, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.prodify.api.service.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Lecture ligne à ligne d'un fichier d'import : une seule ligne en mémoire à la fois.
+ */
+public interface TrackRowReader extends Closeable {
+
+    String NDJSON = "application/x-ndjson";
+    String CSV = "text/csv";
+
+    /**
+     * @return la ligne suivante, ou null en fin de fichier
+     */
+    ImportRow next() throws IOException;
+
+    static TrackRowReader open(String contentType, InputStream body, ObjectMapper objectMapper) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        if (contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith(CSV)) {
+            return new CsvTrackRowReader(reader);
+        }
+        return new NdjsonTrackRowReader(reader, objectMapper);
+    }
+}
@@ -0,0 +1,89 @@
+package com.prodify.api.service.inventory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copie en mémoire des réservations prises par cette instance, consultée avant la base.
+ *
+ * Lors d'une vente flash, des milliers de paniers visent la même track au même moment : seul le premier
+ * obtient la réservation locale et va jusqu'à la base, les autres sont refusés sans requête ni attente
+ * de verrou. La base (track_holds) reste l'arbitre entre instances.
+ */
+public class TrackHoldRegistry {
+
+    private final Map<UUID, Hold> holds = new ConcurrentHashMap<>();
+
+    /**
+     * Réserve toutes les tracks pour la commande, ou aucune.
+     *
+     * @return les tracks déjà réservées par une autre commande (vide = réservation obtenue)
+     */
+    public List<UUID> tryAcquire(Collection<UUID> trackIds, UUID orderId, long expiresAtMillis, long nowMillis) {
+        List<UUID> acquired = new ArrayList<>(trackIds.size());
+        List<UUID> unavailable = new ArrayList<>();
+        Hold mine = new Hold(orderId, expiresAtMillis);
+        for (UUID trackId : trackIds) {
+            Hold current = holds.compute(trackId, (id, existing) ->
+                    existing == null || existing.isExpired(nowMillis) || existing.orderId().equals(orderId) ? mine : existing);
+            if (current == mine) {
+                acquired.add(trackId);
+            } else {
+                unavailable.add(trackId);
+            }
+        }
+        if (!unavailable.isEmpty()) {
+            release(acquired, orderId);
+        }
+        return unavailable;
+    }
+
+    // Lecture seule : vrai si l'une des tracks est réservée (non expirée)
+    public boolean anyHeld(Collection<UUID> trackIds, long nowMillis) {
+        for (UUID trackId : trackIds) {
+            Hold hold = holds.get(trackId);
+            if (hold != null && !hold.isExpired(nowMillis)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void renew(Collection<UUID> trackIds, UUID orderId, long expiresAtMillis) {
+        for (UUID trackId : trackIds) {
+            holds.put(trackId, new Hold(orderId, expiresAtMillis));
+        }
+    }
+
+    // Ne retire que les réservations de cette commande
+    public void release(Collection<UUID> trackIds, UUID orderId) {
+        for (UUID trackId : trackIds) {
+            holds.computeIfPresent(trackId, (id, existing) -> existing.orderId().equals(orderId) ? null : existing);
+        }
+    }
+
+    public void releaseOrders(Set<UUID> orderIds) {
+        holds.values().removeIf(hold -> orderIds.contains(hold.orderId()));
+    }
+
+    public int purgeExpired(long nowMillis) {
+        int before = holds.size();
+        holds.values().removeIf(hold -> hold.isExpired(nowMillis));
+        return before - holds.size();
+    }
+
+    public int size() {
+        return holds.size();
+    }
+
+    private record Hold(UUID orderId, long expiresAtMillis) {
+        boolean isExpired(long nowMillis) {
+            return expiresAtMillis <= nowMillis;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.prodify.api.service.inventory;
+
+import com.prodify.api.repository.TrackHoldRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Réservation des tracks exclusives pendant le paiement.
+ *
+ * - Création de commande : réservation de {@code prodify.holds.ttl}, d'abord en mémoire (refus immédiat
+ *   si la track est déjà prise), puis en base par un INSERT ... ON CONFLICT qui ne verrouille que les
+ *   lignes des tracks demandées.
+ * - Passage au paiement : prolongation jusqu'à l'expiration de la session Stripe.
+ * - Paiement validé ou commande annulée : libération. Sinon la réservation expire d'elle-même.
+ *
+ * Les méthodes sont appelées dans la transaction de la commande : la copie mémoire n'est modifiée
+ * qu'après le commit ou le rollback de celle-ci.
+ */
+@Slf4j
+@Service
+public class TrackHoldService {
+
+    private final TrackHoldRepository trackHoldRepository;
+    private final TrackHoldRegistry registry = new TrackHoldRegistry();
+    private final Duration ttl;
+
+    public TrackHoldService(TrackHoldRepository trackHoldRepository,
+                            @Value("${prodify.holds.ttl:15m}") Duration ttl) {
+        this.trackHoldRepository = trackHoldRepository;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Refus immédiat, sans transaction ni requête, si l'une des tracks est déjà réservée (copie mémoire).
+     * Seules les exclusives peuvent y figurer : les ids peuvent être passés avant de charger les tracks.
+     */
+    public void checkNotHeld(Collection<UUID> trackIds) {
+        if (registry.anyHeld(trackIds, System.currentTimeMillis())) {
+            throw unavailable();
+        }
+    }
+
+    /**
+     * Réserve les tracks exclusives d'une nouvelle commande.
+     *
+     * @throws ResponseStatusException 409 si l'une d'elles est réservée par une autre commande ou vendue
+     */
+    public void hold(UUID orderId, List<UUID> exclusiveTrackIds) {
+        if (exclusiveTrackIds.isEmpty()) {
+            return;
+        }
+        OffsetDateTime expiresAt = OffsetDateTime.now().plus(ttl);
+        long now = System.currentTimeMillis();
+        List<UUID> busy = registry.tryAcquire(exclusiveTrackIds, orderId, expiresAt.toInstant().toEpochMilli(), now);
+        if (!busy.isEmpty()) {
+            throw unavailable();
+        }
+        // Rollback (commande refusée ou erreur) : la réservation locale est rendue
+        afterRollback(() -> registry.release(exclusiveTrackIds, orderId));
+
+        List<UUID> held = trackHoldRepository.tryHold(orderId, exclusiveTrackIds, expiresAt);
+        if (held.size() < new HashSet<>(exclusiveTrackIds).size()) {
+            // Réservée par une autre instance (ou vendue entre-temps). Pas de copie locale de cette réservation :
+            // sa libération sur l'autre instance ne nous parviendrait pas, la track resterait refusée ici
+            throw unavailable();
+        }
+    }
+
+    /**
+     * Prolonge les réservations d'une commande jusqu'à {@code expiresAt}.
+     *
+     * @throws ResponseStatusException 409 si une réservation a expiré (la track a pu être réservée par un autre acheteur)
+     */
+    public void renew(UUID orderId, List<UUID> exclusiveTrackIds, OffsetDateTime expiresAt) {
+        if (exclusiveTrackIds.isEmpty()) {
+            return;
+        }
+        if (trackHoldRepository.renew(orderId, expiresAt) < new HashSet<>(exclusiveTrackIds).size()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "La réservation des tracks exclusives de cette commande a expiré, merci de repasser commande.");
+        }
+        long expiresAtMillis = expiresAt.toInstant().toEpochMilli();
+        afterCommit(() -> registry.renew(exclusiveTrackIds, orderId, expiresAtMillis));
+    }
+
+    /**
+     * Reprend en base les réservations d'une commande annulée puis payée malgré tout. Rien en mémoire :
+     * la réservation est libérée dans la même transaction, au passage en COMPLETED.
+     *
+     * @return les tracks qui n'ont pas pu être reprises (vendues ou réservées par une autre commande)
+     */
+    public List<UUID> reacquire(UUID orderId, List<UUID> exclusiveTrackIds) {
+        if (exclusiveTrackIds.isEmpty()) {
+            return List.of();
+        }
+        Set<UUID> held = new HashSet<>(trackHoldRepository.tryHold(orderId, exclusiveTrackIds, OffsetDateTime.now().plus(ttl)));
+        return exclusiveTrackIds.stream().filter(trackId -> !held.contains(trackId)).toList();
+    }
+
+    // Paiement validé (les tracks passent à isSold) ou commande annulée
+    public void release(UUID orderId, List<UUID> exclusiveTrackIds) {
+        if (exclusiveTrackIds.isEmpty()) {
+            return;
+        }
+        trackHoldRepository.deleteByOrderId(orderId);
+        afterCommit(() -> registry.release(exclusiveTrackIds, orderId));
+    }
+
+    // Commandes expirées par lot (OrderExpirySweeper) : on ne connaît que les ids de commande
+    public void releaseOrders(Collection<UUID> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        trackHoldRepository.deleteByOrderIdIn(orderIds);
+        Set<UUID> released = Set.copyOf(orderIds);
+        afterCommit(() -> registry.releaseOrders(released));
+    }
+
+    // Les réservations expirées ne bloquent déjà plus rien : on ne fait que vider les tables
+    @Scheduled(fixedDelayString = "${prodify.holds.purge-interval:1m}")
+    public void purgeExpired() {
+        int deleted = trackHoldRepository.deleteExpired(OffsetDateTime.now());
+        registry.purgeExpired(System.currentTimeMillis());
+        if (deleted > 0) {
+            log.debug("{} réservations expirées supprimées", deleted);
+        }
+    }
+
+    private static ResponseStatusException unavailable() {
+        return new ResponseStatusException(HttpStatus.CONFLICT,
+                "Cette track exclusive est déjà réservée par un autre acheteur.");
+    }
+
+    private static void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
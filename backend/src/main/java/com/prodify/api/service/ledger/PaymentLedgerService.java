@@ -0,0 +1,323 @@
+package com.prodify.api.service.ledger;
+
+import com.prodify.api.event.EntitlementsRevokedEvent;
+import com.prodify.api.model.LedgerEntry;
+import com.prodify.api.model.LedgerEntryType;
+import com.prodify.api.model.Order;
+import com.prodify.api.model.OrderItem;
+import com.prodify.api.repository.EntitlementRepository;
+import com.prodify.api.repository.LedgerEntryRepository;
+import com.prodify.api.repository.OrderRepository;
+import com.prodify.api.repository.ProducerBalanceRepository;
+import com.prodify.api.service.ProducerStatsService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Journal des paiements : chaque mouvement d'argent (encaissement, remboursement, litige) y est ajouté,
+ * ligne de commande par ligne de commande, au nom du producteur de la track.
+ *
+ * - Appelé par StripeEventHandler dans la transaction de l'événement : un événement n'est appliqué
+ *   qu'une fois (WebhookDeduplicator), et un même objet Stripe rejoué n'ajoute rien.
+ * - Ajouts groupés : les mouvements d'un événement partent en un INSERT multi-lignes
+ *   (hibernate.jdbc.batch_size), les soldes des producteurs concernés en une requête.
+ * - Un remboursement est réparti sur les lignes de la commande et déduit du chiffre d'affaires des producteurs ;
+ *   une ligne remboursée en totalité est retirée de la bibliothèque de l'acheteur. Les litiges ne touchent qu'à l'argent.
+ */
+@Slf4j
+@Service
+public class PaymentLedgerService {
+
+    static final String CURRENCY = "eur";
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final ProducerBalanceRepository producerBalanceRepository;
+    private final OrderRepository orderRepository;
+    private final EntitlementRepository entitlementRepository;
+    private final ProducerStatsService producerStatsService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<LedgerEntryType, Counter> appended = new EnumMap<>(LedgerEntryType.class);
+
+    public PaymentLedgerService(LedgerEntryRepository ledgerEntryRepository,
+                                ProducerBalanceRepository producerBalanceRepository,
+                                OrderRepository orderRepository,
+                                EntitlementRepository entitlementRepository,
+                                ProducerStatsService producerStatsService,
+                                ApplicationEventPublisher eventPublisher,
+                                MeterRegistry meterRegistry) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.producerBalanceRepository = producerBalanceRepository;
+        this.orderRepository = orderRepository;
+        this.entitlementRepository = entitlementRepository;
+        this.producerStatsService = producerStatsService;
+        this.eventPublisher = eventPublisher;
+        for (LedgerEntryType type : LedgerEntryType.values()) {
+            appended.put(type, Counter.builder("prodify.ledger.entries")
+                    .description("Mouvements ajoutés au journal des paiements")
+                    .tag("type", type.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Paiement confirmé (checkout.session.completed) : une entrée par ligne de commande, au prix payé.
+     *
+     * @param reference session Checkout payée ; une même session n'est encaissée qu'une fois
+     */
+    @Transactional
+    public void recordCapture(UUID orderId, String paymentIntentId, String reference, OffsetDateTime occurredAt) {
+        Order order = orderRepository.findByIdForUpdate(orderId)
+                .orElseThrow(() -> new RuntimeException("Commande introuvable avec l'ID: " + orderId));
+        if (paymentIntentId != null && order.getPaymentIntentId() == null) {
+            order.setPaymentIntentId(paymentIntentId);
+        }
+        if (ledgerEntryRepository.existsByOrderIdAndTypeAndReference(orderId, LedgerEntryType.CAPTURE, reference)) {
+            log.info("Paiement {} de la commande {} déjà au journal", reference, orderId);
+            return;
+        }
+        List<LedgerEntry> entries = new ArrayList<>();
+        for (OrderItem item : order.getItems()) {
+            entries.add(entry(order, item, LedgerEntryType.CAPTURE, item.getPrice(), reference, occurredAt));
+        }
+        append(entries);
+    }
+
+    /**
+     * @return vrai si une commande est déjà rattachée à ce PaymentIntent (à défaut, voir {@link #linkPaymentIntent})
+     */
+    @Transactional(readOnly = true)
+    public boolean hasOrderForPaymentIntent(String paymentIntentId) {
+        return orderRepository.existsByPaymentIntentId(paymentIntentId);
+    }
+
+    /**
+     * Rattache un PaymentIntent à une commande payée avant qu'il soit enregistré à l'encaissement
+     * (commande antérieure au journal, encaissement ajouté par le rapprochement).
+     */
+    @Transactional
+    public void linkPaymentIntent(UUID orderId, String paymentIntentId) {
+        Order order = orderRepository.findByIdForUpdate(orderId)
+                .orElseThrow(() -> new RuntimeException("Commande introuvable avec l'ID: " + orderId));
+        if (order.getPaymentIntentId() == null) {
+            order.setPaymentIntentId(paymentIntentId);
+            log.info("PaymentIntent {} rattaché à la commande {}", paymentIntentId, orderId);
+        } else if (!order.getPaymentIntentId().equals(paymentIntentId)) {
+            throw new RuntimeException("La commande " + orderId + " est déjà payée par le PaymentIntent "
+                    + order.getPaymentIntentId() + ", pas par " + paymentIntentId);
+        }
+    }
+
+    /**
+     * Remboursement (charge.refunded). Stripe envoie le total remboursé sur la charge :
+     * seule la part pas encore au journal est ajoutée.
+     */
+    @Transactional
+    public void recordRefund(String paymentIntentId, String chargeId, long amountRefundedCents, OffsetDateTime occurredAt) {
+        Order order = orderForPaymentIntent(paymentIntentId);
+        List<LedgerEntry> history = ledgerEntryRepository.findByOrderId(order.getId());
+        long alreadyRefunded = -cents(history.stream()
+                .filter(entry -> entry.getType() == LedgerEntryType.REFUND)
+                .map(LedgerEntry::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        long refund = amountRefundedCents - alreadyRefunded;
+        if (refund <= 0) {
+            log.info("Remboursement de {} déjà au journal (commande {})", chargeId, order.getId());
+            return;
+        }
+
+        Map<UUID, Long> remaining = remainingByItem(order, history);
+        Map<UUID, Long> allocation = allocate(remaining, refund);
+        long unallocated = refund - allocation.values().stream().mapToLong(Long::longValue).sum();
+        if (unallocated > 0) {
+            log.warn("Remboursement {} supérieur au montant restant de la commande {} : {} centimes non affectés",
+                    chargeId, order.getId(), unallocated);
+        }
+
+        Map<UUID, OrderItem> items = order.getItems().stream().collect(Collectors.toMap(OrderItem::getId, item -> item));
+        List<LedgerEntry> entries = new ArrayList<>();
+        List<UUID> revokedTrackIds = new ArrayList<>();
+        allocation.forEach((itemId, amount) -> {
+            OrderItem item = items.get(itemId);
+            entries.add(entry(order, item, LedgerEntryType.REFUND, BigDecimal.valueOf(-amount, 2), chargeId, occurredAt));
+            if (remaining.get(itemId) - amount == 0) {
+                item.setRefundedAt(occurredAt);
+                revokedTrackIds.add(item.getTrack().getId());
+            }
+        });
+        append(entries);
+        // Chiffre d'affaires des statistiques producteurs : ce qui est rendu à l'acheteur n'est plus vendu
+        producerStatsService.recordRefunds(entries.stream()
+                .collect(Collectors.toMap(LedgerEntry::getProducerId, LedgerEntry::getAmount, BigDecimal::add)));
+
+        if (!revokedTrackIds.isEmpty()) {
+            UUID userId = order.getUser().getId();
+            entitlementRepository.revoke(userId, order.getId(), revokedTrackIds);
+            eventPublisher.publishEvent(new EntitlementsRevokedEvent(order.getId(), userId, List.copyOf(revokedTrackIds)));
+            log.info("Commande {} : {} track(s) remboursée(s) retirée(s) de la bibliothèque", order.getId(), revokedTrackIds.size());
+        }
+    }
+
+    // Litige ouvert (charge.dispute.created) : la banque retire les fonds
+    @Transactional
+    public void recordDispute(String paymentIntentId, String disputeId, long amountCents, OffsetDateTime occurredAt) {
+        Order order = orderForPaymentIntent(paymentIntentId);
+        if (ledgerEntryRepository.existsByOrderIdAndTypeAndReference(order.getId(), LedgerEntryType.DISPUTE, disputeId)) {
+            log.info("Litige {} déjà au journal (commande {})", disputeId, order.getId());
+            return;
+        }
+        List<LedgerEntry> history = ledgerEntryRepository.findByOrderId(order.getId());
+        Map<UUID, OrderItem> items = order.getItems().stream().collect(Collectors.toMap(OrderItem::getId, item -> item));
+        List<LedgerEntry> entries = new ArrayList<>();
+        allocate(remainingByItem(order, history), amountCents).forEach((itemId, amount) -> entries.add(
+                entry(order, items.get(itemId), LedgerEntryType.DISPUTE, BigDecimal.valueOf(-amount, 2), disputeId, occurredAt)));
+        append(entries);
+    }
+
+    // Litige gagné (charge.dispute.closed, statut "won") : les fonds retirés sont restitués, ligne par ligne
+    @Transactional
+    public void recordDisputeWon(String paymentIntentId, String disputeId, OffsetDateTime occurredAt) {
+        Order order = orderForPaymentIntent(paymentIntentId);
+        List<LedgerEntry> history = ledgerEntryRepository.findByOrderId(order.getId());
+        boolean reversed = history.stream().anyMatch(entry ->
+                entry.getType() == LedgerEntryType.DISPUTE_REVERSAL && disputeId.equals(entry.getReference()));
+        if (reversed) {
+            log.info("Litige {} déjà restitué au journal (commande {})", disputeId, order.getId());
+            return;
+        }
+        OffsetDateTime now = OffsetDateTime.now();
+        List<LedgerEntry> entries = history.stream()
+                .filter(entry -> entry.getType() == LedgerEntryType.DISPUTE && disputeId.equals(entry.getReference()))
+                .map(entry -> LedgerEntry.builder()
+                        .orderId(entry.getOrderId())
+                        .orderItemId(entry.getOrderItemId())
+                        .producerId(entry.getProducerId())
+                        .trackId(entry.getTrackId())
+                        .type(LedgerEntryType.DISPUTE_REVERSAL)
+                        .amount(entry.getAmount().negate())
+                        .currency(entry.getCurrency())
+                        .reference(disputeId)
+                        .occurredAt(occurredAt)
+                        .recordedAt(now)
+                        .build())
+                .toList();
+        if (entries.isEmpty()) {
+            // Litige ouvert avant la mise en place du journal
+            log.warn("Litige {} gagné sans ouverture au journal (commande {})", disputeId, order.getId());
+        }
+        append(entries);
+    }
+
+    /**
+     * Répartit {@code amount} centimes sur les lignes, dans l'ordre, sans dépasser le reste de chacune.
+     * Cas courant d'un remboursement partiel : une seule track, reconnue à son montant exact.
+     */
+    static Map<UUID, Long> allocate(Map<UUID, Long> remainingByItem, long amount) {
+        for (Map.Entry<UUID, Long> item : remainingByItem.entrySet()) {
+            if (item.getValue() == amount) {
+                return Map.of(item.getKey(), amount);
+            }
+        }
+        Map<UUID, Long> allocation = new LinkedHashMap<>();
+        long left = amount;
+        for (Map.Entry<UUID, Long> item : remainingByItem.entrySet()) {
+            long share = Math.min(item.getValue(), left);
+            if (share > 0) {
+                allocation.put(item.getKey(), share);
+                left -= share;
+            }
+            if (left == 0) {
+                break;
+            }
+        }
+        return allocation;
+    }
+
+    // Reste payé par ligne (prix moins remboursements et litiges), lignes triées pour une répartition stable
+    private static Map<UUID, Long> remainingByItem(Order order, List<LedgerEntry> history) {
+        Map<UUID, BigDecimal> adjustments = history.stream()
+                .filter(entry -> entry.getType() != LedgerEntryType.CAPTURE)
+                .collect(Collectors.toMap(LedgerEntry::getOrderItemId, LedgerEntry::getAmount, BigDecimal::add));
+        Map<UUID, Long> remaining = new LinkedHashMap<>();
+        order.getItems().stream()
+                .filter(item -> item.getRefundedAt() == null)
+                .sorted(Comparator.comparing(OrderItem::getId))
+                .forEach(item -> remaining.put(item.getId(),
+                        Math.max(0, cents(item.getPrice().add(adjustments.getOrDefault(item.getId(), BigDecimal.ZERO))))));
+        return remaining;
+    }
+
+    private Order orderForPaymentIntent(String paymentIntentId) {
+        if (paymentIntentId == null) {
+            throw new RuntimeException("PaymentIntent manquant");
+        }
+        // Exception : l'événement sera réessayé (le paiement n'est peut-être pas encore traité)
+        return orderRepository.findByPaymentIntentIdForUpdate(paymentIntentId)
+                .orElseThrow(() -> new RuntimeException("Aucune commande pour le PaymentIntent " + paymentIntentId));
+    }
+
+    private void append(List<LedgerEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        ledgerEntryRepository.saveAll(entries);
+
+        // Soldes : un incrément par producteur, triés pour verrouiller les lignes toujours dans le même ordre
+        Map<UUID, BigDecimal[]> deltas = new TreeMap<>();
+        for (LedgerEntry entry : entries) {
+            BigDecimal[] delta = deltas.computeIfAbsent(entry.getProducerId(),
+                    id -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO});
+            int column = switch (entry.getType()) {
+                case CAPTURE -> 0;
+                case REFUND -> 1;
+                case DISPUTE, DISPUTE_REVERSAL -> 2;
+            };
+            delta[column] = delta[column].add(entry.getAmount());
+            appended.get(entry.getType()).increment();
+        }
+        producerBalanceRepository.addAll(
+                deltas.keySet().stream().map(UUID::toString).collect(Collectors.joining(",")),
+                column(deltas, 0), column(deltas, 1), column(deltas, 2));
+    }
+
+    private static String column(Map<UUID, BigDecimal[]> deltas, int index) {
+        return deltas.values().stream().map(delta -> delta[index].toPlainString()).collect(Collectors.joining(","));
+    }
+
+    private static LedgerEntry entry(Order order, OrderItem item, LedgerEntryType type, BigDecimal amount,
+                                     String reference, OffsetDateTime occurredAt) {
+        return LedgerEntry.builder()
+                .orderId(order.getId())
+                .orderItemId(item.getId())
+                .producerId(item.getTrack().getProducer().getId())
+                .trackId(item.getTrack().getId())
+                .type(type)
+                .amount(amount)
+                .currency(CURRENCY)
+                .reference(reference)
+                .occurredAt(occurredAt)
+                .recordedAt(OffsetDateTime.now())
+                .build();
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+}
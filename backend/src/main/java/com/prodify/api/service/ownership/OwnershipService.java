@@ -0,0 +1,86 @@
+package com.prodify.api.service.ownership;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.prodify.api.event.EntitlementsRevokedEvent;
+import com.prodify.api.event.OrderCompletedEvent;
+import com.prodify.api.repository.EntitlementRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * "Cet utilisateur possède-t-il cette track ?" pour les badges "Acheté" du catalogue et l'autorisation
+ * de téléchargement.
+ *
+ * Les tracks possédées d'un utilisateur sont chargées une fois depuis entitlements (une requête indexée)
+ * dans un {@link OwnedTrackSet} mis en cache, puis chaque track d'un lot est testée en O(1).
+ * Le cache de l'acheteur est invalidé après le commit d'une commande payée ou remboursée sur cette instance ;
+ * sur les autres instances il expire après {@code prodify.ownership.ttl}, volontairement court : c'est le délai
+ * pendant lequel une track remboursée ailleurs reste téléchargeable ici.
+ */
+@Service
+public class OwnershipService {
+
+    private final EntitlementRepository entitlementRepository;
+    private final Cache<UUID, OwnedTrackSet> ownedByUser;
+
+    public OwnershipService(EntitlementRepository entitlementRepository,
+                            @Value("${prodify.ownership.ttl:30s}") Duration ttl,
+                            @Value("${prodify.ownership.max-users:50000}") long maxUsers) {
+        this.entitlementRepository = entitlementRepository;
+        this.ownedByUser = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxUsers)
+                .build();
+    }
+
+    /**
+     * @return pour chaque track demandée (dans l'ordre reçu, sans doublon), true si l'utilisateur la possède
+     */
+    public Map<UUID, Boolean> owns(UUID userId, Collection<UUID> trackIds) {
+        OwnedTrackSet owned = ownedTracks(userId);
+        Map<UUID, Boolean> result = new LinkedHashMap<>();
+        for (UUID trackId : trackIds) {
+            result.put(trackId, owned.contains(trackId));
+        }
+        return result;
+    }
+
+    /**
+     * Réponse exacte pour une autorisation : un "non" du cache est vérifié en base, car l'achat a pu
+     * être validé sur une autre instance depuis le chargement du cache.
+     */
+    public boolean ownsTrack(UUID userId, UUID trackId) {
+        if (ownedTracks(userId).contains(trackId)) {
+            return true;
+        }
+        if (entitlementRepository.existsByUserIdAndTrackId(userId, trackId)) {
+            ownedByUser.invalidate(userId);
+            return true;
+        }
+        return false;
+    }
+
+    // Après commit : les droits de la commande sont visibles au rechargement
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCompleted(OrderCompletedEvent event) {
+        ownedByUser.invalidate(event.userId());
+    }
+
+    // Remboursement : sur les autres instances, le retrait devient visible à l'expiration du cache (prodify.ownership.ttl)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntitlementsRevoked(EntitlementsRevokedEvent event) {
+        ownedByUser.invalidate(event.userId());
+    }
+
+    private OwnedTrackSet ownedTracks(UUID userId) {
+        return ownedByUser.get(userId, id -> OwnedTrackSet.of(entitlementRepository.findTrackIdsByUserId(id)));
+    }
+}
@@ -0,0 +1,26 @@
+package com.prodify.api.service.payment;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Demande de page de paiement pour une commande, indépendante du prestataire.
+ * Montants en centimes.
+ */
+public record CheckoutRequest(
+        UUID orderId,
+        String currency,
+        List<Line> lines,
+        String successUrl,
+        String cancelUrl,
+        OffsetDateTime expiresAt
+) {
+
+    public record Line(String name, String description, long unitAmountCents) {
+    }
+
+    public long totalCents() {
+        return lines.stream().mapToLong(Line::unitAmountCents).sum();
+    }
+}
@@ -0,0 +1,9 @@
+package com.prodify.api.service.payment;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Page de paiement créée par le prestataire : l'acheteur est redirigé vers {@code url}.
+ */
+public record CheckoutSession(String id, String url, OffsetDateTime expiresAt) {
+}
@@ -0,0 +1,9 @@
+package com.prodify.api.service.payment;
+
+/**
+ * État d'une page de paiement chez le prestataire, relu par le rapprochement nocturne.
+ *
+ * @param paymentIntentId null tant que rien n'a été payé
+ */
+public record CheckoutStatus(String sessionId, boolean paid, String paymentIntentId) {
+}
@@ -0,0 +1,127 @@
+package com.prodify.api.service.payment;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Disjoncteur sur les derniers appels au prestataire.
+ *
+ * - CLOSED : les appels passent ; au-delà de {@code failureRateThreshold} d'échecs sur les
+ *   {@code windowSize} derniers appels (et au moins {@code minimumCalls}), il s'ouvre.
+ * - OPEN : les appels sont refusés sans attendre pendant {@code openDuration}.
+ * - HALF_OPEN : {@code probes} appels d'essai passent ; tous réussis, il se referme, un seul échec, il se rouvre.
+ *
+ * Chaque {@link #tryAcquire()} accordé doit être suivi de {@link #onSuccess()}, {@link #onFailure()}
+ * ou {@link #onIgnored()} (appel abandonné sans verdict sur le prestataire).
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int probes;
+    private final LongSupplier nanoClock;
+
+    // Anneau des derniers résultats (true = échec)
+    private final boolean[] window;
+    private int recorded;
+    private int next;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          Duration openDuration, int probes, LongSupplier nanoClock) {
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.probes = probes;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return false si l'appel doit être refusé sans être tenté
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesStarted = 0;
+            probesSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= probes) {
+                return false;
+            }
+            probesStarted++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++probesSucceeded >= probes) {
+                close();
+            }
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failures >= failureRateThreshold * recorded) {
+                open();
+            }
+        }
+    }
+
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && probesStarted > probesSucceeded) {
+            probesStarted--;
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            failures -= window[next] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        window[next] = failure;
+        failures += failure ? 1 : 0;
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+    }
+
+    // Fenêtre remise à zéro : les échecs d'avant la coupure ne comptent plus
+    private void close() {
+        state = State.CLOSED;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+    }
+}
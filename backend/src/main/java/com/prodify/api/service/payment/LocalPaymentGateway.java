@@ -0,0 +1,248 @@
+package com.prodify.api.service.payment;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.stripe.Stripe;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulateur de Stripe Checkout, en mémoire : {@code prodify.payment.gateway=local}.
+ * Pour le développement sans compte Stripe et les tests de charge du tunnel de paiement.
+ *
+ * - Création de session : attend {@code latency}, échoue avec la probabilité {@code failure-rate}.
+ *   L'URL renvoyée est directement l'URL de succès (pas de page de paiement).
+ * - Après {@code pay-after}, envoie au webhook de l'application un événement signé avec
+ *   {@code stripe.webhook.secret}, comme Stripe : "checkout.session.completed", ou
+ *   "checkout.session.expired" avec la probabilité {@code abandon-rate}.
+ * - Un paiement sur {@code webhook-loss-rate} n'envoie pas son webhook : seul le rapprochement
+ *   ({@link #retrieveCheckoutSession}) peut alors le retrouver.
+ * - Une session fermée ({@link #expireCheckoutSession}) avant {@code pay-after} n'est jamais payée :
+ *   son webhook est "checkout.session.expired".
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "prodify.payment.gateway", havingValue = "local")
+public class LocalPaymentGateway implements PaymentGateway {
+
+    private static final int WEBHOOK_ATTEMPTS = 3;
+    // Sessions relisibles par le rapprochement ; les plus anciennes sont oubliées au-delà
+    private static final int MAX_REMEMBERED_SESSIONS = 100_000;
+
+    private final ObjectMapper objectMapper;
+    private final Environment environment;
+    private final String webhookSecret;
+    private final Duration latency;
+    private final double failureRate;
+    private final Duration payAfter;
+    private final double abandonRate;
+    private final double webhookLossRate;
+    private final String webhookUrl;
+
+    private final Cache<String, LocalSession> sessions = Caffeine.newBuilder()
+            .maximumSize(MAX_REMEMBERED_SESSIONS)
+            .build();
+
+    private final ScheduledExecutorService webhookSender = Executors.newScheduledThreadPool(1,
+            Thread.ofVirtual().name("local-gateway-", 0).factory());
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    public LocalPaymentGateway(ObjectMapper objectMapper, Environment environment,
+                               @Value("${stripe.webhook.secret}") String webhookSecret,
+                               @Value("${prodify.payment.local.latency:50ms}") Duration latency,
+                               @Value("${prodify.payment.local.failure-rate:0}") double failureRate,
+                               @Value("${prodify.payment.local.pay-after:1s}") Duration payAfter,
+                               @Value("${prodify.payment.local.abandon-rate:0}") double abandonRate,
+                               @Value("${prodify.payment.local.webhook-loss-rate:0}") double webhookLossRate,
+                               @Value("${prodify.payment.local.webhook-url:}") String webhookUrl) {
+        this.objectMapper = objectMapper;
+        this.environment = environment;
+        this.webhookSecret = webhookSecret;
+        this.latency = latency;
+        this.failureRate = failureRate;
+        this.payAfter = payAfter;
+        this.abandonRate = abandonRate;
+        this.webhookLossRate = webhookLossRate;
+        this.webhookUrl = webhookUrl;
+        log.warn("Paiements simulés (prodify.payment.gateway=local) : aucun appel à Stripe");
+    }
+
+    @Override
+    public CheckoutSession createCheckoutSession(CheckoutRequest request) {
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentGatewayException("Création de session interrompue", e);
+        }
+        if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new PaymentGatewayException("Échec simulé de la création de la session de paiement");
+        }
+
+        String sessionId = "cs_local_" + UUID.randomUUID().toString().replace("-", "");
+        boolean completed = ThreadLocalRandom.current().nextDouble() >= abandonRate;
+        sessions.put(sessionId, new LocalSession(request.orderId(), completed, Instant.now().plus(payAfter)));
+        if (completed && ThreadLocalRandom.current().nextDouble() < webhookLossRate) {
+            log.debug("Webhook simulé checkout.session.completed pour la commande {} perdu", request.orderId());
+        } else {
+            // Type choisi à l'envoi : la session a pu être fermée entre-temps
+            webhookSender.schedule(() -> sendWebhook(isPaid(sessionId) ? "checkout.session.completed" : "checkout.session.expired",
+                    sessionId, request, 1), payAfter.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        return new CheckoutSession(sessionId, request.successUrl().replace("{CHECKOUT_SESSION_ID}", sessionId),
+                request.expiresAt());
+    }
+
+    @Override
+    public CheckoutStatus retrieveCheckoutSession(String sessionId) {
+        LocalSession session = sessions.getIfPresent(sessionId);
+        if (session == null) {
+            throw new PaymentGatewayException("Session de paiement inconnue : " + sessionId, null, false);
+        }
+        boolean paid = session.completed() && !Instant.now().isBefore(session.payAt());
+        return new CheckoutStatus(sessionId, paid, paid ? paymentIntentId(sessionId) : null);
+    }
+
+    @Override
+    public CheckoutStatus expireCheckoutSession(String sessionId) {
+        LocalSession closed = sessions.asMap().computeIfPresent(sessionId, (id, session) ->
+                session.completed() && Instant.now().isBefore(session.payAt()) ? new LocalSession(session.orderId(), false, session.payAt()) : session);
+        if (closed == null) {
+            throw new PaymentGatewayException("Session de paiement inconnue : " + sessionId, null, false);
+        }
+        return retrieveCheckoutSession(sessionId);
+    }
+
+    @Override
+    public Optional<UUID> findOrderIdByPaymentIntent(String paymentIntentId) {
+        if (!paymentIntentId.startsWith("pi_local_")) {
+            return Optional.empty();
+        }
+        String sessionId = "cs_local_" + paymentIntentId.substring("pi_local_".length());
+        return Optional.ofNullable(sessions.getIfPresent(sessionId)).map(LocalSession::orderId);
+    }
+
+    private boolean isPaid(String sessionId) {
+        LocalSession session = sessions.getIfPresent(sessionId);
+        return session != null && session.completed();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        webhookSender.shutdownNow();
+    }
+
+    // Envoi asynchrone : les webhooks partent en parallèle, comme chez Stripe, sans bloquer le planificateur
+    private void sendWebhook(String type, String sessionId, CheckoutRequest request, int attempt) {
+        HttpRequest httpRequest;
+        try {
+            String payload = eventPayload(type, sessionId, request);
+            httpRequest = HttpRequest.newBuilder(URI.create(resolveWebhookUrl()))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .header("Stripe-Signature", signatureHeader(payload, webhookSecret, Instant.now().getEpochSecond()))
+                    .POST(HttpRequest.BodyPublishers.ofString(payload))
+                    .build();
+        } catch (JsonProcessingException e) {
+            log.error("Webhook simulé {} pour la commande {} non sérialisable", type, request.orderId(), e);
+            return;
+        }
+        httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (error == null && response.statusCode() / 100 == 2) {
+                return;
+            }
+            log.warn("Webhook simulé {} pour la commande {} non délivré : {}", type, request.orderId(),
+                    error != null ? error.getMessage() : "HTTP " + response.statusCode());
+            // Comme Stripe, on renvoie un webhook refusé (ici au plus WEBHOOK_ATTEMPTS fois)
+            if (attempt < WEBHOOK_ATTEMPTS && !webhookSender.isShutdown()) {
+                webhookSender.schedule(() -> sendWebhook(type, sessionId, request, attempt + 1), attempt, TimeUnit.SECONDS);
+            }
+        });
+    }
+
+    private String eventPayload(String type, String sessionId, CheckoutRequest request) throws JsonProcessingException {
+        Map<String, Object> session = new LinkedHashMap<>();
+        session.put("id", sessionId);
+        session.put("object", "checkout.session");
+        session.put("client_reference_id", request.orderId().toString());
+        session.put("amount_total", request.totalCents());
+        session.put("currency", request.currency());
+        session.put("status", type.endsWith("completed") ? "complete" : "expired");
+        session.put("payment_status", type.endsWith("completed") ? "paid" : "unpaid");
+        // Un PaymentIntent par session, comme Stripe : c'est par lui que les remboursements retrouvent la commande
+        session.put("payment_intent", paymentIntentId(sessionId));
+        session.put("expires_at", request.expiresAt().toEpochSecond());
+        session.put("metadata", Map.of("order_id", request.orderId().toString()));
+
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("id", "evt_local_" + UUID.randomUUID().toString().replace("-", ""));
+        event.put("object", "event");
+        event.put("api_version", Stripe.API_VERSION);
+        event.put("created", Instant.now().getEpochSecond());
+        event.put("livemode", false);
+        event.put("type", type);
+        event.put("data", Map.of("object", session));
+        return objectMapper.writeValueAsString(event);
+    }
+
+    private static String paymentIntentId(String sessionId) {
+        return "pi_local_" + sessionId.substring("cs_local_".length());
+    }
+
+    private String resolveWebhookUrl() {
+        if (!webhookUrl.isBlank()) {
+            return webhookUrl;
+        }
+        // Port réel (y compris port aléatoire des tests) connu seulement une fois le serveur démarré
+        String port = environment.getProperty("local.server.port", environment.getProperty("server.port", "8080"));
+        return "http://localhost:" + port + "/api/payment/webhook";
+    }
+
+    /**
+     * En-tête Stripe-Signature : "t=&lt;timestamp&gt;,v1=&lt;HMAC-SHA256 hex de "timestamp.payload"&gt;",
+     * vérifiable par com.stripe.net.Webhook.constructEvent.
+     */
+    public static String signatureHeader(String payload, String secret, long timestamp) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] signature = mac.doFinal((timestamp + "." + payload).getBytes(StandardCharsets.UTF_8));
+            return "t=" + timestamp + ",v1=" + HexFormat.of().formatHex(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 indisponible", e);
+        }
+    }
+
+    private record LocalSession(UUID orderId, boolean completed, Instant payAt) {
+    }
+}
@@ -0,0 +1,178 @@
+package com.prodify.api.service.payment;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Isole les appels au prestataire de paiement : un Stripe lent ne doit pas bloquer le reste de l'API.
+ *
+ * - Cloison : au plus {@code max-concurrent} appels en cours ; au-delà, refus immédiat.
+ * - Délai : l'appelant n'attend pas plus de {@code timeout} (l'appel s'exécute sur un thread virtuel dédié).
+ * - Disjoncteur ({@link CircuitBreaker}) : quand le prestataire échoue trop, refus immédiat puis appels d'essai.
+ *
+ * Un refus ou un délai dépassé lève {@link PaymentUnavailableException} (503 côté API).
+ */
+@Slf4j
+@Component
+public class PaymentCallGuard {
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("payment-", 0).factory());
+    private final Semaphore bulkhead;
+    private final Duration timeout;
+    private final CircuitBreaker breaker;
+
+    private final Timer succeeded;
+    private final Timer failed;
+    private final Timer timedOut;
+    private final Counter rejectedByBulkhead;
+    private final Counter rejectedByBreaker;
+
+    @Autowired
+    public PaymentCallGuard(MeterRegistry meterRegistry,
+                            @Value("${prodify.payment.bulkhead.max-concurrent:20}") int maxConcurrent,
+                            @Value("${prodify.payment.timeout:10s}") Duration timeout,
+                            @Value("${prodify.payment.breaker.window:20}") int window,
+                            @Value("${prodify.payment.breaker.minimum-calls:10}") int minimumCalls,
+                            @Value("${prodify.payment.breaker.failure-rate:0.5}") double failureRate,
+                            @Value("${prodify.payment.breaker.open-duration:30s}") Duration openDuration,
+                            @Value("${prodify.payment.breaker.probes:3}") int probes) {
+        this(meterRegistry, maxConcurrent, timeout, window, minimumCalls, failureRate, openDuration, probes, System::nanoTime);
+    }
+
+    // Horloge du disjoncteur injectable : les tests font passer la coupure sans attendre
+    PaymentCallGuard(MeterRegistry meterRegistry, int maxConcurrent, Duration timeout, int window, int minimumCalls,
+                     double failureRate, Duration openDuration, int probes, LongSupplier nanoClock) {
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.timeout = timeout;
+        this.breaker = new CircuitBreaker(window, minimumCalls, failureRate, openDuration, probes, nanoClock);
+
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+            Gauge.builder("prodify.payment.breaker.state", breaker, b -> b.state() == state ? 1 : 0)
+                    .description("État du disjoncteur des appels au prestataire de paiement (1 = état courant)")
+                    .tag("state", state.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+        Gauge.builder("prodify.payment.bulkhead.in-flight", bulkhead, b -> maxConcurrent - b.availablePermits())
+                .description("Appels au prestataire de paiement en cours sur cette instance")
+                .register(meterRegistry);
+        Gauge.builder("prodify.payment.bulkhead.saturation", bulkhead, b -> (maxConcurrent - b.availablePermits()) / (double) maxConcurrent)
+                .description("Part de la cloison des appels de paiement occupée (1 = les nouveaux appels sont refusés)")
+                .register(meterRegistry);
+        this.succeeded = callTimer("success", meterRegistry);
+        this.failed = callTimer("failure", meterRegistry);
+        this.timedOut = callTimer("timeout", meterRegistry);
+        this.rejectedByBulkhead = rejectedCounter("bulkhead", meterRegistry);
+        this.rejectedByBreaker = rejectedCounter("breaker", meterRegistry);
+    }
+
+    public <T> T call(Supplier<T> call) {
+        if (!bulkhead.tryAcquire()) {
+            rejectedByBulkhead.increment();
+            throw new PaymentUnavailableException("Trop de paiements en cours, réessayez dans quelques instants");
+        }
+        if (!breaker.tryAcquire()) {
+            bulkhead.release();
+            rejectedByBreaker.increment();
+            throw new PaymentUnavailableException("Paiement momentanément indisponible, réessayez dans quelques instants");
+        }
+
+        long start = System.nanoTime();
+        Future<T> future = executor.submit(() -> {
+            try {
+                return call.get();
+            } finally {
+                // Libérée à la fin réelle de l'appel, pas au délai dépassé : les appels abandonnés comptent encore
+                bulkhead.release();
+            }
+        });
+        try {
+            T result = future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            recordSuccess();
+            succeeded.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            recordFailure();
+            timedOut.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.warn("Prestataire de paiement sans réponse après {} ms", timeout.toMillis());
+            throw new PaymentUnavailableException("Le prestataire de paiement ne répond pas, réessayez dans quelques instants");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof PaymentGatewayException gatewayException && !gatewayException.isProviderFailure()) {
+                // Requête refusée : le prestataire répond normalement
+                recordSuccess();
+            } else {
+                recordFailure();
+            }
+            failed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new PaymentGatewayException("Erreur lors de l'appel au prestataire de paiement: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            breaker.onIgnored();
+            throw new PaymentGatewayException("Appel au prestataire de paiement interrompu", e);
+        }
+    }
+
+    CircuitBreaker.State breakerState() {
+        return breaker.state();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void recordSuccess() {
+        boolean wasHalfOpen = breaker.state() == CircuitBreaker.State.HALF_OPEN;
+        breaker.onSuccess();
+        if (wasHalfOpen && breaker.state() == CircuitBreaker.State.CLOSED) {
+            log.info("Disjoncteur des paiements refermé : le prestataire répond de nouveau");
+        }
+    }
+
+    private void recordFailure() {
+        boolean wasOpen = breaker.state() == CircuitBreaker.State.OPEN;
+        breaker.onFailure();
+        if (!wasOpen && breaker.state() == CircuitBreaker.State.OPEN) {
+            log.error("Disjoncteur des paiements ouvert : appels au prestataire suspendus");
+        }
+    }
+
+    private static Timer callTimer(String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("prodify.payment.calls")
+                .description("Appels au prestataire de paiement, par issue")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static Counter rejectedCounter(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("prodify.payment.calls.rejected")
+                .description("Appels au prestataire de paiement refusés sans être tentés")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,43 @@
+package com.prodify.api.service.payment;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Prestataire de paiement qui héberge la page de paiement.
+ *
+ * Implémentations : {@link StripePaymentGateway} (par défaut) et {@link LocalPaymentGateway}, un simulateur
+ * en mémoire pour le développement et les tests de charge ({@code prodify.payment.gateway=local}).
+ * Le paiement confirmé revient dans tous les cas par le webhook Stripe (/api/payment/webhook).
+ */
+public interface PaymentGateway {
+
+    /**
+     * @throws PaymentGatewayException si le prestataire refuse la demande ou ne répond pas
+     */
+    CheckoutSession createCheckoutSession(CheckoutRequest request);
+
+    /**
+     * Relit une session créée par {@link #createCheckoutSession} : payée ou non, sans attendre le webhook.
+     *
+     * @throws PaymentGatewayException si la session est inconnue ou si le prestataire ne répond pas
+     */
+    CheckoutStatus retrieveCheckoutSession(String sessionId);
+
+    /**
+     * Ferme une session encore ouverte : elle ne peut plus être payée. Sans effet sur une session déjà payée ou expirée.
+     *
+     * @return l'état de la session : payée si le paiement a eu lieu avant la fermeture
+     * @throws PaymentGatewayException si la session est inconnue ou si le prestataire ne répond pas
+     */
+    CheckoutStatus expireCheckoutSession(String sessionId);
+
+    /**
+     * Commande payée par ce PaymentIntent, d'après sa session Checkout (client_reference_id) :
+     * pour les remboursements et litiges de commandes payées avant que leur PaymentIntent soit enregistré.
+     *
+     * @return vide si aucune session ne correspond à ce PaymentIntent
+     * @throws PaymentGatewayException si le prestataire ne répond pas
+     */
+    Optional<UUID> findOrderIdByPaymentIntent(String paymentIntentId);
+}
@@ -0,0 +1,28 @@
+package com.prodify.api.service.payment;
+
+/**
+ * Échec d'un appel au prestataire de paiement (refus, erreur réseau, indisponibilité).
+ */
+public class PaymentGatewayException extends RuntimeException {
+
+    // false : requête refusée par le prestataire (4xx), qui fonctionne ; ne compte pas pour le disjoncteur
+    private final boolean providerFailure;
+
+    public PaymentGatewayException(String message) {
+        super(message);
+        this.providerFailure = true;
+    }
+
+    public PaymentGatewayException(String message, Throwable cause) {
+        this(message, cause, true);
+    }
+
+    public PaymentGatewayException(String message, Throwable cause, boolean providerFailure) {
+        super(message, cause);
+        this.providerFailure = providerFailure;
+    }
+
+    public boolean isProviderFailure() {
+        return providerFailure;
+    }
+}
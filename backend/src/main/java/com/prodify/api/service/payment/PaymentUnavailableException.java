@@ -0,0 +1,12 @@
+package com.prodify.api.service.payment;
+
+/**
+ * Appel au prestataire non tenté ou abandonné par {@link PaymentCallGuard} : disjoncteur ouvert,
+ * trop d'appels simultanés ou délai dépassé. Le client peut réessayer un peu plus tard.
+ */
+public class PaymentUnavailableException extends PaymentGatewayException {
+
+    public PaymentUnavailableException(String message) {
+        super(message);
+    }
+}
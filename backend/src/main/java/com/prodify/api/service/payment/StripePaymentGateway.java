@@ -0,0 +1,133 @@
+package com.prodify.api.service.payment;
+
+import com.stripe.exception.StripeException;
+import com.stripe.model.checkout.Session;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.checkout.SessionCreateParams;
+import com.stripe.param.checkout.SessionExpireParams;
+import com.stripe.param.checkout.SessionListParams;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Sessions Stripe Checkout (clé API configurée par StripeConfig).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "prodify.payment.gateway", havingValue = "stripe", matchIfMissing = true)
+public class StripePaymentGateway implements PaymentGateway {
+
+    // Le délai de PaymentCallGuard libère l'appelant ; celui-ci libère le thread de l'appel HTTP lui-même
+    private final RequestOptions requestOptions;
+
+    public StripePaymentGateway(@Value("${prodify.payment.timeout:10s}") Duration timeout) {
+        int millis = (int) timeout.toMillis();
+        this.requestOptions = RequestOptions.builder()
+                .setConnectTimeout(millis)
+                .setReadTimeout(millis)
+                .build();
+    }
+
+    @Override
+    public CheckoutSession createCheckoutSession(CheckoutRequest request) {
+        SessionCreateParams.Builder params = SessionCreateParams.builder()
+                .setMode(SessionCreateParams.Mode.PAYMENT)
+                .setSuccessUrl(request.successUrl())
+                .setCancelUrl(request.cancelUrl())
+                .setClientReferenceId(request.orderId().toString()) // Pour récupérer l'Order ID au webhook
+                .setExpiresAt(request.expiresAt().toEpochSecond()) // Au-delà : "checkout.session.expired", la commande est annulée
+                .putMetadata("order_id", request.orderId().toString()); // Pour identifier l'order après le paiement
+        for (CheckoutRequest.Line line : request.lines()) {
+            params.addLineItem(toLineItem(line, request.currency()));
+        }
+
+        try {
+            Session session = Session.create(params.build(), requestOptions);
+            OffsetDateTime expiresAt = session.getExpiresAt() != null
+                    ? OffsetDateTime.ofInstant(Instant.ofEpochSecond(session.getExpiresAt()), ZoneOffset.UTC)
+                    : request.expiresAt();
+            return new CheckoutSession(session.getId(), session.getUrl(), expiresAt);
+        } catch (StripeException e) {
+            throw failure("la création de la session de paiement", e);
+        }
+    }
+
+    @Override
+    public CheckoutStatus retrieveCheckoutSession(String sessionId) {
+        try {
+            return status(Session.retrieve(sessionId, requestOptions));
+        } catch (StripeException e) {
+            throw failure("la lecture de la session de paiement " + sessionId, e);
+        }
+    }
+
+    @Override
+    public CheckoutStatus expireCheckoutSession(String sessionId) {
+        try {
+            Session session = Session.retrieve(sessionId, requestOptions);
+            // Stripe refuse d'expirer une session payée ou déjà expirée
+            if ("open".equals(session.getStatus())) {
+                session = session.expire(SessionExpireParams.builder().build(), requestOptions);
+            }
+            return status(session);
+        } catch (StripeException e) {
+            throw failure("la fermeture de la session de paiement " + sessionId, e);
+        }
+    }
+
+    @Override
+    public Optional<UUID> findOrderIdByPaymentIntent(String paymentIntentId) {
+        SessionListParams params = SessionListParams.builder().setPaymentIntent(paymentIntentId).setLimit(1L).build();
+        try {
+            return Session.list(params, requestOptions).getData().stream()
+                    .map(Session::getClientReferenceId)
+                    .filter(orderId -> orderId != null && !orderId.isEmpty())
+                    .map(UUID::fromString)
+                    .findFirst();
+        } catch (StripeException e) {
+            throw failure("la recherche de la session du PaymentIntent " + paymentIntentId, e);
+        }
+    }
+
+    private static CheckoutStatus status(Session session) {
+        // "paid" ou "no_payment_required" (montant nul) : rien ne reste dû
+        boolean paid = !"unpaid".equals(session.getPaymentStatus());
+        return new CheckoutStatus(session.getId(), paid, session.getPaymentIntent());
+    }
+
+    private static PaymentGatewayException failure(String action, StripeException e) {
+        log.error("Erreur Stripe lors de {} (code {}, statut HTTP {}) : {}",
+                action, e.getCode(), e.getStatusCode(), e.getMessage());
+        // 4xx (hors 429) : requête refusée, Stripe fonctionne ; le reste est une défaillance du prestataire
+        Integer status = e.getStatusCode();
+        boolean providerFailure = status == null || status >= 500 || status == 429;
+        return new PaymentGatewayException("Erreur lors de " + action + " Stripe: " + e.getMessage(), e, providerFailure);
+    }
+
+    private static SessionCreateParams.LineItem toLineItem(CheckoutRequest.Line line, String currency) {
+        return SessionCreateParams.LineItem.builder()
+                .setQuantity(1L)
+                .setPriceData(
+                        SessionCreateParams.LineItem.PriceData.builder()
+                                .setCurrency(currency)
+                                .setUnitAmount(line.unitAmountCents())
+                                .setProductData(
+                                        SessionCreateParams.LineItem.PriceData.ProductData.builder()
+                                                .setName(line.name())
+                                                .setDescription(line.description())
+                                                .build()
+                                )
+                                .build()
+                )
+                .build();
+    }
+}
@@ -0,0 +1,10 @@
+package com.prodify.api.service.ranking;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Une ligne de commande payée récemment, chargée par projection pour reconstruire les tendances.
+ */
+public record SaleRecord(UUID trackId, String genre, UUID itemId, OffsetDateTime soldAt) {
+}
@@ -0,0 +1,328 @@
+package com.prodify.api.service.ranking;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Classements "Meilleures ventes" et "Tendances de la semaine", par genre et tous genres confondus.
+ *
+ * - Meilleures ventes : total des ventes, maintenu trié à chaque vente (TreeSet par genre).
+ * - Tendances : ventes des 7 derniers jours rangées par heure, chaque heure pondérée par une
+ *   décroissance exponentielle (demi-vie de 48 h). Le classement est recalculé, uniquement sur les tracks
+ *   vendues dans la fenêtre, au plus toutes les {@link #SALES_REFRESH_MILLIS} quand des ventes arrivent
+ *   et au moins une fois par minute pour suivre la décroissance.
+ *
+ * Les genres sont des clés normalisées (voir {@link TrackRankingService}), {@link #ALL_GENRES} = tous genres.
+ */
+public class SalesRanking {
+
+    public static final String ALL_GENRES = "";
+
+    static final int WINDOW_HOURS = 7 * 24;
+    static final double HALF_LIFE_HOURS = 48;
+    static final long REFRESH_MILLIS = Duration.ofMinutes(1).toMillis();
+    // En pleine rafale de ventes, un recalcul par vente coûterait un parcours du genre à chaque lecture
+    static final long SALES_REFRESH_MILLIS = Duration.ofSeconds(5).toMillis();
+    // Taille maximale d'un classement servi
+    public static final int MAX_RANKED = 100;
+
+    private static final Comparator<TrackSales> BEST_SELLERS = Comparator
+            .comparingLong(TrackSales::total).reversed()
+            .thenComparing(TrackSales::trackId);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<UUID, TrackSales> sales = new HashMap<>();
+    private final Map<String, NavigableSet<TrackSales>> bestSellers = new HashMap<>();
+    // Tracks ayant au moins une vente dans la fenêtre, par genre
+    private final Map<String, Set<UUID>> active = new HashMap<>();
+    // Incrémenté à chaque vente dans le genre : un classement à jour n'est pas recalculé
+    private final Map<String, Long> versions = new HashMap<>();
+
+    private final Map<String, Snapshot> trendingSnapshots = new ConcurrentHashMap<>();
+
+    /**
+     * Ajoute {@code quantity} ventes. Les ventes plus anciennes que la fenêtre ne comptent que pour les meilleures ventes.
+     */
+    public void recordSale(UUID trackId, String genre, Instant soldAt, int quantity) {
+        lock.writeLock().lock();
+        try {
+            TrackSales track = sales.computeIfAbsent(trackId, id -> new TrackSales(id, genre));
+            if (track.genre == null ? genre != null : !track.genre.equals(genre)) {
+                moveGenre(track, genre);
+            }
+
+            forEachKey(track.genre, key -> bestSellers(key).remove(track));
+            track.total += quantity;
+            forEachKey(track.genre, key -> bestSellers(key).add(track));
+
+            long hour = hourOf(soldAt);
+            if (hour > hourOf(Instant.now()) - WINDOW_HOURS) {
+                track.addToWindow(hour, quantity);
+                forEachKey(track.genre, key -> {
+                    active.computeIfAbsent(key, k -> new HashSet<>()).add(trackId);
+                    versions.merge(key, 1L, Long::sum);
+                });
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Le genre d'une track a été modifié : ses ventes suivent
+    public void updateGenre(UUID trackId, String genre) {
+        lock.writeLock().lock();
+        try {
+            TrackSales track = sales.get(trackId);
+            if (track != null && (track.genre == null ? genre != null : !track.genre.equals(genre))) {
+                moveGenre(track, genre);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID trackId) {
+        lock.writeLock().lock();
+        try {
+            TrackSales track = sales.remove(trackId);
+            if (track != null) {
+                unlink(track);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<UUID> bestSellers(String genre, int limit) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<TrackSales> ranked = bestSellers.get(genre);
+            if (ranked == null) {
+                return List.of();
+            }
+            List<UUID> top = new ArrayList<>(Math.min(limit, ranked.size()));
+            Iterator<TrackSales> iterator = ranked.iterator();
+            while (top.size() < limit && iterator.hasNext()) {
+                top.add(iterator.next().trackId);
+            }
+            return top;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<UUID> trending(String genre, int limit, Instant now) {
+        Snapshot snapshot = trendingSnapshots.get(genre);
+        long nowMillis = now.toEpochMilli();
+        if (snapshot == null || snapshot.isStale(currentVersion(genre), nowMillis)) {
+            snapshot = computeTrending(genre, now);
+            trendingSnapshots.put(genre, snapshot);
+        }
+        List<UUID> ranked = snapshot.trackIds();
+        return ranked.size() <= limit ? ranked : ranked.subList(0, limit);
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            sales.clear();
+            bestSellers.clear();
+            active.clear();
+            versions.clear();
+            trendingSnapshots.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return sales.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Calcul sur toutes les tracks actives du genre ; le snapshot garde les MAX_RANKED premières pour toutes les tailles de page
+    private Snapshot computeTrending(String genre, Instant now) {
+        long nowHour = hourOf(now);
+        List<UUID> expired = new ArrayList<>();
+        PriorityQueue<Scored> ranked = new PriorityQueue<>(Comparator
+                .comparingDouble(Scored::score).reversed()
+                .thenComparing(Scored::trackId));
+        long version;
+
+        lock.readLock().lock();
+        try {
+            version = versions.getOrDefault(genre, 0L);
+            for (UUID trackId : active.getOrDefault(genre, Set.of())) {
+                double score = sales.get(trackId).trendingScore(nowHour);
+                if (score > 0) {
+                    ranked.add(new Scored(trackId, score));
+                } else {
+                    expired.add(trackId);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (!expired.isEmpty()) {
+            pruneExpired(genre, expired, nowHour);
+        }
+
+        List<UUID> trackIds = new ArrayList<>(Math.min(ranked.size(), MAX_RANKED));
+        while (!ranked.isEmpty() && trackIds.size() < MAX_RANKED) {
+            trackIds.add(ranked.poll().trackId());
+        }
+        return new Snapshot(List.copyOf(trackIds), version, now.toEpochMilli());
+    }
+
+    // Sortie de fenêtre : la track ne sera plus examinée tant qu'elle ne se revend pas
+    private void pruneExpired(String genre, List<UUID> expired, long nowHour) {
+        lock.writeLock().lock();
+        try {
+            Set<UUID> genreActive = active.get(genre);
+            for (UUID trackId : expired) {
+                TrackSales track = sales.get(trackId);
+                if (genreActive != null && (track == null || track.trendingScore(nowHour) == 0)) {
+                    genreActive.remove(trackId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long currentVersion(String genre) {
+        lock.readLock().lock();
+        try {
+            return versions.getOrDefault(genre, 0L);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void moveGenre(TrackSales track, String genre) {
+        unlink(track);
+        track.genre = genre;
+        forEachKey(genre, key -> {
+            bestSellers(key).add(track);
+            if (track.window != null) {
+                active.computeIfAbsent(key, k -> new HashSet<>()).add(track.trackId);
+            }
+            versions.merge(key, 1L, Long::sum);
+        });
+    }
+
+    private void unlink(TrackSales track) {
+        forEachKey(track.genre, key -> {
+            NavigableSet<TrackSales> ranked = bestSellers.get(key);
+            if (ranked != null) {
+                ranked.remove(track);
+            }
+            Set<UUID> genreActive = active.get(key);
+            if (genreActive != null) {
+                genreActive.remove(track.trackId);
+            }
+            versions.merge(key, 1L, Long::sum);
+        });
+    }
+
+    private NavigableSet<TrackSales> bestSellers(String key) {
+        return bestSellers.computeIfAbsent(key, k -> new TreeSet<>(BEST_SELLERS));
+    }
+
+    // Chaque vente compte dans son genre et dans le classement tous genres
+    private static void forEachKey(String genre, Consumer<String> action) {
+        action.accept(ALL_GENRES);
+        if (genre != null && !genre.equals(ALL_GENRES)) {
+            action.accept(genre);
+        }
+    }
+
+    static long hourOf(Instant instant) {
+        return instant.getEpochSecond() / 3600;
+    }
+
+    private record Scored(UUID trackId, double score) {
+    }
+
+    private record Snapshot(List<UUID> trackIds, long version, long computedAtMillis) {
+        // Recalcul si des ventes ont eu lieu (pas plus d'une fois par SALES_REFRESH_MILLIS),
+        // ou si la décroissance a pu changer l'ordre
+        boolean isStale(long currentVersion, long nowMillis) {
+            long age = nowMillis - computedAtMillis;
+            return age > REFRESH_MILLIS || (currentVersion != version && age >= SALES_REFRESH_MILLIS);
+        }
+    }
+
+    /**
+     * Ventes d'une track. {@code window} (anneau de 168 heures) n'est alloué qu'à la première vente récente.
+     */
+    private static final class TrackSales {
+        private final UUID trackId;
+        private String genre;
+        private long total;
+        private int[] window;
+        private long[] windowHours;
+
+        private TrackSales(UUID trackId, String genre) {
+            this.trackId = trackId;
+            this.genre = genre;
+        }
+
+        UUID trackId() {
+            return trackId;
+        }
+
+        long total() {
+            return total;
+        }
+
+        void addToWindow(long hour, int quantity) {
+            if (window == null) {
+                window = new int[WINDOW_HOURS];
+                windowHours = new long[WINDOW_HOURS];
+            }
+            int slot = (int) (hour % WINDOW_HOURS);
+            if (windowHours[slot] != hour) {
+                // Case recyclée : elle contenait l'heure équivalente d'une semaine précédente
+                windowHours[slot] = hour;
+                window[slot] = 0;
+            }
+            window[slot] += quantity;
+        }
+
+        double trendingScore(long nowHour) {
+            if (window == null) {
+                return 0;
+            }
+            double score = 0;
+            for (int slot = 0; slot < WINDOW_HOURS; slot++) {
+                long age = nowHour - windowHours[slot];
+                if (window[slot] > 0 && age >= 0 && age < WINDOW_HOURS) {
+                    score += window[slot] * Math.pow(0.5, age / HALF_LIFE_HOURS);
+                }
+            }
+            return score;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.prodify.api.service.ranking;
+
+import java.util.UUID;
+
+/**
+ * Total des ventes d'une track (agrégat calculé au démarrage pour les meilleures ventes).
+ */
+public record SalesTotal(UUID trackId, String genre, long sales) {
+}
@@ -0,0 +1,131 @@
+package com.prodify.api.service.ranking;
+
+import com.prodify.api.event.OrderCompletedEvent;
+import com.prodify.api.event.TrackChangedEvent;
+import com.prodify.api.repository.OrderRepository;
+import com.prodify.api.repository.TrackRepository;
+import com.prodify.api.service.CatalogEntry;
+import com.prodify.api.service.TextNormalizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Classements "Tendances" et "Meilleures ventes" servis depuis la mémoire.
+ * Reconstruits au démarrage depuis les commandes payées, puis tenus à jour à chaque paiement confirmé.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TrackRankingService {
+
+    private static final int BOOTSTRAP_CHUNK = 1000;
+
+    private final OrderRepository orderRepository;
+    private final TrackRepository trackRepository;
+
+    private final SalesRanking ranking = new SalesRanking();
+
+    // Pendant le chargement initial : les commandes payées avant cette date sont relues en BDD,
+    // leurs événements sont ignorés pour ne pas les compter deux fois
+    private volatile Instant bootstrapCutoff = null;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        Instant cutoff = Instant.now();
+        bootstrapCutoff = cutoff;
+        OffsetDateTime cutoffDate = OffsetDateTime.ofInstant(cutoff, ZoneOffset.UTC);
+        ranking.clear();
+
+        // Commandes payées avant l'ajout de completed_at : la dernière modification en tient lieu
+        orderRepository.backfillCompletedAt();
+
+        // Ventes anciennes : seul le total compte (meilleures ventes)
+        OffsetDateTime windowStart = cutoffDate.minus(Duration.ofHours(SalesRanking.WINDOW_HOURS));
+        for (SalesTotal total : orderRepository.findSalesTotalsBefore(windowStart)) {
+            ranking.recordSale(total.trackId(), genreKey(total.genre()), windowStart.toInstant(), (int) total.sales());
+        }
+
+        // Ventes de la semaine : heure par heure (tendances + meilleures ventes)
+        int recent = 0;
+        List<SaleRecord> chunk = orderRepository.findSalesFirstChunk(windowStart, cutoffDate, Limit.of(BOOTSTRAP_CHUNK));
+        while (!chunk.isEmpty()) {
+            for (SaleRecord sale : chunk) {
+                ranking.recordSale(sale.trackId(), genreKey(sale.genre()), sale.soldAt().toInstant(), 1);
+            }
+            recent += chunk.size();
+
+            SaleRecord last = chunk.get(chunk.size() - 1);
+            chunk = chunk.size() < BOOTSTRAP_CHUNK
+                    ? List.of()
+                    : orderRepository.findSalesAfter(last.soldAt(), last.itemId(), cutoffDate, Limit.of(BOOTSTRAP_CHUNK));
+        }
+
+        bootstrapCutoff = null;
+        log.info("Classements chargés : {} tracks vendues dont {} ventes cette semaine, en {} ms",
+                ranking.size(), recent, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Après commit : une commande annulée par rollback ne compte pas
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCompleted(OrderCompletedEvent event) {
+        Instant completedAt = event.completedAt() != null ? event.completedAt().toInstant() : Instant.now();
+        Instant cutoff = bootstrapCutoff;
+        if (cutoff != null && completedAt.isBefore(cutoff)) {
+            return;
+        }
+        // Une seule requête par commande (pas par affichage) pour connaître le genre des tracks vendues
+        Map<UUID, CatalogEntry> entries = trackRepository.findCatalogEntriesByIdIn(event.trackIds()).stream()
+                .collect(Collectors.toMap(CatalogEntry::id, Function.identity()));
+        for (UUID trackId : event.trackIds()) {
+            CatalogEntry entry = entries.get(trackId);
+            if (entry != null) {
+                ranking.recordSale(trackId, genreKey(entry.genre()), completedAt, 1);
+            }
+        }
+    }
+
+    // Après commit, comme les ventes
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTrackChanged(TrackChangedEvent event) {
+        if (event.type() == TrackChangedEvent.Type.DELETED) {
+            ranking.remove(event.track().getId());
+        } else if (event.type() == TrackChangedEvent.Type.UPDATED) {
+            ranking.updateGenre(event.track().getId(), genreKey(event.track().getGenre()));
+        }
+    }
+
+    /**
+     * @param genre genre affiché ("Drill"), null ou vide pour tous les genres
+     */
+    public List<UUID> trending(String genre, int limit) {
+        return ranking.trending(genreKey(genre), limit, Instant.now());
+    }
+
+    public List<UUID> bestSellers(String genre, int limit) {
+        return ranking.bestSellers(genreKey(genre), limit);
+    }
+
+    // "Drill", "drill " et "DRILL" partagent le même classement
+    private static String genreKey(String genre) {
+        if (genre == null || genre.isBlank()) {
+            return SalesRanking.ALL_GENRES;
+        }
+        return TextNormalizer.fold(genre.trim());
+    }
+}
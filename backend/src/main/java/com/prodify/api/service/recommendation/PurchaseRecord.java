@@ -0,0 +1,10 @@
+package com.prodify.api.service.recommendation;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Une ligne de commande payée, chargée par projection pour reconstruire les signaux de co-achat.
+ */
+public record PurchaseRecord(UUID orderId, UUID userId, UUID trackId, UUID itemId, OffsetDateTime purchasedAt) {
+}
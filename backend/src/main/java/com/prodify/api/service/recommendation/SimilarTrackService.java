@@ -0,0 +1,128 @@
+package com.prodify.api.service.recommendation;
+
+import com.prodify.api.event.OrderCompletedEvent;
+import com.prodify.api.event.TrackChangedEvent;
+import com.prodify.api.model.Track;
+import com.prodify.api.repository.OrderRepository;
+import com.prodify.api.repository.TrackRepository;
+import com.prodify.api.service.CatalogEntry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * "Sons similaires" : branche {@link SimilarityIndex} sur le cycle de vie des tracks et des commandes.
+ * Aucune requête SQL au moment de la recommandation, l'index est tenu à jour par événements.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SimilarTrackService {
+
+    private static final int BOOTSTRAP_CHUNK = 1000;
+
+    private final TrackRepository trackRepository;
+    private final OrderRepository orderRepository;
+
+    private final SimilarityIndex index = new SimilarityIndex();
+
+    // Suppressions reçues pendant le chargement initial, pour ne pas réindexer une track déjà supprimée
+    private volatile Set<UUID> deletedDuringBootstrap = null;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        deletedDuringBootstrap = ConcurrentHashMap.newKeySet();
+
+        List<CatalogEntry> chunk = trackRepository.findCatalogEntriesFirstChunk(Limit.of(BOOTSTRAP_CHUNK));
+        while (!chunk.isEmpty()) {
+            chunk.stream()
+                    .filter(entry -> !deletedDuringBootstrap.contains(entry.id()))
+                    .forEach(entry -> index.index(TrackFeatures.of(entry.id(), entry.bpm(), entry.genre(), entry.mood(), entry.price())));
+
+            CatalogEntry last = chunk.get(chunk.size() - 1);
+            chunk = chunk.size() < BOOTSTRAP_CHUNK
+                    ? List.of()
+                    : trackRepository.findCatalogEntriesAfter(last.createdAt(), last.id(), Limit.of(BOOTSTRAP_CHUNK));
+        }
+        deletedDuringBootstrap = null;
+        // Une exclusive vendue n'est plus proposée
+        trackRepository.findSoldTrackIds().forEach(index::remove);
+
+        int purchases = loadPurchases();
+        log.info("Index de similarité chargé : {} tracks, {} achats en {} ms",
+                index.size(), purchases, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Lignes de commandes payées, dans l'ordre chronologique, regroupées par commande
+    private int loadPurchases() {
+        int loaded = 0;
+        List<PurchaseRecord> chunk = orderRepository.findPurchaseRecordsFirstChunk(Limit.of(BOOTSTRAP_CHUNK));
+        UUID currentOrder = null;
+        UUID currentUser = null;
+        List<UUID> orderTracks = new ArrayList<>();
+        while (!chunk.isEmpty()) {
+            for (PurchaseRecord record : chunk) {
+                if (!record.orderId().equals(currentOrder)) {
+                    if (currentOrder != null) {
+                        index.recordPurchase(currentUser, orderTracks);
+                    }
+                    currentOrder = record.orderId();
+                    currentUser = record.userId();
+                    orderTracks = new ArrayList<>();
+                }
+                orderTracks.add(record.trackId());
+                loaded++;
+            }
+
+            PurchaseRecord last = chunk.get(chunk.size() - 1);
+            chunk = chunk.size() < BOOTSTRAP_CHUNK
+                    ? List.of()
+                    : orderRepository.findPurchaseRecordsAfter(last.purchasedAt(), last.orderId(), last.itemId(),
+                            Limit.of(BOOTSTRAP_CHUNK));
+        }
+        if (currentOrder != null) {
+            index.recordPurchase(currentUser, orderTracks);
+        }
+        return loaded;
+    }
+
+    // Après commit : une exclusive n'est retirée que si sa vente est validée
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTrackChanged(TrackChangedEvent event) {
+        Track track = event.track();
+        if (event.type() == TrackChangedEvent.Type.DELETED) {
+            Set<UUID> tombstones = deletedDuringBootstrap;
+            if (tombstones != null) {
+                tombstones.add(track.getId());
+            }
+            index.remove(track.getId());
+            return;
+        }
+        if (track.isSold()) {
+            index.remove(track.getId());
+            return;
+        }
+        index.index(TrackFeatures.of(track.getId(), track.getBpm(), track.getGenre(), track.getMood(), track.getPrice()));
+    }
+
+    // Après commit : une commande annulée par rollback ne compte pas
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCompleted(OrderCompletedEvent event) {
+        index.recordPurchase(event.userId(), event.trackIds());
+    }
+
+    public List<UUID> similarTo(UUID trackId, int limit) {
+        return index.neighbours(trackId, limit);
+    }
+}
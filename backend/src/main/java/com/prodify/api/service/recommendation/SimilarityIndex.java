@@ -0,0 +1,251 @@
+package com.prodify.api.service.recommendation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Index des plus proches voisins pour "Sons similaires".
+ *
+ * Les tracks sont rangées par genre et par mood dans des skip lists triées par BPM :
+ * les candidats d'une track sont ses voisins de tempo dans son genre et dans son mood,
+ * lus en partant de son propre BPM vers l'extérieur, plus les tracks achetées par les mêmes clients.
+ * Le nombre de candidats examinés est borné : le coût d'une requête ne dépend pas de la taille du catalogue.
+ *
+ * Lectures sans verrou (structures concurrentes), écritures sérialisées.
+ * La mémoire des co-achats est bornée : partenaires par track plafonnés (les plus faibles cèdent la place)
+ * et historique gardé pour les clients les plus récemment actifs uniquement.
+ */
+public class SimilarityIndex {
+
+    // Au-delà de cet écart de tempo, le BPM n'apporte plus rien au score
+    static final int BPM_WINDOW = 15;
+    static final int MAX_SCANNED_PER_BUCKET = 500;
+    static final int MAX_HISTORY_PER_USER = 50;
+    // ~2 Ko d'historique par client : 10 000 clients actifs tiennent en une vingtaine de Mo
+    static final int MAX_TRACKED_USERS = 10_000;
+    static final int MAX_PARTNERS_PER_TRACK = 200;
+    // Nombre de co-achats à partir duquel le signal est considéré comme maximal
+    private static final int CO_PURCHASE_SATURATION = 20;
+
+    private static final double W_GENRE = 0.35;
+    private static final double W_MOOD = 0.20;
+    private static final double W_BPM = 0.25;
+    private static final double W_PRICE = 0.10;
+    private static final double W_CO_PURCHASE = 0.50;
+
+    private static final Comparator<TrackFeatures> BY_TEMPO = Comparator
+            .comparingInt(TrackFeatures::bpm)
+            .thenComparing(TrackFeatures::id);
+
+    private final Map<UUID, TrackFeatures> features = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<TrackFeatures>> byGenre = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<TrackFeatures>> byMood = new ConcurrentHashMap<>();
+
+    // trackId -> (trackId acheté par les mêmes clients -> nombre de clients)
+    private final Map<UUID, Map<UUID, Integer>> coPurchases = new ConcurrentHashMap<>();
+    // Derniers achats de chaque client, pour relier un nouvel achat aux précédents.
+    // LRU en ordre d'accès : le client inactif depuis le plus longtemps est oublié en premier
+    private final Map<UUID, Deque<UUID>> purchaseHistory;
+    private final int maxPartnersPerTrack;
+
+    public SimilarityIndex() {
+        this(MAX_TRACKED_USERS, MAX_PARTNERS_PER_TRACK);
+    }
+
+    SimilarityIndex(int maxTrackedUsers, int maxPartnersPerTrack) {
+        this.maxPartnersPerTrack = maxPartnersPerTrack;
+        this.purchaseHistory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Deque<UUID>> eldest) {
+                return size() > maxTrackedUsers;
+            }
+        };
+    }
+
+    public synchronized void index(TrackFeatures track) {
+        TrackFeatures previous = features.put(track.id(), track);
+        if (previous != null) {
+            unbucket(previous);
+        }
+        bucket(byGenre, track.genre(), track);
+        bucket(byMood, track.mood(), track);
+    }
+
+    public synchronized void remove(UUID trackId) {
+        TrackFeatures previous = features.remove(trackId);
+        if (previous != null) {
+            unbucket(previous);
+        }
+        // Les entrées qui pointent encore vers cette track sont ignorées à la lecture
+        coPurchases.remove(trackId);
+    }
+
+    /**
+     * Enregistre les tracks d'une commande payée : chaque track est reliée aux autres tracks
+     * de la commande et aux derniers achats du même client.
+     */
+    public synchronized void recordPurchase(UUID userId, Collection<UUID> trackIds) {
+        Deque<UUID> history = purchaseHistory.computeIfAbsent(userId, id -> new ArrayDeque<>());
+        for (UUID trackId : trackIds) {
+            if (history.contains(trackId)) {
+                continue;
+            }
+            for (UUID previous : history) {
+                increment(trackId, previous);
+                increment(previous, trackId);
+            }
+            history.addLast(trackId);
+            if (history.size() > MAX_HISTORY_PER_USER) {
+                history.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * @return les identifiants des {@code limit} tracks les plus proches, du plus au moins similaire
+     * (vide si la track n'est pas indexée)
+     */
+    public List<UUID> neighbours(UUID trackId, int limit) {
+        TrackFeatures target = features.get(trackId);
+        if (target == null || limit <= 0) {
+            return List.of();
+        }
+
+        Map<UUID, Integer> partners = coPurchases.getOrDefault(trackId, Map.of());
+        Map<UUID, TrackFeatures> candidates = new HashMap<>();
+        collectTempoNeighbours(bucketOf(byGenre, target.genre()), target, candidates);
+        collectTempoNeighbours(bucketOf(byMood, target.mood()), target, candidates);
+        for (UUID partner : partners.keySet()) {
+            TrackFeatures candidate = features.get(partner);
+            if (candidate != null) {
+                candidates.put(partner, candidate);
+            }
+        }
+        candidates.remove(trackId);
+
+        // Tas min de taille limit : on garde les meilleurs sans trier tous les candidats
+        PriorityQueue<ScoredTrack> best = new PriorityQueue<>(limit + 1, ScoredTrack.WORST_FIRST);
+        for (TrackFeatures candidate : candidates.values()) {
+            double score = score(target, candidate, partners.getOrDefault(candidate.id(), 0));
+            best.offer(new ScoredTrack(candidate.id(), score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<ScoredTrack> ranked = new ArrayList<>(best);
+        ranked.sort(ScoredTrack.WORST_FIRST.reversed());
+        return ranked.stream().map(ScoredTrack::trackId).toList();
+    }
+
+    public int size() {
+        return features.size();
+    }
+
+    // Pour les tests : taille des structures bornées
+    synchronized int trackedUsers() {
+        return purchaseHistory.size();
+    }
+
+    int coPurchasePartners(UUID trackId) {
+        return coPurchases.getOrDefault(trackId, Map.of()).size();
+    }
+
+    static double score(TrackFeatures a, TrackFeatures b, int coPurchaseCount) {
+        double score = 0;
+        if (a.genre() != null && a.genre().equals(b.genre())) {
+            score += W_GENRE;
+        }
+        if (a.mood() != null && a.mood().equals(b.mood())) {
+            score += W_MOOD;
+        }
+        if (a.bpm() > 0 && b.bpm() > 0) {
+            score += W_BPM * Math.max(0, 1 - Math.abs(a.bpm() - b.bpm()) / (double) BPM_WINDOW);
+        }
+        score += W_PRICE * Math.max(0, 1 - Math.abs(a.priceBand() - b.priceBand()) / 2.0);
+        if (coPurchaseCount > 0) {
+            score += W_CO_PURCHASE * Math.min(1, Math.log1p(coPurchaseCount) / Math.log1p(CO_PURCHASE_SATURATION));
+        }
+        return score;
+    }
+
+    // Parcourt le bucket depuis le BPM de la cible, alternativement vers le bas et vers le haut
+    private static void collectTempoNeighbours(NavigableSet<TrackFeatures> bucket, TrackFeatures target,
+                                               Map<UUID, TrackFeatures> candidates) {
+        if (bucket == null) {
+            return;
+        }
+        Iterator<TrackFeatures> down = bucket.headSet(target, false).descendingIterator();
+        Iterator<TrackFeatures> up = bucket.tailSet(target, false).iterator();
+        TrackFeatures nextDown = down.hasNext() ? down.next() : null;
+        TrackFeatures nextUp = up.hasNext() ? up.next() : null;
+
+        int scanned = 0;
+        while (scanned < MAX_SCANNED_PER_BUCKET && (nextDown != null || nextUp != null)) {
+            boolean takeDown = nextUp == null
+                    || (nextDown != null && target.bpm() - nextDown.bpm() <= nextUp.bpm() - target.bpm());
+            TrackFeatures next = takeDown ? nextDown : nextUp;
+            if (target.bpm() > 0 && Math.abs(next.bpm() - target.bpm()) > BPM_WINDOW) {
+                // Le plus proche restant est déjà hors fenêtre : les suivants aussi
+                break;
+            }
+            candidates.put(next.id(), next);
+            scanned++;
+            if (takeDown) {
+                nextDown = down.hasNext() ? down.next() : null;
+            } else {
+                nextUp = up.hasNext() ? up.next() : null;
+            }
+        }
+    }
+
+    private void increment(UUID trackId, UUID other) {
+        Map<UUID, Integer> partners = coPurchases.computeIfAbsent(trackId, id -> new ConcurrentHashMap<>());
+        if (!partners.containsKey(other) && partners.size() >= maxPartnersPerTrack) {
+            // Plafond atteint : le partenaire le moins co-acheté laisse sa place au nouveau
+            partners.entrySet().stream()
+                    .min(Map.Entry.comparingByValue())
+                    .ifPresent(weakest -> partners.remove(weakest.getKey()));
+        }
+        partners.merge(other, 1, Integer::sum);
+    }
+
+    private static NavigableSet<TrackFeatures> bucketOf(Map<String, NavigableSet<TrackFeatures>> buckets, String key) {
+        return key == null ? null : buckets.get(key);
+    }
+
+    private static void bucket(Map<String, NavigableSet<TrackFeatures>> buckets, String key, TrackFeatures track) {
+        if (key != null) {
+            buckets.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>(BY_TEMPO)).add(track);
+        }
+    }
+
+    private void unbucket(TrackFeatures track) {
+        if (track.genre() != null) {
+            byGenre.get(track.genre()).remove(track);
+        }
+        if (track.mood() != null) {
+            byMood.get(track.mood()).remove(track);
+        }
+    }
+
+    private record ScoredTrack(UUID trackId, double score) {
+        // Le moins bon en tête ; à score égal, ordre stable sur l'id
+        static final Comparator<ScoredTrack> WORST_FIRST = Comparator
+                .comparingDouble(ScoredTrack::score)
+                .thenComparing(ScoredTrack::trackId, Comparator.reverseOrder());
+    }
+}
@@ -0,0 +1,41 @@
+package com.prodify.api.service.recommendation;
+
+import com.prodify.api.service.TextNormalizer;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Vecteur de caractéristiques d'une track pour la similarité : BPM, genre, mood, tranche de prix.
+ * Genre et mood sont normalisés ("Épique" et "epique" comptent comme identiques).
+ *
+ * @param bpm       -1 si inconnu
+ * @param priceBand indice dans {@link #PRICE_BANDS}
+ */
+public record TrackFeatures(UUID id, int bpm, String genre, String mood, int priceBand) {
+
+    // Bornes hautes des tranches de prix (en euros) : <10, <20, <50, <100, <200, 200+
+    static final int[] PRICE_BANDS = {10, 20, 50, 100, 200};
+
+    public static TrackFeatures of(UUID id, Integer bpm, String genre, String mood, BigDecimal price) {
+        return new TrackFeatures(id, bpm == null || bpm <= 0 ? -1 : bpm, key(genre), key(mood), priceBand(price));
+    }
+
+    private static String key(String label) {
+        if (label == null || label.isBlank()) {
+            return null;
+        }
+        return TextNormalizer.fold(label.trim());
+    }
+
+    private static int priceBand(BigDecimal price) {
+        if (price == null) {
+            return 0;
+        }
+        int band = 0;
+        while (band < PRICE_BANDS.length && price.compareTo(BigDecimal.valueOf(PRICE_BANDS[band])) >= 0) {
+            band++;
+        }
+        return band;
+    }
+}
@@ -0,0 +1,15 @@
+package com.prodify.api.service.reconciliation;
+
+import com.prodify.api.model.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Une commande telle que le rapprochement la compare : son statut et ce que le journal des paiements
+ * a encaissé pour elle ({@code captured}, somme des CAPTURE, 0 si aucune).
+ */
+public record OrderPaymentState(UUID id, OrderStatus status, BigDecimal totalAmount, String checkoutSessionId,
+                                String previousCheckoutSessionId, OffsetDateTime createdAt, OffsetDateTime completedAt, BigDecimal captured) {
+}
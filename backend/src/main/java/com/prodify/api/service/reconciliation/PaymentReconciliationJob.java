@@ -0,0 +1,305 @@
+package com.prodify.api.service.reconciliation;
+
+import com.prodify.api.model.OrderStatus;
+import com.prodify.api.repository.OrderRepository;
+import com.prodify.api.service.OrderService;
+import com.prodify.api.service.ledger.PaymentLedgerService;
+import com.prodify.api.service.payment.CheckoutStatus;
+import com.prodify.api.service.payment.PaymentCallGuard;
+import com.prodify.api.service.payment.PaymentGateway;
+import com.prodify.api.service.payment.PaymentGatewayException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rapprochement nocturne entre les commandes et les paiements.
+ *
+ * Toutes les commandes sont parcourues par paquets de {@code chunk-size} (keyset sur l'id, une requête par paquet
+ * avec l'encaissement de chaque commande au journal) : la mémoire utilisée ne dépend pas du nombre de commandes.
+ * - Commande payée sans encaissement au journal (antérieure au journal) : l'encaissement est ajouté,
+ *   une transaction par paquet.
+ * - Commande PENDING ou CANCELLED avec une session de paiement de moins de {@code lookback} : la session est relue
+ *   chez le prestataire (via {@link PaymentCallGuard}) ; payée, la commande est validée et encaissée comme par
+ *   le webhook, une transaction par commande. Les PENDING de moins de {@code grace} sont laissées au webhook.
+ * - Encaissement différent du total, ou encaissement sur une commande non payée : signalés, pas corrigés.
+ *
+ * Toutes les corrections sont idempotentes (validation sans effet sur une commande payée, encaissement unique
+ * par session) : un webhook arrivé entre-temps ne compte rien deux fois. Un verrou consultatif PostgreSQL,
+ * tenu pendant tout le passage, réserve le rapprochement à un seul nœud.
+ *
+ * Métriques (/actuator/metrics) : prodify.reconciliation.run (durée des passages), prodify.reconciliation.orders
+ * (commandes parcourues), prodify.reconciliation.divergences (écarts trouvés, par type).
+ */
+@Slf4j
+@Component
+public class PaymentReconciliationJob {
+
+    // Clé du verrou consultatif (arbitraire, propre au rapprochement)
+    private static final long RECONCILE_LOCK_KEY = 0x50524F4449465902L;
+    // Au-delà, les écarts d'un passage sont comptés sans être détaillés dans les logs
+    static final int MAX_LOGGED_DIVERGENCES = 100;
+
+    private final OrderRepository orderRepository;
+    private final OrderService orderService;
+    private final PaymentLedgerService paymentLedgerService;
+    private final PaymentGateway paymentGateway;
+    private final PaymentCallGuard paymentCallGuard;
+    private final TransactionTemplate transactionTemplate;
+    private final DataSource dataSource;
+    private final int chunkSize;
+    private final Duration lookback;
+    private final Duration grace;
+
+    private final Timer runTimer;
+    private final Counter scannedCounter;
+    private final Counter missingCaptureCounter;
+    private final Counter paidNotCompletedCounter;
+    private final Counter amountMismatchCounter;
+    private final Counter capturedNotCompletedCounter;
+
+    public PaymentReconciliationJob(OrderRepository orderRepository, OrderService orderService,
+                                    PaymentLedgerService paymentLedgerService, PaymentGateway paymentGateway,
+                                    PaymentCallGuard paymentCallGuard, TransactionTemplate transactionTemplate,
+                                    DataSource dataSource, MeterRegistry meterRegistry,
+                                    @Value("${prodify.reconciliation.chunk-size:1000}") int chunkSize,
+                                    @Value("${prodify.reconciliation.lookback:7d}") Duration lookback,
+                                    @Value("${prodify.reconciliation.grace:30m}") Duration grace) {
+        this.orderRepository = orderRepository;
+        this.orderService = orderService;
+        this.paymentLedgerService = paymentLedgerService;
+        this.paymentGateway = paymentGateway;
+        this.paymentCallGuard = paymentCallGuard;
+        this.transactionTemplate = transactionTemplate;
+        this.dataSource = dataSource;
+        this.chunkSize = chunkSize;
+        this.lookback = lookback;
+        this.grace = grace;
+        this.runTimer = Timer.builder("prodify.reconciliation.run")
+                .description("Durée d'un passage de rapprochement des paiements")
+                .register(meterRegistry);
+        this.scannedCounter = Counter.builder("prodify.reconciliation.orders")
+                .description("Commandes parcourues par le rapprochement des paiements")
+                .register(meterRegistry);
+        this.missingCaptureCounter = divergenceCounter("missing_capture", meterRegistry);
+        this.paidNotCompletedCounter = divergenceCounter("paid_not_completed", meterRegistry);
+        this.amountMismatchCounter = divergenceCounter("amount_mismatch", meterRegistry);
+        this.capturedNotCompletedCounter = divergenceCounter("captured_not_completed", meterRegistry);
+    }
+
+    @Scheduled(cron = "${prodify.reconciliation.cron:0 30 3 * * *}")
+    public void run() {
+        // Verrou de session, pas de transaction : il couvre les nombreuses transactions du passage
+        try (Connection connection = dataSource.getConnection()) {
+            if (!advisoryLock(connection, "select pg_try_advisory_lock(?)")) {
+                log.info("Rapprochement des paiements : un autre nœud s'en charge déjà");
+                return;
+            }
+            try {
+                runTimer.record(this::reconcile);
+            } finally {
+                advisoryLock(connection, "select pg_advisory_unlock(?)");
+            }
+        } catch (SQLException e) {
+            log.error("Rapprochement des paiements impossible : {}", e.getMessage(), e);
+        }
+    }
+
+    public ReconciliationReport reconcile() {
+        OffsetDateTime startedAt = OffsetDateTime.now();
+        Pass pass = new Pass(startedAt.minus(lookback), startedAt.minus(grace));
+
+        List<OrderPaymentState> chunk = orderRepository.findPaymentStatesFirstChunk(Limit.of(chunkSize));
+        while (!chunk.isEmpty()) {
+            reconcileChunk(chunk, pass);
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+            chunk = orderRepository.findPaymentStatesAfter(chunk.get(chunk.size() - 1).id(), Limit.of(chunkSize));
+        }
+
+        ReconciliationReport report = pass.report(startedAt);
+        log.info("Rapprochement des paiements : {} commandes en {} s, {} écarts ({} encaissements ajoutés, "
+                        + "{} commandes payées validées, {} montants divergents, {} encaissements sans paiement), "
+                        + "{} sessions relues, {} échecs",
+                report.ordersScanned(), report.duration().toSeconds(), report.divergences(),
+                report.capturesBackfilled(), report.paidOrdersCompleted(), report.amountMismatches(),
+                report.capturedNotCompleted(), report.gatewayChecks(), report.failures());
+        return report;
+    }
+
+    private void reconcileChunk(List<OrderPaymentState> chunk, Pass pass) {
+        List<OrderPaymentState> missingCaptures = new ArrayList<>();
+        List<OrderPaymentState> unconfirmed = new ArrayList<>();
+        for (OrderPaymentState order : chunk) {
+            boolean captured = order.captured().signum() != 0;
+            if (order.status() == OrderStatus.COMPLETED) {
+                if (!captured && order.totalAmount().signum() > 0) {
+                    missingCaptures.add(order);
+                } else if (order.captured().compareTo(order.totalAmount()) != 0) {
+                    pass.amountMismatches++;
+                    amountMismatchCounter.increment();
+                    pass.warn("Commande {} : {} encaissés au journal pour un total de {}",
+                            order.id(), order.captured(), order.totalAmount());
+                }
+            } else if (captured) {
+                pass.capturedNotCompleted++;
+                capturedNotCompletedCounter.increment();
+                pass.warn("Commande {} ({}) : {} encaissés au journal", order.id(), order.status(), order.captured());
+            } else if (order.checkoutSessionId() != null && order.createdAt().isAfter(pass.lookbackStart)
+                    && (order.status() == OrderStatus.CANCELLED || order.createdAt().isBefore(pass.graceCutoff))) {
+                unconfirmed.add(order);
+            }
+        }
+        pass.scanned += chunk.size();
+        scannedCounter.increment(chunk.size());
+
+        if (!missingCaptures.isEmpty()) {
+            backfillCaptures(missingCaptures, pass);
+        }
+        for (OrderPaymentState order : unconfirmed) {
+            confirmWithGateway(order, pass);
+        }
+    }
+
+    // Commandes payées avant le journal : encaissées à leur date de paiement
+    private void backfillCaptures(List<OrderPaymentState> orders, Pass pass) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> orders.forEach(this::recordMissingCapture));
+        } catch (RuntimeException e) {
+            if (orders.size() == 1) {
+                pass.failures++;
+                log.error("Rapprochement : encaissement de la commande {} non ajouté : {}",
+                        orders.get(0).id(), e.getMessage(), e);
+                return;
+            }
+            // Une commande en erreur ne doit pas bloquer tout le paquet : reprise une par une
+            for (OrderPaymentState order : orders) {
+                backfillCaptures(List.of(order), pass);
+            }
+            return;
+        }
+        pass.capturesBackfilled += orders.size();
+        missingCaptureCounter.increment(orders.size());
+        for (OrderPaymentState order : orders) {
+            pass.warn("Commande {} payée sans encaissement au journal : encaissement de {} ajouté",
+                    order.id(), order.totalAmount());
+        }
+    }
+
+    private void recordMissingCapture(OrderPaymentState order) {
+        // Référence = la session payée quand on la connaît : un webhook rejoué ne l'encaissera pas une 2e fois
+        String reference = order.checkoutSessionId() != null ? order.checkoutSessionId() : "reconciliation";
+        OffsetDateTime paidAt = order.completedAt() != null ? order.completedAt() : order.createdAt();
+        paymentLedgerService.recordCapture(order.id(), null, reference, paidAt);
+    }
+
+    // Webhook jamais arrivé ou abandonné : le prestataire fait foi, pour la session en cours comme pour celle qu'elle a remplacée
+    private void confirmWithGateway(OrderPaymentState order, Pass pass) {
+        CheckoutStatus session = paidSession(order, order.checkoutSessionId(), pass);
+        if (session == null && order.previousCheckoutSessionId() != null) {
+            session = paidSession(order, order.previousCheckoutSessionId(), pass);
+        }
+        if (session == null) {
+            return;
+        }
+        confirmPaid(order, session, pass);
+    }
+
+    // @return la session si elle est payée, null si elle ne l'est pas ou n'a pas pu être relue
+    private CheckoutStatus paidSession(OrderPaymentState order, String sessionId, Pass pass) {
+        CheckoutStatus session;
+        try {
+            pass.gatewayChecks++;
+            session = paymentCallGuard.call(() -> paymentGateway.retrieveCheckoutSession(sessionId));
+        } catch (PaymentGatewayException e) {
+            // Disjoncteur ouvert : les commandes suivantes sont refusées sans appel, le prochain passage les reprendra
+            pass.failures++;
+            log.debug("Rapprochement : session {} de la commande {} non relue : {}", sessionId, order.id(), e.getMessage());
+            return null;
+        }
+        return session.paid() ? session : null;
+    }
+
+    private void confirmPaid(OrderPaymentState order, CheckoutStatus session, Pass pass) {
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                orderService.validateOrder(order.id());
+                paymentLedgerService.recordCapture(order.id(), session.paymentIntentId(), session.sessionId(),
+                        OffsetDateTime.now());
+            });
+        } catch (RuntimeException e) {
+            pass.failures++;
+            log.error("Rapprochement : commande payée {} non validée : {}", order.id(), e.getMessage(), e);
+            return;
+        }
+        pass.paidOrdersCompleted++;
+        paidNotCompletedCounter.increment();
+        pass.warn("Commande {} ({}) payée chez le prestataire (session {}) : validée", order.id(), order.status(),
+                session.sessionId());
+    }
+
+    private static boolean advisoryLock(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, RECONCILE_LOCK_KEY);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() && result.getBoolean(1);
+            }
+        }
+    }
+
+    private static Counter divergenceCounter(String kind, MeterRegistry meterRegistry) {
+        return Counter.builder("prodify.reconciliation.divergences")
+                .description("Écarts entre commandes et paiements trouvés par le rapprochement")
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+
+    // Compteurs d'un passage
+    private static final class Pass {
+        private final OffsetDateTime lookbackStart;
+        private final OffsetDateTime graceCutoff;
+        private long scanned;
+        private long capturesBackfilled;
+        private long paidOrdersCompleted;
+        private long amountMismatches;
+        private long capturedNotCompleted;
+        private long gatewayChecks;
+        private long failures;
+        private int logged;
+
+        private Pass(OffsetDateTime lookbackStart, OffsetDateTime graceCutoff) {
+            this.lookbackStart = lookbackStart;
+            this.graceCutoff = graceCutoff;
+        }
+
+        private void warn(String format, Object... arguments) {
+            if (logged++ < MAX_LOGGED_DIVERGENCES) {
+                log.warn(format, arguments);
+            }
+        }
+
+        private ReconciliationReport report(OffsetDateTime startedAt) {
+            return new ReconciliationReport(startedAt, Duration.between(startedAt, OffsetDateTime.now()), scanned,
+                    capturesBackfilled, paidOrdersCompleted, amountMismatches, capturedNotCompleted,
+                    gatewayChecks, failures);
+        }
+    }
+}
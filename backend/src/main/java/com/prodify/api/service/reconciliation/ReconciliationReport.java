@@ -0,0 +1,24 @@
+package com.prodify.api.service.reconciliation;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+/**
+ * Bilan d'un passage de {@link PaymentReconciliationJob}.
+ *
+ * @param capturesBackfilled   commandes payées sans encaissement au journal, encaissement ajouté
+ * @param paidOrdersCompleted  commandes PENDING ou CANCELLED payées chez le prestataire (webhook perdu), validées
+ * @param amountMismatches     commandes payées dont l'encaissement diffère du total (signalées, non corrigées)
+ * @param capturedNotCompleted commandes non payées avec un encaissement au journal (signalées, non corrigées)
+ * @param gatewayChecks        sessions de paiement relues chez le prestataire
+ * @param failures             commandes laissées en l'état faute de réponse du prestataire ou sur erreur de correction
+ */
+public record ReconciliationReport(OffsetDateTime startedAt, Duration duration, long ordersScanned,
+                                   long capturesBackfilled, long paidOrdersCompleted,
+                                   long amountMismatches, long capturedNotCompleted,
+                                   long gatewayChecks, long failures) {
+
+    public long divergences() {
+        return capturesBackfilled + paidOrdersCompleted + amountMismatches + capturedNotCompleted;
+    }
+}
@@ -0,0 +1,376 @@
+package com.prodify.api.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index inversé en mémoire avec classement BM25F sur quatre champs pondérés.
+ *
+ * Les documents reçoivent un identifiant interne croissant ; une mise à jour supprime
+ * l'ancien document et en ajoute un nouveau. Les postings des documents supprimés
+ * sont purgés par compaction dès qu'ils représentent une part significative de l'index.
+ *
+ * Pour chaque terme de la requête : correspondance exacte, sinon termes proches via
+ * {@link TrigramIndex} ; le dernier terme est aussi traité comme un préfixe (saisie en cours).
+ */
+public class FullTextIndex {
+
+    enum Field {
+        TITLE(3.0f),
+        PRODUCER(2.0f),
+        TAGS(1.5f),
+        DESCRIPTION(1.0f);
+
+        final float weight;
+
+        Field(float weight) {
+            this.weight = weight;
+        }
+    }
+
+    private static final Field[] FIELDS = Field.values();
+    private static final int FIELD_COUNT = FIELDS.length;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // Au-delà, une description n'apporte plus rien au classement et coûte de la mémoire
+    private static final int MAX_DESCRIPTION_TOKENS = 64;
+    private static final int MAX_QUERY_TOKENS = 8;
+    private static final int MAX_PREFIX_EXPANSIONS = 8;
+    private static final int MAX_FUZZY_EXPANSIONS = 5;
+    private static final int MIN_FUZZY_LENGTH = 3;
+    private static final float PREFIX_WEIGHT = 0.9f;
+    private static final float FUZZY_WEIGHT = 0.8f;
+    private static final int MIN_DELETED_FOR_COMPACTION = 10_000;
+    // Tampons conservés entre deux requêtes : un par cœur suffit, les requêtes en surplus allouent le leur
+    private static final int MAX_POOLED_SCRATCH = Runtime.getRuntime().availableProcessors();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Dictionnaire trié : sert aussi à l'expansion par préfixe
+    private final TreeMap<String, Integer> termIds = new TreeMap<>();
+    private final List<Postings> postings = new ArrayList<>();
+    private final TrigramIndex trigrams = new TrigramIndex();
+
+    private final Map<UUID, Integer> docIds = new HashMap<>();
+    private UUID[] docTracks = new UUID[1024];
+    private int[] fieldLengths = new int[1024 * FIELD_COUNT];
+    private final BitSet live = new BitSet();
+    private int maxDoc = 0;
+    private int liveDocs = 0;
+    private int deletedDocs = 0;
+    private final long[] totalFieldLengths = new long[FIELD_COUNT];
+
+    private final BlockingQueue<Scratch> scratchPool = new ArrayBlockingQueue<>(MAX_POOLED_SCRATCH);
+
+    // --- ÉCRITURE ---
+
+    public void index(SearchDocument document) {
+        Map<String, int[]> termFrequencies = new HashMap<>();
+        int[] lengths = new int[FIELD_COUNT];
+        collect(termFrequencies, lengths, Field.TITLE, Tokenizer.tokenize(document.title()));
+        collect(termFrequencies, lengths, Field.PRODUCER, Tokenizer.tokenize(document.producerName()));
+        collect(termFrequencies, lengths, Field.TAGS, tags(document));
+        collect(termFrequencies, lengths, Field.DESCRIPTION,
+                Tokenizer.tokenize(document.description(), MAX_DESCRIPTION_TOKENS));
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(document.trackId());
+
+            int doc = maxDoc++;
+            ensureCapacity(doc);
+            docTracks[doc] = document.trackId();
+            docIds.put(document.trackId(), doc);
+            live.set(doc);
+            liveDocs++;
+            for (int f = 0; f < FIELD_COUNT; f++) {
+                fieldLengths[doc * FIELD_COUNT + f] = lengths[f];
+                totalFieldLengths[f] += lengths[f];
+            }
+
+            for (Map.Entry<String, int[]> entry : termFrequencies.entrySet()) {
+                postings.get(termId(entry.getKey())).add(doc, pack(entry.getValue()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID trackId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(trackId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- LECTURE ---
+
+    /**
+     * @return au plus {@code limit} résultats, du plus pertinent au moins pertinent
+     */
+    public List<SearchHit> search(String query, int limit) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(Tokenizer.tokenize(query, MAX_QUERY_TOKENS)));
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Scratch pooled = scratchPool.poll();
+        Scratch s = pooled != null ? pooled : new Scratch();
+        lock.readLock().lock();
+        try {
+            s.ensureCapacity(maxDoc);
+            float[] averageLengths = averageFieldLengths();
+
+            for (int t = 0; t < tokens.size(); t++) {
+                boolean lastToken = t == tokens.size() - 1;
+                for (Map.Entry<Integer, Float> expansion : expand(tokens.get(t), lastToken).entrySet()) {
+                    accumulate(s, postings.get(expansion.getKey()), expansion.getValue(), 1 << t, averageLengths);
+                }
+            }
+
+            return topHits(s, tokens.size(), limit);
+        } finally {
+            s.reset();
+            lock.readLock().unlock();
+            scratchPool.offer(s);
+        }
+    }
+
+    // --- INTERNE ---
+
+    private void collect(Map<String, int[]> termFrequencies, int[] lengths, Field field, List<String> tokens) {
+        lengths[field.ordinal()] = tokens.size();
+        for (String token : tokens) {
+            termFrequencies.computeIfAbsent(token, k -> new int[FIELD_COUNT])[field.ordinal()]++;
+        }
+    }
+
+    // Genre, mood et BPM sont indexés comme du texte : "dark drill 140" doit trouver un beat Drill/Dark à 140 BPM
+    private static List<String> tags(SearchDocument document) {
+        List<String> tags = new ArrayList<>();
+        tags.addAll(Tokenizer.tokenize(document.genre()));
+        tags.addAll(Tokenizer.tokenize(document.mood()));
+        if (document.bpm() != null) {
+            tags.add(document.bpm().toString());
+        }
+        return tags;
+    }
+
+    private int termId(String term) {
+        Integer id = termIds.get(term);
+        if (id == null) {
+            id = postings.size();
+            termIds.put(term, id);
+            postings.add(new Postings());
+            trigrams.add(id, term);
+        }
+        return id;
+    }
+
+    private void removeInternal(UUID trackId) {
+        Integer doc = docIds.remove(trackId);
+        if (doc == null) {
+            return;
+        }
+        live.clear(doc);
+        docTracks[doc] = null;
+        liveDocs--;
+        deletedDocs++;
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            totalFieldLengths[f] -= fieldLengths[doc * FIELD_COUNT + f];
+        }
+        if (deletedDocs >= MIN_DELETED_FOR_COMPACTION && deletedDocs > liveDocs / 4) {
+            postings.forEach(p -> p.retain(live));
+            deletedDocs = 0;
+        }
+    }
+
+    private void ensureCapacity(int doc) {
+        if (doc < docTracks.length) {
+            return;
+        }
+        docTracks = Arrays.copyOf(docTracks, docTracks.length * 2);
+        fieldLengths = Arrays.copyOf(fieldLengths, docTracks.length * FIELD_COUNT);
+    }
+
+    private float[] averageFieldLengths() {
+        float[] averages = new float[FIELD_COUNT];
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            averages[f] = liveDocs == 0 ? 1f : Math.max(1f, (float) totalFieldLengths[f] / liveDocs);
+        }
+        return averages;
+    }
+
+    /**
+     * Termes du dictionnaire à interroger pour un mot de la requête, avec leur poids.
+     */
+    private Map<Integer, Float> expand(String token, boolean lastToken) {
+        Map<Integer, Float> expansions = new HashMap<>();
+        Integer exact = termIds.get(token);
+        if (exact != null) {
+            expansions.put(exact, 1f);
+        }
+
+        if (lastToken) {
+            SortedMap<String, Integer> prefixed = termIds.subMap(token, token + Character.MAX_VALUE);
+            int added = 0;
+            for (Integer id : prefixed.values()) {
+                if (added++ >= MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                expansions.putIfAbsent(id, PREFIX_WEIGHT);
+            }
+        }
+
+        // Recherche floue seulement si le mot n'existe pas tel quel : une faute de frappe probable
+        if (exact == null && token.length() >= MIN_FUZZY_LENGTH) {
+            for (TrigramIndex.Match match : trigrams.similar(token, MAX_FUZZY_EXPANSIONS)) {
+                expansions.putIfAbsent(match.termId(), FUZZY_WEIGHT * match.similarity());
+            }
+        }
+        return expansions;
+    }
+
+    private void accumulate(Scratch s, Postings list, float weight, int tokenBit, float[] averageLengths) {
+        // Le df inclut les documents supprimés non encore compactés : approximation acceptable pour l'IDF
+        float idf = (float) Math.log(1 + (liveDocs - list.size + 0.5) / (list.size + 0.5));
+        if (idf <= 0) {
+            idf = 0.01f;
+        }
+        for (int i = 0; i < list.size; i++) {
+            int doc = list.docs[i];
+            if (!live.get(doc)) {
+                continue;
+            }
+            int packed = list.frequencies[i];
+            float tf = 0;
+            for (int f = 0; f < FIELD_COUNT; f++) {
+                int frequency = (packed >>> (f * 8)) & 0xFF;
+                if (frequency == 0) {
+                    continue;
+                }
+                float norm = 1 - B + B * fieldLengths[doc * FIELD_COUNT + f] / averageLengths[f];
+                tf += FIELDS[f].weight * frequency / norm;
+            }
+            float score = weight * idf * tf * (K1 + 1) / (tf + K1);
+            if (s.masks[doc] == 0) {
+                s.touched[s.touchedCount++] = doc;
+            }
+            s.scores[doc] += score;
+            s.masks[doc] |= tokenBit;
+        }
+    }
+
+    private List<SearchHit> topHits(Scratch s, int tokenCount, int limit) {
+        // Tas min de taille "limit" : on ne trie jamais l'ensemble des documents touchés
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(limit + 1, (a, b) -> Float.compare(a.score(), b.score()));
+        for (int i = 0; i < s.touchedCount; i++) {
+            int doc = s.touched[i];
+            // Bonus de coordination : un document qui couvre tous les mots passe devant
+            float coverage = (float) Integer.bitCount(s.masks[doc]) / tokenCount;
+            float score = s.scores[doc] * coverage;
+            if (heap.size() < limit) {
+                heap.add(new Candidate(doc, score));
+            } else if (score > heap.peek().score()) {
+                heap.poll();
+                heap.add(new Candidate(doc, score));
+            }
+        }
+
+        SearchHit[] hits = new SearchHit[heap.size()];
+        for (int i = hits.length - 1; i >= 0; i--) {
+            Candidate candidate = heap.poll();
+            hits[i] = new SearchHit(docTracks[candidate.doc()], candidate.score());
+        }
+        return List.of(hits);
+    }
+
+    private record Candidate(int doc, float score) {
+    }
+
+    // Fréquences des quatre champs sur 8 bits chacune (plafonnées à 255)
+    private static int pack(int[] frequencies) {
+        int packed = 0;
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            packed |= Math.min(frequencies[f], 0xFF) << (f * 8);
+        }
+        return packed;
+    }
+
+    private static final class Postings {
+        private int[] docs = new int[2];
+        private int[] frequencies = new int[2];
+        private int size;
+
+        void add(int doc, int packedFrequencies) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = packedFrequencies;
+            size++;
+        }
+
+        void retain(BitSet live) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (live.get(docs[i])) {
+                    docs[kept] = docs[i];
+                    frequencies[kept] = frequencies[i];
+                    kept++;
+                }
+            }
+            size = kept;
+        }
+    }
+
+    // Tampons réutilisés d'une requête à l'autre (pool borné) pour ne pas allouer un float[maxDoc] à chaque appel
+    private static final class Scratch {
+        private float[] scores = new float[0];
+        private int[] masks = new int[0];
+        private int[] touched = new int[0];
+        private int touchedCount;
+
+        void ensureCapacity(int maxDoc) {
+            if (scores.length < maxDoc) {
+                int capacity = Math.max(maxDoc, scores.length * 2);
+                scores = new float[capacity];
+                masks = new int[capacity];
+                touched = new int[capacity];
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                scores[touched[i]] = 0;
+                masks[touched[i]] = 0;
+            }
+            touchedCount = 0;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.prodify.api.service.search;
+
+import java.util.UUID;
+
+/**
+ * Le texte indexé pour une track. Chargé par projection JPQL au démarrage,
+ * ou construit depuis l'entité lors des écritures.
+ */
+public record SearchDocument(
+        UUID trackId,
+        String title,
+        String description,
+        String producerName,
+        String genre,
+        String mood,
+        Integer bpm
+) {
+}
@@ -0,0 +1,6 @@
+package com.prodify.api.service.search;
+
+import java.util.UUID;
+
+public record SearchHit(UUID trackId, float score) {
+}
@@ -0,0 +1,52 @@
+package com.prodify.api.service.search;
+
+import com.prodify.api.service.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Découpe un texte en termes indexables : accents retirés, minuscules,
+ * séparation sur tout ce qui n'est ni lettre ni chiffre.
+ * "Dark Drill 140 (Prod. Élio)" -> [dark, drill, 140, prod, elio]
+ */
+final class Tokenizer {
+
+    static final int MAX_TOKEN_LENGTH = 32;
+
+    // Mots trop fréquents pour départager deux résultats (FR + EN, les titres mélangent les deux)
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "the", "of", "in", "on", "for", "with",
+            "de", "du", "des", "la", "le", "les", "un", "une", "et", "en", "pour", "avec"
+    );
+
+    private Tokenizer() {
+    }
+
+    static List<String> tokenize(String text) {
+        return tokenize(text, Integer.MAX_VALUE);
+    }
+
+    static List<String> tokenize(String text, int maxTokens) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String folded = TextNormalizer.fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length() && tokens.size() < maxTokens; i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = folded.substring(start, Math.min(i, start + MAX_TOKEN_LENGTH));
+                if (!STOP_WORDS.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
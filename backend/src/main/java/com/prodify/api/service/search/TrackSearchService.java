@@ -0,0 +1,85 @@
+package com.prodify.api.service.search;
+
+import com.prodify.api.event.ProducerChangedEvent;
+import com.prodify.api.event.TrackChangedEvent;
+import com.prodify.api.model.Track;
+import com.prodify.api.repository.TrackRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recherche plein texte et tolérante aux fautes sur le titre, la description
+ * et le nom du producteur. Branche {@link FullTextIndex} sur le cycle de vie des tracks.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TrackSearchService {
+
+    private static final int BOOTSTRAP_CHUNK = 1000;
+
+    private final TrackRepository trackRepository;
+
+    private final FullTextIndex index = new FullTextIndex();
+
+    // Suppressions reçues pendant le chargement initial, pour ne pas réindexer une track déjà supprimée
+    private volatile Set<UUID> deletedDuringBootstrap = null;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        deletedDuringBootstrap = ConcurrentHashMap.newKeySet();
+
+        List<SearchDocument> chunk = trackRepository.findSearchDocumentsFirstChunk(Limit.of(BOOTSTRAP_CHUNK));
+        while (!chunk.isEmpty()) {
+            chunk.stream()
+                    .filter(document -> !deletedDuringBootstrap.contains(document.trackId()))
+                    .forEach(index::index);
+
+            UUID lastId = chunk.get(chunk.size() - 1).trackId();
+            chunk = chunk.size() < BOOTSTRAP_CHUNK
+                    ? List.of()
+                    : trackRepository.findSearchDocumentsAfter(lastId, Limit.of(BOOTSTRAP_CHUNK));
+        }
+
+        deletedDuringBootstrap = null;
+        log.info("Index plein texte chargé : {} tracks en {} ms", index.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Après commit : l'index ne montre jamais une modification annulée par rollback
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTrackChanged(TrackChangedEvent event) {
+        Track track = event.track();
+        if (event.type() == TrackChangedEvent.Type.DELETED) {
+            Set<UUID> tombstones = deletedDuringBootstrap;
+            if (tombstones != null) {
+                tombstones.add(track.getId());
+            }
+            index.remove(track.getId());
+            return;
+        }
+        index.index(new SearchDocument(track.getId(), track.getTitle(), track.getDescription(),
+                track.getProducer() != null ? track.getProducer().getDisplayName() : null,
+                track.getGenre(), track.getMood(), track.getBpm()));
+    }
+
+    // Le nom du producteur est indexé avec chaque track : relu après le commit du renommage
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProducerChanged(ProducerChangedEvent event) {
+        trackRepository.findSearchDocumentsByProducerId(event.producerId()).forEach(index::index);
+    }
+
+    public List<SearchHit> search(String query, int limit) {
+        return index.search(query, limit);
+    }
+}
@@ -0,0 +1,94 @@
+package com.prodify.api.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index trigrammes sur le dictionnaire de termes (pas sur les documents) :
+ * retrouve "metro" quand l'utilisateur tape "mteror". Le dictionnaire est petit
+ * devant le corpus, donc la recherche floue reste bornée quel que soit le nombre de tracks.
+ */
+final class TrigramIndex {
+
+    // Similarité de Dice minimale entre deux ensembles de trigrammes
+    private static final float MIN_SIMILARITY = 0.45f;
+    private static final int MAX_LENGTH_DELTA = 2;
+
+    private final Map<String, TermList> postings = new HashMap<>();
+    private int[] gramCounts = new int[1024];
+    private int[] termLengths = new int[1024];
+
+    record Match(int termId, float similarity) {
+    }
+
+    void add(int termId, String term) {
+        if (termId >= gramCounts.length) {
+            gramCounts = Arrays.copyOf(gramCounts, Math.max(termId + 1, gramCounts.length * 2));
+            termLengths = Arrays.copyOf(termLengths, gramCounts.length);
+        }
+        Set<String> grams = grams(term);
+        gramCounts[termId] = grams.size();
+        termLengths[termId] = term.length();
+        for (String gram : grams) {
+            postings.computeIfAbsent(gram, g -> new TermList()).add(termId);
+        }
+    }
+
+    /**
+     * Termes proches de {@code token}, du plus similaire au moins similaire.
+     */
+    List<Match> similar(String token, int maxResults) {
+        Set<String> grams = grams(token);
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (String gram : grams) {
+            TermList terms = postings.get(gram);
+            if (terms == null) {
+                continue;
+            }
+            for (int i = 0; i < terms.size; i++) {
+                shared.merge(terms.ids[i], 1, Integer::sum);
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : shared.entrySet()) {
+            int termId = entry.getKey();
+            if (Math.abs(termLengths[termId] - token.length()) > MAX_LENGTH_DELTA) {
+                continue;
+            }
+            float similarity = 2f * entry.getValue() / (grams.size() + gramCounts[termId]);
+            if (similarity >= MIN_SIMILARITY) {
+                matches.add(new Match(termId, similarity));
+            }
+        }
+        matches.sort((a, b) -> Float.compare(b.similarity(), a.similarity()));
+        return matches.size() > maxResults ? matches.subList(0, maxResults) : matches;
+    }
+
+    // "drill" -> {"$dr", "dri", "ril", "ill", "ll$"}
+    private static Set<String> grams(String term) {
+        String padded = "$" + term + "$";
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private static final class TermList {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int termId) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = termId;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.prodify.api.service.webhook;
+
+import com.prodify.api.service.OrderService;
+import com.prodify.api.service.ledger.PaymentLedgerService;
+import com.prodify.api.service.payment.PaymentCallGuard;
+import com.prodify.api.service.payment.PaymentGateway;
+import com.stripe.exception.EventDataObjectDeserializationException;
+import com.stripe.model.Charge;
+import com.stripe.model.Dispute;
+import com.stripe.model.Event;
+import com.stripe.model.StripeObject;
+import com.stripe.model.checkout.Session;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Applique un événement Stripe sorti de la file (voir {@link WebhookInboxService}).
+ * Une exception fait réessayer l'événement plus tard.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StripeEventHandler {
+
+    private final OrderService orderService;
+    private final PaymentLedgerService paymentLedgerService;
+    private final PaymentGateway paymentGateway;
+    private final PaymentCallGuard paymentCallGuard;
+
+    /**
+     * Avant la transaction de {@link #handle}, qui n'appelle jamais le prestataire : commande payée avant
+     * l'enregistrement des PaymentIntent, retrouvée par sa session Checkout. Un appel par commande antérieure,
+     * au premier remboursement ou litige ; aucun ensuite.
+     *
+     * @return la commande à rattacher au PaymentIntent de l'événement, null s'il est déjà connu ou sans objet
+     */
+    public UUID findUnlinkedOrder(Event event) {
+        String paymentIntentId = switch (event.getType()) {
+            case "charge.refunded" -> dataObject(event, Charge.class).getPaymentIntent();
+            case "charge.dispute.created" -> dataObject(event, Dispute.class).getPaymentIntent();
+            case "charge.dispute.closed" -> {
+                Dispute dispute = dataObject(event, Dispute.class);
+                yield "won".equals(dispute.getStatus()) ? dispute.getPaymentIntent() : null;
+            }
+            default -> null;
+        };
+        if (paymentIntentId == null || paymentLedgerService.hasOrderForPaymentIntent(paymentIntentId)) {
+            return null;
+        }
+        // Exception : l'événement sera réessayé
+        return paymentCallGuard.call(() -> paymentGateway.findOrderIdByPaymentIntent(paymentIntentId))
+                .orElseThrow(() -> new RuntimeException("Aucune session de paiement pour le PaymentIntent " + paymentIntentId));
+    }
+
+    /**
+     * @param unlinkedOrderId résultat de {@link #findUnlinkedOrder} pour cet événement
+     */
+    public void handle(Event event, UUID unlinkedOrderId) {
+        switch (event.getType()) {
+            case "checkout.session.completed":
+                handleCheckoutSessionCompleted(event);
+                break;
+
+            case "checkout.session.expired": {
+                // Paiement abandonné : la commande est annulée, ses exclusives redeviennent disponibles
+                Session session = dataObject(event, Session.class);
+                orderService.expireOrder(orderIdOf(session), session.getId());
+                break;
+            }
+
+            case "charge.refunded": {
+                // Remboursement (total ou partiel) : journal des paiements, tracks remboursées retirées de la bibliothèque
+                Charge charge = dataObject(event, Charge.class);
+                linkPaymentIntent(unlinkedOrderId, charge.getPaymentIntent());
+                paymentLedgerService.recordRefund(charge.getPaymentIntent(), charge.getId(),
+                        charge.getAmountRefunded(), occurredAt(event));
+                break;
+            }
+
+            case "charge.dispute.created": {
+                Dispute dispute = dataObject(event, Dispute.class);
+                linkPaymentIntent(unlinkedOrderId, dispute.getPaymentIntent());
+                paymentLedgerService.recordDispute(dispute.getPaymentIntent(), dispute.getId(),
+                        dispute.getAmount(), occurredAt(event));
+                break;
+            }
+
+            case "charge.dispute.closed": {
+                // Litige perdu : les fonds sont déjà sortis à l'ouverture, rien à ajouter
+                Dispute dispute = dataObject(event, Dispute.class);
+                if ("won".equals(dispute.getStatus())) {
+                    linkPaymentIntent(unlinkedOrderId, dispute.getPaymentIntent());
+                    paymentLedgerService.recordDisputeWon(dispute.getPaymentIntent(), dispute.getId(), occurredAt(event));
+                }
+                break;
+            }
+
+            default:
+                log.info("Événement ignoré : {}", event.getType());
+        }
+    }
+
+    /**
+     * Traite l'événement "checkout.session.completed" de Stripe.
+     * Cet événement est déclenché quand un client a complété le paiement avec succès.
+     */
+    private void handleCheckoutSessionCompleted(Event event) {
+        Session session = dataObject(event, Session.class);
+        UUID orderId = orderIdOf(session);
+
+        // Valider la commande (passer le statut à COMPLETED)
+        log.info("Validation de la commande : {}", orderId);
+        orderService.validateOrder(orderId);
+        // Même transaction : l'encaissement est au journal si et seulement si la commande est payée
+        paymentLedgerService.recordCapture(orderId, session.getPaymentIntent(), session.getId(), occurredAt(event));
+        log.info("Commande validée avec succès : {}", orderId);
+    }
+
+    // Un PaymentIntent encore inconnu à ce stade fait échouer l'écriture au journal : l'événement sera réessayé
+    private void linkPaymentIntent(UUID unlinkedOrderId, String paymentIntentId) {
+        if (unlinkedOrderId != null && paymentIntentId != null) {
+            paymentLedgerService.linkPaymentIntent(unlinkedOrderId, paymentIntentId);
+        }
+    }
+
+    // Objet Stripe porté par l'événement (Session, Charge, Dispute)
+    private <T extends StripeObject> T dataObject(Event event, Class<T> type) {
+        // 1. Extraire l'objet depuis l'événement avec fallback pour les mismatch de version
+        var dataObjectDeserializer = event.getDataObjectDeserializer();
+        var stripeObject = dataObjectDeserializer.getObject()
+                .orElseGet(() -> {
+                    log.debug("getObject() vide, fallback sur deserializeUnsafe()");
+                    try {
+                        return dataObjectDeserializer.deserializeUnsafe();
+                    } catch (EventDataObjectDeserializationException e) {
+                        log.error("Erreur lors de la désérialisation : {}", e.getMessage());
+                        throw new RuntimeException("Impossible de désérialiser l'objet Stripe", e);
+                    }
+                });
+
+        // 2. Vérifier le type de l'objet
+        if (!type.isInstance(stripeObject)) {
+            log.error("L'objet Stripe n'est pas un(e) {} : {}", type.getSimpleName(), stripeObject.getClass().getName());
+            throw new RuntimeException("Objet Stripe invalide : attendu " + type.getSimpleName());
+        }
+        return type.cast(stripeObject);
+    }
+
+    // Order ID porté par une Session Stripe (clientReferenceId)
+    private UUID orderIdOf(Session session) {
+        // 3. Récupérer le clientReferenceId (qui est l'Order ID)
+        String clientReferenceId = session.getClientReferenceId();
+        if (clientReferenceId == null || clientReferenceId.isEmpty()) {
+            log.error("clientReferenceId manquant dans la Session Stripe");
+            throw new RuntimeException("clientReferenceId manquant");
+        }
+
+        // 4. Convertir le clientReferenceId en UUID
+        try {
+            return UUID.fromString(clientReferenceId);
+        } catch (IllegalArgumentException e) {
+            log.error("clientReferenceId invalide : {}", clientReferenceId);
+            throw new RuntimeException("clientReferenceId invalide");
+        }
+    }
+
+    private static OffsetDateTime occurredAt(Event event) {
+        return event.getCreated() != null
+                ? OffsetDateTime.ofInstant(Instant.ofEpochSecond(event.getCreated()), ZoneOffset.UTC)
+                : OffsetDateTime.now();
+    }
+}
@@ -0,0 +1,81 @@
+package com.prodify.api.service.webhook;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.prodify.api.repository.ProcessedWebhookEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+/**
+ * Dédoublonnage des événements Stripe sur leur identifiant.
+ *
+ * - À la réception : un identifiant déjà vu (cache mémoire des identifiants récents, puis
+ *   processed_webhook_events) n'est pas remis en file. Un doublon ne coûte donc ni ligne dans
+ *   la file ni lecture de commande.
+ * - Au traitement : l'identifiant est inséré dans processed_webhook_events dans la transaction qui
+ *   applique l'événement. C'est ce qui garantit l'application unique, y compris pour deux copies
+ *   reçues en même temps ou par deux instances.
+ *
+ * Les identifiants sont gardés {@code prodify.webhooks.dedupe-retention}, bien au-delà des 3 jours
+ * pendant lesquels Stripe relivre un événement.
+ */
+@Slf4j
+@Component
+public class WebhookDeduplicator {
+
+    private final ProcessedWebhookEventRepository processedRepository;
+    private final Duration retention;
+    // Identifiants reçus ou traités récemment par cette instance
+    private final Cache<String, Boolean> recentEventIds;
+
+    public WebhookDeduplicator(ProcessedWebhookEventRepository processedRepository,
+                               @Value("${prodify.webhooks.dedupe-retention:30d}") Duration retention,
+                               @Value("${prodify.webhooks.dedupe-cache-size:10000}") long cacheSize) {
+        this.processedRepository = processedRepository;
+        this.retention = retention;
+        this.recentEventIds = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(retention)
+                .build();
+    }
+
+    /**
+     * Vrai si l'événement a déjà été reçu par cette instance ou déjà appliqué. Sinon il est retenu comme reçu :
+     * les copies arrivées en même temps sur cette instance sont écartées sans requête.
+     * Si sa mise en file échoue ensuite, appeler {@link #forget}.
+     */
+    public boolean isDuplicate(String eventId) {
+        if (recentEventIds.asMap().putIfAbsent(eventId, Boolean.TRUE) != null) {
+            return true;
+        }
+        return processedRepository.existsById(eventId);
+    }
+
+    // Mise en file échouée, ou événement abandonné : une nouvelle livraison doit pouvoir être traitée
+    public void forget(String eventId) {
+        recentEventIds.invalidate(eventId);
+    }
+
+    /**
+     * À appeler dans la transaction qui applique l'événement.
+     *
+     * @return false si l'événement a déjà été appliqué (il ne faut pas l'appliquer à nouveau)
+     */
+    public boolean markProcessed(String eventId, String type) {
+        recentEventIds.put(eventId, Boolean.TRUE);
+        return processedRepository.markProcessed(eventId, type, OffsetDateTime.now()) == 1;
+    }
+
+    @Scheduled(cron = "${prodify.webhooks.dedupe-purge-cron:0 45 4 * * *}")
+    public void purgeExpired() {
+        int purged = processedRepository.deleteProcessedBefore(OffsetDateTime.now().minus(retention));
+        if (purged > 0) {
+            log.info("{} identifiants d'événements Stripe purgés", purged);
+        }
+    }
+}
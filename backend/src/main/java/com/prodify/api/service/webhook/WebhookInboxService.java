@@ -0,0 +1,289 @@
+package com.prodify.api.service.webhook;
+
+import com.prodify.api.model.WebhookDeadLetter;
+import com.prodify.api.model.WebhookInboxEvent;
+import com.prodify.api.repository.WebhookDeadLetterRepository;
+import com.prodify.api.repository.WebhookInboxRepository;
+import com.stripe.model.Event;
+import com.stripe.model.StripeObject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * File d'entrée des webhooks Stripe.
+ *
+ * Le contrôleur enregistre l'événement vérifié ({@link #enqueue}) et répond 200 aussitôt ; le traitement
+ * (validation de commande...) se fait ensuite sur des threads virtuels, au plus {@code prodify.webhooks.workers}
+ * à la fois. Un événement en échec est réessayé avec un délai doublé à chaque fois, puis déplacé dans
+ * webhook_dead_letters après {@code prodify.webhooks.max-attempts} tentatives.
+ *
+ * La file est en base : elle survit aux redémarrages et se partage entre instances. Chaque instance la relève
+ * toutes les {@code prodify.webhooks.poll-interval}, et immédiatement quand elle reçoit un événement
+ * ou qu'un de ses workers se libère.
+ *
+ * Un événement reçu plusieurs fois n'est appliqué qu'une fois (voir {@link WebhookDeduplicator}).
+ *
+ * Métriques : prodify.webhooks.inbox.depth, prodify.webhooks.dead-letters, prodify.webhooks.workers.busy,
+ * prodify.webhooks.processing (durée du traitement, par issue), prodify.webhooks.lag (réception → traitement),
+ * prodify.webhooks.duplicates.
+ */
+@Slf4j
+@Service
+public class WebhookInboxService {
+
+    static final Duration FIRST_RETRY_DELAY = Duration.ofSeconds(10);
+    static final Duration MAX_RETRY_DELAY = Duration.ofHours(1);
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final WebhookInboxRepository inboxRepository;
+    private final WebhookDeadLetterRepository deadLetterRepository;
+    private final StripeEventHandler eventHandler;
+    private final WebhookDeduplicator deduplicator;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final Duration lease;
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("webhook-", 0).factory());
+    private final Semaphore freeWorkers;
+    // Demandes de relève en attente : un seul thread relève la file, les demandes reçues entre-temps le font reboucler
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    private final Timer processedTimer;
+    private final Timer retriedTimer;
+    private final Timer deadLetteredTimer;
+    private final Timer lagTimer;
+    private final Counter duplicates;
+
+    public WebhookInboxService(WebhookInboxRepository inboxRepository, WebhookDeadLetterRepository deadLetterRepository,
+                               StripeEventHandler eventHandler, WebhookDeduplicator deduplicator,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${prodify.webhooks.workers:8}") int workers,
+                               @Value("${prodify.webhooks.max-attempts:10}") int maxAttempts,
+                               @Value("${prodify.webhooks.lease:5m}") Duration lease) {
+        this.inboxRepository = inboxRepository;
+        this.deadLetterRepository = deadLetterRepository;
+        this.eventHandler = eventHandler;
+        this.deduplicator = deduplicator;
+        this.transactionTemplate = transactionTemplate;
+        this.maxAttempts = maxAttempts;
+        this.lease = lease;
+        this.freeWorkers = new Semaphore(workers);
+
+        Gauge.builder("prodify.webhooks.inbox.depth", inboxRepository, WebhookInboxRepository::count)
+                .description("Événements Stripe reçus et pas encore traités")
+                .register(meterRegistry);
+        Gauge.builder("prodify.webhooks.dead-letters", deadLetterRepository, WebhookDeadLetterRepository::count)
+                .description("Événements Stripe abandonnés")
+                .register(meterRegistry);
+        Gauge.builder("prodify.webhooks.workers.busy", freeWorkers, free -> workers - free.availablePermits())
+                .description("Workers de webhooks occupés sur cette instance")
+                .register(meterRegistry);
+        this.processedTimer = processingTimer("success", meterRegistry);
+        this.retriedTimer = processingTimer("retry", meterRegistry);
+        this.deadLetteredTimer = processingTimer("dead_letter", meterRegistry);
+        this.lagTimer = Timer.builder("prodify.webhooks.lag")
+                .description("Délai entre la réception d'un événement Stripe et son traitement réussi")
+                .register(meterRegistry);
+        this.duplicates = Counter.builder("prodify.webhooks.duplicates")
+                .description("Événements Stripe reçus plusieurs fois, ignorés")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Enregistre un événement dont la signature a été vérifiée. Une exception ici doit faire répondre
+     * une erreur à Stripe, qui renverra l'événement.
+     */
+    public void enqueue(Event event, String payload) {
+        if (deduplicator.isDuplicate(event.getId())) {
+            log.info("Webhook {} ({}) déjà reçu : ignoré", event.getId(), event.getType());
+            duplicates.increment();
+            return;
+        }
+        OffsetDateTime now = OffsetDateTime.now();
+        try {
+            inboxRepository.save(WebhookInboxEvent.builder()
+                    .eventId(event.getId())
+                    .type(event.getType())
+                    .payload(payload)
+                    .attempts(0)
+                    .nextAttemptAt(now)
+                    .receivedAt(now)
+                    .build());
+        } catch (RuntimeException e) {
+            // Stripe renverra l'événement : il ne doit pas être pris pour un doublon
+            deduplicator.forget(event.getId());
+            throw e;
+        }
+        requestDrain();
+    }
+
+    // Filet de sécurité : nouvelles tentatives arrivées à échéance, événements reçus par une autre instance
+    @Scheduled(fixedDelayString = "${prodify.webhooks.poll-interval:1s}")
+    public void poll() {
+        requestDrain();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        // Un événement interrompu sera repris à la fin de son bail
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Arrêt : des webhooks sont encore en cours de traitement");
+        }
+    }
+
+    private void requestDrain() {
+        if (drainRequests.getAndIncrement() == 0) {
+            try {
+                executor.execute(this::drainLoop);
+            } catch (RejectedExecutionException e) {
+                // Arrêt en cours
+                drainRequests.set(0);
+            }
+        }
+    }
+
+    private void drainLoop() {
+        int served;
+        do {
+            served = drainRequests.get();
+            drain();
+        } while (drainRequests.addAndGet(-served) > 0);
+    }
+
+    // Prend autant d'événements dus qu'il y a de workers libres, jusqu'à épuisement de la file
+    private void drain() {
+        try {
+            while (true) {
+                int free = freeWorkers.availablePermits();
+                if (free == 0) {
+                    return;
+                }
+                OffsetDateTime now = OffsetDateTime.now();
+                List<WebhookInboxEvent> claimed = transactionTemplate.execute(status ->
+                        inboxRepository.claimDue(now, now.plus(lease), free));
+                for (WebhookInboxEvent inboxEvent : claimed) {
+                    freeWorkers.acquireUninterruptibly();
+                    executor.execute(() -> {
+                        try {
+                            process(inboxEvent);
+                        } finally {
+                            freeWorkers.release();
+                            requestDrain();
+                        }
+                    });
+                }
+                if (claimed.size() < free) {
+                    return;
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            log.debug("Arrêt : relève des webhooks interrompue");
+        } catch (RuntimeException e) {
+            log.error("Relève des webhooks impossible : {}", e.getMessage());
+        }
+    }
+
+    private void process(WebhookInboxEvent inboxEvent) {
+        long start = System.nanoTime();
+        if (inboxEvent.getAttempts() > maxAttempts) {
+            // Repris après des arrêts successifs en plein traitement : on ne le retente plus
+            deadLetter(inboxEvent, inboxEvent.getLastError());
+            record(deadLetteredTimer, start);
+            return;
+        }
+        try {
+            // Signature déjà vérifiée à la réception ; aucun appel d'API n'est fait depuis l'événement relu
+            Event event = StripeObject.deserializeStripeObject(inboxEvent.getPayload(), Event.class, null);
+            // Appel éventuel au prestataire avant la transaction : ni connexion ni verrou retenus pendant l'attente
+            UUID unlinkedOrderId = eventHandler.findUnlinkedOrder(event);
+            // Effet de l'événement et retrait de la file dans la même transaction
+            transactionTemplate.executeWithoutResult(status -> {
+                if (deduplicator.markProcessed(inboxEvent.getEventId(), inboxEvent.getType())) {
+                    eventHandler.handle(event, unlinkedOrderId);
+                } else {
+                    // Copie reçue avant que la première ne soit appliquée
+                    log.info("Webhook {} ({}) déjà appliqué : ignoré", inboxEvent.getEventId(), inboxEvent.getType());
+                    duplicates.increment();
+                }
+                inboxRepository.deleteProcessed(inboxEvent.getId());
+            });
+            record(processedTimer, start);
+            lagTimer.record(Duration.between(inboxEvent.getReceivedAt(), OffsetDateTime.now()));
+        } catch (RuntimeException e) {
+            String error = truncate(e.getClass().getSimpleName() + ": " + e.getMessage());
+            if (inboxEvent.getAttempts() >= maxAttempts) {
+                log.error("Webhook {} ({}) abandonné après {} tentatives : {}",
+                        inboxEvent.getEventId(), inboxEvent.getType(), inboxEvent.getAttempts(), error);
+                deadLetter(inboxEvent, error);
+                record(deadLetteredTimer, start);
+            } else {
+                Duration delay = retryDelay(inboxEvent.getAttempts());
+                log.warn("Webhook {} ({}) en échec (tentative {}), nouvel essai dans {} : {}",
+                        inboxEvent.getEventId(), inboxEvent.getType(), inboxEvent.getAttempts(), delay, error);
+                inboxRepository.reschedule(inboxEvent.getId(), OffsetDateTime.now().plus(delay), error);
+                record(retriedTimer, start);
+            }
+        }
+    }
+
+    private void deadLetter(WebhookInboxEvent inboxEvent, String error) {
+        deduplicator.forget(inboxEvent.getEventId());
+        transactionTemplate.executeWithoutResult(status -> {
+            deadLetterRepository.save(WebhookDeadLetter.builder()
+                    .id(inboxEvent.getId())
+                    .eventId(inboxEvent.getEventId())
+                    .type(inboxEvent.getType())
+                    .payload(inboxEvent.getPayload())
+                    .attempts(inboxEvent.getAttempts())
+                    .lastError(error)
+                    .receivedAt(inboxEvent.getReceivedAt())
+                    .failedAt(OffsetDateTime.now())
+                    .build());
+            inboxRepository.deleteProcessed(inboxEvent.getId());
+        });
+    }
+
+    private static Timer processingTimer(String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("prodify.webhooks.processing")
+                .description("Durée du traitement d'un événement Stripe")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static void record(Timer timer, long startNanos) {
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // 10 s, 20 s, 40 s... plafonné à une heure
+    static Duration retryDelay(int attempt) {
+        int doublings = Math.min(attempt - 1, 20);
+        Duration delay = FIRST_RETRY_DELAY.multipliedBy(1L << Math.max(0, doublings));
+        return delay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : delay;
+    }
+
+    private static String truncate(String error) {
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,15 @@
+package com.prodify.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Active le cache Spring (Caffeine, configuré dans application.properties).
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String TRACKS_BY_ID = "tracksById";
+    public static final String TRACKS_BY_SLUG = "tracksBySlug";
+}
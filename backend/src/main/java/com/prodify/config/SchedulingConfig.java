@@ -0,0 +1,12 @@
+package com.prodify.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Active les tâches planifiées (@Scheduled), ex : réconciliation des statistiques producteurs.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
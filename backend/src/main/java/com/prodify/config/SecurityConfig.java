@@ -34,6 +34,8 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/health").permitAll()
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasAuthority("ADMIN")
                 .requestMatchers("/error").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/producers", "/api/producers/**").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/tracks", "/api/tracks/**").permitAll()
@@ -65,7 +67,7 @@ public class SecurityConfig {
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
 
         // Autoriser les headers (Surtout Authorization pour le Token !)
-        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type"));
+        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "Idempotency-Key"));
 
         // Autoriser les cookies/auth headers
         configuration.setAllowCredentials(true);
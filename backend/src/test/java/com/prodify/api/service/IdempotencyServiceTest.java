@@ -0,0 +1,217 @@
+package com.prodify.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prodify.api.model.IdempotencyRecord;
+import com.prodify.api.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * La table idempotency_keys est simulée par une Map partagée : chaque requête native y applique
+ * la même condition que son SQL, de façon atomique. Deux IdempotencyService sur la même Map
+ * jouent deux instances (ou une instance avant et après un redémarrage).
+ */
+class IdempotencyServiceTest {
+
+    private static final UUID USER = UUID.randomUUID();
+    private static final String OPERATION = "orders.create";
+
+    private final Map<String, Row> table = new ConcurrentHashMap<>();
+    private final CountDownLatch otherInstancePolled = new CountDownLatch(1);
+    private final IdempotencyRecordRepository repository = fakeRepository();
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @Test
+    void concurrentDuplicatesOnOneInstanceRunTheActionOnce() throws Exception {
+        IdempotencyService service = newInstance();
+        int duplicates = 8;
+        CountDownLatch started = new CountDownLatch(duplicates);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(duplicates);
+        List<Future<Receipt>> results = new ArrayList<>();
+        for (int i = 0; i < duplicates; i++) {
+            results.add(pool.submit(() -> {
+                started.countDown();
+                return service.execute(USER, OPERATION, "key-1", "[track-a]", Receipt.class, () -> {
+                    await(release);
+                    return new Receipt("order-" + executions.incrementAndGet());
+                });
+            }));
+        }
+        started.await(5, TimeUnit.SECONDS);
+        release.countDown();
+
+        for (Future<Receipt> result : results) {
+            assertEquals(new Receipt("order-1"), result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, executions.get());
+        pool.shutdown();
+    }
+
+    @Test
+    void duplicateOnAnotherInstanceWaitsForTheFirstResponse() throws Exception {
+        IdempotencyService first = newInstance();
+        IdempotencyService second = newInstance();
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+
+        // La première instance ne termine qu'une fois que la seconde a trouvé la clé "en cours"
+        Future<Receipt> original = pool.submit(() -> first.execute(USER, OPERATION, "key-2", "[track-a]", Receipt.class,
+                () -> {
+                    await(otherInstancePolled);
+                    return new Receipt("order-" + executions.incrementAndGet());
+                }));
+        waitUntilClaimed("key-2");
+        Receipt duplicate = second.execute(USER, OPERATION, "key-2", "[track-a]", Receipt.class,
+                () -> new Receipt("order-" + executions.incrementAndGet()));
+
+        assertEquals(new Receipt("order-1"), original.get(5, TimeUnit.SECONDS));
+        assertEquals(new Receipt("order-1"), duplicate);
+        assertEquals(1, executions.get());
+        pool.shutdown();
+    }
+
+    @Test
+    void completedResponseIsReplayedAfterARestart() {
+        newInstance().execute(USER, OPERATION, "key-3", "[track-a]", Receipt.class,
+                () -> new Receipt("order-" + executions.incrementAndGet()));
+
+        Receipt replayed = newInstance().execute(USER, OPERATION, "key-3", "[track-a]", Receipt.class,
+                () -> new Receipt("order-" + executions.incrementAndGet()));
+
+        assertEquals(new Receipt("order-1"), replayed);
+        assertEquals(1, executions.get());
+        assertEquals(IdempotencyRecord.Status.COMPLETED, table.get("key-3").status);
+    }
+
+    @Test
+    void keyReusedForAnotherRequestIsRejected() {
+        IdempotencyService service = newInstance();
+        service.execute(USER, OPERATION, "key-4", "[track-a]", Receipt.class, () -> new Receipt("order-1"));
+
+        ResponseStatusException sameInstance = assertThrows(ResponseStatusException.class, () ->
+                service.execute(USER, OPERATION, "key-4", "[track-b]", Receipt.class, () -> new Receipt("order-2")));
+        ResponseStatusException otherInstance = assertThrows(ResponseStatusException.class, () ->
+                newInstance().execute(USER, OPERATION, "key-4", "[track-b]", Receipt.class, () -> new Receipt("order-2")));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, sameInstance.getStatusCode());
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, otherInstance.getStatusCode());
+    }
+
+    @Test
+    void failureReleasesTheKeyForARetry() {
+        IdempotencyService service = newInstance();
+        assertThrows(IllegalStateException.class, () -> service.execute(USER, OPERATION, "key-5", "[track-a]",
+                Receipt.class, () -> {
+                    throw new IllegalStateException("paiement refusé");
+                }));
+        assertTrue(table.isEmpty());
+
+        Receipt retried = service.execute(USER, OPERATION, "key-5", "[track-a]", Receipt.class,
+                () -> new Receipt("order-" + executions.incrementAndGet()));
+        assertEquals(new Receipt("order-1"), retried);
+    }
+
+    @Test
+    void keyAbandonedByAStoppedInstanceIsTakenOver() {
+        OffsetDateTime longAgo = OffsetDateTime.now().minus(IdempotencyService.ABANDONED_AFTER).minusMinutes(1);
+        table.put("key-6", new Row("[track-a]", IdempotencyRecord.Status.IN_PROGRESS, null, longAgo,
+                OffsetDateTime.now().plusHours(1)));
+
+        Receipt result = newInstance().execute(USER, OPERATION, "key-6", "[track-a]", Receipt.class,
+                () -> new Receipt("order-" + executions.incrementAndGet()));
+
+        assertEquals(new Receipt("order-1"), result);
+        assertEquals(IdempotencyRecord.Status.COMPLETED, table.get("key-6").status);
+    }
+
+    private IdempotencyService newInstance() {
+        return new IdempotencyService(repository, new ObjectMapper(), Duration.ofHours(24));
+    }
+
+    private void waitUntilClaimed(String key) throws InterruptedException {
+        for (int i = 0; i < 500 && !table.containsKey(key); i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Une seule paire (utilisateur, opération) dans ces tests : la clé suffit à identifier la ligne
+    private IdempotencyRecordRepository fakeRepository() {
+        IdempotencyRecordRepository fake = mock(IdempotencyRecordRepository.class);
+        when(fake.tryClaim(any(), anyString(), anyString(), anyString(), any())).thenAnswer(invocation -> {
+            Row row = new Row(invocation.getArgument(3), IdempotencyRecord.Status.IN_PROGRESS, null,
+                    OffsetDateTime.now(), invocation.getArgument(4));
+            return table.putIfAbsent(invocation.getArgument(2), row) == null ? 1 : 0;
+        });
+        when(fake.tryTakeOver(any(), anyString(), anyString(), anyString(), any(), any())).thenAnswer(invocation -> {
+            OffsetDateTime abandonedBefore = invocation.getArgument(5);
+            Row taken = new Row(invocation.getArgument(3), IdempotencyRecord.Status.IN_PROGRESS, null,
+                    OffsetDateTime.now(), invocation.getArgument(4));
+            boolean[] updated = {false};
+            table.computeIfPresent(invocation.getArgument(2), (key, row) -> {
+                boolean takeOver = row.expiresAt.isBefore(OffsetDateTime.now())
+                        || (row.status == IdempotencyRecord.Status.IN_PROGRESS && row.createdAt.isBefore(abandonedBefore));
+                updated[0] = takeOver;
+                return takeOver ? taken : row;
+            });
+            return updated[0] ? 1 : 0;
+        });
+        when(fake.findResponse(any(), anyString(), anyString())).thenAnswer(invocation -> {
+            Row row = table.get(invocation.<String>getArgument(2));
+            if (row != null && row.status == IdempotencyRecord.Status.IN_PROGRESS) {
+                otherInstancePolled.countDown();
+            }
+            return Optional.ofNullable(row)
+                    .map(r -> new IdempotentResponse(r.fingerprint, r.status, r.body, r.createdAt, r.expiresAt));
+        });
+        when(fake.complete(any(), anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            Row completed = table.computeIfPresent(invocation.getArgument(2), (key, row) -> new Row(row.fingerprint,
+                    IdempotencyRecord.Status.COMPLETED, invocation.getArgument(3), row.createdAt, row.expiresAt));
+            return completed == null ? 0 : 1;
+        });
+        when(fake.release(any(), anyString(), anyString())).thenAnswer(invocation -> {
+            Row removed = table.computeIfPresent(invocation.getArgument(2),
+                    (key, row) -> row.status == IdempotencyRecord.Status.IN_PROGRESS ? null : row);
+            return removed == null ? 1 : 0;
+        });
+        return fake;
+    }
+
+    private record Row(String fingerprint, IdempotencyRecord.Status status, String body,
+                       OffsetDateTime createdAt, OffsetDateTime expiresAt) {
+    }
+
+    record Receipt(String orderId) {
+    }
+}
@@ -0,0 +1,133 @@
+package com.prodify.api.service;
+
+import com.prodify.api.dto.common.CursorPageResponse;
+import com.prodify.api.dto.track.TrackView;
+import com.prodify.api.event.EntitlementsRevokedEvent;
+import com.prodify.api.model.Entitlement;
+import com.prodify.api.model.Producer;
+import com.prodify.api.model.Role;
+import com.prodify.api.model.Track;
+import com.prodify.api.model.User;
+import com.prodify.api.service.ownership.OwnershipService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bibliothèque paginée (base H2 en mémoire, statistiques Hibernate) : une requête par page,
+ * quel que soit le nombre de tracks possédées.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({LibraryService.class, OwnershipService.class})
+class LibraryServiceTest {
+
+    private static final OffsetDateTime START = OffsetDateTime.parse("2026-01-01T12:00:00Z");
+
+    @Autowired
+    private LibraryService libraryService;
+    @Autowired
+    private OwnershipService ownershipService;
+    @Autowired
+    private EntityManager entityManager;
+
+    private User collector;
+    private final List<UUID> owned = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        collector = persistUser("collector");
+        User other = persistUser("other");
+        for (int p = 0; p < 3; p++) {
+            Producer producer = Producer.builder()
+                    .user(persistUser("producer" + p)).displayName("Producer " + p).slug("producer-" + p).build();
+            entityManager.persist(producer);
+            for (int t = 0; t < 10; t++) {
+                Track track = Track.builder()
+                        .producer(producer).title("Beat " + p + "-" + t).slug("beat-" + p + "-" + t)
+                        .price(new BigDecimal("19.99")).coverImageUrl("c").audioUrl("a").build();
+                entityManager.persist(track);
+                // Achats par lots de 5 tracks à la même date : la pagination doit départager sur l'id
+                OffsetDateTime acquiredAt = START.plusDays(owned.size() / 5);
+                entityManager.persist(new Entitlement(collector.getId(), track.getId(), UUID.randomUUID(), acquiredAt));
+                owned.add(track.getId());
+                if (t % 2 == 0) {
+                    entityManager.persist(new Entitlement(other.getId(), track.getId(), UUID.randomUUID(), acquiredAt));
+                }
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void pagesLibraryWithOneStatementPerPage() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        List<UUID> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            statistics.clear();
+            CursorPageResponse<TrackView> page = libraryService.getPurchasedTracks(collector, cursor, 7);
+            assertEquals(1, statistics.getPrepareStatementCount());
+            assertEquals(0, statistics.getEntityLoadCount());
+            page.getItems().forEach(track -> seen.add(track.id()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(30, seen.size());
+        assertEquals(owned.size(), seen.stream().distinct().count());
+        assertTrue(owned.containsAll(seen));
+        assertEquals(5, pages);
+        // Achats les plus récents d'abord
+        assertTrue(owned.subList(25, 30).contains(seen.get(0)));
+    }
+
+    @Test
+    void rejectsTamperedCursor() {
+        assertThrows(IllegalArgumentException.class, () -> libraryService.getPurchasedTracks(collector, "abc", 10));
+    }
+
+    @Test
+    void downloadLinkIsOnlyGivenToOwners() {
+        UUID trackId = owned.get(0);
+        assertEquals("a", libraryService.getDownloadUrl(collector, trackId));
+
+        User stranger = persistUser("stranger");
+        ResponseStatusException refused = assertThrows(ResponseStatusException.class,
+                () -> libraryService.getDownloadUrl(stranger, trackId));
+        assertEquals(HttpStatus.FORBIDDEN, refused.getStatusCode());
+
+        // Remboursement : le droit est retiré et le cache de cette instance invalidé
+        entityManager.createQuery("delete from Entitlement e where e.userId = :userId and e.trackId = :trackId")
+                .setParameter("userId", collector.getId()).setParameter("trackId", trackId).executeUpdate();
+        ownershipService.onEntitlementsRevoked(new EntitlementsRevokedEvent(UUID.randomUUID(), collector.getId(), List.of(trackId)));
+        assertThrows(ResponseStatusException.class, () -> libraryService.getDownloadUrl(collector, trackId));
+        assertEquals("a", libraryService.getDownloadUrl(collector, owned.get(1)));
+    }
+
+    private User persistUser(String name) {
+        User user = User.builder()
+                .firstName(name).lastName("Test").email(name + "@prodify.test").password("-").role(Role.USER).build();
+        entityManager.persist(user);
+        return user;
+    }
+}
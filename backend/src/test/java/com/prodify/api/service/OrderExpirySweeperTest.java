@@ -0,0 +1,109 @@
+package com.prodify.api.service;
+
+import com.prodify.api.repository.OrderRepository;
+import com.prodify.api.service.inventory.TrackHoldService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Expiration des commandes abandonnées : lots bornés, réservations libérées lot par lot, un seul nœud
+ * à la fois. Le SQL (UPDATE ... FOR UPDATE SKIP LOCKED, verrou consultatif) est propre à PostgreSQL :
+ * le dépôt est simulé, chaque lot tourne dans une vraie transaction.
+ */
+@DataJpaTest
+@Import({OrderExpirySweeper.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderExpirySweeperTest {
+
+    @Autowired
+    private OrderExpirySweeper sweeper;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoBean
+    private OrderRepository orderRepository;
+    @MockitoBean
+    private TrackHoldService trackHoldService;
+
+    @BeforeEach
+    void setUp() {
+        when(orderRepository.tryAdvisoryXactLock(anyLong())).thenReturn(true);
+    }
+
+    @Test
+    void expiresInBatchesUntilAShortBatchAndReleasesEachBatchHolds() {
+        List<UUID> first = ids(OrderExpirySweeper.BATCH_SIZE);
+        List<UUID> second = ids(OrderExpirySweeper.BATCH_SIZE);
+        List<UUID> last = ids(3);
+        when(orderRepository.countStalePending(any())).thenReturn(1003L);
+        when(orderRepository.expireStalePending(any(), anyInt())).thenReturn(first, second, last);
+
+        assertEquals(1003, sweeper.sweepBatches());
+
+        verify(orderRepository, times(3)).expireStalePending(any(), anyInt());
+        verify(trackHoldService).releaseOrders(first);
+        verify(trackHoldService).releaseOrders(second);
+        verify(trackHoldService).releaseOrders(last);
+        assertEquals(1003, meterRegistry.get("prodify.orders.pending.stale").gauge().value());
+    }
+
+    @Test
+    void runIsBoundedToMaxBatches() {
+        when(orderRepository.expireStalePending(any(), anyInt()))
+                .thenAnswer(invocation -> ids(OrderExpirySweeper.BATCH_SIZE));
+
+        int expired = sweeper.sweepBatches();
+
+        assertEquals(OrderExpirySweeper.BATCH_SIZE * OrderExpirySweeper.MAX_BATCHES_PER_RUN, expired);
+        verify(orderRepository, times(OrderExpirySweeper.MAX_BATCHES_PER_RUN)).expireStalePending(any(), anyInt());
+    }
+
+    @Test
+    void nodeWithoutTheLockExpiresNothing() {
+        when(orderRepository.tryAdvisoryXactLock(anyLong())).thenReturn(false);
+
+        assertEquals(0, sweeper.sweepBatches());
+
+        verify(orderRepository, never()).expireStalePending(any(), anyInt());
+        verify(trackHoldService, never()).releaseOrders(any());
+    }
+
+    @Test
+    void sweepIsTimedAndCountsExpiredOrders() {
+        when(orderRepository.expireStalePending(any(), anyInt())).thenReturn(ids(7));
+        // Registre partagé entre les tests de la classe : on compare avant et après
+        double expiredBefore = meterRegistry.get("prodify.orders.expired").counter().count();
+        long sweepsBefore = meterRegistry.get("prodify.orders.sweep").timer().count();
+
+        sweeper.sweep();
+
+        assertEquals(expiredBefore + 7, meterRegistry.get("prodify.orders.expired").counter().count());
+        assertEquals(sweepsBefore + 1, meterRegistry.get("prodify.orders.sweep").timer().count());
+    }
+
+    private static List<UUID> ids(int count) {
+        return new ArrayList<>(IntStream.range(0, count).mapToObj(i -> UUID.randomUUID()).toList());
+    }
+}
@@ -0,0 +1,294 @@
+package com.prodify.api.service;
+
+import com.prodify.api.dto.common.CursorPageResponse;
+import com.prodify.api.dto.order.OrderResponse;
+import com.prodify.api.event.OrderCompletedEvent;
+import com.prodify.api.model.Order;
+import com.prodify.api.model.OrderItem;
+import com.prodify.api.model.OrderStatus;
+import com.prodify.api.model.Producer;
+import com.prodify.api.model.Role;
+import com.prodify.api.model.Track;
+import com.prodify.api.model.User;
+import com.prodify.api.service.inventory.TrackHoldService;
+import com.prodify.api.service.payment.CheckoutStatus;
+import com.prodify.api.service.payment.PaymentCallGuard;
+import com.prodify.api.service.payment.PaymentGateway;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Nombre de requêtes SQL de la création de commande et de l'historique (base H2 en mémoire, statistiques Hibernate) :
+ * il ne doit dépendre ni de la taille du panier, ni du nombre de commandes.
+ */
+// Verrou de ligne de validateOrder : syntaxe H2 plutôt que celle de PostgreSQL ("for no key update")
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"
+})
+@Import({OrderService.class, PaymentCallGuard.class, SimpleMeterRegistry.class})
+@RecordApplicationEvents
+class OrderServiceTest {
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private ApplicationEvents events;
+
+    // Requêtes natives propres à PostgreSQL, hors du périmètre mesuré (aucune track exclusive ici)
+    @MockitoBean
+    private ProducerStatsService producerStatsService;
+    @MockitoBean
+    private TrackHoldService trackHoldService;
+    @MockitoBean
+    private LibraryService libraryService;
+    @MockitoBean
+    private PaymentGateway paymentGateway;
+
+    private User buyer;
+    private final List<UUID> catalog = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        buyer = persistUser("buyer");
+        // Plusieurs producteurs : un chargement paresseux ferait une requête par producteur
+        for (int p = 0; p < 4; p++) {
+            Producer producer = Producer.builder()
+                    .user(persistUser("producer" + p)).displayName("Producer " + p).slug("producer-" + p).build();
+            entityManager.persist(producer);
+            for (int t = 0; t < 10; t++) {
+                Track track = Track.builder()
+                        .producer(producer).title("Beat " + p + "-" + t).slug("beat-" + p + "-" + t)
+                        .price(new BigDecimal("19.99")).coverImageUrl("c").audioUrl("a").build();
+                entityManager.persist(track);
+                catalog.add(track.getId());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void createsOrderWithConstantNumberOfStatements() {
+        long single = statementsFor(catalog.subList(0, 1));
+        long cart = statementsFor(catalog.subList(0, 20));
+        long fullCatalog = statementsFor(catalog);
+
+        // 1 SELECT des tracks + 1 INSERT de la commande + 1 INSERT groupé des items
+        assertEquals(3, single);
+        assertEquals(single, cart);
+        assertEquals(single, fullCatalog);
+    }
+
+    @Test
+    void pagesOrderHistoryWithTwoStatementsPerPage() {
+        for (int i = 0; i < 30; i++) {
+            orderService.createOrder(buyer, catalog.subList(i, i + 3));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        Set<UUID> seen = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            statistics.clear();
+            CursorPageResponse<OrderResponse> page = orderService.getOrderHistory(buyer, null, cursor, 8);
+            // En-têtes de la page + toutes leurs lignes
+            assertEquals(2, statistics.getPrepareStatementCount());
+            page.getItems().forEach(order -> {
+                assertTrue(seen.add(order.getId()));
+                assertEquals(3, order.getItems().size());
+            });
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(30, seen.size());
+        assertEquals(4, pages);
+        assertTrue(orderService.getOrderHistory(buyer, OrderStatus.COMPLETED, null, 8).getItems().isEmpty());
+    }
+
+    @Test
+    void keepsPriceSnapshotAndCartOrder() {
+        List<UUID> cart = List.of(catalog.get(15), catalog.get(3), catalog.get(27));
+        OrderResponse order = orderService.createOrder(buyer, cart);
+
+        assertEquals(cart, order.getItems().stream().map(item -> item.getTrackId()).toList());
+        assertEquals(new BigDecimal("59.97"), order.getTotalAmount());
+    }
+
+    @Test
+    void rejectsAllUnknownIdsAtOnce() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> orderService.createOrder(buyer, List.of(catalog.get(0), first, second)));
+        assertTrue(error.getMessage().contains(first.toString()));
+        assertTrue(error.getMessage().contains(second.toString()));
+    }
+
+    @Test
+    void exclusiveSoldTwiceIsFlaggedForRefund() {
+        UUID exclusiveId = catalog.get(0);
+        Track exclusive = entityManager.find(Track.class, exclusiveId);
+        exclusive.setExclusive(true);
+        entityManager.flush();
+        UUID late = orderService.createOrder(buyer, List.of(exclusiveId, catalog.get(1))).getId();
+        // Un autre acheteur a payé pendant que la réservation de cette commande avait expiré
+        entityManager.find(Track.class, exclusiveId).setSold(true);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Droits accordés après le marquage : la requête de la bibliothèque voit déjà la ligne à rembourser
+        List<OffsetDateTime> flaggedAtGrant = new ArrayList<>();
+        doAnswer(invocation -> flaggedAtGrant.add(entityManager.createQuery(
+                "select i.doubleSoldAt from OrderItem i where i.order.id = :orderId and i.track.id = :trackId",
+                OffsetDateTime.class).setParameter("orderId", late).setParameter("trackId", exclusiveId).getSingleResult()))
+                .when(libraryService).grantOrder(late);
+
+        orderService.validateOrder(late);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(1, flaggedAtGrant.size());
+        assertNotNull(flaggedAtGrant.get(0));
+        // Seule la track effectivement vendue à cet acheteur compte comme achat
+        assertEquals(List.of(List.of(catalog.get(1))),
+                events.stream(OrderCompletedEvent.class).map(OrderCompletedEvent::trackIds).toList());
+        Order order = entityManager.find(Order.class, late);
+        assertEquals(OrderStatus.COMPLETED, order.getStatus());
+        for (OrderItem item : order.getItems()) {
+            if (item.getTrack().getId().equals(exclusiveId)) {
+                assertEquals(order.getCompletedAt().toInstant(), item.getDoubleSoldAt().toInstant());
+            } else {
+                assertNull(item.getDoubleSoldAt());
+            }
+        }
+    }
+
+    @Test
+    void cancelledOrderPaidLateKeepsOnlyTheExclusivesItGetsBack() {
+        UUID regained = catalog.get(0);
+        UUID taken = catalog.get(1);
+        entityManager.find(Track.class, regained).setExclusive(true);
+        entityManager.find(Track.class, taken).setExclusive(true);
+        entityManager.flush();
+        UUID orderId = orderService.createOrder(buyer, List.of(regained, taken, catalog.get(2))).getId();
+        orderService.cancelOrder(buyer, orderId);
+        entityManager.flush();
+        entityManager.clear();
+        // Pendant l'annulation, un autre acheteur a réservé l'une des deux exclusives
+        when(trackHoldService.reacquire(eq(orderId), anyList())).thenReturn(List.of(taken));
+
+        orderService.validateOrder(orderId);
+        entityManager.flush();
+        entityManager.clear();
+
+        verify(trackHoldService).reacquire(eq(orderId),
+                argThat(trackIds -> Set.copyOf(trackIds).equals(Set.of(regained, taken))));
+        assertTrue(entityManager.find(Track.class, regained).isSold());
+        assertFalse(entityManager.find(Track.class, taken).isSold());
+        for (OrderItem item : entityManager.find(Order.class, orderId).getItems()) {
+            assertEquals(item.getTrack().getId().equals(taken), item.getDoubleSoldAt() != null);
+        }
+        assertEquals(List.of(Set.of(regained, catalog.get(2))), events.stream(OrderCompletedEvent.class)
+                .map(event -> Set.copyOf(event.trackIds())).toList());
+    }
+
+    @Test
+    void cancellationClosesTheOpenCheckoutSession() {
+        UUID withSession = orderService.createOrder(buyer, catalog.subList(0, 2)).getId();
+        Order order = entityManager.find(Order.class, withSession);
+        order.setCheckoutSessionId("cs_open");
+        order.setCheckoutExpiresAt(OffsetDateTime.now().plusMinutes(20));
+        UUID withoutSession = orderService.createOrder(buyer, catalog.subList(2, 4)).getId();
+        entityManager.flush();
+        entityManager.clear();
+        when(paymentGateway.expireCheckoutSession("cs_open")).thenReturn(new CheckoutStatus("cs_open", false, null));
+
+        orderService.cancelOrder(buyer, withSession);
+        orderService.cancelOrder(buyer, withoutSession);
+        entityManager.flush();
+        entityManager.clear();
+
+        // L'acheteur ne peut plus payer la commande annulée
+        verify(paymentGateway).expireCheckoutSession("cs_open");
+        verifyNoMoreInteractions(paymentGateway);
+        assertEquals(OrderStatus.CANCELLED, entityManager.find(Order.class, withSession).getStatus());
+        assertEquals(OrderStatus.CANCELLED, entityManager.find(Order.class, withoutSession).getStatus());
+    }
+
+    @Test
+    void expiryOfAReplacedSessionKeepsTheOrder() {
+        UUID orderId = orderService.createOrder(buyer, catalog.subList(0, 2)).getId();
+        entityManager.find(Order.class, orderId).setCheckoutSessionId("cs_current");
+        entityManager.flush();
+        entityManager.clear();
+
+        // Webhook de la session remplacée : la session en cours est toujours payable
+        orderService.expireOrder(orderId, "cs_replaced");
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(OrderStatus.PENDING, entityManager.find(Order.class, orderId).getStatus());
+
+        orderService.expireOrder(orderId, "cs_current");
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(OrderStatus.CANCELLED, entityManager.find(Order.class, orderId).getStatus());
+    }
+
+    private long statementsFor(List<UUID> trackIds) {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        orderService.createOrder(buyer, trackIds);
+        entityManager.flush();
+        long statements = statistics.getPrepareStatementCount();
+        assertEquals(trackIds.size() + 1, statistics.getEntityInsertCount());
+        entityManager.clear();
+        return statements;
+    }
+
+    private User persistUser(String name) {
+        User user = User.builder()
+                .firstName(name).lastName("Test").email(name + "@prodify.test").password("-").role(Role.USER).build();
+        entityManager.persist(user);
+        return user;
+    }
+}
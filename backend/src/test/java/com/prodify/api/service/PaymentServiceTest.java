@@ -0,0 +1,222 @@
+package com.prodify.api.service;
+
+import com.prodify.api.model.Order;
+import com.prodify.api.model.OrderItem;
+import com.prodify.api.model.Producer;
+import com.prodify.api.model.Role;
+import com.prodify.api.model.Track;
+import com.prodify.api.model.User;
+import com.prodify.api.repository.OrderRepository;
+import com.prodify.api.repository.ProducerRepository;
+import com.prodify.api.repository.TrackRepository;
+import com.prodify.api.repository.UserRepository;
+import com.prodify.api.service.inventory.TrackHoldService;
+import com.prodify.api.service.payment.CheckoutRequest;
+import com.prodify.api.service.payment.CheckoutSession;
+import com.prodify.api.service.payment.CheckoutStatus;
+import com.prodify.api.service.payment.PaymentCallGuard;
+import com.prodify.api.service.payment.PaymentGateway;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Une commande PENDING n'a qu'une session de paiement ouverte : les clics répétés ou simultanés
+ * la réutilisent au lieu d'en recréer une chez Stripe (base H2 en mémoire, transactions réelles).
+ */
+// Verrou de ligne : syntaxe H2 plutôt que celle de PostgreSQL ("for no key update")
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({PaymentService.class, PaymentCallGuard.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentServiceTest {
+
+    @Autowired
+    private PaymentService paymentService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProducerRepository producerRepository;
+    @Autowired
+    private TrackRepository trackRepository;
+
+    @MockitoBean
+    private PaymentGateway paymentGateway;
+    @MockitoSpyBean
+    private PaymentCallGuard paymentCallGuard;
+    // Requêtes natives propres à PostgreSQL (aucune track exclusive ici)
+    @MockitoBean
+    private TrackHoldService trackHoldService;
+
+    private UUID orderId;
+    // Une transaction ouverte pendant un appel au prestataire : connexion JDBC et verrou de ligne retenus
+    private final AtomicBoolean transactionDuringGatewayCall = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() {
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        User buyer = user("buyer-" + tag);
+        Producer producer = producerRepository.save(Producer.builder()
+                .user(user("producer-" + tag)).displayName("Producer " + tag).slug("producer-" + tag).build());
+        Track track = trackRepository.save(Track.builder()
+                .producer(producer).title("Beat").slug("beat-" + tag)
+                .price(new BigDecimal("19.99")).coverImageUrl("c").audioUrl("a").build());
+
+        Order order = Order.builder().user(buyer).totalAmount(track.getPrice()).build();
+        order.getItems().add(OrderItem.builder().order(order).track(track).price(track.getPrice()).build());
+        orderId = orderRepository.save(order).getId();
+
+        // Un aller-retour lent chez le prestataire, une session différente à chaque appel
+        when(paymentGateway.createCheckoutSession(any())).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            CheckoutRequest request = invocation.getArgument(0);
+            String id = "cs_test_" + UUID.randomUUID();
+            return new CheckoutSession(id, "https://checkout.test/" + id, request.expiresAt());
+        });
+        when(paymentGateway.expireCheckoutSession(anyString()))
+                .thenAnswer(invocation -> new CheckoutStatus(invocation.getArgument(0), false, null));
+        // Le garde exécute l'appel sur son propre thread : l'état est relevé sur le thread appelant, qui attend la réponse
+        doAnswer(invocation -> {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                transactionDuringGatewayCall.set(true);
+            }
+            return invocation.callRealMethod();
+        }).when(paymentCallGuard).call(any());
+    }
+
+    @Test
+    void gatewayIsCalledOutsideAnyTransaction() {
+        paymentService.createCheckoutSession(orderId);
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        order.setCheckoutExpiresAt(OffsetDateTime.now().plusMinutes(2));
+        orderRepository.save(order);
+
+        // Création, puis fermeture de la session remplacée et nouvelle création
+        paymentService.createCheckoutSession(orderId);
+
+        verify(paymentGateway, times(2)).createCheckoutSession(any());
+        verify(paymentGateway).expireCheckoutSession(anyString());
+        assertFalse(transactionDuringGatewayCall.get());
+    }
+
+    @Test
+    void repeatedClicksReuseTheOpenSession() {
+        CheckoutSession first = paymentService.createCheckoutSession(orderId);
+        CheckoutSession second = paymentService.createCheckoutSession(orderId);
+
+        assertEquals(first.id(), second.id());
+        assertEquals(first.url(), second.url());
+        verify(paymentGateway, times(1)).createCheckoutSession(any());
+        assertEquals(first.id(), orderRepository.findById(orderId).orElseThrow().getCheckoutSessionId());
+    }
+
+    @Test
+    void concurrentClicksShareOneCreation() throws Exception {
+        int clicks = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(clicks);
+        List<Future<CheckoutSession>> sessions = new ArrayList<>();
+        for (int i = 0; i < clicks; i++) {
+            sessions.add(pool.submit(() -> {
+                start.await();
+                return paymentService.createCheckoutSession(orderId);
+            }));
+        }
+        start.countDown();
+
+        CheckoutSession expected = sessions.get(0).get();
+        for (Future<CheckoutSession> session : sessions) {
+            assertEquals(expected.id(), session.get().id());
+        }
+        pool.shutdown();
+        verify(paymentGateway, times(1)).createCheckoutSession(any());
+    }
+
+    @Test
+    void sessionAboutToExpireIsReplaced() {
+        CheckoutSession first = paymentService.createCheckoutSession(orderId);
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        order.setCheckoutExpiresAt(OffsetDateTime.now().plusMinutes(2));
+        orderRepository.save(order);
+
+        CheckoutSession second = paymentService.createCheckoutSession(orderId);
+
+        assertNotEquals(first.id(), second.id());
+        verify(paymentGateway, times(2)).createCheckoutSession(any());
+        // Fermée avant d'ouvrir la suivante : l'acheteur ne peut pas payer les deux
+        verify(paymentGateway).expireCheckoutSession(first.id());
+        Order replaced = orderRepository.findById(orderId).orElseThrow();
+        assertEquals(second.id(), replaced.getCheckoutSessionId());
+        assertEquals(first.id(), replaced.getPreviousCheckoutSessionId());
+    }
+
+    @Test
+    void sessionPaidBeforeItsReplacementIsKept() {
+        CheckoutSession first = paymentService.createCheckoutSession(orderId);
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        order.setCheckoutExpiresAt(OffsetDateTime.now().plusMinutes(2));
+        orderRepository.save(order);
+        // Payée pendant que le webhook est encore en route
+        when(paymentGateway.expireCheckoutSession(first.id())).thenReturn(new CheckoutStatus(first.id(), true, "pi_test"));
+
+        ResponseStatusException conflict = assertThrows(ResponseStatusException.class,
+                () -> paymentService.createCheckoutSession(orderId));
+
+        assertEquals(HttpStatus.CONFLICT, conflict.getStatusCode());
+        verify(paymentGateway, times(1)).createCheckoutSession(any());
+        assertEquals(first.id(), orderRepository.findById(orderId).orElseThrow().getCheckoutSessionId());
+    }
+
+    @Test
+    void expiredSessionIsNotClosedAgain() {
+        CheckoutSession first = paymentService.createCheckoutSession(orderId);
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        order.setCheckoutExpiresAt(OffsetDateTime.now().minusMinutes(1));
+        orderRepository.save(order);
+
+        paymentService.createCheckoutSession(orderId);
+
+        verify(paymentGateway, never()).expireCheckoutSession(anyString());
+        assertNull(orderRepository.findById(orderId).orElseThrow().getPreviousCheckoutSessionId());
+    }
+
+    private User user(String name) {
+        return userRepository.save(User.builder()
+                .firstName("Test").lastName("Payment").email(name + "@prodify.test").password("-").role(Role.USER).build());
+    }
+}
@@ -0,0 +1,87 @@
+package com.prodify.api.service;
+
+import com.prodify.api.dto.producer.ProducerRequest;
+import com.prodify.api.model.Role;
+import com.prodify.api.model.SlugScope;
+import com.prodify.api.model.User;
+import com.prodify.api.repository.ProducerRepository;
+import com.prodify.api.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Création d'un profil producteur (base H2 en mémoire, transactions réelles) : slug, profil et statistiques
+ * sont écrits dans une seule transaction, comme pour une track.
+ */
+@DataJpaTest
+@Import(ProducerService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProducerServiceWriteTest {
+
+    @Autowired
+    private ProducerService producerService;
+    @Autowired
+    private ProducerRepository producerRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    // Réservation et upsert natifs PostgreSQL : simulés
+    @MockitoBean
+    private SlugAllocator slugAllocator;
+    @MockitoBean
+    private ProducerStatsService producerStatsService;
+
+    private final List<String> transactions = new ArrayList<>();
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        user = userRepository.save(User.builder()
+                .firstName("Producer").lastName("Test").email("producer-" + tag + "@prodify.test")
+                .password("-").role(Role.USER).build());
+        when(slugAllocator.allocate(eq(SlugScope.PRODUCER), any())).thenAnswer(invocation -> {
+            transactions.add(TransactionSynchronizationManager.getCurrentTransactionName());
+            return "producer-" + tag;
+        });
+    }
+
+    @Test
+    void failedStatsInitRollsBackTheProfileAndItsSlug() {
+        doAnswer(invocation -> {
+            transactions.add(TransactionSynchronizationManager.getCurrentTransactionName());
+            throw new RuntimeException("stats indisponibles");
+        }).when(producerStatsService).initialize(any());
+
+        assertThrows(RuntimeException.class, () -> producerService.createProducerProfile(user, request()));
+
+        assertFalse(producerRepository.existsByUserId(user.getId()));
+        // Slug réservé dans la transaction du profil : annulé avec lui
+        assertEquals(2, transactions.size());
+        assertEquals(ProducerService.class.getName() + ".createProducerProfile", transactions.get(0));
+        assertEquals(transactions.get(0), transactions.get(1));
+    }
+
+    private ProducerRequest request() {
+        return ProducerRequest.builder().displayName("Producer").bio("bio").build();
+    }
+}
@@ -0,0 +1,93 @@
+package com.prodify.api.service;
+
+import com.prodify.api.dto.producer.ProducerStatsResponse;
+import com.prodify.api.model.Producer;
+import com.prodify.api.model.ProducerStats;
+import com.prodify.api.model.Role;
+import com.prodify.api.model.User;
+import com.prodify.api.repository.OrderRepository;
+import com.prodify.api.repository.ProducerStatsRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Statistiques producteurs (base H2 en mémoire) : le chiffre d'affaires n'est servi qu'au producteur
+ * et aux administrateurs, et la réconciliation ne tourne que sur le nœud qui obtient le verrou.
+ */
+@DataJpaTest
+@Import(ProducerStatsService.class)
+class ProducerStatsServiceTest {
+
+    private static final BigDecimal REVENUE = new BigDecimal("1234.50");
+
+    @Autowired
+    private ProducerStatsService producerStatsService;
+    @Autowired
+    private EntityManager entityManager;
+
+    // Requêtes natives propres à PostgreSQL (upserts, verrou consultatif)
+    @MockitoBean
+    private ProducerStatsRepository producerStatsRepository;
+    @MockitoBean
+    private OrderRepository orderRepository;
+
+    private User owner;
+    private UUID producerId;
+
+    @BeforeEach
+    void setUp() {
+        owner = user("owner", Role.USER);
+        Producer producer = Producer.builder().user(owner).displayName("Owner").slug("owner").build();
+        entityManager.persist(producer);
+        producerId = producer.getId();
+        when(producerStatsRepository.findById(producerId)).thenReturn(Optional.of(new ProducerStats(
+                producerId, 3, 7, REVENUE, OffsetDateTime.now())));
+    }
+
+    @Test
+    void revenueIsOnlyShownToTheProducerAndAdmins() {
+        assertEquals(REVENUE, producerStatsService.getStats(producerId, owner).getRevenue());
+        assertEquals(REVENUE, producerStatsService.getStats(producerId, user("admin", Role.ADMIN)).getRevenue());
+
+        ProducerStatsResponse anonymous = producerStatsService.getStats(producerId, null);
+        assertNull(anonymous.getRevenue());
+        assertEquals(3, anonymous.getTrackCount());
+        assertEquals(7, anonymous.getUnitsSold());
+        assertNull(producerStatsService.getStats(producerId, user("other", Role.USER)).getRevenue());
+    }
+
+    @Test
+    void reconcileRunsOnlyUnderTheAdvisoryLock() {
+        when(orderRepository.tryAdvisoryXactLock(anyLong())).thenReturn(false);
+        producerStatsService.reconcile();
+        verify(producerStatsRepository, never()).reconcileAll();
+
+        when(orderRepository.tryAdvisoryXactLock(anyLong())).thenReturn(true);
+        producerStatsService.reconcile();
+        verify(producerStatsRepository).reconcileAll();
+    }
+
+    private User user(String name, Role role) {
+        User user = User.builder()
+                .firstName(name).lastName("Test").email(name + "@prodify.test").password("-").role(role).build();
+        entityManager.persist(user);
+        return user;
+    }
+}
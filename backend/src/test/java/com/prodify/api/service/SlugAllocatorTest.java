@@ -0,0 +1,127 @@
+package com.prodify.api.service;
+
+import com.prodify.api.model.SlugScope;
+import com.prodify.api.repository.SlugReservationRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Le registre est simulé par un Set concurrent : add() a la même sémantique
+ * "premier arrivé" que l'INSERT ... ON CONFLICT DO NOTHING de PostgreSQL.
+ */
+class SlugAllocatorTest {
+
+    private final Set<String> registry = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger reservationCalls = new AtomicInteger();
+    private final SlugReservationRepository repository = mock(SlugReservationRepository.class);
+    private final SlugAllocator allocator = new SlugAllocator(repository);
+
+    SlugAllocatorTest() {
+        when(repository.tryReserve(anyString(), anyString())).thenAnswer(invocation -> {
+            reservationCalls.incrementAndGet();
+            String key = invocation.getArgument(0) + ":" + invocation.getArgument(1);
+            return registry.add(key) ? 1 : 0;
+        });
+        when(repository.tryReserveAll(anyString(), anyString())).thenAnswer(invocation -> {
+            reservationCalls.incrementAndGet();
+            String scope = invocation.getArgument(0);
+            String slugs = invocation.getArgument(1);
+            return Arrays.stream(slugs.split(","))
+                    .filter(slug -> registry.add(scope + ":" + slug))
+                    .toList();
+        });
+    }
+
+    @Test
+    void keepsAccentStrippingAndSeparatesWords() {
+        assertEquals("ete-noir", SlugAllocator.toSlug("Été Noir"));
+        assertEquals("dj-yassine", SlugAllocator.toSlug("  DJ Yassine !"));
+        assertEquals("dark-night-29", SlugAllocator.toSlug("Dark_Night   #29"));
+        assertEquals("", SlugAllocator.toSlug(null));
+    }
+
+    @Test
+    void firstAllocationGetsTheBareSlug() {
+        assertEquals("ete-noir", allocator.allocate(SlugScope.TRACK, "Été Noir"));
+        // Les espaces de noms sont indépendants
+        assertEquals("ete-noir", allocator.allocate(SlugScope.PRODUCER, "Été Noir"));
+        assertTrue(allocator.allocate(SlugScope.TRACK, "Été Noir").matches("ete-noir-[a-z0-9]{6}"));
+    }
+
+    @Test
+    void fallsBackToScopeNameWhenTitleHasNoLatinCharacter() {
+        assertEquals("track", allocator.allocate(SlugScope.TRACK, "🔥🔥"));
+    }
+
+    @Test
+    void givesUpAfterBoundedAttempts() {
+        when(repository.tryReserve(anyString(), anyString())).thenReturn(0);
+
+        assertThrows(RuntimeException.class, () -> allocator.allocate(SlugScope.TRACK, "Taken"));
+    }
+
+    @Test
+    void batchAllocationResolvesDuplicatesInFewRoundTrips() {
+        allocator.allocate(SlugScope.TRACK, "Beat 1");
+        List<String> titles = new ArrayList<>(Collections.nCopies(500, "Beat 1"));
+        titles.add("Beat 2");
+        reservationCalls.set(0);
+
+        List<String> slugs = allocator.allocateAll(SlugScope.TRACK, titles);
+
+        assertEquals(titles.size(), new HashSet<>(slugs).size());
+        assertEquals("beat-2", slugs.get(slugs.size() - 1));
+        assertTrue(reservationCalls.get() <= 3, "allers-retours : " + reservationCalls.get());
+    }
+
+    @Test
+    void thousandsOfConcurrentIdenticalTitlesGetDistinctSlugs() throws Exception {
+        int threads = 32;
+        int allocations = 5_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> futures = new ArrayList<>(allocations);
+            for (int i = 0; i < allocations; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return allocator.allocate(SlugScope.TRACK, "Dark Night");
+                }));
+            }
+            start.countDown();
+
+            Set<String> slugs = ConcurrentHashMap.newKeySet();
+            for (Future<String> future : futures) {
+                String slug = future.get(30, TimeUnit.SECONDS);
+                assertTrue(slug.equals("dark-night") || slug.matches("dark-night-[a-z0-9]{6}"), slug);
+                slugs.add(slug);
+            }
+
+            assertEquals(allocations, slugs.size());
+            // Un conflit sur le slug nu puis (presque toujours) un seul essai suffixé
+            assertTrue(reservationCalls.get() < allocations * 2 + 10, "appels : " + reservationCalls.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
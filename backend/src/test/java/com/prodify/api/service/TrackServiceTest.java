@@ -0,0 +1,165 @@
+package com.prodify.api.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.prodify.api.dto.track.TrackSearchResponse;
+import com.prodify.api.dto.track.TrackView;
+import com.prodify.api.event.ProducerChangedEvent;
+import com.prodify.api.model.Producer;
+import com.prodify.api.model.Role;
+import com.prodify.api.model.Track;
+import com.prodify.api.model.User;
+import com.prodify.api.service.ranking.TrackRankingService;
+import com.prodify.api.service.recommendation.SimilarTrackService;
+import com.prodify.api.service.search.TrackSearchService;
+import com.prodify.config.CacheConfig;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Nombre de requêtes SQL de la recherche du catalogue (base H2 en mémoire, statistiques Hibernate) :
+ * la page trouvée par les index en mémoire est chargée en une requête, quelle que soit sa taille.
+ * Et les vues en cache suivent les modifications du producteur ; elles n'exposent que l'extrait d'écoute.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(TrackService.class)
+class TrackServiceTest {
+
+    @Autowired
+    private TrackService trackService;
+    @Autowired
+    private EntityManager entityManager;
+
+    // Index en mémoire : leur réponse est imposée, seul le chargement de la page est mesuré
+    @MockitoBean
+    private CatalogIndexService catalogIndexService;
+    @MockitoBean
+    private TrackSearchService trackSearchService;
+    @MockitoBean
+    private SimilarTrackService similarTrackService;
+    @MockitoBean
+    private TrackRankingService trackRankingService;
+    @MockitoBean
+    private CatalogVersionTracker catalogVersionTracker;
+    @MockitoBean
+    private SlugAllocator slugAllocator;
+    @MockitoBean
+    private ProducerStatsService producerStatsService;
+
+    @TestConfiguration
+    @EnableCaching
+    static class Caching {
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager(CacheConfig.TRACKS_BY_ID, CacheConfig.TRACKS_BY_SLUG);
+        }
+    }
+
+    private final List<UUID> catalog = new ArrayList<>();
+    private final List<Producer> producers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Plusieurs producteurs : un chargement paresseux ferait une requête par producteur
+        for (int p = 0; p < 4; p++) {
+            User user = User.builder()
+                    .firstName("producer" + p).lastName("Test").email("producer" + p + "@prodify.test")
+                    .password("-").role(Role.USER).build();
+            entityManager.persist(user);
+            Producer producer = Producer.builder()
+                    .user(user).displayName("Producer " + p).slug("producer-" + p).build();
+            entityManager.persist(producer);
+            producers.add(producer);
+            for (int t = 0; t < 5; t++) {
+                Track track = Track.builder()
+                        .producer(producer).title("Beat " + p + "-" + t).slug("beat-" + p + "-" + t)
+                        .price(new BigDecimal("19.99")).coverImageUrl("c").audioUrl("a").build();
+                entityManager.persist(track);
+                catalog.add(track.getId());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void searchLoadsThePageInOneQueryInIndexOrder() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        for (int size : new int[]{1, 5, 20}) {
+            List<UUID> page = new ArrayList<>(catalog.subList(0, size));
+            Collections.reverse(page);
+            when(catalogIndexService.search(any())).thenReturn(new CatalogSearchResult(size, page, Map.of(), Map.of()));
+
+            statistics.clear();
+            TrackSearchResponse response = trackService.searchCatalog(
+                    new CatalogQuery(null, null, null, null, null, null, null, 0, size));
+
+            assertEquals(1, statistics.getPrepareStatementCount());
+            assertEquals(page, response.getItems().stream().map(TrackView::id).toList());
+            entityManager.clear();
+        }
+    }
+
+    @Test
+    void publicViewExposesThePreviewButNotTheSoldFile() {
+        UUID trackId = catalog.get(0);
+        entityManager.find(Track.class, trackId).setPreviewUrl("p");
+        entityManager.flush();
+        entityManager.clear();
+
+        // Le fichier vendu ne sort que par le téléchargement de la bibliothèque (LibraryService)
+        JsonNode json = new ObjectMapper().findAndRegisterModules().valueToTree(trackService.getTrackById(trackId));
+        assertEquals("p", json.get("previewUrl").asText());
+        assertFalse(json.has("audioUrl"));
+    }
+
+    @Test
+    void producerChangeEvictsCachedViews() {
+        UUID trackId = catalog.get(0);
+        TrackView before = trackService.getTrackById(trackId);
+        String slug = before.slug();
+        trackService.getTrackBySlug(slug);
+        Producer producer = entityManager.find(Producer.class, producers.get(0).getId());
+        producer.setDisplayName("Renamed");
+        entityManager.flush();
+        // Date telle qu'enregistrée : la base arrondit à la microseconde, elle ne tronque pas
+        entityManager.refresh(producer);
+
+        // Sans événement : le cache sert encore l'ancien nom
+        assertEquals("Producer 0", trackService.getTrackById(trackId).producer().displayName());
+
+        trackService.evictCachedTracksOfProducer(new ProducerChangedEvent(producer.getId()));
+
+        assertEquals("Renamed", trackService.getTrackById(trackId).producer().displayName());
+        assertEquals("Renamed", trackService.getTrackBySlug(slug).producer().displayName());
+        // L'ETag de la page de la track, tiré de la vue, suit le profil du producteur
+        assertNotEquals(before.version().etag(), trackService.getTrackById(trackId).version().etag());
+        assertEquals(producer.getUpdatedAt().toInstant(),
+                trackService.getTrackById(trackId).version().lastModified());
+    }
+}
@@ -0,0 +1,157 @@
+package com.prodify.api.service;
+
+import com.prodify.api.dto.track.TrackRequest;
+import com.prodify.api.event.TrackChangedEvent;
+import com.prodify.api.model.Producer;
+import com.prodify.api.model.Role;
+import com.prodify.api.model.SlugScope;
+import com.prodify.api.model.Track;
+import com.prodify.api.model.User;
+import com.prodify.api.repository.ProducerRepository;
+import com.prodify.api.repository.TrackRepository;
+import com.prodify.api.repository.UserRepository;
+import com.prodify.api.service.ranking.TrackRankingService;
+import com.prodify.api.service.recommendation.SimilarTrackService;
+import com.prodify.api.service.search.TrackSearchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Création et suppression de tracks (base H2 en mémoire, transactions réelles) : la track et le compteur
+ * de son producteur sont écrits dans la même transaction, l'un n'existe jamais sans l'autre.
+ * L'événement de modification y est publié aussi, pour que la version du catalogue change avec les données.
+ */
+@DataJpaTest
+@Import({TrackService.class, TrackServiceWriteTest.TransactionProbe.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TrackServiceWriteTest {
+
+    @Autowired
+    private TrackService trackService;
+    @Autowired
+    private TrackRepository trackRepository;
+    @Autowired
+    private ProducerRepository producerRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private CatalogIndexService catalogIndexService;
+    @MockitoBean
+    private TrackSearchService trackSearchService;
+    @MockitoBean
+    private SimilarTrackService similarTrackService;
+    @MockitoBean
+    private TrackRankingService trackRankingService;
+    @MockitoBean
+    private CatalogVersionTracker catalogVersionTracker;
+    @MockitoBean
+    private SlugAllocator slugAllocator;
+    // Upsert natif PostgreSQL : simulé, et mis en échec à la demande
+    @MockitoBean
+    private ProducerStatsService producerStatsService;
+
+    @Autowired
+    private TransactionProbe transactionProbe;
+
+    // Note, à la publication de chaque TrackChangedEvent, si une transaction était ouverte
+    static class TransactionProbe {
+        final List<TrackChangedEvent.Type> inTransaction = new CopyOnWriteArrayList<>();
+        final List<TrackChangedEvent.Type> outsideTransaction = new CopyOnWriteArrayList<>();
+
+        @EventListener
+        void onTrackChanged(TrackChangedEvent event) {
+            (TransactionSynchronizationManager.isActualTransactionActive() ? inTransaction : outsideTransaction)
+                    .add(event.type());
+        }
+    }
+
+    private String tag;
+    private User user;
+    private Producer producer;
+
+    @BeforeEach
+    void setUp() {
+        tag = UUID.randomUUID().toString().substring(0, 8);
+        user = userRepository.save(User.builder()
+                .firstName("Producer").lastName("Test").email("producer-" + tag + "@prodify.test")
+                .password("-").role(Role.USER).build());
+        producer = producerRepository.save(Producer.builder()
+                .user(user).displayName("Producer " + tag).slug("producer-" + tag).build());
+        when(slugAllocator.allocate(eq(SlugScope.TRACK), any())).thenAnswer(invocation -> "beat-" + UUID.randomUUID());
+    }
+
+    @Test
+    void failedStatsUpdateRollsBackTheCreatedTrack() {
+        doThrow(new RuntimeException("stats indisponibles"))
+                .when(producerStatsService).recordTracks(producer.getId(), 1);
+
+        assertThrows(RuntimeException.class, () -> trackService.createTrack(user, request()));
+
+        assertTrue(trackRepository.findViewsByProducerId(producer.getId()).isEmpty());
+    }
+
+    @Test
+    void failedStatsUpdateKeepsTheTrackThatWasBeingDeleted() {
+        Track track = trackService.createTrack(user, request());
+        verify(producerStatsService).recordTracks(producer.getId(), 1);
+        doThrow(new RuntimeException("stats indisponibles"))
+                .when(producerStatsService).recordTracks(eq(producer.getId()), anyLong());
+
+        assertThrows(RuntimeException.class, () -> trackService.deleteTrack(track.getId(), user));
+
+        assertTrue(trackRepository.existsById(track.getId()));
+    }
+
+    @Test
+    void deleteRemovesTheTrackAndDecrementsTogether() {
+        Track track = trackService.createTrack(user, request());
+
+        trackService.deleteTrack(track.getId(), user);
+
+        assertFalse(trackRepository.existsById(track.getId()));
+        verify(producerStatsService).recordTracks(producer.getId(), -1);
+        assertEquals(0, trackRepository.findViewsByProducerId(producer.getId()).size());
+    }
+
+    @Test
+    void changesArePublishedInsideTheWritingTransaction() {
+        Track track = trackService.createTrack(user, request());
+        trackService.updateTrack(track.getId(), request(), user);
+        trackService.deleteTrack(track.getId(), user);
+
+        // CatalogVersionTracker incrémente la version avant le commit de ces transactions, pas dans une autre
+        assertEquals(List.of(TrackChangedEvent.Type.CREATED, TrackChangedEvent.Type.UPDATED, TrackChangedEvent.Type.DELETED),
+                transactionProbe.inTransaction);
+        assertTrue(transactionProbe.outsideTransaction.isEmpty());
+    }
+
+    private TrackRequest request() {
+        return TrackRequest.builder()
+                .title("Beat " + tag).price(new BigDecimal("19.99")).coverImageUrl("c").audioUrl("a").build();
+    }
+}
@@ -0,0 +1,133 @@
+package com.prodify.api.service.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lecture CSV de l'import : guillemets (RFC 4180), lignes invalides signalées sans interrompre la lecture,
+ * et décodage UTF-8 (accents, BOM, fins de ligne Windows).
+ */
+class CsvTrackRowReaderTest {
+
+    private static final String HEADER = "title,description,price,bpm,genre,mood,coverImageUrl,audioUrl,exclusive\n";
+
+    @Test
+    void quotedFieldsKeepCommasQuotesAndLineBreaks() throws IOException {
+        List<ImportRow> rows = read(HEADER
+                + "\"Night, Drive\",\"Il a dit \"\"go\"\"\nsur deux lignes\",19.99,140,Drill,Dark,c,a,\n"
+                + "Plain,,5,90,Lo-Fi,Chill,c,a,oui\n");
+
+        assertEquals(2, rows.size());
+        ImportRow first = rows.get(0);
+        assertEquals("Night, Drive", first.request().getTitle());
+        assertEquals("Il a dit \"go\"\nsur deux lignes", first.request().getDescription());
+        assertEquals(new BigDecimal("19.99"), first.request().getPrice());
+        assertEquals(140, first.request().getBpm());
+        assertNull(first.request().getExclusive());
+        // Le champ sur deux lignes décale la ligne suivante
+        assertEquals(2, first.line());
+        assertEquals(4, rows.get(1).line());
+        assertNull(rows.get(1).request().getDescription());
+        assertEquals(true, rows.get(1).request().getExclusive());
+    }
+
+    @Test
+    void badRowsAreReportedWithTheirLineAndReadingGoesOn() throws IOException {
+        List<ImportRow> rows = read(HEADER
+                + "A,,abc,140,Drill,Dark,c,a,\n"
+                + "B,,10,fast,Drill,Dark,c,a,\n"
+                + "C,,10,140,Drill,Dark,c,a,maybe\n"
+                + "\n"
+                + "D,,\"12,50\",140,Drill,Dark,c,a,non\n"
+                + "E,,10\n");
+
+        assertEquals(5, rows.size());
+        assertEquals("price : nombre invalide 'abc'", rows.get(0).error());
+        assertEquals(2, rows.get(0).line());
+        assertEquals("bpm : entier invalide 'fast'", rows.get(1).error());
+        assertEquals(3, rows.get(1).line());
+        assertEquals("exclusive : booléen invalide 'maybe'", rows.get(2).error());
+        // Ligne vide ignorée, virgule décimale acceptée
+        assertEquals(6, rows.get(3).line());
+        assertEquals(new BigDecimal("12.50"), rows.get(3).request().getPrice());
+        assertEquals(false, rows.get(3).request().getExclusive());
+        // Ligne tronquée : les colonnes manquantes sont vides, la validation de la requête tranchera
+        assertEquals("E", rows.get(4).request().getTitle());
+        assertNull(rows.get(4).request().getAudioUrl());
+    }
+
+    @Test
+    void decodesUtf8WithBomCrlfAndFlexibleHeaders() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+        bytes.write(("Title,Price,Cover Image URL,audio_url,Preview URL,Unknown\r\n"
+                + "Été Noir – ½,9.99,c,a,p,x\r\n").getBytes(StandardCharsets.UTF_8));
+        // Octet isolé invalide en UTF-8 : remplacé, la ligne reste lisible
+        bytes.write("Broken ".getBytes(StandardCharsets.UTF_8));
+        bytes.write(0xC3);
+        bytes.write(",1,c,a,p,x".getBytes(StandardCharsets.UTF_8));
+
+        List<ImportRow> rows = read(TrackRowReader.open("text/csv", new ByteArrayInputStream(bytes.toByteArray()), new ObjectMapper()));
+
+        assertEquals(2, rows.size());
+        assertEquals("Été Noir – ½", rows.get(0).request().getTitle());
+        assertEquals(new BigDecimal("9.99"), rows.get(0).request().getPrice());
+        assertEquals("c", rows.get(0).request().getCoverImageUrl());
+        assertEquals("a", rows.get(0).request().getAudioUrl());
+        assertEquals("p", rows.get(0).request().getPreviewUrl());
+        assertEquals("Broken �", rows.get(1).request().getTitle());
+    }
+
+    @Test
+    void contentTypeIsMatchedWhateverTheDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+            assertInstanceOf(CsvTrackRowReader.class, open("TEXT/CSV; charset=UTF-8"));
+            assertInstanceOf(NdjsonTrackRowReader.class, open("application/x-ndjson"));
+            assertInstanceOf(NdjsonTrackRowReader.class, open(null));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    void emptyFileHasNoRows() throws IOException {
+        assertTrue(read("").isEmpty());
+        assertTrue(read(HEADER).isEmpty());
+    }
+
+    private static TrackRowReader open(String contentType) {
+        return TrackRowReader.open(contentType, new ByteArrayInputStream(new byte[0]), new ObjectMapper());
+    }
+
+    private static List<ImportRow> read(String csv) throws IOException {
+        return read(TrackRowReader.open(TrackRowReader.CSV,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), new ObjectMapper()));
+    }
+
+    private static List<ImportRow> read(TrackRowReader reader) throws IOException {
+        List<ImportRow> rows = new ArrayList<>();
+        try (reader) {
+            ImportRow row;
+            while ((row = reader.next()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
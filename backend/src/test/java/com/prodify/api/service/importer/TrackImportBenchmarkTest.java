@@ -0,0 +1,86 @@
+package com.prodify.api.service.importer;
+
+import com.prodify.api.dto.track.TrackImportReport;
+import com.prodify.api.model.Producer;
+import com.prodify.api.model.Role;
+import com.prodify.api.model.User;
+import com.prodify.api.repository.ProducerRepository;
+import com.prodify.api.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Débit de l'import en masse sur la base configurée (à lancer sur une base jetable : les tracks restent en place).
+ * Désactivé par défaut : ./mvnw test -Dtest=TrackImportBenchmarkTest -Dprodify.bench=true
+ * (nombre de lignes réglable avec -Dprodify.bench.rows=100000)
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@EnabledIfSystemProperty(named = "prodify.bench", matches = "true")
+class TrackImportBenchmarkTest {
+
+    private static final String[] GENRES = {"Trap", "Drill", "Boombap", "Afro", "Lo-Fi", "Phonk"};
+    private static final String[] MOODS = {"Dark", "Happy", "Aggressive", "Chill", "Sad"};
+
+    @Autowired
+    private TrackImportService trackImportService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProducerRepository producerRepository;
+
+    @Test
+    void reportsRowsPerSecond() throws Exception {
+        int rows = Integer.getInteger("prodify.bench.rows", 100_000);
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        User user = userRepository.save(User.builder()
+                .firstName("Bench").lastName("Import").email("bench-" + tag + "@prodify.test")
+                .password("-").role(Role.USER).build());
+        producerRepository.save(Producer.builder().user(user).displayName("Bench " + tag).slug("bench-" + tag).build());
+
+        long start = System.nanoTime();
+        TrackImportReport report = trackImportService.importTracks(user, TrackRowReader.NDJSON, generatedNdjson(rows));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf(Locale.ROOT, "Import de %d lignes : %.1f s, %.0f lignes/s%n", rows, seconds, rows / seconds);
+        assertEquals(rows, report.getImported());
+        assertEquals(0, report.getFailed());
+    }
+
+    // Fichier généré à la volée : le benchmark ne le garde pas en mémoire non plus
+    private static InputStream generatedNdjson(int rows) {
+        return new InputStream() {
+            private int row = 0;
+            private byte[] line = new byte[0];
+            private int position = 0;
+
+            @Override
+            public int read() {
+                if (position == line.length) {
+                    if (row == rows) {
+                        return -1;
+                    }
+                    line = row(row++).getBytes(StandardCharsets.UTF_8);
+                    position = 0;
+                }
+                return line[position++] & 0xff;
+            }
+        };
+    }
+
+    private static String row(int i) {
+        // Titres répétés tous les 1000 : exerce aussi la résolution des conflits de slugs
+        return String.format(Locale.ROOT,
+                "{\"title\":\"Beat %d\",\"description\":\"Instru importée n°%d\",\"price\":%d.99,\"bpm\":%d,"
+                        + "\"genre\":\"%s\",\"mood\":\"%s\",\"coverImageUrl\":\"/uploads/c%d.jpg\",\"audioUrl\":\"/uploads/a%d.mp3\"}\n",
+                i % 1000, i, 10 + i % 40, 70 + i % 100, GENRES[i % GENRES.length], MOODS[i % MOODS.length], i, i);
+    }
+}
@@ -0,0 +1,107 @@
+package com.prodify.api.service.inventory;
+
+import com.prodify.api.model.Producer;
+import com.prodify.api.model.Role;
+import com.prodify.api.model.Track;
+import com.prodify.api.model.User;
+import com.prodify.api.repository.ProducerRepository;
+import com.prodify.api.repository.TrackRepository;
+import com.prodify.api.repository.UserRepository;
+import com.prodify.api.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vente flash : des milliers d'acheteurs se disputent les quelques exclusives d'un drop.
+ * Chaque exclusive doit être réservée par une seule commande, et les perdants refusés sans attendre.
+ * Désactivé par défaut : ./mvnw test -Dtest=FlashSaleBenchmarkTest -Dprodify.bench=true
+ * (réglable avec -Dprodify.bench.attempts=5000 -Dprodify.bench.threads=64, à lancer sur une base jetable)
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@EnabledIfSystemProperty(named = "prodify.bench", matches = "true")
+class FlashSaleBenchmarkTest {
+
+    private static final int DROP_SIZE = 20;
+    private static final int BUYERS = 200;
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProducerRepository producerRepository;
+    @Autowired
+    private TrackRepository trackRepository;
+
+    @Test
+    void eachExclusiveIsHeldOnce() throws Exception {
+        int attempts = Integer.getInteger("prodify.bench.attempts", 5000);
+        int threads = Integer.getInteger("prodify.bench.threads", 64);
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+
+        Producer producer = producerRepository.save(Producer.builder()
+                .user(user("drop-" + tag)).displayName("Drop " + tag).slug("drop-" + tag).build());
+        List<UUID> drop = new ArrayList<>();
+        for (int i = 0; i < DROP_SIZE; i++) {
+            drop.add(trackRepository.save(Track.builder()
+                    .producer(producer).title("Exclu " + i).slug("exclu-" + tag + "-" + i)
+                    .price(new BigDecimal("299.00")).coverImageUrl("c").audioUrl("a").isExclusive(true).build()).getId());
+        }
+        List<User> buyers = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            buyers.add(user("buyer-" + tag + "-" + i));
+        }
+
+        AtomicInteger won = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < attempts; i++) {
+            User buyer = buyers.get(i % BUYERS);
+            pool.submit(() -> {
+                start.await();
+                UUID target = drop.get(ThreadLocalRandom.current().nextInt(DROP_SIZE));
+                try {
+                    orderService.createOrder(buyer, List.of(target));
+                    won.incrementAndGet();
+                } catch (ResponseStatusException e) {
+                    refused.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.MINUTES));
+        double seconds = (System.nanoTime() - begin) / 1e9;
+
+        System.out.printf(Locale.ROOT, "Vente flash : %d tentatives sur %d exclusives en %.2f s (%.0f commandes/s), %d réservées, %d refusées%n",
+                attempts, DROP_SIZE, seconds, attempts / seconds, won.get(), refused.get());
+        assertEquals(DROP_SIZE, won.get());
+        assertEquals(attempts - DROP_SIZE, refused.get());
+    }
+
+    private User user(String name) {
+        return userRepository.save(User.builder()
+                .firstName("Bench").lastName("Drop").email(name + "@prodify.test").password("-").role(Role.USER).build());
+    }
+}
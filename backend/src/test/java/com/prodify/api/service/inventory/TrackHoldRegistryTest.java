@@ -0,0 +1,106 @@
+package com.prodify.api.service.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrackHoldRegistryTest {
+
+    private static final long NOW = 1_000_000L;
+    private static final long LATER = NOW + 60_000;
+
+    private final TrackHoldRegistry registry = new TrackHoldRegistry();
+
+    @Test
+    void onlyOneOfManyConcurrentBuyersGetsTheDrop() throws Exception {
+        UUID drop = UUID.randomUUID();
+        int buyers = 2000;
+        AtomicInteger winners = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        for (int i = 0; i < buyers; i++) {
+            pool.submit(() -> {
+                start.await();
+                if (registry.tryAcquire(List.of(drop), UUID.randomUUID(), LATER, NOW).isEmpty()) {
+                    winners.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(1, winners.get());
+    }
+
+    @Test
+    void cartIsHeldEntirelyOrNotAtAll() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        assertTrue(registry.tryAcquire(List.of(b), first, LATER, NOW).isEmpty());
+
+        assertEquals(List.of(b), registry.tryAcquire(List.of(a, b), second, LATER, NOW));
+        // "a" n'est pas restée réservée par le panier refusé
+        assertTrue(registry.tryAcquire(List.of(a), first, LATER, NOW).isEmpty());
+    }
+
+    @Test
+    void expiredHoldCanBeTakenOver() {
+        UUID track = UUID.randomUUID();
+        registry.tryAcquire(List.of(track), UUID.randomUUID(), NOW + 10, NOW);
+
+        assertEquals(List.of(track), registry.tryAcquire(List.of(track), UUID.randomUUID(), LATER, NOW + 5));
+        assertTrue(registry.tryAcquire(List.of(track), UUID.randomUUID(), LATER, NOW + 10).isEmpty());
+    }
+
+    @Test
+    void releaseOnlyRemovesTheOwnersHold() {
+        UUID track = UUID.randomUUID();
+        UUID owner = UUID.randomUUID();
+        registry.tryAcquire(List.of(track), owner, LATER, NOW);
+
+        registry.release(List.of(track), UUID.randomUUID());
+        assertEquals(List.of(track), registry.tryAcquire(List.of(track), UUID.randomUUID(), LATER, NOW));
+
+        registry.release(List.of(track), owner);
+        assertTrue(registry.tryAcquire(List.of(track), UUID.randomUUID(), LATER, NOW).isEmpty());
+    }
+
+    @Test
+    void releasingExpiredOrdersFreesAllTheirTracks() {
+        UUID expired = UUID.randomUUID();
+        UUID live = UUID.randomUUID();
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+        registry.tryAcquire(List.of(a, b), expired, LATER, NOW);
+        registry.tryAcquire(List.of(c), live, LATER, NOW);
+
+        registry.releaseOrders(Set.of(expired));
+
+        assertTrue(registry.tryAcquire(List.of(a, b), UUID.randomUUID(), LATER, NOW).isEmpty());
+        assertEquals(List.of(c), registry.tryAcquire(List.of(c), UUID.randomUUID(), LATER, NOW));
+    }
+
+    @Test
+    void purgeDropsOnlyExpiredHolds() {
+        registry.tryAcquire(List.of(UUID.randomUUID()), UUID.randomUUID(), NOW + 10, NOW);
+        registry.tryAcquire(List.of(UUID.randomUUID()), UUID.randomUUID(), LATER, NOW);
+
+        assertEquals(1, registry.purgeExpired(NOW + 10));
+        assertEquals(1, registry.size());
+    }
+}
@@ -0,0 +1,72 @@
+package com.prodify.api.service.inventory;
+
+import com.prodify.api.repository.TrackHoldRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Réservations refusées par la base : la réservation d'une autre instance n'est pas recopiée en mémoire,
+ * la track redevient disponible ici dès que l'autre instance la libère.
+ */
+class TrackHoldServiceTest {
+
+    private final TrackHoldRepository trackHoldRepository = mock(TrackHoldRepository.class);
+    private final TrackHoldService trackHoldService = new TrackHoldService(trackHoldRepository, Duration.ofMinutes(15));
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void holdOfAnotherInstanceIsNotCachedLocally() {
+        UUID drop = UUID.randomUUID();
+        UUID refused = UUID.randomUUID();
+        UUID retried = UUID.randomUUID();
+        // Réservée par une autre instance au premier essai, libérée par elle au second
+        when(trackHoldRepository.tryHold(eq(refused), any(), any())).thenReturn(List.of());
+        when(trackHoldRepository.tryHold(eq(retried), any(), any())).thenReturn(List.of(drop));
+
+        inRolledBackTransaction(() -> {
+            ResponseStatusException conflict = assertThrows(ResponseStatusException.class,
+                    () -> trackHoldService.hold(refused, List.of(drop)));
+            assertEquals(HttpStatus.CONFLICT, conflict.getStatusCode());
+        });
+
+        assertDoesNotThrow(() -> trackHoldService.checkNotHeld(List.of(drop)));
+        assertDoesNotThrow(() -> trackHoldService.hold(retried, List.of(drop)));
+        // Celle-ci a été prise par cette instance : le refus suivant ne coûte plus de requête
+        assertThrows(ResponseStatusException.class, () -> trackHoldService.checkNotHeld(List.of(drop)));
+    }
+
+    // Transaction de la commande simulée : synchronisations enregistrées puis rejouées comme après un rollback
+    private static void inRolledBackTransaction(Runnable body) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            body.run();
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.prodify.api.service.ledger;
+
+import com.prodify.api.model.LedgerEntryType;
+import com.prodify.api.model.Producer;
+import com.prodify.api.model.ProducerBalance;
+import com.prodify.api.model.Role;
+import com.prodify.api.model.Track;
+import com.prodify.api.model.User;
+import com.prodify.api.repository.EntitlementRepository;
+import com.prodify.api.repository.LedgerEntryRepository;
+import com.prodify.api.repository.ProducerBalanceRepository;
+import com.prodify.api.repository.ProducerRepository;
+import com.prodify.api.repository.ProducerStatsRepository;
+import com.prodify.api.repository.TrackRepository;
+import com.prodify.api.repository.UserRepository;
+import com.prodify.api.service.OrderService;
+import com.prodify.api.service.ProducerStatsService;
+import com.prodify.api.service.webhook.StripeEventHandler;
+import com.stripe.model.Event;
+import com.stripe.model.StripeObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Journal des paiements de bout en bout (événements Stripe -> journal, soldes, bibliothèque),
+ * puis débit d'encaissements simultanés sur quelques producteurs très vendus.
+ * Requêtes natives PostgreSQL : désactivé par défaut, à lancer sur une base jetable avec
+ * ./mvnw test -Dtest=PaymentLedgerBenchmarkTest -Dprodify.bench=true
+ * (réglable avec -Dprodify.bench.orders=2000 -Dprodify.bench.threads=16)
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@EnabledIfSystemProperty(named = "prodify.bench", matches = "true")
+class PaymentLedgerBenchmarkTest {
+
+    private static final int PRODUCERS = 10;
+
+    @Autowired
+    private StripeEventHandler eventHandler;
+    @Autowired
+    private PaymentLedgerService paymentLedgerService;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+    @Autowired
+    private ProducerBalanceRepository producerBalanceRepository;
+    @Autowired
+    private EntitlementRepository entitlementRepository;
+    @Autowired
+    private ProducerStatsRepository producerStatsRepository;
+    @Autowired
+    private ProducerStatsService producerStatsService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProducerRepository producerRepository;
+    @Autowired
+    private TrackRepository trackRepository;
+
+    @Test
+    void refundsAndDisputesMoveBalancesAndLibrary() {
+        String tag = tag();
+        Producer alice = producer("alice-" + tag);
+        Producer bob = producer("bob-" + tag);
+        Track a1 = track(alice, "a1-" + tag, "10.00");
+        Track b1 = track(bob, "b1-" + tag, "20.00");
+        Track b2 = track(bob, "b2-" + tag, "30.00");
+
+        User buyer = user("buyer-" + tag);
+        UUID orderId = orderService.createOrder(buyer, List.of(a1.getId(), b1.getId(), b2.getId())).getId();
+        handle(event("checkout.session.completed", """
+                {"id": "cs_%1$s", "object": "checkout.session", "client_reference_id": "%2$s", "payment_intent": "pi_%1$s"}
+                """.formatted(tag, orderId)));
+        assertBalance(alice, "10.00", "10.00", "0.00", "0.00");
+        assertBalance(bob, "50.00", "50.00", "0.00", "0.00");
+
+        // Remboursement du prix exact de b1 : seule b1 quitte la bibliothèque, rejeu sans effet
+        String partialRefund = charge(tag, 6000, 2000);
+        handle(event("charge.refunded", partialRefund));
+        handle(event("charge.refunded", partialRefund));
+        assertBalance(bob, "30.00", "50.00", "-20.00", "0.00");
+        assertRevenue(bob, "30.00");
+        assertEquals(Set.of(a1.getId(), b2.getId()), Set.copyOf(entitlementRepository.findTrackIdsByUserId(buyer.getId())));
+
+        // Remboursement total : le reste de chaque ligne
+        handle(event("charge.refunded", charge(tag, 6000, 6000)));
+        assertBalance(alice, "0.00", "10.00", "-10.00", "0.00");
+        assertBalance(bob, "0.00", "50.00", "-50.00", "0.00");
+        assertRevenue(alice, "0.00");
+        assertRevenue(bob, "0.00");
+        assertTrue(entitlementRepository.findTrackIdsByUserId(buyer.getId()).isEmpty());
+        assertEquals(6, ledgerEntryRepository.findByOrderId(orderId).size());
+        // Le recalcul nocturne retrouve les mêmes chiffres
+        producerStatsService.reconcile();
+        assertRevenue(alice, "0.00");
+        assertRevenue(bob, "0.00");
+
+        // Litige sur une autre commande : fonds retirés puis restitués, l'accès est conservé
+        String other = tag + "b";
+        User second = user("buyer-" + other);
+        UUID secondOrderId = orderService.createOrder(second, List.of(b1.getId())).getId();
+        handle(event("checkout.session.completed", """
+                {"id": "cs_%1$s", "object": "checkout.session", "client_reference_id": "%2$s", "payment_intent": "pi_%1$s"}
+                """.formatted(other, secondOrderId)));
+        handle(event("charge.dispute.created", dispute(other, "needs_response")));
+        assertBalance(bob, "0.00", "70.00", "-50.00", "-20.00");
+        handle(event("charge.dispute.closed", dispute(other, "won")));
+        handle(event("charge.dispute.closed", dispute(other, "won")));
+        assertBalance(bob, "20.00", "70.00", "-50.00", "0.00");
+        assertEquals(List.of(b1.getId()), entitlementRepository.findTrackIdsByUserId(second.getId()));
+    }
+
+    @Test
+    void concurrentCapturesKeepBalancesExact() throws Exception {
+        int orders = Integer.getInteger("prodify.bench.orders", 2000);
+        int threads = Integer.getInteger("prodify.bench.threads", 16);
+        String tag = tag();
+
+        List<Track> catalog = new ArrayList<>();
+        List<Producer> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            Producer producer = producer("hot-" + tag + "-" + p);
+            producers.add(producer);
+            for (int t = 0; t < 5; t++) {
+                catalog.add(track(producer, "hot-" + tag + "-" + p + "-" + t, "9.99"));
+            }
+        }
+        User buyer = user("buyer-" + tag);
+        List<UUID> orderIds = new ArrayList<>();
+        for (int i = 0; i < orders; i++) {
+            // Trois tracks de producteurs différents par commande
+            List<UUID> cart = List.of(catalog.get(i % catalog.size()).getId(),
+                    catalog.get((i + 7) % catalog.size()).getId(), catalog.get((i + 19) % catalog.size()).getId());
+            orderIds.add(orderService.createOrder(buyer, cart).getId());
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < orders; i++) {
+            UUID orderId = orderIds.get(i);
+            String suffix = tag + "_" + i;
+            pool.submit(() -> {
+                start.await();
+                paymentLedgerService.recordCapture(orderId, "pi_" + suffix, "cs_" + suffix, OffsetDateTime.now());
+                return null;
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.MINUTES));
+        double seconds = (System.nanoTime() - begin) / 1e9;
+
+        System.out.printf(Locale.ROOT, "Journal : %d encaissements (%d mouvements) en %.2f s (%.0f événements/s, %.0f mouvements/s), %d threads%n",
+                orders, orders * 3, seconds, orders / seconds, orders * 3 / seconds, threads);
+        BigDecimal total = BigDecimal.ZERO;
+        for (Producer producer : producers) {
+            total = total.add(producerBalanceRepository.findById(producer.getId()).orElseThrow().getCaptured());
+        }
+        assertEquals(new BigDecimal("9.99").multiply(BigDecimal.valueOf(orders * 3L)).setScale(2), total);
+        assertEquals(3, ledgerEntryRepository.findByOrderId(orderIds.get(0)).stream()
+                .filter(entry -> entry.getType() == LedgerEntryType.CAPTURE).count());
+    }
+
+    private void assertBalance(Producer producer, String balance, String captured, String refunded, String disputed) {
+        ProducerBalance actual = producerBalanceRepository.findById(producer.getId()).orElseThrow();
+        assertEquals(new BigDecimal(balance), actual.getBalance().setScale(2));
+        assertEquals(new BigDecimal(captured), actual.getCaptured().setScale(2));
+        assertEquals(new BigDecimal(refunded), actual.getRefunded().setScale(2));
+        assertEquals(new BigDecimal(disputed), actual.getDisputed().setScale(2));
+    }
+
+    private void assertRevenue(Producer producer, String revenue) {
+        assertEquals(new BigDecimal(revenue), producerStatsRepository.findById(producer.getId()).orElseThrow().getRevenue().setScale(2));
+    }
+
+    private static String charge(String tag, long amount, long refunded) {
+        return """
+                {"id": "ch_%1$s", "object": "charge", "amount": %2$d, "amount_refunded": %3$d, "payment_intent": "pi_%1$s"}
+                """.formatted(tag, amount, refunded);
+    }
+
+    private static String dispute(String tag, String status) {
+        return """
+                {"id": "dp_%1$s", "object": "dispute", "amount": 2000, "charge": "ch_%1$s", "payment_intent": "pi_%1$s", "status": "%2$s"}
+                """.formatted(tag, status);
+    }
+
+    // Comme la file des webhooks : recherche chez le prestataire, puis application de l'événement
+    private void handle(Event event) {
+        eventHandler.handle(event, eventHandler.findUnlinkedOrder(event));
+    }
+
+    private static Event event(String type, String object) {
+        String payload = """
+                {"id": "evt_%s", "object": "event", "type": "%s", "created": %d, "data": {"object": %s}}
+                """.formatted(UUID.randomUUID(), type, System.currentTimeMillis() / 1000, object);
+        return StripeObject.deserializeStripeObject(payload, Event.class, null);
+    }
+
+    private static String tag() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private Producer producer(String name) {
+        return producerRepository.save(Producer.builder().user(user(name)).displayName(name).slug(name).build());
+    }
+
+    private Track track(Producer producer, String slug, String price) {
+        return trackRepository.save(Track.builder()
+                .producer(producer).title(slug).slug(slug)
+                .price(new BigDecimal(price)).coverImageUrl("c").audioUrl("a").build());
+    }
+
+    private User user(String name) {
+        return userRepository.save(User.builder()
+                .firstName("Bench").lastName("Ledger").email(name + "@prodify.test").password("-").role(Role.USER).build());
+    }
+}
@@ -0,0 +1,190 @@
+package com.prodify.api.service.ledger;
+
+import com.prodify.api.event.EntitlementsRevokedEvent;
+import com.prodify.api.model.LedgerEntry;
+import com.prodify.api.model.LedgerEntryType;
+import com.prodify.api.model.Order;
+import com.prodify.api.model.OrderItem;
+import com.prodify.api.model.OrderStatus;
+import com.prodify.api.model.Producer;
+import com.prodify.api.model.Role;
+import com.prodify.api.model.Track;
+import com.prodify.api.model.User;
+import com.prodify.api.repository.EntitlementRepository;
+import com.prodify.api.repository.LedgerEntryRepository;
+import com.prodify.api.repository.ProducerBalanceRepository;
+import com.prodify.api.service.ProducerStatsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Remboursements au journal (base H2 en mémoire) : Stripe envoie le total remboursé, un rejeu n'ajoute rien,
+ * un remboursement partiel puis total ne rend chaque ligne qu'une fois, et seules les lignes remboursées
+ * en totalité quittent la bibliothèque. Soldes, statistiques et bibliothèque (requêtes PostgreSQL) sont simulés.
+ */
+// Verrou de ligne : syntaxe H2 plutôt que celle de PostgreSQL ("for no key update")
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({PaymentLedgerService.class, SimpleMeterRegistry.class})
+@RecordApplicationEvents
+class PaymentLedgerServiceRefundTest {
+
+    private static final String PAYMENT_INTENT = "pi_test";
+    private static final String CHARGE = "ch_test";
+
+    @Autowired
+    private PaymentLedgerService paymentLedgerService;
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private ApplicationEvents events;
+
+    @MockitoBean
+    private ProducerBalanceRepository producerBalanceRepository;
+    @MockitoBean
+    private EntitlementRepository entitlementRepository;
+    @MockitoBean
+    private ProducerStatsService producerStatsService;
+
+    private User buyer;
+    private Producer alice;
+    private Producer bob;
+    private Track a1;
+    private Track b1;
+    private Track b2;
+    private UUID orderId;
+
+    @BeforeEach
+    void setUp() {
+        buyer = user("buyer");
+        alice = producer("alice");
+        bob = producer("bob");
+        a1 = track(alice, "a1", "10.00");
+        b1 = track(bob, "b1", "20.00");
+        b2 = track(bob, "b2", "30.00");
+
+        Order order = Order.builder()
+                .user(buyer).totalAmount(new BigDecimal("60.00")).status(OrderStatus.COMPLETED).build();
+        for (Track track : List.of(a1, b1, b2)) {
+            order.getItems().add(OrderItem.builder().order(order).track(track).price(track.getPrice()).build());
+        }
+        entityManager.persist(order);
+        orderId = order.getId();
+        paymentLedgerService.recordCapture(orderId, PAYMENT_INTENT, "cs_test", OffsetDateTime.now());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void partialThenFullRefundReturnsEachLineOnceAndRevokesRefundedTracks() {
+        // Prix exact de b1 : seule b1 est rendue, et retirée de la bibliothèque ; le rejeu ne change rien
+        refund(2000);
+        refund(2000);
+
+        assertEquals(Map.of(b1.getId(), new BigDecimal("-20.00")), refundsByTrack());
+        assertEquals(Set.of(b1.getId()), refundedTrackIds());
+        verify(entitlementRepository).revoke(buyer.getId(), orderId, List.of(b1.getId()));
+        verify(producerStatsService).recordRefunds(Map.of(bob.getId(), new BigDecimal("-20.00")));
+        assertEquals(List.of(List.of(b1.getId())), revokedEvents());
+        clearInvocations(entitlementRepository, producerStatsService);
+
+        // Remboursement total : le reste de chaque ligne, rien de plus sur b1
+        refund(6000);
+        refund(6000);
+
+        assertEquals(Map.of(a1.getId(), new BigDecimal("-10.00"), b1.getId(), new BigDecimal("-20.00"),
+                b2.getId(), new BigDecimal("-30.00")), refundsByTrack());
+        assertEquals(Set.of(a1.getId(), b1.getId(), b2.getId()), refundedTrackIds());
+        verify(entitlementRepository).revoke(eq(buyer.getId()), eq(orderId),
+                argThat(trackIds -> Set.copyOf(trackIds).equals(Set.of(a1.getId(), b2.getId()))));
+        verify(producerStatsService).recordRefunds(Map.of(
+                alice.getId(), new BigDecimal("-10.00"), bob.getId(), new BigDecimal("-30.00")));
+        assertEquals(2, revokedEvents().size());
+        assertEquals(3, ledgerEntryRepository.findByOrderId(orderId).stream()
+                .filter(entry -> entry.getType() == LedgerEntryType.REFUND).count());
+    }
+
+    @Test
+    void refundOfAnUnknownPaymentIntentIsRetried() {
+        // Exception : l'événement sera réessayé, rien n'est écrit
+        assertThrows(RuntimeException.class,
+                () -> paymentLedgerService.recordRefund("pi_unknown", CHARGE, 1000, OffsetDateTime.now()));
+
+        assertTrue(refundsByTrack().isEmpty());
+        verify(entitlementRepository, never()).revoke(any(), any(), anyCollection());
+        verify(producerStatsService, never()).recordRefunds(any());
+    }
+
+    private void refund(long amountRefundedCents) {
+        paymentLedgerService.recordRefund(PAYMENT_INTENT, CHARGE, amountRefundedCents, OffsetDateTime.now());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    // Somme des remboursements au journal, par track
+    private Map<UUID, BigDecimal> refundsByTrack() {
+        return ledgerEntryRepository.findByOrderId(orderId).stream()
+                .filter(entry -> entry.getType() == LedgerEntryType.REFUND)
+                .collect(Collectors.toMap(LedgerEntry::getTrackId, LedgerEntry::getAmount, BigDecimal::add));
+    }
+
+    private Set<UUID> refundedTrackIds() {
+        return entityManager.find(Order.class, orderId).getItems().stream()
+                .filter(item -> item.getRefundedAt() != null)
+                .map(item -> item.getTrack().getId())
+                .collect(Collectors.toSet());
+    }
+
+    private List<List<UUID>> revokedEvents() {
+        return events.stream(EntitlementsRevokedEvent.class).map(EntitlementsRevokedEvent::trackIds).toList();
+    }
+
+    private User user(String name) {
+        User user = User.builder()
+                .firstName(name).lastName("Test").email(name + "@prodify.test").password("-").role(Role.USER).build();
+        entityManager.persist(user);
+        return user;
+    }
+
+    private Producer producer(String name) {
+        Producer producer = Producer.builder().user(user(name)).displayName(name).slug(name).build();
+        entityManager.persist(producer);
+        return producer;
+    }
+
+    private Track track(Producer producer, String slug, String price) {
+        Track track = Track.builder()
+                .producer(producer).title(slug).slug(slug)
+                .price(new BigDecimal(price)).coverImageUrl("c").audioUrl("a").build();
+        entityManager.persist(track);
+        return track;
+    }
+}
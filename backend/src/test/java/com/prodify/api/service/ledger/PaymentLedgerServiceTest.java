@@ -0,0 +1,45 @@
+package com.prodify.api.service.ledger;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PaymentLedgerServiceTest {
+
+    private final UUID first = UUID.randomUUID();
+    private final UUID second = UUID.randomUUID();
+    private final UUID third = UUID.randomUUID();
+
+    @Test
+    void refundOfOneTrackPriceGoesToThatTrack() {
+        Map<UUID, Long> allocation = PaymentLedgerService.allocate(remaining(1000, 2000, 3000), 2000);
+
+        assertEquals(Map.of(second, 2000L), allocation);
+    }
+
+    @Test
+    void otherAmountsFillLinesInOrder() {
+        Map<UUID, Long> allocation = PaymentLedgerService.allocate(remaining(1000, 2000, 3000), 2500);
+
+        assertEquals(Map.of(first, 1000L, second, 1500L), allocation);
+    }
+
+    @Test
+    void neverAllocatesMoreThanWhatRemains() {
+        Map<UUID, Long> allocation = PaymentLedgerService.allocate(remaining(1000, 0, 500), 5000);
+
+        assertEquals(Map.of(first, 1000L, third, 500L), allocation);
+    }
+
+    private Map<UUID, Long> remaining(long a, long b, long c) {
+        Map<UUID, Long> remaining = new LinkedHashMap<>();
+        remaining.put(first, a);
+        remaining.put(second, b);
+        remaining.put(third, c);
+        return remaining;
+    }
+}
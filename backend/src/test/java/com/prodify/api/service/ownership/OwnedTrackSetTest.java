@@ -0,0 +1,49 @@
+package com.prodify.api.service.ownership;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OwnedTrackSetTest {
+
+    @Test
+    void answersExactlyForOwnedAndUnownedTracks() {
+        List<UUID> owned = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            owned.add(UUID.randomUUID());
+        }
+        OwnedTrackSet set = OwnedTrackSet.of(owned);
+
+        assertEquals(owned.size(), set.size());
+        owned.forEach(trackId -> assertTrue(set.contains(trackId)));
+        for (int i = 0; i < 100_000; i++) {
+            assertFalse(set.contains(UUID.randomUUID()));
+        }
+    }
+
+    @Test
+    void ignoresDuplicates() {
+        UUID track = UUID.randomUUID();
+        OwnedTrackSet set = OwnedTrackSet.of(List.of(track, track, track));
+
+        assertEquals(1, set.size());
+        assertTrue(set.contains(track));
+    }
+
+    @Test
+    void handlesEmptyAndNilIds() {
+        UUID nil = new UUID(0, 0);
+        assertFalse(OwnedTrackSet.of(List.of()).contains(nil));
+        assertFalse(OwnedTrackSet.of(List.of()).contains(UUID.randomUUID()));
+
+        OwnedTrackSet set = OwnedTrackSet.of(List.of(nil, UUID.randomUUID()));
+        assertTrue(set.contains(nil));
+        assertEquals(2, set.size());
+    }
+}
@@ -0,0 +1,170 @@
+package com.prodify.api.service.payment;
+
+import com.prodify.api.dto.order.CreateOrderRequest;
+import com.prodify.api.dto.order.OrderResponse;
+import com.prodify.api.dto.payment.PaymentResponse;
+import com.prodify.api.model.Order;
+import com.prodify.api.model.OrderStatus;
+import com.prodify.api.model.Producer;
+import com.prodify.api.model.Role;
+import com.prodify.api.model.Track;
+import com.prodify.api.model.User;
+import com.prodify.api.repository.OrderRepository;
+import com.prodify.api.repository.ProducerRepository;
+import com.prodify.api.repository.TrackRepository;
+import com.prodify.api.repository.UserRepository;
+import com.prodify.api.service.JwtService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tunnel de paiement complet sous charge, contre le simulateur Stripe ({@link LocalPaymentGateway}) :
+ * commande -> session de paiement -> webhook signé -> commande COMPLETED, par HTTP.
+ * Mesure le débit et la latence de bout en bout (création de la commande jusqu'à COMPLETED).
+ * Désactivé par défaut : ./mvnw test -Dtest=CheckoutLoadTest -Dprodify.bench=true
+ * (réglable avec -Dprodify.bench.orders=500 -Dprodify.bench.threads=32, à lancer sur une base jetable)
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        "prodify.payment.gateway=local",
+        "prodify.payment.local.latency=50ms",
+        "prodify.payment.local.pay-after=200ms"
+})
+@EnabledIfSystemProperty(named = "prodify.bench", matches = "true")
+class CheckoutLoadTest {
+
+    private static final int CATALOG_SIZE = 50;
+
+    @Autowired
+    private TestRestTemplate rest;
+    @Autowired
+    private JwtService jwtService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProducerRepository producerRepository;
+    @Autowired
+    private TrackRepository trackRepository;
+
+    @Test
+    void everyPaidCheckoutCompletesItsOrder() throws Exception {
+        int orders = Integer.getInteger("prodify.bench.orders", 500);
+        int threads = Integer.getInteger("prodify.bench.threads", 32);
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+
+        Producer producer = producerRepository.save(Producer.builder()
+                .user(user("producer-" + tag)).displayName("Checkout " + tag).slug("checkout-" + tag).build());
+        List<UUID> catalog = new ArrayList<>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            catalog.add(trackRepository.save(Track.builder()
+                    .producer(producer).title("Beat " + i).slug("beat-" + tag + "-" + i)
+                    .price(new BigDecimal("29.99")).coverImageUrl("c").audioUrl("a").build()).getId());
+        }
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < orders; i++) {
+            tokens.add(jwtService.generateToken(user("buyer-" + tag + "-" + i)));
+        }
+
+        // Début de chaque parcours, puis durée de l'étape synchrone (commande + session de paiement)
+        Map<UUID, Long> startedAt = new ConcurrentHashMap<>();
+        long[] checkoutLatencies = new long[orders];
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < orders; i++) {
+            int buyer = i;
+            pool.submit(() -> {
+                start.await();
+                long begin = System.nanoTime();
+                UUID orderId = checkout(tokens.get(buyer), catalog.get(buyer % CATALOG_SIZE));
+                checkoutLatencies[buyer] = System.nanoTime() - begin;
+                startedAt.put(orderId, begin);
+                return null;
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+
+        // Le webhook arrive de façon asynchrone : on relève les commandes passées à COMPLETED
+        Map<UUID, Long> completedAt = new HashMap<>();
+        long deadline = begin + TimeUnit.MINUTES.toNanos(10);
+        while (completedAt.size() < orders) {
+            assertTrue(System.nanoTime() < deadline, completedAt.size() + "/" + orders + " commandes payées");
+            List<UUID> waiting = startedAt.keySet().stream().filter(id -> !completedAt.containsKey(id)).toList();
+            long now = System.nanoTime();
+            for (Order order : orderRepository.findAllById(waiting)) {
+                if (order.getStatus() == OrderStatus.COMPLETED) {
+                    completedAt.put(order.getId(), now);
+                }
+            }
+            Thread.sleep(10);
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+
+        long[] endToEnd = completedAt.entrySet().stream()
+                .mapToLong(entry -> entry.getValue() - startedAt.get(entry.getKey()))
+                .sorted()
+                .toArray();
+        Arrays.sort(checkoutLatencies);
+
+        System.out.printf(Locale.ROOT, "Paiements : %d commandes payées en %.2f s (%.0f commandes/s), %d threads%n",
+                orders, seconds, orders / seconds, threads);
+        System.out.printf(Locale.ROOT, "Commande + session : p50 = %.1f ms | p95 = %.1f ms | p99 = %.1f ms | max = %.1f ms%n",
+                percentile(checkoutLatencies, 0.50), percentile(checkoutLatencies, 0.95),
+                percentile(checkoutLatencies, 0.99), checkoutLatencies[orders - 1] / 1e6);
+        System.out.printf(Locale.ROOT, "Jusqu'à COMPLETED : p50 = %.1f ms | p95 = %.1f ms | p99 = %.1f ms | max = %.1f ms%n",
+                percentile(endToEnd, 0.50), percentile(endToEnd, 0.95),
+                percentile(endToEnd, 0.99), endToEnd[orders - 1] / 1e6);
+        assertEquals(orders, endToEnd.length);
+    }
+
+    private UUID checkout(String token, UUID trackId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+
+        ResponseEntity<OrderResponse> order = rest.postForEntity("/api/orders",
+                new HttpEntity<>(new CreateOrderRequest(List.of(trackId)), headers), OrderResponse.class);
+        assertTrue(order.getStatusCode().is2xxSuccessful(), "commande : " + order.getStatusCode());
+        UUID orderId = order.getBody().getId();
+
+        ResponseEntity<PaymentResponse> payment = rest.postForEntity("/api/payment/checkout/" + orderId,
+                new HttpEntity<>(headers), PaymentResponse.class);
+        assertTrue(payment.getStatusCode().is2xxSuccessful(), "paiement : " + payment.getStatusCode());
+        return orderId;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+
+    private User user(String name) {
+        return userRepository.save(User.builder()
+                .firstName("Bench").lastName("Checkout").email(name + "@prodify.test").password("-").role(Role.USER).build());
+    }
+}
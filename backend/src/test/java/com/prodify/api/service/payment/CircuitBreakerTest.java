@@ -0,0 +1,91 @@
+package com.prodify.api.service.payment;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(10, 5, 0.5, Duration.ofSeconds(30), 2, clock::get);
+
+    @Test
+    void opensOnlyPastTheFailureRateOfTheWindow() {
+        // 4 échecs sur 4 : pas encore assez d'appels pour juger
+        for (int i = 0; i < 4; i++) {
+            call(false);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        // 7 succès : 3 échecs sur les 10 derniers appels
+        for (int i = 0; i < 7; i++) {
+            call(true);
+        }
+        // Les nouveaux échecs chassent d'abord les anciens de la fenêtre : toujours 4 sur 10 au plus
+        for (int i = 0; i < 4; i++) {
+            call(false);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        call(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void halfOpenProbesCloseOrReopenTheBreaker() {
+        trip();
+        clock.addAndGet(Duration.ofSeconds(29).toNanos());
+        assertFalse(breaker.tryAcquire());
+
+        // Après la coupure : deux appels d'essai seulement
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        call(true);
+        call(true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        // Fenêtre remise à zéro : un échec isolé ne la rouvre pas
+        call(false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void abandonedProbeFreesItsSlot() {
+        trip();
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        breaker.onIgnored();
+
+        assertTrue(breaker.tryAcquire());
+    }
+
+    private void trip() {
+        for (int i = 0; i < 5; i++) {
+            call(false);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    private void call(boolean success) {
+        assertTrue(breaker.tryAcquire());
+        if (success) {
+            breaker.onSuccess();
+        } else {
+            breaker.onFailure();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.prodify.api.service.payment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prestataire bloqué ou en panne : l'appelant n'attend jamais plus que le délai, et plus du tout une fois
+ * le disjoncteur ouvert ou la cloison pleine. Appels bloqués par des verrous à décompte, horloge du disjoncteur
+ * avancée à la main ; pannes injectées par le simulateur Stripe ({@link LocalPaymentGateway}).
+ */
+class PaymentCallGuardTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+    private final List<LocalPaymentGateway> gateways = new ArrayList<>();
+    // Libère les appels bloqués en fin de test
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        gateways.forEach(LocalPaymentGateway::shutdown);
+    }
+
+    @Test
+    void slowProviderTimesOutThenFailsFastUntilItRecovers() {
+        PaymentCallGuard guard = guard(10, Duration.ofMillis(50), Duration.ofSeconds(30));
+        PaymentGateway healthy = standIn(0);
+
+        for (int i = 0; i < 4; i++) {
+            // Le prestataire ne répond jamais : seul le délai rend la main
+            assertThrows(PaymentUnavailableException.class, () -> guard.call(blocked(new CountDownLatch(1))));
+        }
+        assertEquals(4, attempts.get());
+        assertEquals(4, meterRegistry.get("prodify.payment.calls").tag("outcome", "timeout").timer().count());
+        assertEquals(CircuitBreaker.State.OPEN, guard.breakerState());
+        assertEquals(1, meterRegistry.get("prodify.payment.breaker.state").tag("state", "open").gauge().value());
+
+        // Disjoncteur ouvert : refus immédiat, le prestataire n'est pas appelé
+        assertThrows(PaymentUnavailableException.class, () -> guard.call(blocked(new CountDownLatch(1))));
+        assertEquals(4, attempts.get());
+        assertEquals(1, meterRegistry.get("prodify.payment.calls.rejected").tag("reason", "breaker").counter().count());
+
+        // Appel d'essai réussi après la coupure : le disjoncteur se referme
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertNotNull(guard.call(() -> healthy.createCheckoutSession(request())));
+        assertEquals(CircuitBreaker.State.CLOSED, guard.breakerState());
+    }
+
+    @Test
+    void failingProviderOpensTheBreaker() {
+        PaymentCallGuard guard = guard(10, Duration.ofSeconds(1), Duration.ofMinutes(1));
+        PaymentGateway failing = standIn(1);
+
+        for (int i = 0; i < 4; i++) {
+            PaymentGatewayException e = assertThrows(PaymentGatewayException.class,
+                    () -> guard.call(() -> failing.createCheckoutSession(request())));
+            assertEquals(PaymentGatewayException.class, e.getClass());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, guard.breakerState());
+        assertThrows(PaymentUnavailableException.class, () -> guard.call(() -> failing.createCheckoutSession(request())));
+    }
+
+    @Test
+    void bulkheadRejectsCallsBeyondItsLimit() throws Exception {
+        PaymentCallGuard guard = guard(2, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        CountDownLatch started = new CountDownLatch(2);
+
+        List<CompletableFuture<String>> running = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            running.add(CompletableFuture.supplyAsync(() -> guard.call(blocked(started))));
+        }
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertEquals(1.0, meterRegistry.get("prodify.payment.bulkhead.saturation").gauge().value());
+
+        // Cloison pleine : refus immédiat, le prestataire n'est pas appelé
+        assertThrows(PaymentUnavailableException.class, () -> guard.call(blocked(new CountDownLatch(1))));
+        assertEquals(2, attempts.get());
+
+        release.countDown();
+        for (CompletableFuture<String> call : running) {
+            assertNotNull(call.get(10, TimeUnit.SECONDS));
+        }
+        // Les refus de la cloison ne disent rien de la santé du prestataire
+        assertEquals(CircuitBreaker.State.CLOSED, guard.breakerState());
+        assertEquals(0.0, meterRegistry.get("prodify.payment.bulkhead.saturation").gauge().value());
+    }
+
+    private PaymentCallGuard guard(int maxConcurrent, Duration timeout, Duration openDuration) {
+        return new PaymentCallGuard(meterRegistry, maxConcurrent, timeout, 4, 4, 0.5, openDuration, 1, clock::get);
+    }
+
+    // Appel qui signale son départ puis attend la fin du test (ou l'interruption du délai dépassé)
+    private Supplier<String> blocked(CountDownLatch started) {
+        return () -> {
+            attempts.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PaymentGatewayException("Appel abandonné", e);
+            }
+            return "cs_test";
+        };
+    }
+
+    // Aucune latence ni webhook pendant le test : le paiement "arrive" bien après sa fin
+    private PaymentGateway standIn(double failureRate) {
+        LocalPaymentGateway gateway = new LocalPaymentGateway(new ObjectMapper(), new MockEnvironment(), "whsec_test",
+                Duration.ZERO, failureRate, Duration.ofHours(1), 0, 0, "");
+        gateways.add(gateway);
+        return gateway;
+    }
+
+    private static CheckoutRequest request() {
+        return new CheckoutRequest(UUID.randomUUID(), "eur", List.of(new CheckoutRequest.Line("Beat", "Instrumentale", 1999)),
+                "http://localhost/success?session_id={CHECKOUT_SESSION_ID}", "http://localhost/cancel",
+                OffsetDateTime.now().plusMinutes(30));
+    }
+}
@@ -0,0 +1,80 @@
+package com.prodify.api.service.ranking;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Classements : meilleures ventes à jour à chaque vente, tendances recalculées au plus toutes les
+ * quelques secondes pendant une rafale de ventes, et au moins une fois par minute pour la décroissance.
+ */
+class SalesRankingTest {
+
+    private final SalesRanking ranking = new SalesRanking();
+    private final Instant now = Instant.now();
+
+    @Test
+    void bestSellersFollowEverySale() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        ranking.recordSale(a, "drill", now, 2);
+        ranking.recordSale(b, "trap", now, 1);
+        assertEquals(List.of(a, b), ranking.bestSellers(SalesRanking.ALL_GENRES, 10));
+
+        ranking.recordSale(b, "trap", now, 2);
+        assertEquals(List.of(b, a), ranking.bestSellers(SalesRanking.ALL_GENRES, 10));
+        assertEquals(List.of(b), ranking.bestSellers("trap", 10));
+    }
+
+    @Test
+    void burstOfSalesDoesNotReRankOnEveryRead() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        ranking.recordSale(a, "drill", now, 1);
+        assertEquals(List.of(a), ranking.trending("drill", 10, now));
+
+        // Chaque vente change la version : le classement servi reste celui d'il y a moins de 5 s
+        for (int i = 1; i <= 3; i++) {
+            ranking.recordSale(b, "drill", now, 1);
+            assertEquals(List.of(a), ranking.trending("drill", 10, now.plusSeconds(i)));
+        }
+
+        Instant later = now.plusMillis(SalesRanking.SALES_REFRESH_MILLIS);
+        assertEquals(List.of(b, a), ranking.trending("drill", 10, later));
+    }
+
+    @Test
+    void quietGenreIsStillRefreshedForDecay() {
+        UUID old = UUID.randomUUID();
+        UUID fresh = UUID.randomUUID();
+        // 2 ventes il y a 100 h (poids 0,5^(100/48) ≈ 0,24 chacune) contre 1 vente récente
+        ranking.recordSale(old, "afro", now.minus(Duration.ofHours(100)), 2);
+        assertEquals(List.of(old), ranking.trending("afro", 10, now));
+
+        ranking.recordSale(fresh, "afro", now, 1);
+        // Sans nouvelle vente, le classement est quand même recalculé passé l'intervalle de rafraîchissement
+        Instant nextMinute = now.plusMillis(SalesRanking.REFRESH_MILLIS + 1);
+        assertEquals(List.of(fresh, old), ranking.trending("afro", 10, nextMinute));
+        assertEquals(List.of(fresh), ranking.trending("afro", 1, nextMinute));
+    }
+
+    @Test
+    void salesFollowGenreChangesAndRemovals() {
+        UUID a = UUID.randomUUID();
+        ranking.recordSale(a, "drill", now, 1);
+        ranking.updateGenre(a, "trap");
+
+        assertEquals(List.of(), ranking.bestSellers("drill", 10));
+        assertEquals(List.of(a), ranking.bestSellers("trap", 10));
+        assertEquals(List.of(a), ranking.trending("trap", 10, now));
+
+        ranking.remove(a);
+        assertEquals(List.of(), ranking.bestSellers(SalesRanking.ALL_GENRES, 10));
+        assertEquals(0, ranking.size());
+    }
+}
@@ -0,0 +1,84 @@
+package com.prodify.api.service.recommendation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Benchmark de l'index "Sons similaires" sur un catalogue synthétique.
+ * Désactivé par défaut : ./mvnw test -Dtest=SimilarityIndexBenchmarkTest -Dprodify.bench=true
+ * (taille du catalogue réglable avec -Dprodify.bench.tracks=1000000)
+ */
+@EnabledIfSystemProperty(named = "prodify.bench", matches = "true")
+class SimilarityIndexBenchmarkTest {
+
+    private static final String[] GENRES = {"Trap", "Drill", "Boombap", "Afro", "R&B", "Pop", "Lo-Fi", "Reggaeton", "Jersey", "Phonk"};
+    private static final String[] MOODS = {"Dark", "Happy", "Aggressive", "Chill", "Sad", "Épique", "Mélancolique", "Energetic"};
+
+    private static final int QUERIES = 20_000;
+    private static final int USERS = 50_000;
+
+    @Test
+    void reportsLatencyPercentiles() {
+        int trackCount = Integer.getInteger("prodify.bench.tracks", 1_000_000);
+        Random random = new Random(42);
+        SimilarityIndex index = new SimilarityIndex();
+
+        long buildStart = System.nanoTime();
+        UUID[] ids = new UUID[trackCount];
+        for (int i = 0; i < trackCount; i++) {
+            ids[i] = UUID.randomUUID();
+            index.index(TrackFeatures.of(ids[i], 70 + random.nextInt(100),
+                    GENRES[random.nextInt(GENRES.length)], MOODS[random.nextInt(MOODS.length)],
+                    BigDecimal.valueOf(5 + random.nextInt(300))));
+        }
+        // Quelques achats par client, concentrés sur une partie du catalogue (tracks populaires)
+        for (int user = 0; user < USERS; user++) {
+            UUID userId = UUID.randomUUID();
+            int purchases = 1 + random.nextInt(6);
+            for (int p = 0; p < purchases; p++) {
+                index.recordPurchase(userId, List.of(ids[random.nextInt(trackCount / 100)]));
+            }
+        }
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+        List<UUID> queries = new ArrayList<>(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+            // Une requête sur deux vise une track populaire (avec signaux de co-achat)
+            queries.add(ids[random.nextInt(i % 2 == 0 ? trackCount / 100 : trackCount)]);
+        }
+
+        // Préchauffage JIT
+        for (int i = 0; i < 2_000; i++) {
+            index.neighbours(queries.get(i % queries.size()), 12);
+        }
+
+        long[] latencies = new long[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            long start = System.nanoTime();
+            List<UUID> neighbours = index.neighbours(queries.get(i), 12);
+            latencies[i] = System.nanoTime() - start;
+            assertEquals(12, neighbours.size());
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("Catalogue : %,d tracks et %,d clients indexés en %,d ms%n", trackCount, USERS, buildMillis);
+        System.out.printf("Requêtes : %,d | p50 = %.2f ms | p95 = %.2f ms | p99 = %.2f ms | max = %.2f ms%n",
+                latencies.length, percentile(latencies, 0.50), percentile(latencies, 0.95),
+                percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e6);
+        assertTrue(percentile(latencies, 0.99) < 10, "p99 au-delà de 10 ms");
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+}
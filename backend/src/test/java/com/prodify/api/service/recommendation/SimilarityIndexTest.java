@@ -0,0 +1,98 @@
+package com.prodify.api.service.recommendation;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Index de similarité : voisins par tempo et co-achats, et mémoire bornée quel que soit le nombre
+ * de clients ou d'achats.
+ */
+class SimilarityIndexTest {
+
+    @Test
+    void coPurchasedTracksJoinTheTempoNeighbours() {
+        SimilarityIndex index = new SimilarityIndex();
+        UUID target = track(index, 140, "Drill", "Dark");
+        UUID sameTempo = track(index, 140, "Drill", "Dark");
+        UUID coPurchased = track(index, 90, "Lo-Fi", "Chill");
+        UUID unrelated = track(index, 90, "Lo-Fi", "Chill");
+
+        index.recordPurchase(UUID.randomUUID(), List.of(target, coPurchased));
+
+        List<UUID> neighbours = index.neighbours(target, 10);
+        assertEquals(List.of(sameTempo, coPurchased), neighbours);
+        assertFalse(neighbours.contains(unrelated));
+    }
+
+    @Test
+    void partnersPerTrackAreCappedKeepingTheStrongest() {
+        SimilarityIndex index = new SimilarityIndex(1_000, 3);
+        UUID target = track(index, 140, "Drill", "Dark");
+        UUID strong = track(index, 90, "Lo-Fi", "Chill");
+        // Co-acheté par trois clients différents
+        for (int i = 0; i < 3; i++) {
+            index.recordPurchase(UUID.randomUUID(), List.of(target, strong));
+        }
+        for (int i = 0; i < 50; i++) {
+            index.recordPurchase(UUID.randomUUID(), List.of(target, track(index, 90, "Lo-Fi", "Chill")));
+        }
+
+        assertEquals(3, index.coPurchasePartners(target));
+        assertEquals(strong, index.neighbours(target, 1).get(0));
+    }
+
+    @Test
+    void purchaseHistoryForgetsTheLeastRecentlyActiveUsers() {
+        SimilarityIndex index = new SimilarityIndex(2, 100);
+        UUID first = track(index, 140, "Drill", "Dark");
+        UUID second = track(index, 90, "Lo-Fi", "Chill");
+        UUID loyal = UUID.randomUUID();
+        UUID forgotten = UUID.randomUUID();
+
+        index.recordPurchase(forgotten, List.of(first));
+        index.recordPurchase(loyal, List.of(first));
+        // loyal reste actif, forgotten est le plus ancien quand un troisième client arrive
+        index.recordPurchase(loyal, List.of(track(index, 120, "Trap", "Happy")));
+        index.recordPurchase(UUID.randomUUID(), List.of(track(index, 120, "Trap", "Happy")));
+
+        assertEquals(2, index.trackedUsers());
+        index.recordPurchase(loyal, List.of(second));
+        assertEquals(2, index.coPurchasePartners(second));
+
+        // Son historique oublié, le nouvel achat de forgotten n'est plus relié au premier
+        UUID late = track(index, 100, "Afro", "Happy");
+        index.recordPurchase(forgotten, List.of(late));
+        assertEquals(0, index.coPurchasePartners(late));
+        assertEquals(2, index.trackedUsers());
+    }
+
+    @Test
+    void memoryStaysBoundedUnderManyUsersAndPurchases() {
+        SimilarityIndex index = new SimilarityIndex(500, 20);
+        UUID[] tracks = new UUID[200];
+        for (int i = 0; i < tracks.length; i++) {
+            tracks[i] = track(index, 80 + i % 80, "Trap", "Dark");
+        }
+        for (int i = 0; i < 20_000; i++) {
+            index.recordPurchase(UUID.randomUUID(), List.of(tracks[i % tracks.length], tracks[(i * 7 + 3) % tracks.length]));
+        }
+
+        assertEquals(500, index.trackedUsers());
+        for (UUID track : tracks) {
+            assertTrue(index.coPurchasePartners(track) <= 20);
+        }
+    }
+
+    private static UUID track(SimilarityIndex index, int bpm, String genre, String mood) {
+        UUID id = UUID.randomUUID();
+        index.index(TrackFeatures.of(id, bpm, genre, mood, new BigDecimal("19.99")));
+        return id;
+    }
+}
@@ -0,0 +1,158 @@
+package com.prodify.api.service.reconciliation;
+
+import com.prodify.api.model.LedgerEntry;
+import com.prodify.api.model.LedgerEntryType;
+import com.prodify.api.model.Order;
+import com.prodify.api.model.OrderStatus;
+import com.prodify.api.model.Producer;
+import com.prodify.api.model.Role;
+import com.prodify.api.model.Track;
+import com.prodify.api.model.User;
+import com.prodify.api.repository.LedgerEntryRepository;
+import com.prodify.api.repository.OrderRepository;
+import com.prodify.api.repository.ProducerRepository;
+import com.prodify.api.repository.TrackRepository;
+import com.prodify.api.repository.UserRepository;
+import com.prodify.api.service.OrderService;
+import com.prodify.api.service.PaymentService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rapprochement des paiements sur PostgreSQL : webhooks perdus (simulateur de paiement qui n'en envoie aucun)
+ * et commandes antérieures au journal réparés, puis débit du parcours sur un grand nombre de commandes.
+ * Désactivé par défaut, à lancer sur une base jetable avec
+ * ./mvnw test -Dtest=PaymentReconciliationBenchmarkTest -Dprodify.bench=true
+ * (réglable avec -Dprodify.bench.orders=1000000)
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "prodify.payment.gateway=local",
+        "prodify.payment.local.latency=0ms",
+        "prodify.payment.local.pay-after=0s",
+        "prodify.payment.local.webhook-loss-rate=1",
+        "prodify.reconciliation.grace=0s"
+})
+@EnabledIfSystemProperty(named = "prodify.bench", matches = "true")
+class PaymentReconciliationBenchmarkTest {
+
+    @Autowired
+    private PaymentReconciliationJob job;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private PaymentService paymentService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProducerRepository producerRepository;
+    @Autowired
+    private TrackRepository trackRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void lostWebhooksAndUnrecordedCapturesAreRepaired() {
+        String tag = tag();
+        Producer producer = producerRepository.save(Producer.builder()
+                .user(user("producer-" + tag)).displayName("Producer " + tag).slug("producer-" + tag).build());
+        Track track = trackRepository.save(Track.builder()
+                .producer(producer).title("Beat").slug("beat-" + tag)
+                .price(new BigDecimal("19.99")).coverImageUrl("c").audioUrl("a").build());
+        User buyer = user("buyer-" + tag);
+
+        // Payées chez le prestataire, webhook jamais reçu
+        List<UUID> lost = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            UUID orderId = orderService.createOrder(buyer, List.of(track.getId())).getId();
+            paymentService.createCheckoutSession(orderId);
+            lost.add(orderId);
+        }
+        // Payée avant l'existence du journal : COMPLETED, aucun encaissement
+        UUID preLedger = orderService.createOrder(buyer, List.of(track.getId())).getId();
+        orderService.validateOrder(preLedger);
+
+        ReconciliationReport first = job.reconcile();
+        ReconciliationReport second = job.reconcile();
+
+        for (UUID orderId : lost) {
+            Order order = orderRepository.findById(orderId).orElseThrow();
+            assertEquals(OrderStatus.COMPLETED, order.getStatus());
+            List<LedgerEntry> entries = ledgerEntryRepository.findByOrderId(orderId);
+            assertEquals(1, entries.size());
+            assertEquals(order.getCheckoutSessionId(), entries.get(0).getReference());
+            assertEquals(order.getPaymentIntentId(), "pi_local_" + order.getCheckoutSessionId().substring("cs_local_".length()));
+        }
+        List<LedgerEntry> backfilled = ledgerEntryRepository.findByOrderId(preLedger);
+        assertEquals(1, backfilled.size());
+        assertEquals(LedgerEntryType.CAPTURE, backfilled.get(0).getType());
+        assertTrue(first.paidOrdersCompleted() >= lost.size());
+        assertTrue(first.capturesBackfilled() >= 1);
+        // Tout est réparé au premier passage : le suivant ne trouve plus rien
+        assertEquals(0, second.divergences());
+    }
+
+    @Test
+    void scansOrdersAtConstantMemory() {
+        int orders = Integer.getInteger("prodify.bench.orders", 200_000);
+        String tag = tag();
+        User buyer = user("bulk-" + tag);
+        UUID producerId = UUID.randomUUID();
+
+        long seedStart = System.nanoTime();
+        jdbcTemplate.update("""
+                insert into orders (id, user_id, total_amount, status, created_at, updated_at, completed_at, checkout_session_id)
+                select gen_random_uuid(), ?, 19.99, 'COMPLETED', now() - interval '30 days', now(), now() - interval '30 days',
+                       'cs_bulk_' || ? || '_' || n
+                from generate_series(1, ?) n
+                """, buyer.getId(), tag, orders);
+        jdbcTemplate.update("""
+                insert into payment_ledger (id, order_id, order_item_id, producer_id, track_id, type, amount, currency,
+                                            reference, occurred_at, recorded_at)
+                select gen_random_uuid(), o.id, gen_random_uuid(), ?, gen_random_uuid(), 'CAPTURE', o.total_amount, 'eur',
+                       o.checkout_session_id, o.completed_at, now()
+                from orders o where o.user_id = ?
+                """, producerId, buyer.getId());
+        jdbcTemplate.execute("analyze orders");
+        jdbcTemplate.execute("analyze payment_ledger");
+        double seedSeconds = (System.nanoTime() - seedStart) / 1e9;
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        ReconciliationReport report = job.reconcile();
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        double seconds = report.duration().toNanos() / 1e9;
+
+        System.out.printf(Locale.ROOT, "Rapprochement : %d commandes en %.2f s (%.0f commandes/s), %d écarts ; "
+                        + "tas %d Mo -> %d Mo ; jeu de données créé en %.1f s%n",
+                report.ordersScanned(), seconds, report.ordersScanned() / seconds, report.divergences(),
+                heapBefore >> 20, heapAfter >> 20, seedSeconds);
+        assertTrue(report.ordersScanned() >= orders);
+    }
+
+    private static String tag() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private User user(String name) {
+        return userRepository.save(User.builder()
+                .firstName("Bench").lastName("Reconciliation").email(name + "@prodify.test").password("-").role(Role.USER).build());
+    }
+}
@@ -0,0 +1,162 @@
+package com.prodify.api.service.reconciliation;
+
+import com.prodify.api.model.LedgerEntry;
+import com.prodify.api.model.LedgerEntryType;
+import com.prodify.api.model.Order;
+import com.prodify.api.model.OrderStatus;
+import com.prodify.api.model.Role;
+import com.prodify.api.model.User;
+import com.prodify.api.service.OrderService;
+import com.prodify.api.service.ledger.PaymentLedgerService;
+import com.prodify.api.service.payment.CheckoutStatus;
+import com.prodify.api.service.payment.PaymentCallGuard;
+import com.prodify.api.service.payment.PaymentGateway;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Rapprochement des paiements (base H2 en mémoire) : toutes les commandes sont parcourues par paquets,
+ * une requête par paquet, et seuls les écarts donnent lieu à une correction ou à un appel au prestataire.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "prodify.reconciliation.chunk-size=4"
+})
+@Import({PaymentReconciliationJob.class, PaymentCallGuard.class, SimpleMeterRegistry.class})
+class PaymentReconciliationJobTest {
+
+    private static final BigDecimal PRICE = new BigDecimal("19.99");
+
+    @Autowired
+    private PaymentReconciliationJob job;
+    @Autowired
+    private EntityManager entityManager;
+
+    // Requêtes natives propres à PostgreSQL : seules les corrections demandées sont vérifiées
+    @MockitoBean
+    private OrderService orderService;
+    @MockitoBean
+    private PaymentLedgerService paymentLedgerService;
+    @MockitoBean
+    private PaymentGateway paymentGateway;
+
+    private User buyer;
+
+    @BeforeEach
+    void setUp() {
+        buyer = User.builder()
+                .firstName("buyer").lastName("Test").email("buyer@prodify.test").password("-").role(Role.USER).build();
+        entityManager.persist(buyer);
+        when(paymentGateway.retrieveCheckoutSession("cs_paid"))
+                .thenReturn(new CheckoutStatus("cs_paid", true, "pi_paid"));
+        when(paymentGateway.retrieveCheckoutSession("cs_unpaid"))
+                .thenReturn(new CheckoutStatus("cs_unpaid", false, null));
+    }
+
+    @Test
+    void repairsOnlyDivergentOrders() {
+        Order consistent = order(OrderStatus.COMPLETED, null, Duration.ofDays(1));
+        capture(consistent, PRICE);
+        Order underCaptured = order(OrderStatus.COMPLETED, "cs_partial", Duration.ofDays(1));
+        capture(underCaptured, new BigDecimal("5.00"));
+        UUID[] uncaptured = new UUID[5];
+        for (int i = 0; i < uncaptured.length; i++) {
+            uncaptured[i] = order(OrderStatus.COMPLETED, i == 0 ? "cs_old" : null, Duration.ofDays(400)).getId();
+        }
+        Order paidButPending = order(OrderStatus.PENDING, "cs_paid", Duration.ofHours(3));
+        order(OrderStatus.CANCELLED, "cs_unpaid", Duration.ofDays(2));
+        // Laissées de côté : webhook encore attendu, session trop ancienne, jamais passée au paiement
+        order(OrderStatus.PENDING, "cs_recent", Duration.ZERO);
+        order(OrderStatus.CANCELLED, "cs_expired_long_ago", Duration.ofDays(30));
+        order(OrderStatus.PENDING, null, Duration.ofDays(1));
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        ReconciliationReport report = job.reconcile();
+
+        // 12 commandes, paquets de 4 : 3 requêtes pleines et une vide, quel que soit le contenu des paquets
+        assertEquals(4, statistics.getPrepareStatementCount());
+        assertEquals(12, report.ordersScanned());
+        assertEquals(5, report.capturesBackfilled());
+        assertEquals(1, report.paidOrdersCompleted());
+        assertEquals(1, report.amountMismatches());
+        assertEquals(0, report.capturedNotCompleted());
+        assertEquals(2, report.gatewayChecks());
+        assertEquals(0, report.failures());
+
+        verify(paymentLedgerService).recordCapture(eq(uncaptured[0]), eq(null), eq("cs_old"), any());
+        for (int i = 1; i < uncaptured.length; i++) {
+            verify(paymentLedgerService).recordCapture(eq(uncaptured[i]), eq(null), eq("reconciliation"), any());
+        }
+        verify(orderService, times(1)).validateOrder(any());
+        verify(orderService).validateOrder(paidButPending.getId());
+        verify(paymentLedgerService).recordCapture(eq(paidButPending.getId()), eq("pi_paid"), eq("cs_paid"), any());
+        verify(paymentGateway, never()).retrieveCheckoutSession("cs_recent");
+        verify(paymentGateway, never()).retrieveCheckoutSession("cs_expired_long_ago");
+        verify(paymentGateway, times(2)).retrieveCheckoutSession(anyString());
+    }
+
+    @Test
+    void paymentOnAReplacedSessionIsFound() {
+        when(paymentGateway.retrieveCheckoutSession("cs_replacement"))
+                .thenReturn(new CheckoutStatus("cs_replacement", false, null));
+        Order order = order(OrderStatus.PENDING, "cs_replacement", Duration.ofHours(3));
+        entityManager.createQuery("update Order o set o.previousCheckoutSessionId = 'cs_paid' where o.id = :id")
+                .setParameter("id", order.getId())
+                .executeUpdate();
+        entityManager.clear();
+
+        ReconciliationReport report = job.reconcile();
+
+        assertEquals(1, report.paidOrdersCompleted());
+        assertEquals(2, report.gatewayChecks());
+        verify(orderService).validateOrder(order.getId());
+        verify(paymentLedgerService).recordCapture(eq(order.getId()), eq("pi_paid"), eq("cs_paid"), any());
+    }
+
+    private Order order(OrderStatus status, String checkoutSessionId, Duration age) {
+        Order order = Order.builder()
+                .user(buyer).totalAmount(PRICE).status(status).checkoutSessionId(checkoutSessionId).build();
+        entityManager.persist(order);
+        // createdAt est posé à l'insertion : on vieillit la commande ensuite
+        entityManager.flush();
+        entityManager.createQuery("update Order o set o.createdAt = :createdAt where o.id = :id")
+                .setParameter("createdAt", OffsetDateTime.now().minus(age))
+                .setParameter("id", order.getId())
+                .executeUpdate();
+        return order;
+    }
+
+    private void capture(Order order, BigDecimal amount) {
+        entityManager.persist(LedgerEntry.builder()
+                .orderId(order.getId()).orderItemId(UUID.randomUUID())
+                .producerId(UUID.randomUUID()).trackId(UUID.randomUUID())
+                .type(LedgerEntryType.CAPTURE).amount(amount).currency("eur").reference("cs_test")
+                .occurredAt(OffsetDateTime.now()).recordedAt(OffsetDateTime.now())
+                .build());
+    }
+}
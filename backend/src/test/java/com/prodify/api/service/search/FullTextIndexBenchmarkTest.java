@@ -0,0 +1,131 @@
+package com.prodify.api.service.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Benchmark de l'index plein texte sur un corpus synthétique.
+ * Désactivé par défaut : ./mvnw test -Dtest=FullTextIndexBenchmarkTest -Dprodify.bench=true
+ * (taille du corpus réglable avec -Dprodify.bench.tracks=1000000)
+ */
+@EnabledIfSystemProperty(named = "prodify.bench", matches = "true")
+class FullTextIndexBenchmarkTest {
+
+    private static final String[] GENRES = {"Trap", "Drill", "Boombap", "Afro", "R&B", "Pop", "Lo-Fi", "Reggaeton", "Jersey", "Phonk"};
+    private static final String[] MOODS = {"Dark", "Happy", "Aggressive", "Chill", "Sad", "Épique", "Mélancolique", "Energetic"};
+    private static final String[] WORDS = {"night", "shadow", "gold", "city", "rain", "fire", "ghost", "dream", "street", "moon",
+            "paris", "tokyo", "velvet", "crystal", "storm", "nuit", "coeur", "lumière", "rêve", "béton", "piano", "guitar",
+            "808", "bass", "flute", "violin", "vocal", "sample", "bounce", "wave", "drift", "echo", "pulse", "cold", "smoke"};
+    private static final String[] SYLLABLES = {"ka", "lo", "mi", "zen", "tra", "vo", "rex", "dy", "sha", "no", "kel", "ari", "bo", "xan", "tu"};
+
+    private static final int QUERIES = 5_000;
+
+    @Test
+    void reportsLatencyPercentiles() {
+        int trackCount = Integer.getInteger("prodify.bench.tracks", 1_000_000);
+        Random random = new Random(42);
+        String[] producers = new String[Math.max(1, trackCount / 50)];
+        for (int i = 0; i < producers.length; i++) {
+            producers[i] = "DJ " + capitalize(syllables(random, 2 + random.nextInt(2)));
+        }
+
+        FullTextIndex index = new FullTextIndex();
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < trackCount; i++) {
+            index.index(new SearchDocument(UUID.randomUUID(),
+                    words(random, 2 + random.nextInt(3)),
+                    words(random, 8 + random.nextInt(16)),
+                    producers[random.nextInt(producers.length)],
+                    GENRES[random.nextInt(GENRES.length)],
+                    MOODS[random.nextInt(MOODS.length)],
+                    70 + random.nextInt(100)));
+        }
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < QUERIES; i++) {
+            switch (i % 4) {
+                case 0 -> queries.add(MOODS[random.nextInt(MOODS.length)] + " " + GENRES[random.nextInt(GENRES.length)]
+                        + " " + (70 + random.nextInt(100)));
+                case 1 -> queries.add(typo(random, producers[random.nextInt(producers.length)]));
+                case 2 -> queries.add(words(random, 2));
+                default -> {
+                    String word = WORDS[random.nextInt(WORDS.length)];
+                    queries.add(word.substring(0, Math.max(2, word.length() - 2)));
+                }
+            }
+        }
+
+        // Préchauffage JIT
+        for (int i = 0; i < 500; i++) {
+            index.search(queries.get(i % queries.size()), 24);
+        }
+
+        long[] latencies = new long[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            long start = System.nanoTime();
+            List<SearchHit> hits = index.search(queries.get(i), 24);
+            latencies[i] = System.nanoTime() - start;
+            if (i % 4 == 0) {
+                assertFalse(hits.isEmpty(), "aucun résultat pour " + queries.get(i));
+            }
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("Corpus : %,d tracks indexées en %,d ms%n", trackCount, buildMillis);
+        System.out.printf("Requêtes : %,d | p50 = %.2f ms | p95 = %.2f ms | p99 = %.2f ms | max = %.2f ms%n",
+                latencies.length, percentile(latencies, 0.50), percentile(latencies, 0.95),
+                percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e6);
+
+        // Une faute de frappe sur le nom du producteur doit encore le retrouver
+        String producer = producers[0];
+        List<SearchHit> typoHits = index.search(typo(new Random(7), producer), 10);
+        assertTrue(!typoHits.isEmpty(), "la recherche floue n'a rien retrouvé pour " + producer);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+
+    private static String syllables(Random random, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return builder.toString();
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    // Inverse deux lettres voisines du dernier mot : "dj kalomi" -> "dj kaolmi"
+    private static String typo(Random random, String text) {
+        char[] chars = text.toCharArray();
+        int wordStart = text.lastIndexOf(' ') + 1;
+        if (chars.length - wordStart >= 3) {
+            int i = wordStart + 1 + random.nextInt(chars.length - wordStart - 2);
+            char tmp = chars[i];
+            chars[i] = chars[i - 1];
+            chars[i - 1] = tmp;
+        }
+        return new String(chars);
+    }
+}
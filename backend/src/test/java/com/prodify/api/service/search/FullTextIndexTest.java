@@ -0,0 +1,115 @@
+package com.prodify.api.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FullTextIndexTest {
+
+    private final FullTextIndex index = new FullTextIndex();
+
+    @Test
+    void titleMatchRanksAboveDescriptionMatch() {
+        UUID inDescription = add("Cold Night", "a moody beat with a ghost sample", "DJ Kalo", "Trap");
+        UUID inTitle = add("Ghost", "a dark beat", "DJ Mira", "Drill");
+
+        assertEquals(List.of(inTitle, inDescription), ids(index.search("ghost", 10)));
+    }
+
+    @Test
+    void documentsCoveringAllWordsComeFirst() {
+        UUID both = add("Midnight", null, "DJ Kalo", "Drill", "Dark");
+        UUID genreOnly = add("Drill Drill Drill", null, "DJ Mira", "Drill", "Happy");
+
+        assertEquals(both, index.search("dark drill", 10).get(0).trackId());
+        assertEquals(2, index.search("dark drill", 10).size());
+        assertTrue(ids(index.search("dark drill", 10)).contains(genreOnly));
+    }
+
+    @Test
+    void matchesProducerPrefixAndTypos() {
+        UUID track = add("Velvet Rain", null, "DJ Kalomira", "Afro");
+
+        assertEquals(List.of(track), ids(index.search("kalomira", 10)));
+        // Dernier mot tapé : traité comme un préfixe
+        assertEquals(List.of(track), ids(index.search("velv", 10)));
+        // Faute de frappe : termes proches par trigrammes
+        assertEquals(List.of(track), ids(index.search("velvte", 10)));
+        assertTrue(index.search("saxophone", 10).isEmpty());
+    }
+
+    @Test
+    void updatesReplaceAndRemovalsHide() {
+        UUID track = add("Old Title", null, "DJ Kalo", "Trap");
+        index.index(new SearchDocument(track, "New Title", null, "DJ Renamed", "Trap", null, 140));
+
+        assertEquals(1, index.size());
+        assertTrue(index.search("old", 10).isEmpty());
+        assertTrue(index.search("kalo", 10).isEmpty());
+        assertEquals(List.of(track), ids(index.search("renamed", 10)));
+        assertEquals(List.of(track), ids(index.search("140", 10)));
+
+        index.remove(track);
+        assertEquals(0, index.size());
+        assertTrue(index.search("new", 10).isEmpty());
+    }
+
+    @Test
+    void limitKeepsTheBestHits() {
+        for (int i = 0; i < 50; i++) {
+            add("Beat " + i, null, "DJ " + i, "Trap");
+        }
+        UUID best = add("Trap Trap", null, "DJ Trap", "Trap");
+
+        List<SearchHit> hits = index.search("trap", 5);
+        assertEquals(5, hits.size());
+        assertEquals(best, hits.get(0).trackId());
+        for (int i = 1; i < hits.size(); i++) {
+            assertTrue(hits.get(i - 1).score() >= hits.get(i).score());
+        }
+    }
+
+    // Tampons partagés entre requêtes : des recherches simultanées ne doivent pas mélanger leurs scores
+    @Test
+    void concurrentSearchesDoNotShareScores() throws Exception {
+        UUID ghost = add("Ghost", null, "DJ Kalo", "Trap");
+        UUID velvet = add("Velvet", null, "DJ Mira", "Drill");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                boolean even = i % 2 == 0;
+                results.add(pool.submit(() -> even
+                        ? ids(index.search("ghost", 10)).equals(List.of(ghost))
+                        : ids(index.search("velvet", 10)).equals(List.of(velvet))));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private UUID add(String title, String description, String producer, String genre) {
+        return add(title, description, producer, genre, null);
+    }
+
+    private UUID add(String title, String description, String producer, String genre, String mood) {
+        UUID id = UUID.randomUUID();
+        index.index(new SearchDocument(id, title, description, producer, genre, mood, null));
+        return id;
+    }
+
+    private static List<UUID> ids(List<SearchHit> hits) {
+        return hits.stream().map(SearchHit::trackId).toList();
+    }
+}
@@ -0,0 +1,36 @@
+package com.prodify.api.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenizerTest {
+
+    @Test
+    void foldsAccentsCaseAndPunctuation() {
+        assertEquals(List.of("dark", "drill", "140", "prod", "elio"), Tokenizer.tokenize("Dark Drill 140 (Prod. Élio)"));
+        assertEquals(List.of("r", "b", "lo", "fi"), Tokenizer.tokenize("R&B / Lo-Fi"));
+    }
+
+    @Test
+    void dropsStopWordsInBothLanguages() {
+        assertEquals(List.of("nuit", "paris", "night", "city"), Tokenizer.tokenize("La nuit de Paris and the Night of the City"));
+    }
+
+    @Test
+    void boundsTokenCountAndLength() {
+        assertEquals(List.of("un1", "deux", "trois"), Tokenizer.tokenize("un1 deux trois quatre cinq", 3));
+        String longWord = "x".repeat(100);
+        assertEquals(Tokenizer.MAX_TOKEN_LENGTH, Tokenizer.tokenize(longWord).get(0).length());
+    }
+
+    @Test
+    void emptyInputsGiveNoTokens() {
+        assertTrue(Tokenizer.tokenize(null).isEmpty());
+        assertTrue(Tokenizer.tokenize("").isEmpty());
+        assertTrue(Tokenizer.tokenize(" - ... ").isEmpty());
+    }
+}
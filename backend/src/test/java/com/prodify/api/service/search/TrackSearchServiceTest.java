@@ -0,0 +1,57 @@
+package com.prodify.api.service.search;
+
+import com.prodify.api.event.ProducerChangedEvent;
+import com.prodify.api.event.TrackChangedEvent;
+import com.prodify.api.model.Producer;
+import com.prodify.api.model.Role;
+import com.prodify.api.model.Track;
+import com.prodify.api.model.User;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Le nom du producteur est recopié dans l'index de chaque track : un renommage les réindexe toutes.
+ */
+@DataJpaTest
+@Import(TrackSearchService.class)
+class TrackSearchServiceTest {
+
+    @Autowired
+    private TrackSearchService trackSearchService;
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void renamedProducerIsFoundUnderItsNewName() {
+        User user = User.builder()
+                .firstName("p").lastName("Test").email("kalo@prodify.test").password("-").role(Role.USER).build();
+        entityManager.persist(user);
+        Producer producer = Producer.builder().user(user).displayName("DJ Kalo").slug("dj-kalo").build();
+        entityManager.persist(producer);
+        for (int i = 0; i < 3; i++) {
+            Track track = Track.builder()
+                    .producer(producer).title("Beat " + i).slug("beat-" + i)
+                    .price(new BigDecimal("19.99")).coverImageUrl("c").audioUrl("a").build();
+            entityManager.persist(track);
+            trackSearchService.onTrackChanged(new TrackChangedEvent(track, TrackChangedEvent.Type.CREATED));
+        }
+        assertEquals(3, trackSearchService.search("kalo", 10).size());
+
+        producer.setDisplayName("Mira Beats");
+        entityManager.flush();
+        trackSearchService.onProducerChanged(new ProducerChangedEvent(producer.getId()));
+
+        assertTrue(trackSearchService.search("kalo", 10).isEmpty());
+        List<SearchHit> hits = trackSearchService.search("mira", 10);
+        assertEquals(3, hits.size());
+    }
+}
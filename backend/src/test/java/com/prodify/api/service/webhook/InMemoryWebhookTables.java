@@ -0,0 +1,153 @@
+package com.prodify.api.service.webhook;
+
+import com.prodify.api.model.WebhookDeadLetter;
+import com.prodify.api.model.WebhookInboxEvent;
+import com.prodify.api.repository.ProcessedWebhookEventRepository;
+import com.prodify.api.repository.WebhookDeadLetterRepository;
+import com.prodify.api.repository.WebhookInboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tables webhook_inbox, processed_webhook_events et webhook_dead_letters simulées en mémoire, pour les tests
+ * sans PostgreSQL. Chaque requête native y applique la même condition que son SQL, de façon atomique ;
+ * plusieurs WebhookInboxService créés par {@link #newInstance} jouent plusieurs instances sur la même base.
+ *
+ * Seul effet simulé d'un rollback : l'identifiant marqué par un traitement en échec n'est pas conservé.
+ */
+class InMemoryWebhookTables {
+
+    final Map<UUID, WebhookInboxEvent> inbox = new ConcurrentHashMap<>();
+    final Set<String> processed = ConcurrentHashMap.newKeySet();
+    final List<WebhookDeadLetter> deadLetters = new CopyOnWriteArrayList<>();
+    final AtomicInteger reschedules = new AtomicInteger();
+
+    // Identifiants marqués dans la transaction en cours du thread
+    private final ThreadLocal<List<String>> markedInTransaction = ThreadLocal.withInitial(ArrayList::new);
+    private final ThreadLocal<Boolean> inTransaction = ThreadLocal.withInitial(() -> false);
+    private final WebhookInboxRepository inboxRepository = inboxRepository();
+    private final WebhookDeadLetterRepository deadLetterRepository = deadLetterRepository();
+    private final ProcessedWebhookEventRepository processedRepository = processedRepository();
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager());
+
+    WebhookInboxService newInstance(StripeEventHandler eventHandler, int workers, int maxAttempts, Duration lease) {
+        return new WebhookInboxService(inboxRepository, deadLetterRepository, eventHandler,
+                new WebhookDeduplicator(processedRepository, Duration.ofDays(30), 10_000),
+                transactionTemplate, new SimpleMeterRegistry(), workers, maxAttempts, lease);
+    }
+
+    private WebhookInboxRepository inboxRepository() {
+        WebhookInboxRepository fake = mock(WebhookInboxRepository.class);
+        when(fake.save(any())).thenAnswer(invocation -> {
+            WebhookInboxEvent row = invocation.getArgument(0);
+            row.setId(UUID.randomUUID());
+            inbox.put(row.getId(), row);
+            return row;
+        });
+        // Événements dus, les plus anciens d'abord ; tentative comptée et bail posé
+        when(fake.claimDue(any(), any(), anyInt())).thenAnswer(invocation -> {
+            OffsetDateTime now = invocation.getArgument(0);
+            OffsetDateTime leaseUntil = invocation.getArgument(1);
+            synchronized (inbox) {
+                List<WebhookInboxEvent> claimed = new ArrayList<>();
+                inbox.values().stream()
+                        .filter(row -> !row.getNextAttemptAt().isAfter(now))
+                        .sorted(Comparator.comparing(WebhookInboxEvent::getNextAttemptAt))
+                        .limit(invocation.<Integer>getArgument(2))
+                        .forEach(row -> {
+                            row.setAttempts(row.getAttempts() + 1);
+                            row.setNextAttemptAt(leaseUntil);
+                            claimed.add(copy(row));
+                        });
+                return claimed;
+            }
+        });
+        when(fake.deleteProcessed(any())).thenAnswer(invocation -> inbox.remove(invocation.<UUID>getArgument(0)) == null ? 0 : 1);
+        when(fake.reschedule(any(), any(), anyString())).thenAnswer(invocation -> {
+            WebhookInboxEvent row = inbox.get(invocation.<UUID>getArgument(0));
+            row.setNextAttemptAt(invocation.getArgument(1));
+            row.setLastError(invocation.getArgument(2));
+            reschedules.incrementAndGet();
+            return 1;
+        });
+        when(fake.count()).thenAnswer(invocation -> (long) inbox.size());
+        return fake;
+    }
+
+    private WebhookDeadLetterRepository deadLetterRepository() {
+        WebhookDeadLetterRepository fake = mock(WebhookDeadLetterRepository.class);
+        when(fake.save(any())).thenAnswer(invocation -> {
+            deadLetters.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        return fake;
+    }
+
+    // Clé primaire sur event_id : un seul des appels concurrents marque l'événement
+    private ProcessedWebhookEventRepository processedRepository() {
+        ProcessedWebhookEventRepository fake = mock(ProcessedWebhookEventRepository.class);
+        when(fake.existsById(anyString())).thenAnswer(invocation -> processed.contains(invocation.<String>getArgument(0)));
+        when(fake.markProcessed(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            String eventId = invocation.getArgument(0);
+            if (!processed.add(eventId)) {
+                return 0;
+            }
+            markedInTransaction.get().add(eventId);
+            return 1;
+        });
+        return fake;
+    }
+
+    // Vrai entre le début et la fin d'une transaction du thread courant
+    boolean inTransaction() {
+        return inTransaction.get();
+    }
+
+    private PlatformTransactionManager transactionManager() {
+        PlatformTransactionManager fake = mock(PlatformTransactionManager.class);
+        doAnswer(invocation -> {
+            inTransaction.set(true);
+            return null;
+        }).when(fake).getTransaction(any());
+        doAnswer(invocation -> {
+            markedInTransaction.get().clear();
+            inTransaction.set(false);
+            return null;
+        }).when(fake).commit(any());
+        doAnswer(invocation -> {
+            processed.removeAll(markedInTransaction.get());
+            markedInTransaction.get().clear();
+            inTransaction.set(false);
+            return null;
+        }).when(fake).rollback(any());
+        return fake;
+    }
+
+    // Le worker reçoit une ligne relue, pas l'objet de la table
+    private static WebhookInboxEvent copy(WebhookInboxEvent row) {
+        return WebhookInboxEvent.builder()
+                .id(row.getId()).eventId(row.getEventId()).type(row.getType()).payload(row.getPayload())
+                .attempts(row.getAttempts()).nextAttemptAt(row.getNextAttemptAt()).lastError(row.getLastError())
+                .receivedAt(row.getReceivedAt()).build();
+    }
+}
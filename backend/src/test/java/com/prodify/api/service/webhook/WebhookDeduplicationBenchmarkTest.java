@@ -0,0 +1,121 @@
+package com.prodify.api.service.webhook;
+
+import com.prodify.api.model.Producer;
+import com.prodify.api.model.Role;
+import com.prodify.api.model.Track;
+import com.prodify.api.model.User;
+import com.prodify.api.repository.ProducerRepository;
+import com.prodify.api.repository.TrackRepository;
+import com.prodify.api.repository.UserRepository;
+import com.prodify.api.repository.WebhookInboxRepository;
+import com.prodify.api.service.OrderService;
+import com.stripe.model.Event;
+import com.stripe.model.StripeObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Débit de la file de webhooks sur PostgreSQL face à une rafale de copies du même événement (Stripe livre
+ * "au moins une fois"). L'application unique est vérifiée sans base par {@link WebhookDeduplicationTest}.
+ * Désactivé par défaut, à lancer sur une base jetable avec
+ * ./mvnw test -Dtest=WebhookDeduplicationBenchmarkTest -Dprodify.bench=true
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@EnabledIfSystemProperty(named = "prodify.bench", matches = "true")
+class WebhookDeduplicationBenchmarkTest {
+
+    private static final int ORDERS = 20;
+    private static final int COPIES = 10;
+
+    @Autowired
+    private WebhookInboxService webhookInboxService;
+    @Autowired
+    private WebhookInboxRepository inboxRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProducerRepository producerRepository;
+    @Autowired
+    private TrackRepository trackRepository;
+    @Autowired
+    private OrderService orderService;
+
+    @Test
+    void drainsABurstOfDuplicatedEvents() throws Exception {
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        Producer producer = producerRepository.save(Producer.builder()
+                .user(user("producer-" + tag)).displayName("Dedup " + tag).slug("dedup-" + tag).build());
+        Track track = trackRepository.save(Track.builder()
+                .producer(producer).title("Beat").slug("beat-" + tag)
+                .price(new BigDecimal("19.99")).coverImageUrl("c").audioUrl("a").build());
+
+        List<String> deliveries = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            UUID orderId = orderService.createOrder(user("buyer-" + tag + "-" + i), List.of(track.getId())).getId();
+            String payload = checkoutCompleted("evt_" + tag + "_" + i, orderId);
+            for (int copy = 0; copy < COPIES; copy++) {
+                deliveries.add(payload);
+            }
+        }
+        Collections.shuffle(deliveries);
+
+        // Toutes les copies en même temps, comme une relivraison en rafale
+        long begin = System.nanoTime();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        for (String payload : deliveries) {
+            pool.submit(() -> {
+                start.await();
+                webhookInboxService.enqueue(event(payload), payload);
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+        awaitEmptyInbox();
+        double seconds = (System.nanoTime() - begin) / 1e9;
+
+        System.out.printf(Locale.ROOT, "Webhooks : %d livraisons (%d événements) traitées en %.2f s (%.0f livraisons/s)%n",
+                deliveries.size(), ORDERS, seconds, deliveries.size() / seconds);
+    }
+
+    private void awaitEmptyInbox() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inboxRepository.count() > 0) {
+            assertTrue(System.nanoTime() < deadline, "File de webhooks non vidée");
+            Thread.sleep(50);
+        }
+    }
+
+    private static String checkoutCompleted(String eventId, UUID orderId) {
+        return """
+                {"id": "%s", "object": "event", "type": "checkout.session.completed", "created": 1,
+                 "data": {"object": {"id": "cs_test_%s", "object": "checkout.session", "client_reference_id": "%s"}}}
+                """.formatted(eventId, eventId, orderId);
+    }
+
+    private static Event event(String payload) {
+        return StripeObject.deserializeStripeObject(payload, Event.class, null);
+    }
+
+    private User user(String name) {
+        return userRepository.save(User.builder()
+                .firstName("Bench").lastName("Webhook").email(name + "@prodify.test").password("-").role(Role.USER).build());
+    }
+}
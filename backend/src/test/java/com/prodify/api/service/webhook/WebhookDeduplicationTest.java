@@ -0,0 +1,115 @@
+package com.prodify.api.service.webhook;
+
+import com.stripe.model.Event;
+import com.stripe.model.StripeObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Stripe livre "au moins une fois" : une rafale de copies du même événement, reçues en même temps par
+ * deux instances puis après traitement, n'applique chaque événement qu'une fois.
+ * Tables simulées en mémoire ({@link InMemoryWebhookTables}) ; le débit sur PostgreSQL est mesuré par
+ * {@link WebhookDeduplicationBenchmarkTest}.
+ */
+class WebhookDeduplicationTest {
+
+    private static final int EVENTS = 20;
+    private static final int COPIES = 10;
+
+    private final InMemoryWebhookTables tables = new InMemoryWebhookTables();
+    private final Map<String, AtomicInteger> applied = new ConcurrentHashMap<>();
+    private final StripeEventHandler eventHandler = mock(StripeEventHandler.class);
+    private final WebhookInboxService firstInstance = tables.newInstance(eventHandler, 8, 10, Duration.ofMinutes(5));
+    private final WebhookInboxService secondInstance = tables.newInstance(eventHandler, 8, 10, Duration.ofMinutes(5));
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        firstInstance.shutdown();
+        secondInstance.shutdown();
+    }
+
+    @Test
+    void burstOfDuplicatedEventsIsAppliedOncePerEvent() throws Exception {
+        doAnswer(invocation -> {
+            applied.computeIfAbsent(invocation.<Event>getArgument(0).getId(), id -> new AtomicInteger()).incrementAndGet();
+            return null;
+        }).when(eventHandler).handle(any(), any());
+
+        List<String> deliveries = new ArrayList<>();
+        for (int i = 0; i < EVENTS; i++) {
+            String payload = checkoutCompleted("evt_dedup_" + i);
+            for (int copy = 0; copy < COPIES; copy++) {
+                deliveries.add(payload);
+            }
+        }
+        Collections.shuffle(deliveries);
+
+        // Toutes les copies en même temps, réparties entre les deux instances
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        for (int i = 0; i < deliveries.size(); i++) {
+            String payload = deliveries.get(i);
+            WebhookInboxService instance = i % 2 == 0 ? firstInstance : secondInstance;
+            pool.submit(() -> {
+                start.await();
+                instance.enqueue(event(payload), payload);
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+        awaitEmptyInbox();
+
+        // Relivraison tardive : déjà appliquée, ignorée dès la réception
+        for (String payload : deliveries.subList(0, EVENTS)) {
+            secondInstance.enqueue(event(payload), payload);
+            firstInstance.enqueue(event(payload), payload);
+        }
+        assertTrue(tables.inbox.isEmpty());
+
+        assertEquals(EVENTS, applied.size());
+        for (int i = 0; i < EVENTS; i++) {
+            assertEquals(1, applied.get("evt_dedup_" + i).get(), "evt_dedup_" + i);
+            assertTrue(tables.processed.contains("evt_dedup_" + i));
+        }
+        assertTrue(tables.deadLetters.isEmpty());
+    }
+
+    private void awaitEmptyInbox() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!tables.inbox.isEmpty()) {
+            assertTrue(System.nanoTime() < deadline, "File de webhooks non vidée");
+            Thread.sleep(10);
+        }
+    }
+
+    private static String checkoutCompleted(String eventId) {
+        return """
+                {"id": "%s", "object": "event", "type": "checkout.session.completed", "created": 1,
+                 "data": {"object": {"id": "cs_test_%s", "object": "checkout.session"}}}
+                """.formatted(eventId, eventId);
+    }
+
+    private static Event event(String payload) {
+        return StripeObject.deserializeStripeObject(payload, Event.class, null);
+    }
+}
@@ -0,0 +1,200 @@
+package com.prodify.api.service.webhook;
+
+import com.prodify.api.model.WebhookDeadLetter;
+import com.prodify.api.model.WebhookInboxEvent;
+import com.stripe.model.Event;
+import com.stripe.model.StripeObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * File d'entrée des webhooks : nouvelles tentatives espacées, abandon après max-attempts, reprise des
+ * événements pris par une instance arrêtée. Tables simulées en mémoire ({@link InMemoryWebhookTables}),
+ * le traitement tourne sur les vrais workers.
+ */
+class WebhookInboxServiceTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Duration LEASE = Duration.ofMinutes(5);
+
+    private final InMemoryWebhookTables tables = new InMemoryWebhookTables();
+    private final Map<UUID, WebhookInboxEvent> inbox = tables.inbox;
+    private final List<WebhookDeadLetter> deadLetters = tables.deadLetters;
+    private final Set<String> processed = tables.processed;
+    private final AtomicInteger reschedules = tables.reschedules;
+    private final AtomicInteger handled = new AtomicInteger();
+
+    private final StripeEventHandler eventHandler = mock(StripeEventHandler.class);
+    private final WebhookInboxService inboxService = tables.newInstance(eventHandler, 4, MAX_ATTEMPTS, LEASE);
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        inboxService.shutdown();
+    }
+
+    @Test
+    void retryDelayDoublesUpToOneHour() {
+        assertEquals(Duration.ofSeconds(10), WebhookInboxService.retryDelay(1));
+        assertEquals(Duration.ofSeconds(20), WebhookInboxService.retryDelay(2));
+        assertEquals(Duration.ofSeconds(40), WebhookInboxService.retryDelay(3));
+        assertEquals(WebhookInboxService.MAX_RETRY_DELAY, WebhookInboxService.retryDelay(10));
+        assertEquals(WebhookInboxService.MAX_RETRY_DELAY, WebhookInboxService.retryDelay(1_000));
+    }
+
+    @Test
+    void failedEventIsRescheduledWithBackoffThenApplied() {
+        failTimes(1);
+
+        OffsetDateTime before = OffsetDateTime.now();
+        deliver("evt_retry");
+        awaitUntil(() -> reschedules.get() == 1);
+        OffsetDateTime after = OffsetDateTime.now();
+
+        WebhookInboxEvent failed = single();
+        assertEquals(1, failed.getAttempts());
+        assertTrue(failed.getLastError().contains("Stripe indisponible"));
+        assertFalse(failed.getNextAttemptAt().isBefore(before.plus(WebhookInboxService.FIRST_RETRY_DELAY)));
+        assertFalse(failed.getNextAttemptAt().isAfter(after.plus(WebhookInboxService.FIRST_RETRY_DELAY)));
+
+        retryNow();
+        awaitUntil(inbox::isEmpty);
+        assertEquals(2, handled.get());
+        assertTrue(processed.contains("evt_retry"));
+        assertTrue(deadLetters.isEmpty());
+    }
+
+    @Test
+    void eventIsDeadLetteredAfterMaxAttempts() {
+        failTimes(Integer.MAX_VALUE);
+
+        deliver("evt_dead");
+        for (int attempt = 1; attempt < MAX_ATTEMPTS; attempt++) {
+            int expected = attempt;
+            awaitUntil(() -> reschedules.get() == expected);
+            assertEquals(WebhookInboxService.retryDelay(attempt).toSeconds(),
+                    Duration.between(OffsetDateTime.now(), single().getNextAttemptAt()).toSeconds(), 2);
+            retryNow();
+        }
+        awaitUntil(() -> !deadLetters.isEmpty() && inbox.isEmpty());
+
+        WebhookDeadLetter deadLetter = deadLetters.get(0);
+        assertEquals("evt_dead", deadLetter.getEventId());
+        assertEquals(MAX_ATTEMPTS, deadLetter.getAttempts());
+        assertTrue(deadLetter.getLastError().contains("Stripe indisponible"));
+        assertEquals(MAX_ATTEMPTS, handled.get());
+        // Abandonné : une nouvelle livraison de Stripe sera acceptée
+        failTimes(0);
+        deliver("evt_dead");
+        awaitUntil(() -> processed.contains("evt_dead"));
+    }
+
+    @Test
+    void eventsClaimedByAStoppedInstanceAreTakenBackAtLeaseEnd() {
+        failTimes(0);
+        OffsetDateTime now = OffsetDateTime.now();
+        // Pris par une instance arrêtée en plein traitement : bail expiré
+        UUID expired = stored("evt_expired", 1, now.minusSeconds(1));
+        // Pris par une instance en vie : bail en cours
+        UUID leased = stored("evt_leased", 1, now.plus(LEASE));
+        // Repris après autant d'arrêts que de tentatives autorisées : abandonné sans être rejoué
+        UUID exhausted = stored("evt_exhausted", MAX_ATTEMPTS, now.minusSeconds(1));
+
+        inboxService.poll();
+        awaitUntil(() -> !inbox.containsKey(expired) && !inbox.containsKey(exhausted));
+
+        assertTrue(processed.contains("evt_expired"));
+        assertEquals(1, handled.get());
+        assertEquals(List.of("evt_exhausted"), deadLetters.stream().map(WebhookDeadLetter::getEventId).toList());
+        assertEquals(MAX_ATTEMPTS + 1, deadLetters.get(0).getAttempts());
+        assertEquals(1, inbox.get(leased).getAttempts());
+    }
+
+    @Test
+    void orderLookupAtTheProviderRunsBeforeTheTransaction() {
+        UUID orderId = UUID.randomUUID();
+        List<String> steps = new CopyOnWriteArrayList<>();
+        when(eventHandler.findUnlinkedOrder(any())).thenAnswer(invocation -> {
+            steps.add(tables.inTransaction() ? "lookup in transaction" : "lookup");
+            return orderId;
+        });
+        doAnswer(invocation -> {
+            steps.add("handle " + invocation.getArgument(1));
+            return null;
+        }).when(eventHandler).handle(any(), any());
+
+        deliver("evt_refund");
+        awaitUntil(() -> inbox.isEmpty());
+
+        // Aucune connexion ni verrou de la file retenus pendant l'appel au prestataire
+        assertEquals(List.of("lookup", "handle " + orderId), steps);
+    }
+
+    // Les n premiers traitements échouent, les suivants réussissent
+    private void failTimes(int failures) {
+        handled.set(0);
+        doAnswer(invocation -> {
+            if (handled.incrementAndGet() <= failures) {
+                throw new IllegalStateException("Stripe indisponible");
+            }
+            return null;
+        }).when(eventHandler).handle(any(), any());
+    }
+
+    private void retryNow() {
+        inbox.values().forEach(row -> row.setNextAttemptAt(OffsetDateTime.now().minusSeconds(1)));
+        inboxService.poll();
+    }
+
+    private WebhookInboxEvent single() {
+        assertEquals(1, inbox.size());
+        return inbox.values().iterator().next();
+    }
+
+    private UUID stored(String eventId, int attempts, OffsetDateTime nextAttemptAt) {
+        UUID id = UUID.randomUUID();
+        inbox.put(id, WebhookInboxEvent.builder()
+                .id(id).eventId(eventId).type("checkout.session.completed").payload(payload(eventId))
+                .attempts(attempts).nextAttemptAt(nextAttemptAt).lastError("Arrêt de l'instance")
+                .receivedAt(OffsetDateTime.now().minusMinutes(10)).build());
+        return id;
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition non atteinte");
+            Thread.onSpinWait();
+        }
+    }
+
+    private void deliver(String eventId) {
+        String payload = payload(eventId);
+        inboxService.enqueue(StripeObject.deserializeStripeObject(payload, Event.class, null), payload);
+    }
+
+    private static String payload(String eventId) {
+        return """
+                {"id": "%s", "object": "event", "type": "checkout.session.completed", "created": 1,
+                 "data": {"object": {"id": "cs_test_%s", "object": "checkout.session"}}}
+                """.formatted(eventId, eventId);
+    }
+}
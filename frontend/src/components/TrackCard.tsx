@@ -2,6 +2,7 @@ import { Play, ShoppingCart, Check, Download } from 'lucide-react';
 import { Link } from 'react-router-dom';
 import { usePlayer } from '../context/PlayerContext';
 import { useCart } from '../context/CartContext';
+import { getDownloadUrl } from '../services/library.service';
 import type { Track } from '../types/track';
 
 interface TrackCardProps {
@@ -20,11 +21,23 @@ export default function TrackCard({ track, variant = 'default' }: TrackCardProps
     addToCart(track);
   };
 
-  const handleDownload = (e: React.MouseEvent) => {
+  const handleDownload = async (e: React.MouseEvent) => {
     e.stopPropagation();
-    // Ouvre le fichier audio dans un nouvel onglet
-    // Optionnellement, on peut forcer le téléchargement avec download attribute
-    window.open(track.audioUrl, '_blank');
+    // Le lien n'est délivré qu'au propriétaire de la track (achat non remboursé)
+    // L'onglet est ouvert tout de suite, dans le clic, pour ne pas être bloqué par le navigateur
+    const tab = window.open('', '_blank');
+    try {
+      const url = await getDownloadUrl(track.id);
+      if (tab) {
+        tab.location.href = url;
+      } else {
+        window.open(url, '_blank');
+      }
+    } catch (err) {
+      // 403 : track remboursée depuis l'affichage de la bibliothèque
+      tab?.close();
+      console.error('Téléchargement refusé :', err);
+    }
   };
 
   const handleProducerClick = (e: React.MouseEvent) => {
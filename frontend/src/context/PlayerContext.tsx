@@ -76,6 +76,11 @@ export function PlayerProvider({ children }: { children: ReactNode }) {
   }, [volume]);
 
   const playTrack = async (track: Track) => {
+    // Pas d'extrait d'écoute : rien à jouer
+    if (!track.previewUrl) {
+      return;
+    }
+
     let audio = audioRef.current;
 
     if (!audio) {
@@ -85,7 +90,7 @@ export function PlayerProvider({ children }: { children: ReactNode }) {
 
     // Only reload source when switching track
     if (!currentTrack || currentTrack.id !== track.id) {
-      audio.src = track.audioUrl;
+      audio.src = track.previewUrl;
       audio.currentTime = 0;
       setCurrentTrack(track);
       setProgress(0);
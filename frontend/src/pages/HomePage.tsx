@@ -13,8 +13,8 @@ export default function HomePage() {
       try {
         setLoading(true);
         setError(null);
-        const data = await trackService.getTracks();
-        setTracks(data);
+        const page = await trackService.getTracks();
+        setTracks(page.items);
       } catch (err) {
         setError('Impossible de charger les tracks pour le moment.');
       } finally {
@@ -12,6 +12,9 @@ export default function LibraryPage() {
   const [tracks, setTracks] = useState<Track[]>([]);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
+  const [loadingMore, setLoadingMore] = useState(false);
+  const [loadMoreError, setLoadMoreError] = useState<string | null>(null);
 
   useEffect(() => {
     // Si pas connecté, rediriger vers login
@@ -25,8 +28,9 @@ export default function LibraryPage() {
       try {
         setLoading(true);
         setError(null);
-        const data = await getPurchasedTracks();
-        setTracks(data);
+        const page = await getPurchasedTracks();
+        setTracks(page.items);
+        setNextCursor(page.hasMore ? page.nextCursor : null);
       } catch (err) {
         console.error('Erreur lors du chargement de la bibliothèque :', err);
         setError('Impossible de charger votre bibliothèque. Veuillez réessayer.');
@@ -38,6 +42,23 @@ export default function LibraryPage() {
     loadLibrary();
   }, [isAuthenticated, navigate]);
 
+  // Page suivante (achats plus anciens), ajoutée à la suite de celles déjà affichées
+  const loadMore = async () => {
+    if (!nextCursor || loadingMore) return;
+    try {
+      setLoadingMore(true);
+      setLoadMoreError(null);
+      const page = await getPurchasedTracks(nextCursor);
+      setTracks((previous) => [...previous, ...page.items]);
+      setNextCursor(page.hasMore ? page.nextCursor : null);
+    } catch (err) {
+      console.error('Erreur lors du chargement de la suite de la bibliothèque :', err);
+      setLoadMoreError('Impossible de charger la suite de votre bibliothèque. Veuillez réessayer.');
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   return (
     <div className="min-h-screen bg-slate-950 py-12 px-4 sm:px-6 lg:px-8">
       <div className="max-w-7xl mx-auto">
@@ -103,13 +124,27 @@ export default function LibraryPage() {
         {!loading && !error && tracks.length > 0 && (
           <>
             <p className="text-slate-400 mb-6 text-sm">
-              {tracks.length} instrumentale{tracks.length > 1 ? 's' : ''} dans votre bibliothèque
+              {tracks.length}{nextCursor ? '+' : ''} instrumentale{tracks.length > 1 ? 's' : ''} dans votre bibliothèque
             </p>
             <div className="grid grid-cols-1 sm:grid-cols-2 md:grid-cols-3 lg:grid-cols-4 gap-6">
               {tracks.map((track) => (
                 <TrackCard key={track.id} track={track} variant="library" />
               ))}
             </div>
+
+            {/* Achats plus anciens */}
+            {nextCursor && (
+              <div className="mt-10 text-center">
+                {loadMoreError && <p className="text-red-400 text-sm mb-3">{loadMoreError}</p>}
+                <button
+                  onClick={loadMore}
+                  disabled={loadingMore}
+                  className="px-6 py-2 bg-blue-600 hover:bg-blue-700 disabled:opacity-50 text-white rounded-lg transition-colors"
+                >
+                  {loadingMore ? 'Chargement...' : 'Charger plus'}
+                </button>
+              </div>
+            )}
           </>
         )}
       </div>
@@ -36,6 +36,7 @@ export default function ProducerDashboard() {
     mood: '',
     coverImageUrl: '',
     audioUrl: '',
+    previewUrl: '',
   });
 
   // Charger les tracks du producteur au montage
@@ -120,6 +121,7 @@ export default function ProducerDashboard() {
         mood: '',
         coverImageUrl: '',
         audioUrl: '',
+        previewUrl: '',
       });
       setEditingTrackId(null);
 
@@ -150,7 +152,9 @@ export default function ProducerDashboard() {
       genre: track.genre || '',
       mood: track.mood || '',
       coverImageUrl: track.coverImageUrl,
-      audioUrl: track.audioUrl,
+      // Les fichiers ne sont pas modifiés à la mise à jour ; le fichier vendu n'est pas dans la vue publique
+      audioUrl: '',
+      previewUrl: track.previewUrl || '',
     });
     setEditingTrackId(track.id);
     setShowForm(true);
@@ -172,6 +176,7 @@ export default function ProducerDashboard() {
       mood: '',
       coverImageUrl: '',
       audioUrl: '',
+      previewUrl: '',
     });
     setEditingTrackId(null);
     setShowForm(false);
@@ -477,6 +482,15 @@ export default function ProducerDashboard() {
               currentUrl={formData.audioUrl}
             />
 
+            <FileUpload
+              label="Extrait d'écoute (MP3 taggé)"
+              accept="audio/*"
+              onFileSelect={(url) => {
+                setFormData({ ...formData, previewUrl: url });
+              }}
+              currentUrl={formData.previewUrl}
+            />
+
             <div className="flex gap-3 pt-4">
               <button
                 type="submit"
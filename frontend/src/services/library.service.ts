@@ -1,5 +1,5 @@
 import api from './api';
-import type { Track } from '../types/track';
+import type { CursorPage, Track } from '../types/track';
 
 /**
  * Service pour gérer la bibliothèque client.
@@ -7,15 +7,31 @@ import type { Track } from '../types/track';
  */
 
 /**
- * Récupère la liste des tracks achetées par l'utilisateur.
- * @returns Promise contenant la liste des Track
+ * Récupère une page des tracks achetées par l'utilisateur (les plus récemment achetées d'abord).
+ * @param cursor jeton nextCursor de la page précédente
+ * @returns Promise contenant la page de Track
  */
-export const getPurchasedTracks = async (): Promise<Track[]> => {
+export const getPurchasedTracks = async (cursor?: string): Promise<CursorPage<Track>> => {
   try {
-    const response = await api.get<Track[]>('/library');
+    const response = await api.get<CursorPage<Track>>('/library', { params: { cursor } });
     return response.data;
   } catch (error) {
     console.error('Erreur lors de la récupération de la bibliothèque :', error);
     throw error;
   }
 };
+
+/**
+ * Récupère le lien de téléchargement d'une track achetée (refusé si elle n'est pas dans la bibliothèque).
+ * @param trackId identifiant de la track
+ * @returns Promise contenant l'URL du fichier audio
+ */
+export const getDownloadUrl = async (trackId: string): Promise<string> => {
+  try {
+    const response = await api.get<{ url: string }>(`/library/${trackId}/download`);
+    return response.data.url;
+  } catch (error) {
+    console.error('Erreur lors de la récupération du lien de téléchargement :', error);
+    throw error;
+  }
+};
@@ -1,9 +1,9 @@
 import api from './api';
-import type { Track, TrackRequest } from '../types/track';
+import type { CursorPage, Track, TrackRequest } from '../types/track';
 
 export const trackService = {
-  async getTracks(): Promise<Track[]> {
-    const { data } = await api.get<Track[]>('/tracks');
+  async getTracks(cursor?: string): Promise<CursorPage<Track>> {
+    const { data } = await api.get<CursorPage<Track>>('/tracks', { params: { cursor } });
     return data;
   },
   async createTrack(data: TrackRequest): Promise<Track> {
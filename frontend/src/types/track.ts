@@ -12,13 +12,21 @@ export interface Track {
   producer: Producer;
   price: number;
   coverImageUrl: string;
-  audioUrl: string;
+  // Extrait taggé ; le fichier vendu passe par le téléchargement de la bibliothèque
+  previewUrl?: string | null;
   description?: string | null;
   genre?: string | null;
   bpm?: number | null;
   mood?: string | null;
 }
 
+// Enveloppe des listings paginés par curseur
+export interface CursorPage<T> {
+  items: T[];
+  nextCursor: string | null;
+  hasMore: boolean;
+}
+
 export interface TrackRequest {
   title: string;
   description?: string;
@@ -28,5 +36,6 @@ export interface TrackRequest {
   mood?: string;
   coverImageUrl: string;
   audioUrl: string;
+  previewUrl?: string;
 }
 